@@ -4,22 +4,44 @@ import cs3500.music.adaptor.ModelAdaptor;
 import cs3500.music.controller.IMusicController;
 import cs3500.music.controller.MusicController;
 import cs3500.music.controller.OtherMusicController;
+import cs3500.music.controller.ScoreWindowController;
 import cs3500.music.model.IMusicModel;
 import cs3500.music.model.MusicModel;
 import cs3500.music.provider.model.ASound;
 import cs3500.music.provider.model.IViewModel;
 import cs3500.music.provider.view.IView;
+import cs3500.music.util.CompositionBuilder;
+import cs3500.music.util.MusicFollower;
 import cs3500.music.util.MusicReader;
+import cs3500.music.util.ScoreFile;
+import cs3500.music.util.ScoreWindow;
 import cs3500.music.view.IMusicView;
 import cs3500.music.view.ViewFactory;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import javax.sound.midi.InvalidMidiDataException;
 
 
 public class MusicEditor {
+  /**
+   * Represents the third argument that follows the file as it is written.
+   */
+  private static final String FOLLOW = "follow";
+
+  /**
+   * Represents the number of milliseconds between reads of a file followed.
+   */
+  private static final int FOLLOW_PERIOD = 250;
+
+  /**
+   * Represents the number of beats past which a score file is shown through a window onto it,
+   * rather than read whole: as many beats as the window holds at once.
+   */
+  private static final int WINDOWED_BEATS = ScoreWindow.REGION_BEATS * ScoreWindow.MAX_REGIONS;
+
   /**
    * Main method that runs this MusicEditor.
    * @param args array of String arguments to be executed.
@@ -28,23 +50,71 @@ public class MusicEditor {
    *         CHANGELOG: If you give the specification of "midi," "gui," "console." or "multi" as a
    *         second argument then our old views will display. Otherwise, if left blank, the
    *         CompositeView of our providers will appear.
+   *         The file is now read by MusicReader straight from its bytes.
+   *         The file may also be a score file saved by ScoreFile.
+   *         Giving "follow" as a third argument follows a text file, adding the lines another
+   *         program appends to it as they are written.
+   *         A score file longer than a window's worth of beats is not read whole for any view but
+   *         the console: a ScoreWindowController reads the regions around the beats shown and
+   *         played as they move, so it can be moved through and played but not edited.
    */
   public static void main(String[] args) throws IOException, InvalidMidiDataException {
     IMusicController controller;
-    if (args.length == 2) {
-      IMusicModel model = MusicReader.parseFile(new FileReader(args[0]),
-              new MusicModel.Builder());
+    if (args.length == 3 && args[2].equalsIgnoreCase(FOLLOW)) {
+      MusicFollower follower = new MusicFollower(Paths.get(args[0]));
+      IMusicModel model = follower.read(new MusicModel.Builder());
+      MusicController followed = new MusicController(model, ViewFactory.createView(args[1]));
+      followed.follow(follower, FOLLOW_PERIOD);
+      controller = followed;
+    }
+    else if (args.length == 2) {
+      Path file = Paths.get(args[0]);
+      ScoreWindow window = windowOnto(file, args[1]);
       IMusicView view = ViewFactory.createView(args[1]);
 
-      controller = new MusicController(model, view);
+      if (window != null) {
+        controller = new ScoreWindowController(window, view);
+      }
+      else {
+        IMusicModel model = read(file, new MusicModel.Builder());
+        controller = new MusicController(model, view);
+      }
     }
     else {
-      IViewModel<ASound> viewModel = MusicReader.parseFile(new FileReader(args[0]),
-              new ModelAdaptor.Builder());
+      IViewModel<ASound> viewModel = read(Paths.get(args[0]), new ModelAdaptor.Builder());
       IView<ASound> view = ViewFactory.createView(ViewFactory.MULTI_VIEW, viewModel);
       controller = new OtherMusicController(viewModel, view);
     }
     controller.goController();
 
   }
+
+  /**
+   * Opens a window onto the given file if it is a score file too long to read whole, shown in a
+   * view other than the console, which prints every beat it shows at once.
+   * @param file represents the file.
+   * @param view represents the code of the view the piece is shown in.
+   * @return the window, or null if the file should be read whole.
+   * @throws IOException if the file can't be read.
+   */
+  private static ScoreWindow windowOnto(Path file, String view) throws IOException {
+    if (view.startsWith(ViewFactory.TEXT_VIEW) || !ScoreFile.isScoreFile(file)) {
+      return null;
+    }
+    ScoreWindow window = ScoreWindow.open(file);
+    return window.getScore().lengthOfSongInBeats() > WINDOWED_BEATS ? window : null;
+  }
+
+  /**
+   * Reads a piece from a score file, or from a text file if it is not a score file.
+   * @param file    represents the file.
+   * @param builder represents the builder of the piece.
+   * @param <T>     represents the type of piece.
+   * @return the piece.
+   * @throws IOException if the file can't be read.
+   */
+  private static <T> T read(Path file, CompositionBuilder<T> builder) throws IOException {
+    return ScoreFile.isScoreFile(file) ? ScoreFile.read(file, builder)
+            : MusicReader.parseFile(file, builder);
+  }
 }
@@ -2,29 +2,44 @@ package cs3500.music.adaptor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import cs3500.music.model.IMusicModel;
 import cs3500.music.model.Melody;
 import cs3500.music.model.MusicModel;
 import cs3500.music.provider.model.ASound;
 import cs3500.music.provider.model.IViewModel;
+import cs3500.music.provider.model.PitchMasks;
 import cs3500.music.model.Note;
 import cs3500.music.util.CompositionBuilder;
+import cs3500.music.util.NoteBuffer;
+import javafx.util.Pair;
 
 /**
  * Adaptor to translate between the given view-model and our model. Extends our music model,
- * implements given view-model to promise that functionality.
+ * implements given view-model to promise that functionality. The view-model methods are called by
+ * the views' playback timer, so they read from a snapshot of the model rather than the model
+ * itself.
  */
 public class ModelAdaptor extends MusicModel implements IViewModel<ASound> {
 
   /**
-   * Allows for building a Composition without knowing of the MusicModel.
+   * Allows for building a Composition without knowing of the MusicModel. As with
+   * {@code MusicModel.Builder}, the notes are added all at once when the piece is built, by
+   * instrument and then by start, so the melodies they are split into follow that order rather
+   * than the order they were given in.
    */
   public static class Builder implements CompositionBuilder<IViewModel<ASound>> {
     IMusicModel model = new ModelAdaptor(4, 100);
 
+    /**
+     * Represents the notes given so far, added to the model all at once when it is built.
+     */
+    private final NoteBuffer notes = new NoteBuffer();
+
     @Override
     public ModelAdaptor build() {
+      this.notes.addTo(model);
       return (ModelAdaptor)model;
     }
 
@@ -37,7 +52,7 @@ public class ModelAdaptor extends MusicModel implements IViewModel<ASound> {
     @Override
     public CompositionBuilder<IViewModel<ASound>> addNote(int start, int end, int instrument,
                                                   int pitch, int volume) {
-      model.addNote(start, end, instrument, pitch, volume);
+      this.notes.add(start, end, instrument, pitch, volume);
       return this;
     }
   }
@@ -63,19 +78,38 @@ public class ModelAdaptor extends MusicModel implements IViewModel<ASound> {
 
   @Override
   public int getDurationInBeats() {
-    return this.lengthOfSongInBeats();
+    return this.snapshot().lengthOfSongInBeats();
   }
 
   @Override
   public List getNotesAt(int beat) throws IllegalArgumentException {
-
-    List notes  = this.getAllNotesMap().get(beat);
-    if (notes == null) {
-      return new ArrayList();
+    List<Note> notes = new ArrayList<>();
+    List<Pair<Integer, Note>> starting = this.snapshot().getNotesBetween(beat, beat + 1).get(beat);
+    if (starting != null) {
+      for (Pair<Integer, Note> pair : starting) {
+        notes.add(pair.getValue());
+      }
     }
     return notes;
   }
 
+  @Override
+  public PitchMasks getPitchMasks(int fromBeat, int toBeat) {
+    IMusicModel snapshot = this.snapshot();
+    if (snapshot.getMelodies().isEmpty() || snapshot.getLowestNote() == null) {
+      return new PitchMasks(0, -1, fromBeat, toBeat);
+    }
+    PitchMasks masks = new PitchMasks(snapshot.getLowestNote().noteValue(),
+            snapshot.getHighestNote().noteValue(), fromBeat, toBeat);
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> placed
+            : snapshot.getNotesBetween(fromBeat, toBeat).entrySet()) {
+      for (Pair<Integer, Note> pair : placed.getValue()) {
+        masks.add(pair.getValue().noteValue(), placed.getKey(), pair.getValue().getDuration());
+      }
+    }
+    return masks;
+  }
+
   @Override
   public List<List<ASound>> getAllNotes() throws IllegalArgumentException {
     return null;
@@ -83,16 +117,16 @@ public class ModelAdaptor extends MusicModel implements IViewModel<ASound> {
 
   @Override
   public Note getHighest() {
-    return this.getHighestNote();
+    return this.snapshot().getHighestNote();
   }
 
   @Override
   public Note getLowest() {
-    return this.getLowestNote();
+    return this.snapshot().getLowestNote();
   }
 
   @Override
   public int getTempo() {
-    return (int) this.microsecondsPerBeat();
+    return (int) this.snapshot().microsecondsPerBeat();
   }
 }
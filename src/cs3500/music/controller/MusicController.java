@@ -5,24 +5,46 @@ import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.List;
 
 import javax.sound.midi.InvalidMidiDataException;
+import javax.swing.Timer;
 
+import cs3500.music.model.ASound;
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IModelListener;
 import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelChange;
 import cs3500.music.model.Note;
 import cs3500.music.model.Repeat;
+import cs3500.music.util.MusicFollower;
 import cs3500.music.view.IMusicView;
 import cs3500.music.view.NoteDisplayPanel;
-import javafx.util.Pair;
 
 /**
  * Implementation of {@code IMusicController} used for running Music Editors.
  * CHANGELOG: HW09: Fixed a bug in getReleasedInfo that prevented users from adding notes to the top
  *                    line in the piece.
+ *                  goController() and play() now walk the notes through the model's
+ *                    noteIterator() rather than asking for a list of every note.
+ *                  goController() now reads a snapshot of the model, so the views are handed one
+ *                    consistent piece even while the model is being changed.
+ *                  Edits now hand the views only the notes and events they added, by listening for
+ *                    the changes the model makes; other changes still hand over the whole piece.
+ *                  Added follow(), which adds the lines another program appends to the file of the
+ *                    piece as they are written, handing the views only the notes added.
+ *                  The views are now also handed the piece itself, so the text view can show only
+ *                    the beats it was asked for.
+ *                  Edits now hand the views only the sound each change added, rather than every
+ *                    note starting on its beat, and update() hands the views a snapshot of the
+ *                    model, as goController() does.
+ *                  The views are now handed the model itself through showPiece() rather than a
+ *                    snapshot, so the text view draws the grid from the rows the model keeps, and
+ *                    an edit redraws only the rows of the beats it touched.
  */
 public class MusicController implements IMusicController, ActionListener {
   /**
@@ -55,6 +77,16 @@ public class MusicController implements IMusicController, ActionListener {
    */
   private Map<Integer, List<Note>> allNotes;
 
+  /**
+   * Represents every note handed to the display, as its start, duration, pitch and instrument.
+   */
+  private List<Integer[]> noteInfo = new ArrayList<>();
+
+  /**
+   * Represents the changes made to the model since the views were last updated.
+   */
+  private List<ModelChange> changes = new ArrayList<>();
+
   /**
    * Represents the last point pressed.
    */
@@ -65,6 +97,16 @@ public class MusicController implements IMusicController, ActionListener {
    */
   private boolean offSignal = true;
 
+  /**
+   * Represents the follower of the file of the piece, or null if the file is not followed.
+   */
+  private MusicFollower follower;
+
+  /**
+   * Represents the timer that reads the lines added to the file followed.
+   */
+  private Timer followTimer;
+
   /**
    * Constructs a Music Controller.
    * @param model the model this controller manipulates
@@ -73,6 +115,12 @@ public class MusicController implements IMusicController, ActionListener {
   public MusicController(IMusicModel model, IMusicView view) {
     this.model = model;
     this.view = view;
+    model.addListener(new IModelListener() {
+      @Override
+      public void modelChanged(ModelChange change) {
+        changes.add(change);
+      }
+    });
     KeyHandler keyHandler = new KeyHandler();
     view.addKeyListener(keyHandler);
 
@@ -169,7 +217,7 @@ public class MusicController implements IMusicController, ActionListener {
           model.removeNote(clickedNote, selectedBeat);
           clickedNote = null;
           selectedBeat = null;
-          goController();
+          update();
         }
       }
     });
@@ -177,15 +225,19 @@ public class MusicController implements IMusicController, ActionListener {
 
   @Override
   public void goController() {
-    List<Pair<Integer, Note>> noteList = this.model.getNoteList();
-    allNotes = this.model.getAllNotesMap();
+    this.changes.clear();
+    IMusicModel piece = this.model.snapshot();
+    allNotes = piece.getAllNotesMap();
 
     List<Integer[]> noteInfo = new ArrayList<>();
+    this.noteInfo = noteInfo;
 
 
-    for (Pair<Integer, Note> pair : noteList) {
-      int start = pair.getKey();
-      Note note = pair.getValue();
+    Iterator<IMusicModel.PlacedNote> notes = piece.noteIterator();
+    while (notes.hasNext()) {
+      IMusicModel.PlacedNote placed = notes.next();
+      int start = placed.getBeat();
+      Note note = placed.getNote();
       view.handNotes(start, note.getDuration(), note.noteValue(),
               note.getInstrument());
       noteInfo.add(new Integer[]{start,
@@ -194,39 +246,145 @@ public class MusicController implements IMusicController, ActionListener {
               note.getInstrument()});
     }
 
-    play();
+    play(piece);
+
+    view.changeDisplay(piece.getLowestNote().noteValue() - 1,
+            piece.getHighestNote().noteValue() + 1, piece.lengthOfSongInBeats(), noteInfo);
+    // The model itself keeps the rows of its grid, which a snapshot would write again.
+    view.showPiece(this.model);
+    view.display();
+  }
+
+  /**
+   * Brings the views up to date with the changes made to the model since they were last updated.
+   * Notes and events that were only added are handed to the views on their own; any other change
+   * hands the views the whole piece again, as the MIDI view can't take notes back.
+   */
+  private void update() {
+    boolean eventAdded = false;
+    for (ModelChange change : this.changes) {
+      if (change.getKind() == ModelChange.Kind.EVENT_ADDED) {
+        eventAdded = true;
+      }
+      else if (change.getKind() != ModelChange.Kind.NOTE_ADDED || allNotes == null) {
+        this.goController();
+        return;
+      }
+    }
+
+    for (ModelChange change : this.changes) {
+      if (change.getKind() == ModelChange.Kind.NOTE_ADDED) {
+        this.addedNotes(change);
+      }
+    }
+    this.changes.clear();
+
+    IMusicModel piece = this.model.snapshot();
+    if (eventAdded) {
+      List<IFlag> events = piece.getEvents();
+      view.setFlagEvents(events);
+      for (IFlag flag : events) {
+        flag.setNumberOfRepetitions(0);
+      }
+    }
 
-    view.changeDisplay(model.getLowestNote().noteValue() - 1,
-            model.getHighestNote().noteValue() + 1, model.lengthOfSongInBeats(), noteInfo);
+    view.changeDisplay(piece.getLowestNote().noteValue() - 1,
+            piece.getHighestNote().noteValue() + 1, piece.lengthOfSongInBeats(),
+            this.noteInfo);
+    view.showPiece(this.model);
     view.display();
   }
 
+  /**
+   * Hands the notes of a sound that was added to the model to the views. Only the sound the change
+   * carries is handed over, as other notes may already start on the same beat.
+   * @param change represents the change that added the sound.
+   */
+  private void addedNotes(ModelChange change) {
+    int start = change.getFromBeat();
+    ASound sound = change.getSound();
+    if (sound == null || sound.isRest()) {
+      return;
+    }
+    for (Note note : sound.getNotesIn()) {
+      view.handNotes(start, note.getDuration(), note.noteValue(), note.getInstrument());
+      this.noteInfo.add(new Integer[]{start,
+              note.getDuration(),
+              note.noteValue(),
+              note.getInstrument()});
+      allNotes.computeIfAbsent(start, beat -> new ArrayList<>()).add(note);
+      try {
+        view.playNote(start, start + note.getDuration(), note.getInstrument(),
+                note.noteValue(), this.model.microsecondsPerBeat());
+      } catch (InvalidMidiDataException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
   /**
    * Hands allthe notes to the List.
+   * @param piece represents the snapshot of the model being played.
    */
-  private void play() {
+  private void play(IMusicModel piece) {
 
-    List<IFlag> events = this.model.getEvents();
+    List<IFlag> events = piece.getEvents();
     view.setFlagEvents(events);
     for (IFlag flag : events) {
       flag.setNumberOfRepetitions(0);
     }
 
-    for (Pair<Integer, Note> pair : this.model.getNoteList()) {
-      int start = pair.getKey();
-      Note note = pair.getValue();
+    Iterator<IMusicModel.PlacedNote> notes = piece.noteIterator();
+    while (notes.hasNext()) {
+      IMusicModel.PlacedNote placed = notes.next();
+      int start = placed.getBeat();
+      Note note = placed.getNote();
       try {
         view.playNote(start, start + note.getDuration(), note.getInstrument(),
-                note.noteValue(), this.model.microsecondsPerBeat());
+                note.noteValue(), piece.microsecondsPerBeat());
       } catch (InvalidMidiDataException e) {
         e.printStackTrace();
       }
     }
   }
 
+  /**
+   * Follows the file of the piece: every given number of milliseconds, the lines added to the
+   * file since it was last read are added to the model, and the views are handed the notes they
+   * added. The file must have been read into the model by the same follower.
+   * @param follower represents the follower of the file.
+   * @param period   represents the number of milliseconds between reads.
+   */
+  public void follow(MusicFollower follower, int period) {
+    if (this.followTimer != null) {
+      this.followTimer.stop();
+    }
+    this.follower = follower;
+    this.followTimer = new Timer(period, this);
+    this.followTimer.start();
+  }
+
+  /**
+   * Reads the lines added to the file followed, each time the follow timer goes off.
+   * @param e represents the timer going off.
+   */
   @Override
   public void actionPerformed(ActionEvent e) {
-      //Do nothing, as we don't currently use ActionEvents.
+    if (this.follower == null) {
+      return;
+    }
+    long offset = this.follower.getOffset();
+    try {
+      this.follower.read(this.model);
+    } catch (IOException | IllegalArgumentException ex) {
+      this.view.showWarning(ex.getMessage());
+    } catch (IllegalStateException ex) {
+      this.followTimer.stop();
+      this.view.showWarning(ex.getMessage());
+    }
+    if (this.follower.getOffset() != offset && !this.changes.isEmpty()) {
+      this.update();
+    }
   }
 
   /**
@@ -318,7 +476,7 @@ public class MusicController implements IMusicController, ActionListener {
           instrument = this.view.intCommands("What is the MIDI code for the instrument you want?");
           volume = this.view.intCommands("What volume would you like this note as.");
           this.model.addNote(start, end, instrument / 8 + 1, pitch, volume);
-          this.goController();
+          this.update();
           return;
         } catch (NullPointerException e) {
           this.clickedNote = null;
@@ -354,7 +512,7 @@ public class MusicController implements IMusicController, ActionListener {
           this.model.addEvent(new Repeat(start, endBeat));
           this.clickedNote = null;
           this.pressed = null;
-          this.goController();
+          this.update();
         }
         else if (numOfEndings >= 1) {
           if (numOfEndings > 7) {
@@ -374,7 +532,7 @@ public class MusicController implements IMusicController, ActionListener {
             return;
           }
           this.model.addEvent(new Repeat(start, skipPoint, ints));
-          this.goController();
+          this.update();
         }
       } catch (IllegalArgumentException e) {
         view.showWarning(e.getMessage());
@@ -0,0 +1,259 @@
+package cs3500.music.controller;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.swing.Timer;
+
+import cs3500.music.model.Note;
+import cs3500.music.util.ScoreFile;
+import cs3500.music.util.ScoreWindow;
+import cs3500.music.view.IMusicView;
+import cs3500.music.view.NoteDisplayPanel;
+import javafx.util.Pair;
+
+/**
+ * A controller that shows and plays a long piece saved as a score file without ever reading all
+ * of it, through a {@code ScoreWindow}. The views are handed only the notes of the regions around
+ * the beats they show, and as those move the regions around the new beats are read and the views
+ * handed their notes instead; the regions looked at longest ago are dropped. The notes of the
+ * region playing and the one after it are handed over to be played as the playing reaches them.
+ * So the time taken to first show the piece, and the memory held, depend on the size of the
+ * window and not on the length of the piece. The piece can be moved through and played as with a
+ * {@code MusicController}, but not edited.
+ */
+public class ScoreWindowController implements IMusicController, ActionListener {
+  /**
+   * Represents the number of milliseconds between looks at the beats the views show and play.
+   */
+  public static final int PAGE_PERIOD = 100;
+
+  /**
+   * Represents the pitch the range of pitches shown is centred on before any note is read.
+   */
+  private static final int MIDDLE_C = 60;
+
+  /**
+   * Represents the window onto the score file.
+   */
+  private final ScoreWindow window;
+
+  /**
+   * Represents the view for this controller.
+   */
+  private final IMusicView view;
+
+  /**
+   * Represents the timer that reads the regions around the beats shown and played as they move.
+   */
+  private final Timer pageTimer;
+
+  /**
+   * Represents the range of beats whose notes the views were last handed, or null if they have
+   * been handed none.
+   */
+  private int[] shown = null;
+
+  /**
+   * Represents the lowest pitch shown, which only widens as lower notes are read.
+   */
+  private int lowest = Integer.MAX_VALUE;
+
+  /**
+   * Represents the highest pitch shown, which only widens as higher notes are read.
+   */
+  private int highest = Integer.MIN_VALUE;
+
+  /**
+   * Represents the regions of the window whose notes have been handed over to be played. A region
+   * is only handed over once, even if it is dropped and read again, since the notes handed over
+   * stay scheduled.
+   */
+  private final BitSet played = new BitSet();
+
+  /**
+   * Represents whether music should be playing or not.
+   */
+  private boolean offSignal = true;
+
+  /**
+   * Constructs a controller showing the given window onto a score file in the given view.
+   * @param window represents the window onto the score file.
+   * @param view   represents the view the piece is shown in.
+   */
+  public ScoreWindowController(ScoreWindow window, IMusicView view) {
+    this.window = window;
+    this.view = view;
+    this.pageTimer = new Timer(PAGE_PERIOD, this);
+
+    KeyHandler keyHandler = new KeyHandler();
+    view.addKeyListener(keyHandler);
+
+    // plays the midi music
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_SPACE, new Runnable() {
+      @Override
+      public void run() {
+        offSignal = !offSignal;
+        view.switchPlayback(!offSignal);
+        if (!offSignal) {
+          view.setScrollPolicy(true);
+        }
+      }
+    });
+    // takes display to the beginning of song
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_HOME, new Runnable() {
+      @Override
+      public void run() {
+        view.setScrollPolicy(false);
+        view.setCurrentDisplayPosition(0, 0);
+        page();
+      }
+    });
+    // takes display to the end of the song
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_END, new Runnable() {
+      @Override
+      public void run() {
+        view.setScrollPolicy(false);
+        view.setCurrentDisplayPosition(window.getScore().lengthOfSongInBeats()
+                * NoteDisplayPanel.NOTE_WIDTH, 0);
+        page();
+      }
+    });
+    // moves display to the right
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_RIGHT, new Runnable() {
+      @Override
+      public void run() {
+        view.setScrollPolicy(false);
+        view.incrementCurrentDisplayPosition(true, true);
+        page();
+      }
+    });
+    // moves display to the left
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_LEFT, new Runnable() {
+      @Override
+      public void run() {
+        view.setScrollPolicy(false);
+        view.incrementCurrentDisplayPosition(true, false);
+        page();
+      }
+    });
+    // moves display up
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_UP, new Runnable() {
+      @Override
+      public void run() {
+        view.incrementCurrentDisplayPosition(false, false);
+      }
+    });
+    // moves display down
+    keyHandler.addToKeyPressedMap(KeyEvent.VK_DOWN, new Runnable() {
+      @Override
+      public void run() {
+        view.incrementCurrentDisplayPosition(false, true);
+      }
+    });
+  }
+
+  /**
+   * Shows the regions around the first beats shown, then reads other regions as the beats shown
+   * and played move.
+   */
+  @Override
+  public void goController() {
+    this.view.setFlagEvents(this.window.getScore().getEvents());
+    this.view.display();
+    this.page();
+    this.pageTimer.start();
+  }
+
+  /**
+   * Reads the regions around the beats shown and played, each time the page timer goes off.
+   * @param e represents the timer going off.
+   */
+  @Override
+  public void actionPerformed(ActionEvent e) {
+    this.page();
+  }
+
+  /**
+   * Hands over to be played the notes of the region playing and the region after it, if they
+   * have not been already. Then reads the regions around the beats the views show, and if they
+   * are not the regions the views were last handed, hands the views the notes of those regions in
+   * place of the notes they were handed before.
+   */
+  synchronized void page() {
+    int playing = Math.max(this.view.getCurrentBeat(), 0) / this.window.getRegionBeats();
+    this.play(playing);
+    this.play(playing + 1);
+
+    int[] visible = this.view.getVisibleBeats();
+    this.window.showBeats(visible[0], visible[1]);
+    int[] regions = this.window.getShownBeats();
+    if (this.shown != null && this.shown[0] == regions[0] && this.shown[1] == regions[1]) {
+      return;
+    }
+    this.shown = regions;
+
+    List<Integer[]> noteInfo = new ArrayList<>();
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> starting
+            : this.window.getNotesBetween(regions[0], regions[1]).entrySet()) {
+      for (Pair<Integer, Note> placed : starting.getValue()) {
+        Note note = placed.getValue();
+        this.lowest = Math.min(this.lowest, note.noteValue());
+        this.highest = Math.max(this.highest, note.noteValue());
+        noteInfo.add(new Integer[]{starting.getKey(), note.getDuration(), note.noteValue(),
+            note.getInstrument()});
+      }
+    }
+
+    int low = this.lowest > this.highest ? MIDDLE_C : this.lowest;
+    int high = this.lowest > this.highest ? MIDDLE_C : this.highest;
+    this.view.changeDisplay(low - 1, high + 1, this.window.getScore().lengthOfSongInBeats(),
+            noteInfo);
+    this.view.display();
+  }
+
+  /**
+   * Hands over to be played the notes starting in the given region, unless they have been already
+   * or the region is past the end of the piece.
+   * @param region represents the index of the region.
+   */
+  private void play(int region) {
+    ScoreFile score = this.window.getScore();
+    int from = region * this.window.getRegionBeats();
+    if (this.played.get(region) || from >= score.lengthOfSongInBeats()) {
+      return;
+    }
+    this.played.set(region);
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> starting
+            : this.window.getNotesBetween(from, from + this.window.getRegionBeats()).entrySet()) {
+      int start = starting.getKey();
+      if (start < from) {
+        // Handed over with the region it starts in.
+        continue;
+      }
+      for (Pair<Integer, Note> placed : starting.getValue()) {
+        Note note = placed.getValue();
+        try {
+          this.view.playNote(start, start + note.getDuration(), note.getInstrument(),
+                  note.noteValue(), score.getTempo());
+        } catch (InvalidMidiDataException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gives the window onto the score file.
+   * @return the window.
+   */
+  public ScoreWindow getWindow() {
+    return this.window;
+  }
+}
@@ -67,6 +67,17 @@ public abstract class AFlag implements IFlag {
     this.skipPoint = firstLoopStart;
   }
 
+  /**
+   * Creates a copy of the given Flag, with its own maps of beats and count of repetitions.
+   * @param other represents the Flag copied.
+   */
+  protected AFlag(AFlag other) {
+    this.startBeats = new HashMap<>(other.startBeats);
+    this.endPositions = new HashMap<>(other.endPositions);
+    this.repetitions = other.repetitions;
+    this.skipPoint = other.skipPoint;
+  }
+
   @Override
   public int getStartBeat() {
     return this.startBeats.get(this.repetitions);
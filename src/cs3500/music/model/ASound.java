@@ -14,6 +14,7 @@ import cs3500.music.provider.model.BeatState;
  *              might be represented. Is set to 0 (Grand Piano) inherently.
  *            Added new method setInstrument to allow for changing the instrument.
  *            Added new abstract method makeChord to allow for making new chords.
+ *            Added new abstract method copy to allow for copying sounds that are shared.
  */
 public abstract class ASound extends cs3500.music.provider.model.ASound {
 
@@ -177,4 +178,11 @@ public abstract class ASound extends cs3500.music.provider.model.ASound {
    * @return {@code Chord} from given notes.
    */
   public abstract Chord makeChord(Note note);
+
+  /**
+   * Creates a copy of this Sound that shares no Notes with it, so that changing one never changes
+   * the other.
+   * @return a copy of this Sound.
+   */
+  public abstract ASound copy();
 }
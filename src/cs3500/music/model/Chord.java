@@ -173,6 +173,17 @@ public class Chord extends ASound implements Iterable<Note> {
     return new Chord(this.duration, this, note);
   }
 
+  @Override
+  public Chord copy() {
+    Chord copy = new Chord(this.duration);
+    for (Note note : this.notes) {
+      copy.notes.add(note.copy());
+    }
+    copy.volume = this.volume;
+    copy.instrument = this.instrument;
+    return copy;
+  }
+
   @Override
   public List<ASound> getSoundsIn() {
     List<ASound> sounds = new ArrayList<ASound>();
@@ -0,0 +1,1686 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import cs3500.music.util.CompositionBuilder;
+import cs3500.music.util.NoteBuffer;
+import javafx.util.Pair;
+
+/**
+ * An {@code IMusicModel} that keeps every note in parallel arrays of primitives rather than as
+ * {@code ASound} objects, for large pieces and for jobs that read many files at once. A note costs
+ * its start, duration, pitch, instrument, volume and melody, and there are no {@code Rest}s; the
+ * gaps between notes are only implied by where the notes start. A rest is only stored, as a row
+ * without a pitch, where a melody has several rests in a row, such as where a note was removed,
+ * since {@code MusicModel} places new notes by those rests. {@code Note}s and
+ * {@code Melody}s are made from the arrays only when they are asked for, so changing them does
+ * not change this model.
+ * A note added through {@code addNote(start, end, instrument, pitch, volume)} goes into the same
+ * melody {@code MusicModel} would put it in, found through a {@code TrackPlacement} of the
+ * melodies, whose notes are each kept in the order they start. The grid and ranges of beats are
+ * read straight from the notes in the order they start. Changes that work on the sounds of a
+ * single melody, such as swapping a note or adding one between stored rests or before the first
+ * beat, make a {@code Melody} of that melody alone, change it as {@code MusicModel} would, and
+ * store its notes again, so they cost as much as that melody; splicing moves the notes of every
+ * melody in place.
+ */
+public class CompactMusicModel implements IMusicModel {
+
+  /**
+   * Allows for building a CompactMusicModel without knowing of the CompactMusicModel.
+   */
+  public static class Builder implements CompositionBuilder<CompactMusicModel> {
+    CompactMusicModel model = new CompactMusicModel(4, 100);
+
+    /**
+     * Represents the notes given so far, added to the model all at once when it is built.
+     */
+    private final NoteBuffer notes = new NoteBuffer();
+
+    @Override
+    public CompactMusicModel build() {
+      this.notes.addTo(model);
+      return model;
+    }
+
+    @Override
+    public CompositionBuilder<CompactMusicModel> setTempo(int tempo) {
+      model.setTempo(tempo);
+      return this;
+    }
+
+    @Override
+    public CompositionBuilder<CompactMusicModel> addNote(int start, int end, int instrument,
+                                                         int pitch, int volume) {
+      this.notes.add(start, end, instrument, pitch, volume);
+      return this;
+    }
+  }
+
+  /**
+   * Represents the number of notes the arrays start out able to hold.
+   */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /**
+   * Represents the pitch stored for a rest.
+   */
+  private static final byte REST = -1;
+
+  /**
+   * Represents the dynamic given to every Melody made from this.
+   */
+  private static final int MELODY_DYNAMIC = 50;
+
+  /**
+   * Represents the number of notes in this.
+   */
+  private int size = 0;
+
+  /**
+   * Represents the beat each note starts at.
+   */
+  private int[] starts = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the duration of each note, in beats.
+   */
+  private int[] durations = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the pitch of each note, as given by {@code Note.noteValue()}, from 0 to 127, or
+   * {@code REST} for a stored rest.
+   */
+  private byte[] pitches = new byte[INITIAL_CAPACITY];
+
+  /**
+   * Represents the instrument of each note, less one, so that instruments 1 to 128 fit.
+   */
+  private byte[] instruments = new byte[INITIAL_CAPACITY];
+
+  /**
+   * Represents the volume of each note, from 0 to 127.
+   */
+  private byte[] volumes = new byte[INITIAL_CAPACITY];
+
+  /**
+   * Represents the index of the melody each note exists in.
+   */
+  private short[] melodyOf = new short[INITIAL_CAPACITY];
+
+  /**
+   * Represents the notes in the order they start, then by melody, then the order they were added,
+   * or null if it has to be worked out again.
+   */
+  private int[] order = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents, for each place in {@code order}, the latest beat any note up to that place ends
+   * at, so that the first note that may still be sounding at a beat can be found by a binary
+   * search; worked out again with {@code order}.
+   */
+  private int[] reach = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the number of melodies in this.
+   */
+  private int melodyCount = 0;
+
+  /**
+   * Represents the instrument of each melody.
+   */
+  private int[] melodyInstruments = new int[4];
+
+  /**
+   * Represents the length of each melody in beats, including any rest at its end.
+   */
+  private int[] melodyLengths = new int[4];
+
+  /**
+   * Represents the notes of each melody, in the order they start.
+   */
+  private int[][] melodyRows = new int[4][];
+
+  /**
+   * Represents the number of notes in each melody.
+   */
+  private int[] melodyRowCounts = new int[4];
+
+  /**
+   * Represents the number of stored rests in each melody.
+   */
+  private int[] melodyRestCounts = new int[4];
+
+  /**
+   * Represents the number of notes at every pitch.
+   */
+  private final PitchRange pitchRange = new PitchRange();
+
+  /**
+   * Groups the melodies by instrument, to find the melody a new note goes in.
+   */
+  private final TrackPlacement placement = new TrackPlacement();
+
+  /**
+   * Represents how much to scale the volume by. Number is from 0 to 1.
+   */
+  private double volumeMult;
+
+  /**
+   * Represents number of beats per measure.
+   */
+  private int beat;
+
+  /**
+   * Represents the tempo in microseconds per beat.
+   */
+  private int tempo;
+
+  /**
+   * Represents the events in this model.
+   */
+  private List<IFlag> events = new ArrayList<>();
+
+  /**
+   * Represents the listeners told of every change to this.
+   */
+  private List<IModelListener> listeners = new ArrayList<>();
+
+  /**
+   * Creates an empty CompactMusicModel.
+   * @param beat       represents the number of beats per measure.
+   * @param volumeMult represents the volume of the whole model.
+   */
+  public CompactMusicModel(int beat, int volumeMult) {
+    if (volumeMult > 100) {
+      throw new IllegalArgumentException("Max volume multiplier is 100");
+    }
+    this.beat = beat;
+    this.volumeMult = volumeMult / 100.0;
+
+    for (Pitch p : Pitch.values()) {
+      ASound.PITCHES.put(p.val, p);
+    }
+  }
+
+  @Override
+  public IMusicModel build() {
+    return this;
+  }
+
+  @Override
+  public CompositionBuilder<IMusicModel> setTempo(int tempo) {
+    this.tempo = tempo;
+    this.fire(new ModelChange(ModelChange.Kind.TEMPO_CHANGED, -1));
+    return this;
+  }
+
+  /**
+   * Adds many notes at once, in the same order {@code MusicModel.addNotes()} does, so the notes
+   * go into the same melodies they would there.
+   */
+  @Override
+  public CompositionBuilder<IMusicModel> addNotes(int[] starts, int[] ends, int[] instruments,
+                                                  int[] pitches, int[] volumes) {
+    CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+    for (int i : MusicModel.startOrder(starts, instruments)) {
+      this.addNote(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    return this;
+  }
+
+  /**
+   * Adds a note with the given parameters to this model.
+   * @param start The start time of the note, in beats.
+   * @param end The end time of the note, in beats.
+   * @param instrument The instrument number (to be interpreted by MIDI).
+   * @param pitch The pitch (in the range [0, 127], where 60 represents C4, the middle-C on a
+   *              piano).
+   * @param volume The volume (in the range [0, 127]).
+   * @return this with the note of given parameters added.
+   */
+  public CompositionBuilder<IMusicModel> addNote(int start, int end, int instrument,
+                                                 int pitch, int volume) {
+    if (end - start == 0) {
+      return this;
+    }
+    if (end < start) {
+      throw new IllegalArgumentException("Attempted to give non-positive duration: "
+              + (end - start));
+    }
+    checkRow(pitch, instrument, volume);
+
+    int melody = this.placement.find(instrument, start, m -> this.canTakeNote(m, start, end));
+    if (melody == -1) {
+      melody = this.addMelody(instrument, 0);
+      this.placement.trackAdded(instrument, 0, this.soundWalk(melody));
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, melody));
+    }
+    if (start < 0 || this.melodyRestCounts[melody] > 0 && this.melodyLengths[melody] > start) {
+      // Splitting stored rests, and placing a note before the first beat, is left to Melody, so
+      // the sounds come out as they would there.
+      this.addSound(noteOfPitch(pitch, volume, end - start, instrument), melody, start);
+      return this;
+    }
+    if (this.melodyLengths[melody] <= start) {
+      this.storeTrailingRest(melody, start);
+    }
+    else {
+      int last = this.lastStartingBy(melody, end - 1);
+      if (last >= 0 && this.endOf(this.melodyRows[melody][last]) > start) {
+        throw new IllegalArgumentException("Attempted to add a note from beat " + start + " to "
+                + end + " over another note in melody " + melody + ".");
+      }
+    }
+
+    this.addRow(start, end - start, pitch, instrument, volume, melody);
+    this.placement.trackChanged(melody, this.melodyLengths[melody], this.soundWalk(melody), start,
+            end);
+    this.fire(new ModelChange(ModelChange.Kind.NOTE_ADDED, melody,
+            new ModelChange.Extent().note(start, end - start, pitch),
+            noteOfPitch(pitch, volume, end - start, instrument)));
+    return this;
+  }
+
+  @Override
+  public void addTracks(Melody melody, int beat) {
+    this.addTrack(melody, Math.max(beat, 0));
+  }
+
+  @Override
+  public void addTracks(Melody other) {
+    this.addTrack(other, 0);
+  }
+
+  @Override
+  public void mergeMusic(IMusicModel other, int beat) {
+    for (Melody m : other.getMelodies()) {
+      this.addTrack(m, Math.max(beat, 0));
+    }
+  }
+
+  /**
+   * Gives a copy of every melody in this, made from the stored notes. Changing the copies does not
+   * change this model.
+   * @return the melodies of this.
+   */
+  @Override
+  public List<Melody> getMelodies() {
+    List<Melody> melodies = new ArrayList<>();
+    for (int m = 0; m < this.melodyCount; m++) {
+      melodies.add(this.melodyAt(m));
+    }
+    return melodies;
+  }
+
+  @Override
+  public void addToEnd(Melody other) {
+    this.addTrack(other, this.lengthOfSongInBeats());
+  }
+
+  @Override
+  public void removeMelody(int melodyIndex) {
+    this.checkMelody(melodyIndex);
+    ModelChange.Extent extent = new ModelChange.Extent().beats(0, this.melodyLengths[melodyIndex]);
+    int kept = 0;
+    for (int row = 0; row < this.size; row++) {
+      int m = this.melodyOf[row];
+      if (m == melodyIndex) {
+        if (this.pitches[row] != REST) {
+          this.pitchRange.remove(this.pitches[row]);
+          extent.note(this.starts[row], this.durations[row], this.pitches[row]);
+        }
+        continue;
+      }
+      this.moveRow(row, kept);
+      if (m > melodyIndex) {
+        this.melodyOf[kept] = (short) (m - 1);
+      }
+      kept++;
+    }
+    this.size = kept;
+    System.arraycopy(this.melodyInstruments, melodyIndex + 1, this.melodyInstruments, melodyIndex,
+            this.melodyCount - melodyIndex - 1);
+    System.arraycopy(this.melodyLengths, melodyIndex + 1, this.melodyLengths, melodyIndex,
+            this.melodyCount - melodyIndex - 1);
+    this.melodyCount--;
+    this.order = null;
+    this.indexMelodyRows();
+    this.indexPlacement();
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_REMOVED, melodyIndex, extent));
+  }
+
+  /**
+   * Puts a rest as long as the given melody before the sound at the given index of every melody,
+   * as {@code MusicModel} does, by moving the later notes of each melody in place, and then adds
+   * the given melody after the given number of beats of rest.
+   */
+  @Override
+  public void spliceTracks(int beat, Melody melody) {
+    int length = melody.numOfBeats();
+    // Every rest is checked before any is added, so a splice that fails changes nothing.
+    for (int m = 0; m < this.melodyCount; m++) {
+      this.checkRest(m, length, beat);
+    }
+    melody.checkRest(beat, 0);
+    for (int m = 0; m < this.melodyCount; m++) {
+      this.insertRest(m, length, beat);
+    }
+    melody.addRest(beat, 0);
+    this.readMelody(melody, 0);
+    for (int m = 0; m < this.melodyCount - 1; m++) {
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, m, this.extentFrom(m, beat)));
+    }
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, this.melodyCount - 1,
+            new ModelChange.Extent().melody(melody, 0, 0)));
+  }
+
+  @Override
+  public void addNote(ASound note, int melodyIndex, int beat) {
+    if (melodyIndex > this.melodyCount - 1) {
+      throw new IllegalArgumentException("The melody index is out of bounds.");
+    }
+    this.checkMelody(melodyIndex);
+    this.addSound(note, melodyIndex, beat);
+  }
+
+  @Override
+  public void swapNote(ASound note, int melodyIndex, int beat) {
+    this.checkMelody(melodyIndex);
+    Melody melody = this.melodyAt(melodyIndex);
+    int noteIndex = melody.getIndexOfBeat(beat);
+    ASound old = noteIndex >= 0 && noteIndex < melody.size() ? melody.getNote(noteIndex) : null;
+    int lengthBefore = melody.numOfBeats();
+    melody.swapNote(note, beat);
+    this.storeMelody(melodyIndex, melody);
+    int start = melody.numOfBeatsElapsedAt(noteIndex);
+    if (old != null && old.getDuration() == note.getDuration()) {
+      this.fire(new ModelChange(ModelChange.Kind.NOTE_SWAPPED, melodyIndex,
+              new ModelChange.Extent().sound(start, old).sound(start, note)));
+    }
+    else {
+      ModelChange.Extent extent = new ModelChange.Extent().melody(melody, 0, start)
+              .beats(start, lengthBefore);
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, melodyIndex,
+              old == null ? extent : extent.sound(start, old)));
+    }
+  }
+
+  @Override
+  public void removeNote(Note removed, int beat) {
+    for (int m = 0; m < this.melodyCount; m++) {
+      if (this.melodyInstruments[m] != removed.getInstrument()) {
+        continue;
+      }
+      int[] rows = this.melodyRows[m];
+      int last = this.lastStartingBy(m, beat);
+      if (last < 0 || this.starts[rows[last]] != beat
+              || last > 0 && this.starts[rows[last - 1]] == beat) {
+        // A chord or a rest starting at the beat is never equal to a single Note.
+        continue;
+      }
+      int row = rows[last];
+      if (this.pitches[row] != REST && this.noteAt(row).equals(removed)) {
+        ModelChange.Extent extent = new ModelChange.Extent()
+                .note(beat, this.durations[row], this.pitches[row]);
+        this.pitchRange.remove(this.pitches[row]);
+        this.pitches[row] = REST;
+        this.melodyRestCounts[m]++;
+        this.placement.trackChanged(m, this.melodyLengths[m], this.soundWalk(m), beat,
+                beat + this.durations[row]);
+        this.fire(new ModelChange(ModelChange.Kind.NOTE_REMOVED, m, extent));
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void setInstrument(int instrument, int melodyIndex) {
+    this.checkMelody(melodyIndex);
+    this.melodyInstruments[melodyIndex] = instrument;
+    ModelChange.Extent extent = new ModelChange.Extent().beats(0, this.melodyLengths[melodyIndex]);
+    int[] rows = this.melodyRows[melodyIndex];
+    for (int i = 0; i < this.melodyRowCounts[melodyIndex]; i++) {
+      int row = rows[i];
+      this.instruments[row] = (byte) (instrument - 1);
+      if (this.pitches[row] != REST) {
+        extent.note(this.starts[row], this.durations[row], this.pitches[row]);
+      }
+    }
+    this.indexPlacement();
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, melodyIndex, extent));
+  }
+
+  @Override
+  public void changeVolume(int changeAmount) {
+    this.volumeMult += changeAmount / 100.0;
+    if (volumeMult > 1) {
+      volumeMult = 1;
+    }
+    if (volumeMult < 0) {
+      volumeMult = 0;
+    }
+    this.fire(new ModelChange(ModelChange.Kind.VOLUME_CHANGED, -1));
+  }
+
+  @Override
+  public void setVolume(int newVolume) {
+    if (newVolume > 100 || newVolume < 0) {
+      throw new IllegalArgumentException("This volume is outside acceptable range.");
+    }
+    this.volumeMult = newVolume / 100.0;
+    this.fire(new ModelChange(ModelChange.Kind.VOLUME_CHANGED, -1));
+  }
+
+  @Override
+  public void mergeTracks(int trackToMerge, int positionToMerge, Melody melody) {
+    if (trackToMerge >= this.melodyCount) {
+      throw new IllegalArgumentException("Index out of bounds.");
+    }
+    this.checkMelody(trackToMerge);
+    Melody merged = this.melodyAt(trackToMerge);
+    int lengthBefore = merged.numOfBeats();
+    try {
+      merged.merge(positionToMerge, melody);
+    } finally {
+      // A merge that fails part of the way through keeps the sounds merged so far, as there.
+      this.storeMelody(trackToMerge, merged);
+    }
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, trackToMerge,
+            new ModelChange.Extent().melody(merged, 0, 0).beats(0, lengthBefore)));
+  }
+
+  @Override
+  public ASound getNote(int melodyIndex, int noteIndex) {
+    try {
+      return this.melodyAt(melodyIndex).getNote(noteIndex);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("This was given out-of-bounds indeces.");
+    }
+  }
+
+  @Override
+  public Map<Integer, List<ASound>> getAllSounds() {
+    if (this.melodyCount == 0) {
+      throw new IllegalStateException("There are no melodies, so there is no longest melody");
+    }
+    Map<Integer, List<ASound>> allSounds = new TreeMap<Integer, List<ASound>>();
+    for (int m = 0; m < this.melodyCount; m++) {
+      int beat = 0;
+      for (ASound sound : this.soundsOf(m)) {
+        if (!sound.getSoundsIn().isEmpty()) {
+          allSounds.putIfAbsent(beat, new ArrayList<ASound>());
+          allSounds.get(beat).addAll(sound.getSoundsIn());
+        }
+        beat += sound.getDuration();
+      }
+    }
+    return allSounds;
+  }
+
+  @Override
+  public Map<Integer, List<Note>> getAllNotesMap() {
+    Map<Integer, List<Note>> allNotes = new TreeMap<Integer, List<Note>>();
+    int[] reached = new int[this.melodyCount];
+    int[] rows = this.sortedRows();
+    for (int i = 0; i < this.size; i++) {
+      int row = rows[i];
+      int m = this.melodyOf[row];
+      if (this.starts[row] > reached[m]) {
+        // The rest before this note starts at a beat of its own.
+        allNotes.putIfAbsent(reached[m], new ArrayList<Note>());
+      }
+      allNotes.putIfAbsent(this.starts[row], new ArrayList<Note>());
+      if (this.pitches[row] != REST) {
+        allNotes.get(this.starts[row]).add(this.noteAt(row));
+      }
+      reached[m] = Math.max(reached[m], this.starts[row] + this.durations[row]);
+    }
+    for (int m = 0; m < this.melodyCount; m++) {
+      if (this.melodyLengths[m] > reached[m]) {
+        allNotes.putIfAbsent(reached[m], new ArrayList<Note>());
+      }
+    }
+    return allNotes;
+  }
+
+  @Override
+  public Map<Integer, List<Pair<Integer, Note>>> getAllNotesWithMelodies() {
+    Map<Integer, List<Pair<Integer, Note>>> allNotes = new TreeMap<>();
+    int[] rows = this.sortedRows();
+    for (int i = 0; i < this.size; i++) {
+      int row = rows[i];
+      if (this.pitches[row] == REST) {
+        continue;
+      }
+      allNotes.putIfAbsent(this.starts[row], new ArrayList<Pair<Integer, Note>>());
+      allNotes.get(this.starts[row])
+              .add(new Pair<Integer, Note>((int) this.melodyOf[row], this.noteAt(row)));
+    }
+    return allNotes;
+  }
+
+  @Override
+  public Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat) {
+    Map<Integer, List<Pair<Integer, Note>>> notes = new TreeMap<>();
+    if (toBeat <= fromBeat) {
+      return notes;
+    }
+    int[] rows = this.sortedRows();
+    // Every note before the first place the notes reach past fromBeat has ended by then.
+    int low = 0;
+    int high = this.size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (this.reach[middle] <= fromBeat) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    for (int i = low; i < this.size && this.starts[rows[i]] < toBeat; i++) {
+      int row = rows[i];
+      if (this.pitches[row] != REST && this.starts[row] + this.durations[row] > fromBeat) {
+        notes.putIfAbsent(this.starts[row], new ArrayList<Pair<Integer, Note>>());
+        notes.get(this.starts[row])
+                .add(new Pair<Integer, Note>((int) this.melodyOf[row], this.noteAt(row)));
+      }
+    }
+    return notes;
+  }
+
+  @Override
+  public List<Pair<Integer, Note>> getNoteList() {
+    List<Pair<Integer, Note>> noteList = new ArrayList<>(this.size);
+    int[] rows = this.sortedRows();
+    for (int i = 0; i < this.size; i++) {
+      if (this.pitches[rows[i]] != REST) {
+        noteList.add(new Pair<>(this.starts[rows[i]], this.noteAt(rows[i])));
+      }
+    }
+    return noteList;
+  }
+
+  @Override
+  public Iterator<PlacedNote> noteIterator() {
+    final int[] rows = this.sortedRows();
+    final int count = this.size;
+    return new Iterator<PlacedNote>() {
+      private int next = this.skipRests(0);
+
+      @Override
+      public boolean hasNext() {
+        return this.next < count;
+      }
+
+      @Override
+      public PlacedNote next() {
+        if (this.next >= count) {
+          throw new NoSuchElementException();
+        }
+        int row = rows[this.next];
+        this.next = this.skipRests(this.next + 1);
+        return new PlacedNote(starts[row], melodyOf[row], noteAt(row));
+      }
+
+      /**
+       * Finds the first note at or after the given index of {@code rows} that is not a rest.
+       * @param from represents the index to look from.
+       * @return the index of that note, or {@code count} if there is none.
+       */
+      private int skipRests(int from) {
+        while (from < count && pitches[rows[from]] == REST) {
+          from++;
+        }
+        return from;
+      }
+    };
+  }
+
+  @Override
+  public String getGameState() {
+    return GameStateWriter.render(out -> GameStateWriter.writeParallel(this, this.lastStart(),
+            out));
+  }
+
+  @Override
+  public String getGameState(int fromBeat, int toBeat) {
+    return GameStateWriter.render(out -> GameStateWriter.write(this, this.lastStart(), out,
+            fromBeat, toBeat));
+  }
+
+  @Override
+  public int lengthOfSongInBeats() {
+    if (this.melodyCount == 0) {
+      throw new IllegalStateException("There are no melodies in this piece.");
+    }
+    int length = 0;
+    for (int m = 0; m < this.melodyCount; m++) {
+      length = Math.max(length, this.melodyLengths[m]);
+    }
+    return length;
+  }
+
+  @Override
+  public Note getHighestNote() {
+    if (this.pitchRange.isEmpty()) {
+      return null;
+    }
+    return noteOfPitch(this.pitchRange.highest(), 50, 1, 1);
+  }
+
+  @Override
+  public Note getLowestNote() {
+    if (this.pitchRange.isEmpty()) {
+      return null;
+    }
+    return noteOfPitch(this.pitchRange.lowest(), 50, 1, 1);
+  }
+
+  @Override
+  public int getPitchRangeVersion() {
+    return this.pitchRange.version();
+  }
+
+  @Override
+  public void changeOctave(int melodyIndex, int beat, int octaveDifference) {
+    this.checkMelody(melodyIndex);
+    int[] rows = this.melodyRows[melodyIndex];
+    int last = this.lastStartingBy(melodyIndex, beat);
+    int first = last + 1;
+    while (first > 0 && this.starts[rows[first - 1]] == beat) {
+      first--;
+    }
+    for (int i = first; i <= last; i++) {
+      if (this.pitches[rows[i]] != REST) {
+        checkPitch(this.pitches[rows[i]] + 12 * octaveDifference);
+      }
+    }
+    if (first > last && !this.restStartsAt(melodyIndex, beat)) {
+      throw new IllegalArgumentException("There is no note at the given beat.");
+    }
+    // The sound is the chord starting at the beat, or else the gap between notes starting there.
+    int end = first <= last ? this.endOf(rows[first])
+            : last + 1 < this.melodyRowCounts[melodyIndex] ? this.starts[rows[last + 1]]
+            : this.melodyLengths[melodyIndex];
+    ModelChange.Extent extent = new ModelChange.Extent().beats(beat, end);
+    for (int i = first; i <= last; i++) {
+      int row = rows[i];
+      if (this.pitches[row] != REST) {
+        extent.pitch(this.pitches[row]);
+        this.pitchRange.remove(this.pitches[row]);
+        this.pitches[row] += 12 * octaveDifference;
+        this.pitchRange.add(this.pitches[row]);
+        extent.pitch(this.pitches[row]);
+      }
+    }
+    this.fire(new ModelChange(ModelChange.Kind.NOTE_SWAPPED, melodyIndex, extent));
+  }
+
+  @Override
+  public long microsecondsPerBeat() {
+    return this.tempo;
+  }
+
+  @Override
+  public int beatsPerMeasure() {
+    return this.beat;
+  }
+
+  @Override
+  public int getVolume() {
+    return (int) Math.round(this.volumeMult * 100);
+  }
+
+  @Override
+  public List<IFlag> getEvents() {
+    return this.events;
+  }
+
+  @Override
+  public IFlag getEvent(int originalStart) {
+    return MusicModel.findEvent(this.events, originalStart);
+  }
+
+  @Override
+  public IFlag addEvent(IFlag added) {
+    MusicModel.insertEvent(this.events, added);
+    this.fire(new ModelChange(ModelChange.Kind.EVENT_ADDED, -1, new ModelChange.Extent()
+            .beats(added.getEarliestBeat(), added.getLatestBeat() + 1)));
+    return added;
+  }
+
+  /**
+   * Gives a snapshot holding Melodies made from the stored notes, so unlike the snapshot of a
+   * {@code MusicModel} it costs as much as the whole piece.
+   * @return a snapshot of this model.
+   */
+  @Override
+  public IMusicModel snapshot() {
+    return new MusicSnapshot(this.getMelodies(), this.events, this.beat,
+            (int) Math.round(this.volumeMult * 100), this.tempo);
+  }
+
+  @Override
+  public void addListener(IModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(IModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Tells every listener of a change that has just been made.
+   * @param change represents the change.
+   */
+  private void fire(ModelChange change) {
+    if (this.listeners.isEmpty()) {
+      return;
+    }
+    for (IModelListener listener : new ArrayList<>(this.listeners)) {
+      listener.modelChanged(change);
+    }
+  }
+
+  /**
+   * Gives the number of notes stored in this.
+   * @return the number of notes.
+   */
+  public int size() {
+    int rests = 0;
+    for (int m = 0; m < this.melodyCount; m++) {
+      rests += this.melodyRestCounts[m];
+    }
+    return this.size - rests;
+  }
+
+  /**
+   * Adds a melody with no notes after every other melody.
+   * @param instrument represents the instrument of the melody.
+   * @param length     represents the length of the melody in beats.
+   * @return the index of the new melody.
+   * @throws IllegalStateException if there are too many melodies to store.
+   */
+  private int addMelody(int instrument, int length) {
+    if (this.melodyCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("A CompactMusicModel can hold at most "
+              + (Short.MAX_VALUE + 1) + " melodies.");
+    }
+    if (this.melodyCount == this.melodyInstruments.length) {
+      this.melodyInstruments = Arrays.copyOf(this.melodyInstruments, 2 * this.melodyCount);
+      this.melodyLengths = Arrays.copyOf(this.melodyLengths, 2 * this.melodyCount);
+      this.melodyRows = Arrays.copyOf(this.melodyRows, 2 * this.melodyCount);
+      this.melodyRowCounts = Arrays.copyOf(this.melodyRowCounts, 2 * this.melodyCount);
+      this.melodyRestCounts = Arrays.copyOf(this.melodyRestCounts, 2 * this.melodyCount);
+    }
+    this.melodyInstruments[this.melodyCount] = instrument;
+    this.melodyLengths[this.melodyCount] = length;
+    this.melodyRows[this.melodyCount] = new int[4];
+    this.melodyRowCounts[this.melodyCount] = 0;
+    this.melodyRestCounts[this.melodyCount] = 0;
+    return this.melodyCount++;
+  }
+
+  /**
+   * Stores a note.
+   * @param start      represents the beat the note starts at.
+   * @param duration   represents the duration of the note.
+   * @param pitch      represents the pitch of the note, from 0 to 127, or {@code REST}.
+   * @param instrument represents the instrument of the note, from 1 to 128.
+   * @param volume     represents the volume of the note, from 0 to 127.
+   * @param melody     represents the index of the melody the note exists in.
+   * @throws IllegalArgumentException if any of the values can't be stored.
+   */
+  private void addRow(int start, int duration, int pitch, int instrument, int volume,
+                      int melody) {
+    checkRow(pitch, instrument, volume);
+    if (this.size == this.starts.length) {
+      int capacity = 2 * this.size;
+      this.starts = Arrays.copyOf(this.starts, capacity);
+      this.durations = Arrays.copyOf(this.durations, capacity);
+      this.pitches = Arrays.copyOf(this.pitches, capacity);
+      this.instruments = Arrays.copyOf(this.instruments, capacity);
+      this.volumes = Arrays.copyOf(this.volumes, capacity);
+      this.melodyOf = Arrays.copyOf(this.melodyOf, capacity);
+    }
+    int row = this.size++;
+    this.starts[row] = start;
+    this.durations[row] = duration;
+    this.pitches[row] = (byte) pitch;
+    this.instruments[row] = (byte) (instrument - 1);
+    this.volumes[row] = (byte) volume;
+    this.melodyOf[row] = (short) melody;
+    this.melodyLengths[melody] = Math.max(this.melodyLengths[melody], start + duration);
+    if (pitch == REST) {
+      this.melodyRestCounts[melody]++;
+    }
+    else {
+      this.pitchRange.add(pitch);
+    }
+
+    int[] rows = this.melodyRows[melody];
+    int count = this.melodyRowCounts[melody];
+    if (count == rows.length) {
+      rows = Arrays.copyOf(rows, 2 * count);
+      this.melodyRows[melody] = rows;
+    }
+    int position = this.lastStartingBy(melody, start) + 1;
+    System.arraycopy(rows, position, rows, position + 1, count - position);
+    rows[position] = row;
+    this.melodyRowCounts[melody]++;
+
+    if (this.order != null) {
+      int last = row == 0 ? -1 : this.order[row - 1];
+      if (last == -1 || this.starts[last] < start
+              || this.starts[last] == start && this.melodyOf[last] <= melody) {
+        // Notes given in the order they start keep the order without sorting again.
+        if (this.order.length == row) {
+          this.order = Arrays.copyOf(this.order, this.starts.length);
+          this.reach = Arrays.copyOf(this.reach, this.starts.length);
+        }
+        this.order[row] = row;
+        this.reach[row] = row == 0 ? start + duration
+                : Math.max(this.reach[row - 1], start + duration);
+      }
+      else {
+        this.order = null;
+      }
+    }
+  }
+
+  /**
+   * Stores the rest at the end of the given melody, if it has one, before a note is added after a
+   * further gap; the rest and the gap are then two rests, as they are in {@code Melody}.
+   * @param m     represents the index of the melody.
+   * @param start represents the beat the note being added starts at.
+   */
+  private void storeTrailingRest(int m, int start) {
+    int length = this.melodyLengths[m];
+    int count = this.melodyRowCounts[m];
+    int reached = count == 0 ? 0 : this.endOf(this.melodyRows[m][count - 1]);
+    if (start > length && reached < length) {
+      this.addRow(reached, length - reached, REST, this.melodyInstruments[m], 0, m);
+    }
+  }
+
+  /**
+   * Determines whether the given melody can take a note over the given beats, in the same way as
+   * {@code MusicModel}: the melody must have ended by the time the note starts, or the note must
+   * start inside a rest (or exactly at the start of a rest of the same length) and must not end
+   * during another note. The rests of the melody are its stored rests and the gaps between its
+   * notes.
+   * @param m     represents the index of the melody.
+   * @param start represents the beat the note starts at.
+   * @param end   represents the beat the note ends at.
+   * @return whether the note can be added to the melody.
+   */
+  private boolean canTakeNote(int m, int start, int end) {
+    int length = this.melodyLengths[m];
+    if (length <= start) {
+      return true;
+    }
+    if (start < 0) {
+      // Before the first beat, MusicModel asks only whether the melody starts with a rest.
+      return !this.hasNotePlayingAt(m, start) && !this.hasNotePlayingAt(m, end - 1);
+    }
+    int[] rows = this.melodyRows[m];
+    int count = this.melodyRowCounts[m];
+    int before = this.lastStartingBy(m, start);
+    int restStart;
+    int restEnd;
+    if (before >= 0 && this.endOf(rows[before]) > start) {
+      if (this.pitches[rows[before]] != REST) {
+        return false;
+      }
+      restStart = this.starts[rows[before]];
+      restEnd = this.endOf(rows[before]);
+    }
+    else {
+      restStart = before >= 0 ? this.endOf(rows[before]) : 0;
+      restEnd = before + 1 < count ? this.starts[rows[before + 1]] : length;
+    }
+    if (start == restStart && restEnd - restStart != end - start) {
+      return false;
+    }
+    return !this.hasNotePlayingAt(m, end - 1);
+  }
+
+  /**
+   * Determines whether a note of the given melody is playing at the given beat; beats past either
+   * end of the melody are judged by the sound at that end, as in {@code Melody}.
+   * @param m    represents the index of the melody.
+   * @param beat represents the beat.
+   * @return whether a note is playing at the beat.
+   */
+  private boolean hasNotePlayingAt(int m, int beat) {
+    int[] rows = this.melodyRows[m];
+    int count = this.melodyRowCounts[m];
+    if (count == 0) {
+      return false;
+    }
+    if (beat < 0) {
+      return this.starts[rows[0]] == 0 && this.pitches[rows[0]] != REST;
+    }
+    if (beat >= this.melodyLengths[m]) {
+      int last = rows[count - 1];
+      return this.endOf(last) == this.melodyLengths[m] && this.pitches[last] != REST;
+    }
+    int before = this.lastStartingBy(m, beat);
+    return before >= 0 && this.endOf(rows[before]) > beat && this.pitches[rows[before]] != REST;
+  }
+
+  /**
+   * Finds the last note of the given melody that starts at or before the given beat.
+   * @param m    represents the index of the melody.
+   * @param beat represents the beat.
+   * @return the position of that note in the notes of the melody, or -1 if there is none.
+   */
+  private int lastStartingBy(int m, int beat) {
+    int[] rows = this.melodyRows[m];
+    int low = 0;
+    int high = this.melodyRowCounts[m];
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (this.starts[rows[middle]] <= beat) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * Gives the beat after the last beat the given note plays during.
+   * @param row represents the index of the note.
+   * @return the beat the note ends at.
+   */
+  private int endOf(int row) {
+    return this.starts[row] + this.durations[row];
+  }
+
+  /**
+   * Determines whether one of the gaps between the notes of the given melody starts at the given
+   * beat.
+   * @param m    represents the index of the melody.
+   * @param beat represents the beat.
+   * @return whether an unstored rest starts at the beat.
+   */
+  private boolean restStartsAt(int m, int beat) {
+    if (beat < 0 || beat >= this.melodyLengths[m]) {
+      return false;
+    }
+    int[] rows = this.melodyRows[m];
+    int count = this.melodyRowCounts[m];
+    int before = this.lastStartingBy(m, beat - 1);
+    int reached = before >= 0 ? this.endOf(rows[before]) : 0;
+    int next = before + 1 < count ? this.starts[rows[before + 1]] : this.melodyLengths[m];
+    return reached == beat && next > beat;
+  }
+
+  /**
+   * Rebuilds the notes of each melody after notes have been removed from the arrays.
+   */
+  private void indexMelodyRows() {
+    for (int m = 0; m < this.melodyCount; m++) {
+      this.melodyRows[m] = new int[Math.max(4, this.melodyRowCounts[m])];
+      this.melodyRowCounts[m] = 0;
+      this.melodyRestCounts[m] = 0;
+    }
+    int[] rows = this.sortedRows();
+    for (int i = 0; i < this.size; i++) {
+      int m = this.melodyOf[rows[i]];
+      if (this.melodyRowCounts[m] == this.melodyRows[m].length) {
+        this.melodyRows[m] = Arrays.copyOf(this.melodyRows[m], 2 * this.melodyRowCounts[m]);
+      }
+      this.melodyRows[m][this.melodyRowCounts[m]++] = rows[i];
+      if (this.pitches[rows[i]] == REST) {
+        this.melodyRestCounts[m]++;
+      }
+    }
+  }
+
+  /**
+   * Copies the note at one index of the arrays to another.
+   * @param from represents the index being copied.
+   * @param to   represents the index being copied to.
+   */
+  private void moveRow(int from, int to) {
+    this.starts[to] = this.starts[from];
+    this.durations[to] = this.durations[from];
+    this.pitches[to] = this.pitches[from];
+    this.instruments[to] = this.instruments[from];
+    this.volumes[to] = this.volumes[from];
+    this.melodyOf[to] = this.melodyOf[from];
+  }
+
+  /**
+   * Stores the given melody as a new melody, moved later by the given beats, and tells the
+   * listeners it was added.
+   * @param melody represents the melody being added.
+   * @param offset represents the number of beats of rest before the melody starts.
+   */
+  private void addTrack(Melody melody, int offset) {
+    this.readMelody(melody, offset);
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, this.melodyCount - 1,
+            new ModelChange.Extent().melody(melody, offset, 0)));
+  }
+
+  /**
+   * Stores every note of the given melody as a new melody, moved later by the given beats. A rest
+   * is stored only if it is next to another rest.
+   * @param melody represents the melody being added.
+   * @param offset represents the number of beats of rest before the melody starts.
+   */
+  private void readMelody(Melody melody, int offset) {
+    int m = this.addMelody(melody.getInstrument(), melody.numOfBeats() + offset);
+    this.writeSounds(m, melody, offset);
+    this.placement.trackAdded(melody.getInstrument(), this.melodyLengths[m], this.soundWalk(m));
+  }
+
+  /**
+   * Stores every note of the given melody in the melody at the given index, moved later by the
+   * given beats. A rest is stored only if it is next to another rest.
+   * @param m      represents the index of the melody the notes are stored in.
+   * @param melody represents the melody being stored.
+   * @param offset represents the number of beats of rest before the melody starts.
+   */
+  private void writeSounds(int m, Melody melody, int offset) {
+    int beat = offset;
+    boolean lastWasRest = offset > 0;
+    List<ASound> sounds = melody.getMelodySounds();
+    for (int i = 0; i < sounds.size(); i++) {
+      ASound s = sounds.get(i);
+      if (s.isRest()) {
+        if (lastWasRest || i + 1 < sounds.size() && sounds.get(i + 1).isRest()) {
+          this.addRow(beat, s.getDuration(), REST, melody.getInstrument(), 0, m);
+        }
+      }
+      else {
+        for (Note n : s.getNotesIn()) {
+          this.addRow(beat, n.getDuration(), n.noteValue(), melody.getInstrument(),
+                  n.getVolume(), m);
+        }
+      }
+      lastWasRest = s.isRest();
+      beat += s.getDuration();
+    }
+  }
+
+  /**
+   * Adds a sound to the melody at the given index where {@code Melody.addNoteToBeat()} puts it,
+   * by making a Melody of that melody alone, and tells the listeners as {@code MusicModel} does.
+   * @param sound represents the sound being added.
+   * @param m     represents the index of the melody.
+   * @param beat  represents the beat the sound is added at.
+   */
+  private void addSound(ASound sound, int m, int beat) {
+    Melody melody = this.melodyAt(m);
+    int lengthBefore = melody.numOfBeats();
+    melody.addNoteToBeat(sound, beat);
+    this.storeMelody(m, melody);
+    if (melody.numOfBeats() != Math.max(lengthBefore, beat + sound.getDuration())) {
+      // The sound pushed the rest of the melody back.
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, m,
+              new ModelChange.Extent().melody(melody, 0, beat)));
+    }
+    else {
+      this.fire(new ModelChange(ModelChange.Kind.NOTE_ADDED, m,
+              new ModelChange.Extent().sound(beat, sound), sound));
+    }
+  }
+
+  /**
+   * Replaces the notes of the melody at the given index with those of the given Melody, made from
+   * it by {@code melodyAt()} and changed since. The new notes take the places of the old ones in
+   * the arrays, in order, as notes starting together in a melody are ordered by those places; only
+   * a melody left with fewer notes moves the notes after its last free place down.
+   * @param m      represents the index of the melody.
+   * @param melody represents the changed Melody.
+   */
+  private void storeMelody(int m, Melody melody) {
+    int[] old = Arrays.copyOf(this.melodyRows[m], this.melodyRowCounts[m]);
+    Arrays.sort(old);
+    for (int row : old) {
+      if (this.pitches[row] != REST) {
+        this.pitchRange.remove(this.pitches[row]);
+      }
+    }
+    this.melodyRowCounts[m] = 0;
+    this.melodyRestCounts[m] = 0;
+    this.melodyLengths[m] = melody.numOfBeats();
+    this.order = null;
+    int firstAdded = this.size;
+    this.writeSounds(m, melody, 0);
+
+    int added = this.size - firstAdded;
+    int reused = Math.min(added, old.length);
+    for (int i = 0; i < added; i++) {
+      this.moveRow(firstAdded + i, i < reused ? old[i] : firstAdded + i - reused);
+    }
+    this.size -= reused;
+    int[] rows = this.melodyRows[m];
+    for (int i = 0; i < added; i++) {
+      int j = rows[i] - firstAdded;
+      rows[i] = j < reused ? old[j] : firstAdded + j - reused;
+    }
+    if (reused < old.length) {
+      this.removeRows(old, reused);
+    }
+    this.placement.trackChanged(m, this.melodyLengths[m], this.soundWalk(m), 0,
+            Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes notes from the arrays, moving every later note down so the notes keep their order.
+   * The notes must already be left out of the notes of their melodies and of the pitch range.
+   * @param dead represents the indices of the notes being removed, in order.
+   * @param from represents the index in {@code dead} of the first note being removed.
+   */
+  private void removeRows(int[] dead, int from) {
+    int next = from;
+    int kept = dead[from];
+    for (int row = dead[from]; row < this.size; row++) {
+      if (next < dead.length && dead[next] == row) {
+        next++;
+        continue;
+      }
+      this.moveRow(row, kept);
+      int[] rows = this.melodyRows[this.melodyOf[kept]];
+      // Notes already moved hold lower indices than this one, so this one is found.
+      int position = this.lastStartingBy(this.melodyOf[kept], this.starts[kept]);
+      while (rows[position] != row) {
+        position--;
+      }
+      rows[position] = kept;
+      kept++;
+    }
+    this.size = kept;
+  }
+
+  /**
+   * Throws the exception {@code Melody.addRest()} would throw for a rest of the given duration
+   * before the sound at the given index of the melody at the given index, without adding it.
+   * @param m        represents the index of the melody.
+   * @param duration represents the duration of the rest.
+   * @param index    represents the index of the sound the rest goes before.
+   * @throws IllegalArgumentException if the duration isn't positive or the melody has fewer
+   *                                  sounds than the index.
+   * @throws IndexOutOfBoundsException if the index is negative.
+   */
+  private void checkRest(int m, int duration, int index) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Attempted to give duration: " + duration);
+    }
+    RowCursor sounds = new RowCursor(m, 0);
+    int size = 0;
+    while (sounds.next()) {
+      size++;
+    }
+    if (size < index) {
+      throw new IllegalArgumentException("This index doesn't exist: " + index
+              + " in list of size " + size);
+    }
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * Puts a rest of the given duration before the sound at the given index of the melody at the
+   * given index, moving every later note back, as {@code Melody.addRest()} does. The new rest is
+   * stored if it would otherwise run into a gap between notes, which would then read as one rest.
+   * The rest must already have been checked by {@code checkRest()}.
+   * @param m        represents the index of the melody.
+   * @param duration represents the duration of the rest.
+   * @param index    represents the index of the sound the rest goes before.
+   */
+  private void insertRest(int m, int duration, int index) {
+    RowCursor sounds = new RowCursor(m, 0);
+    int count = 0;
+    boolean afterGap = false;
+    while (count < index && sounds.next()) {
+      afterGap = sounds.isGap();
+      count++;
+    }
+    boolean more = sounds.next();
+    int beat = more ? sounds.beat() : this.melodyLengths[m];
+    boolean beforeGap = more && sounds.isGap();
+
+    int[] rows = this.melodyRows[m];
+    for (int i = this.lastStartingBy(m, beat - 1) + 1; i < this.melodyRowCounts[m]; i++) {
+      this.starts[rows[i]] += duration;
+    }
+    this.melodyLengths[m] += duration;
+    this.order = null;
+    if (afterGap || beforeGap) {
+      this.addRow(beat, duration, REST, this.melodyInstruments[m], 0, m);
+    }
+    this.placement.trackChanged(m, this.melodyLengths[m], this.soundWalk(m), beat,
+            Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gives the extent of the melody at the given index from the given beat to its end, as
+   * {@code ModelChange.Extent.melody()} gives for the Melody made from it.
+   * @param m        represents the index of the melody.
+   * @param fromBeat represents the first beat to cover.
+   * @return the extent.
+   */
+  private ModelChange.Extent extentFrom(int m, int fromBeat) {
+    ModelChange.Extent extent = new ModelChange.Extent();
+    int[] rows = this.melodyRows[m];
+    int first = 0;
+    for (int i = 0; i < this.melodyRowCounts[m]; i++) {
+      if (this.starts[rows[i]] != this.starts[rows[first]]) {
+        first = i;
+      }
+      // The notes of a chord last as long as the chord does.
+      if (this.pitches[rows[i]] != REST && this.endOf(rows[first]) > fromBeat) {
+        extent.pitch(this.pitches[rows[i]]);
+      }
+    }
+    return extent.beats(fromBeat, this.melodyLengths[m]);
+  }
+
+  /**
+   * Records every melody in the placement again, for changes that move melodies between
+   * instruments or indices.
+   */
+  private void indexPlacement() {
+    this.placement.clear();
+    for (int m = 0; m < this.melodyCount; m++) {
+      this.placement.trackAdded(this.melodyInstruments[m], this.melodyLengths[m],
+              this.soundWalk(m));
+    }
+  }
+
+  /**
+   * Gives a walk over the sounds of the melody at the given index from the sound playing at a
+   * given beat, for the placement.
+   * @param m represents the index of the melody.
+   * @return the walk.
+   */
+  private IntFunction<SoundCursor> soundWalk(int m) {
+    return beat -> new RowCursor(m, beat);
+  }
+
+  /**
+   * Gives the last beat a sound of this starts on, rests included, as {@code GameStateWriter}
+   * works it out from the Melodies made from this.
+   * @return the last beat a sound starts on, or -1 if there are no melodies.
+   */
+  private int lastStart() {
+    if (this.melodyCount == 0) {
+      return -1;
+    }
+    int lastStart = 0;
+    for (int m = 0; m < this.melodyCount; m++) {
+      int count = this.melodyRowCounts[m];
+      if (count == 0) {
+        continue;
+      }
+      int[] rows = this.melodyRows[m];
+      int first = count - 1;
+      while (first > 0 && this.starts[rows[first - 1]] == this.starts[rows[count - 1]]) {
+        first--;
+      }
+      int end = this.endOf(rows[first]);
+      int start = this.melodyLengths[m] > end ? end : this.starts[rows[first]];
+      lastStart = Math.max(lastStart, start);
+    }
+    return lastStart;
+  }
+
+  /**
+   * Makes a Melody of the melody at the given index.
+   * @param m represents the index of the melody.
+   * @return a new Melody holding the stored notes of the melody.
+   */
+  private Melody melodyAt(int m) {
+    this.checkMelody(m);
+    return new Melody(MELODY_DYNAMIC, this.melodyInstruments[m], this.soundsOf(m));
+  }
+
+  /**
+   * Makes the sounds of the melody at the given index, with a rest for each gap between its notes
+   * and at its end.
+   * @param m represents the index of the melody.
+   * @return the sounds, in order.
+   */
+  private List<ASound> soundsOf(int m) {
+    List<ASound> sounds = new ArrayList<>();
+    int[] reached = new int[this.melodyCount];
+    int[] rows = this.melodyRows[m];
+    int count = this.melodyRowCounts[m];
+    int i = 0;
+    while (i < count) {
+      int next = this.endOfSound(rows, i, count);
+      this.appendSound(sounds, reached, rows, i, next);
+      i = next;
+    }
+    if (this.melodyLengths[m] > reached[m]) {
+      sounds.add(new Rest(this.melodyLengths[m] - reached[m]));
+    }
+    return sounds;
+  }
+
+  /**
+   * Gives the index in {@code rows} after the last note of the sound starting at {@code first};
+   * notes of the same melody starting at the same beat make up a single chord.
+   * @param rows  represents the notes in the order they start.
+   * @param first represents the index in {@code rows} of the first note of the sound.
+   * @param count represents the number of notes in {@code rows}.
+   * @return the index in {@code rows} of the first note after the sound.
+   */
+  private int endOfSound(int[] rows, int first, int count) {
+    int start = this.starts[rows[first]];
+    int melody = this.melodyOf[rows[first]];
+    int next = first + 1;
+    while (next < count && this.starts[rows[next]] == start
+            && this.melodyOf[rows[next]] == melody) {
+      next++;
+    }
+    return next;
+  }
+
+  /**
+   * Adds the sound made up of the given notes to the sounds of its melody, after a rest if there
+   * is a gap before it.
+   * @param sounds  represents the sounds of the melody so far.
+   * @param reached represents the beat each melody has been built up to.
+   * @param rows    represents the notes in the order they start.
+   * @param first   represents the index in {@code rows} of the first note of the sound.
+   * @param next    represents the index in {@code rows} after the last note of the sound.
+   */
+  private void appendSound(List<ASound> sounds, int[] reached, int[] rows, int first, int next) {
+    int row = rows[first];
+    int m = this.melodyOf[row];
+    if (this.starts[row] > reached[m]) {
+      sounds.add(new Rest(this.starts[row] - reached[m]));
+    }
+    if (this.pitches[row] == REST) {
+      sounds.add(new Rest(this.durations[row]));
+    }
+    else if (next - first == 1) {
+      sounds.add(this.noteAt(row));
+    }
+    else {
+      Note[] notes = new Note[next - first];
+      for (int i = first; i < next; i++) {
+        notes[i - first] = this.noteAt(rows[i]);
+      }
+      sounds.add(new Chord(this.durations[row], notes));
+    }
+    reached[m] = this.starts[row] + this.durations[row];
+  }
+
+  /**
+   * Makes a Note of the note stored at the given index of the arrays.
+   * @param row represents the index of the note.
+   * @return a new Note with the stored values.
+   */
+  private Note noteAt(int row) {
+    return noteOfPitch(this.pitches[row], this.volumes[row], this.durations[row],
+            this.instruments[row] + 1);
+  }
+
+  /**
+   * Makes a Note of the given pitch.
+   * @param pitch      represents the pitch, as given by {@code Note.noteValue()}.
+   * @param volume     represents the volume.
+   * @param duration   represents the duration.
+   * @param instrument represents the instrument.
+   * @return a new Note.
+   */
+  private static Note noteOfPitch(int pitch, int volume, int duration, int instrument) {
+    return new Note(Pitch.getPitchAtVal(pitch % 12), pitch / 12, volume, duration, instrument);
+  }
+
+  /**
+   * Gives the index of every note in the order they start, then by melody, then by the order they
+   * were added, sorting them only if they have changed since the last time.
+   * @return the indices of the notes in order; only the first {@code size} are used.
+   */
+  private int[] sortedRows() {
+    if (this.order == null) {
+      int[] rows = new int[Math.max(this.size, INITIAL_CAPACITY)];
+      for (int row = 0; row < this.size; row++) {
+        rows[row] = row;
+      }
+      this.sortRows(rows, new int[this.size], 0, this.size);
+      this.reach = new int[rows.length];
+      for (int i = 0; i < this.size; i++) {
+        this.reach[i] = i == 0 ? this.endOf(rows[i])
+                : Math.max(this.reach[i - 1], this.endOf(rows[i]));
+      }
+      this.order = rows;
+    }
+    return this.order;
+  }
+
+  /**
+   * Sorts part of the given indices of notes, keeping notes that compare equal in the same order.
+   * @param rows    represents the indices of the notes.
+   * @param scratch represents space to merge into, at least as long as the part being sorted.
+   * @param from    represents the first index of the part being sorted.
+   * @param to      represents the index after the last of the part being sorted.
+   */
+  private void sortRows(int[] rows, int[] scratch, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    this.sortRows(rows, scratch, from, middle);
+    this.sortRows(rows, scratch, middle, to);
+    if (this.compareRows(rows[middle - 1], rows[middle]) <= 0) {
+      return;
+    }
+    int left = from;
+    int right = middle;
+    int out = from;
+    while (left < middle && right < to) {
+      if (this.compareRows(rows[left], rows[right]) <= 0) {
+        scratch[out++] = rows[left++];
+      }
+      else {
+        scratch[out++] = rows[right++];
+      }
+    }
+    while (left < middle) {
+      scratch[out++] = rows[left++];
+    }
+    while (right < to) {
+      scratch[out++] = rows[right++];
+    }
+    System.arraycopy(scratch, from, rows, from, to - from);
+  }
+
+  /**
+   * Compares two notes by the beat they start at, then by melody.
+   * @param first  represents the index of the first note.
+   * @param second represents the index of the second note.
+   * @return a negative number, zero, or a positive number as the first comes before, with, or
+   *         after the second.
+   */
+  private int compareRows(int first, int second) {
+    if (this.starts[first] != this.starts[second]) {
+      return Integer.compare(this.starts[first], this.starts[second]);
+    }
+    return Integer.compare(this.melodyOf[first], this.melodyOf[second]);
+  }
+
+  /**
+   * Throws an {@code IndexOutOfBoundsException} if there is no melody at the given index.
+   * @param melodyIndex represents the index being checked.
+   */
+  private void checkMelody(int melodyIndex) {
+    if (melodyIndex < 0 || melodyIndex >= this.melodyCount) {
+      throw new IndexOutOfBoundsException("Index: " + melodyIndex + ", Size: "
+              + this.melodyCount);
+    }
+  }
+
+  /**
+   * Throws an {@code IllegalArgumentException} if a note of the given values can't be stored.
+   * @param pitch      represents the pitch, from 0 to 127, or {@code REST}.
+   * @param instrument represents the instrument, from 1 to 128.
+   * @param volume     represents the volume, from 0 to 127.
+   */
+  private static void checkRow(int pitch, int instrument, int volume) {
+    if (pitch != REST) {
+      checkPitch(pitch);
+    }
+    if (instrument < 1 || instrument > 128) {
+      throw new IllegalArgumentException(
+              "Attempted to give non-existent instrument with code " + instrument);
+    }
+    if (volume < 0 || volume > 127) {
+      throw new IllegalArgumentException("This volume is impossible."
+              + "Volume must be between 0 and 127");
+    }
+  }
+
+  /**
+   * Throws an {@code IllegalArgumentException} if the given pitch can't be stored.
+   * @param pitch represents the pitch, as given by {@code Note.noteValue()}.
+   */
+  private static void checkPitch(int pitch) {
+    if (pitch < 0 || pitch > 127) {
+      throw new IllegalArgumentException("A CompactMusicModel can only hold pitches from 0 to "
+              + "127, not " + pitch + ".");
+    }
+  }
+
+  /**
+   * Walks the sounds of a melody of this as {@code Melody.soundCursor(int)} walks the Melody made
+   * from it: each chord is a single sound, and each gap between notes, and the rest at the end, a
+   * single rest.
+   */
+  private final class RowCursor implements SoundCursor {
+    /**
+     * Represents the index of the melody.
+     */
+    private final int melody;
+
+    /**
+     * Represents the position, in the notes of the melody, of the next note not yet reached.
+     */
+    private int next;
+
+    /**
+     * Represents the beat the sounds walked so far reach.
+     */
+    private int reached;
+
+    /**
+     * Represents the beat the current sound starts at.
+     */
+    private int beat;
+
+    /**
+     * Represents the duration of the current sound.
+     */
+    private int duration;
+
+    /**
+     * Represents whether the current sound is a rest, and whether it is a gap between notes
+     * rather than a stored rest.
+     */
+    private boolean rest;
+    private boolean gap;
+
+    /**
+     * Creates a cursor before the sound playing at the given beat, or before the first sound if
+     * the beat is before it.
+     * @param melody represents the index of the melody.
+     * @param beat   represents the beat.
+     */
+    private RowCursor(int melody, int beat) {
+      this.melody = melody;
+      int[] rows = melodyRows[melody];
+      int position = lastStartingBy(melody, beat);
+      if (position < 0) {
+        this.next = 0;
+        this.reached = 0;
+      }
+      else {
+        while (position > 0 && starts[rows[position - 1]] == starts[rows[position]]) {
+          position--;
+        }
+        this.next = position;
+        this.reached = starts[rows[position]];
+      }
+    }
+
+    @Override
+    public boolean next() {
+      int[] rows = melodyRows[this.melody];
+      int count = melodyRowCounts[this.melody];
+      if (this.next < count && starts[rows[this.next]] > this.reached) {
+        return this.move(this.reached, starts[rows[this.next]] - this.reached, true, true);
+      }
+      if (this.next < count) {
+        int row = rows[this.next];
+        this.next = endOfSound(rows, this.next, count);
+        return this.move(starts[row], durations[row], pitches[row] == REST, false);
+      }
+      if (this.reached < melodyLengths[this.melody]) {
+        return this.move(this.reached, melodyLengths[this.melody] - this.reached, true, true);
+      }
+      return false;
+    }
+
+    /**
+     * Makes the given sound the current one.
+     * @param beat     represents the beat the sound starts at.
+     * @param duration represents the duration of the sound.
+     * @param rest     represents whether the sound is a rest.
+     * @param gap      represents whether the sound is a gap between notes.
+     * @return true.
+     */
+    private boolean move(int beat, int duration, boolean rest, boolean gap) {
+      this.beat = beat;
+      this.duration = duration;
+      this.rest = rest;
+      this.gap = gap;
+      this.reached = beat + duration;
+      return true;
+    }
+
+    @Override
+    public int beat() {
+      return this.beat;
+    }
+
+    @Override
+    public int duration() {
+      return this.duration;
+    }
+
+    @Override
+    public boolean isRest() {
+      return this.rest;
+    }
+
+    /**
+     * Determines whether the current sound is a gap between notes, or the rest at the end, rather
+     * than a stored rest.
+     * @return whether the current sound isn't stored.
+     */
+    private boolean isGap() {
+      return this.gap;
+    }
+  }
+}
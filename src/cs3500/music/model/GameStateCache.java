@@ -0,0 +1,159 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the rows of the console grid of a piece, as written by {@code GameStateWriter}, from one
+ * rendering to the next. It listens to the piece, and each change forgets only the rows of the
+ * beats it touched, which are the beats the changed notes sounded during before and after it; a
+ * change to the lowest or highest pitch forgets every row, as every column moves. Rendering the
+ * grid again then writes only the rows forgotten, reading their notes through the index of the
+ * piece, and copies the rest. It is used under the lock of the piece, which is also held while
+ * the piece tells its listeners of a change.
+ */
+final class GameStateCache implements IModelListener {
+  /**
+   * Represents the piece.
+   */
+  private final IMusicModel model;
+
+  /**
+   * Represents the header of the grid, or null if every row has been forgotten.
+   */
+  private String header = null;
+
+  /**
+   * Represents the version of the range of pitches the header and rows were written for.
+   */
+  private int pitchRangeVersion;
+
+  /**
+   * Represents the row of each beat, without the line break before it, or null where the row has
+   * been forgotten.
+   */
+  private final List<String> rows = new ArrayList<>();
+
+  /**
+   * Represents the grid last given, or null if the piece has changed since.
+   */
+  private String grid = null;
+
+  /**
+   * Creates a cache of the grid of the given piece, with no rows kept yet. It must also be added
+   * to the piece as a listener.
+   * @param model represents the piece.
+   */
+  GameStateCache(IMusicModel model) {
+    this.model = model;
+  }
+
+  @Override
+  public void modelChanged(ModelChange change) {
+    this.grid = null;
+    int to = Math.min(change.getToBeat(), this.rows.size());
+    for (int beat = Math.max(change.getFromBeat(), 0); beat < to; beat++) {
+      this.rows.set(beat, null);
+    }
+  }
+
+  /**
+   * Gives the grid of the piece, as {@code GameStateWriter.write()} writes it, writing only the
+   * rows forgotten since it was last given.
+   * @return the grid.
+   */
+  String getGameState() {
+    if (this.grid != null) {
+      return this.grid;
+    }
+    if (this.header == null || this.pitchRangeVersion != this.model.getPitchRangeVersion()) {
+      this.writeAll();
+    }
+    else {
+      this.writeForgotten();
+    }
+
+    int length = this.header.length() + 1;
+    for (String row : this.rows) {
+      length += row.length() + 1;
+    }
+    StringBuilder built = new StringBuilder(length);
+    built.append(this.header);
+    for (String row : this.rows) {
+      built.append('\n').append(row);
+    }
+    this.grid = built.append('\n').toString();
+    return this.grid;
+  }
+
+  /**
+   * Writes the whole grid, on every core, and keeps its header and each of its rows.
+   */
+  private void writeAll() {
+    this.pitchRangeVersion = this.model.getPitchRangeVersion();
+    String written = GameStateWriter.render(out -> GameStateWriter.writeParallel(this.model,
+            out));
+    int lineBreak = written.indexOf("\n");
+    this.header = written.substring(0, lineBreak);
+    this.rows.clear();
+    // The grid ends in a line break after its last row.
+    this.keepRows(written, lineBreak, written.length() - 1, 0);
+  }
+
+  /**
+   * Writes the rows forgotten, and the rows of any beats the grid has grown by, a run of beats
+   * at a time, and drops the rows of any beats it has shrunk by.
+   */
+  private void writeForgotten() {
+    int count = GameStateWriter.rowCount(this.model);
+    if (count < this.rows.size()) {
+      this.rows.subList(count, this.rows.size()).clear();
+    }
+    else {
+      this.rows.addAll(Collections.nCopies(count - this.rows.size(), (String) null));
+    }
+
+    for (int beat = 0; beat < this.rows.size(); beat++) {
+      if (this.rows.get(beat) == null) {
+        int end = beat;
+        while (end < this.rows.size() && this.rows.get(end) == null) {
+          end++;
+        }
+        int first = beat;
+        int last = end;
+        String run = GameStateWriter.render(out -> GameStateWriter.writeRows(this.model, out,
+                first, last));
+        this.keepRows(run, 0, run.length(), beat);
+        beat = end;
+      }
+    }
+  }
+
+  /**
+   * Keeps each row in part of a grid, where each row starts with a line break, as the rows of the
+   * beats from the given beat on.
+   * @param grid represents the grid.
+   * @param from represents the index of the line break starting the first row.
+   * @param to   represents the index after the end of the last row.
+   * @param beat represents the beat of the first row.
+   */
+  private void keepRows(String grid, int from, int to, int beat) {
+    int start = from;
+    while (start < to) {
+      int end = grid.indexOf('\n', start + 1);
+      if (end < 0 || end > to) {
+        end = to;
+      }
+      String row = grid.substring(start + 1, end);
+      if (beat < this.rows.size()) {
+        this.rows.set(beat, row);
+      }
+      else {
+        this.rows.add(row);
+      }
+      beat++;
+      start = end;
+    }
+  }
+}
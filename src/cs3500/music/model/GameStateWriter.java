@@ -0,0 +1,536 @@
+package cs3500.music.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import javafx.util.Pair;
+
+/**
+ * Writes the console grid of a piece, as given by {@code IMusicModel.getGameState()}, a row at a
+ * time. The grid has a column for every pitch from the lowest note of the piece to the highest
+ * and a row for every beat, with an X where a note starts and a | for each beat it is held after
+ * that. Rows are built in a single buffer made once, and the beats each column is still held for
+ * are kept as a count, so writing takes the same memory however long the piece is. A range of
+ * beats can also be written on its own, in time that depends only on the size of the range. A
+ * long piece can be written on every core, in blocks of rows, giving exactly the same grid.
+ */
+public final class GameStateWriter {
+  /**
+   * Represents the width of a pitch column, and of the column of beat numbers.
+   */
+  private static final int COLUMN_WIDTH = 5;
+
+  /**
+   * Represents the longest start of a row: a line break, a beat number and the space after it.
+   */
+  private static final int LONGEST_NUMBER = 12;
+
+  /**
+   * Represents the number of rows in a block written on its own by {@code writeParallel()}.
+   */
+  private static final int ROWS_PER_BLOCK = 4096;
+
+  /**
+   * Writes a grid, or some rows of one, by one of the methods of {@code GameStateWriter}.
+   */
+  interface Rendering {
+    /**
+     * Writes the grid or rows.
+     * @param out represents where they are written.
+     * @throws IOException if they can't be written.
+     */
+    void writeTo(Appendable out) throws IOException;
+  }
+
+  /**
+   * Gives what a rendering writes as a string.
+   * @param rendering represents the rendering.
+   * @return the grid or rows written.
+   */
+  static String render(Rendering rendering) {
+    StringBuilder written = new StringBuilder();
+    try {
+      rendering.writeTo(written);
+    } catch (IOException e) {
+      // A StringBuilder is never written to through a stream.
+      throw new UncheckedIOException(e);
+    }
+    return written.toString();
+  }
+
+  /**
+   * Writes the grid of a piece. A piece with no notes is written as a single line break.
+   * @param model represents the piece.
+   * @param out   represents where the grid is written.
+   * @throws IOException if the grid can't be written.
+   */
+  public static void write(IMusicModel model, Appendable out) throws IOException {
+    write(model, lastStart(model.getMelodies()), out, 0, Integer.MAX_VALUE, false, true);
+  }
+
+  /**
+   * Writes the header of the grid of a piece and the rows of the given range of beats, as they are
+   * in the whole grid. Only the notes sounding during the range are read, through
+   * {@code IMusicModel.getNotesBetween()}, so the time taken depends on the size of the range and
+   * not on how far into the piece it is; notes held into the range from before it are shown held.
+   * @param model    represents the piece.
+   * @param out      represents where the grid is written.
+   * @param fromBeat represents the first beat written.
+   * @param toBeat   represents the beat after the last beat written.
+   * @throws IOException if the grid can't be written.
+   */
+  public static void write(IMusicModel model, Appendable out, int fromBeat, int toBeat)
+          throws IOException {
+    write(model, lastStart(model.getMelodies()), out, fromBeat, toBeat, true, true);
+  }
+
+  /**
+   * Writes the header of the grid of a piece and the rows of the given range of beats, as
+   * {@code write(IMusicModel, Appendable, int, int)} does, for a piece that knows the last beat a
+   * sound of it starts on without making its {@code Melody}s.
+   * @param model     represents the piece.
+   * @param lastStart represents the last beat a sound of the piece starts on, rests included, or
+   *                  -1 if the piece has no melodies.
+   * @param out       represents where the grid is written.
+   * @param fromBeat  represents the first beat written.
+   * @param toBeat    represents the beat after the last beat written.
+   * @throws IOException if the grid can't be written.
+   */
+  static void write(IMusicModel model, int lastStart, Appendable out, int fromBeat, int toBeat)
+          throws IOException {
+    write(model, lastStart, out, fromBeat, toBeat, true, true);
+  }
+
+  /**
+   * Writes the rows of the given range of beats of the grid of a piece as they are in the whole
+   * grid, each starting with a line break, without the header or the line break ending the grid.
+   * The notes are read as by {@code write(IMusicModel, Appendable, int, int)}.
+   * @param model    represents the piece.
+   * @param out      represents where the rows are written.
+   * @param fromBeat represents the first beat written.
+   * @param toBeat   represents the beat after the last beat written.
+   * @throws IOException if the rows can't be written.
+   */
+  static void writeRows(IMusicModel model, Appendable out, int fromBeat, int toBeat)
+          throws IOException {
+    write(model, lastStart(model.getMelodies()), out, fromBeat, toBeat, true, false);
+  }
+
+  /**
+   * Gives the number of rows in the grid of a piece: one for every beat up to the last beat a
+   * sound starts on, and then one for every beat a note is still held on. Only the notes sounding
+   * on the last beat a sound starts on are read.
+   * @param model represents the piece.
+   * @return the number of rows.
+   */
+  static int rowCount(IMusicModel model) {
+    return rowCount(model, lastStart(model.getMelodies()));
+  }
+
+  /**
+   * Gives the number of rows in the grid of a piece, as {@code rowCount(IMusicModel)} does, given
+   * the last beat a sound of it starts on.
+   * @param model     represents the piece.
+   * @param lastStart represents the last beat a sound of the piece starts on, or -1 if the piece
+   *                  has no melodies.
+   * @return the number of rows.
+   */
+  private static int rowCount(IMusicModel model, int lastStart) {
+    if (lastStart < 0 || model.getLowestNote() == null || model.getHighestNote() == null) {
+      return 0;
+    }
+    long end = lastStart + 1L;
+    // A note still held after the last start must already be sounding on it.
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> placed
+            : model.getNotesBetween(lastStart, lastStart + 1).entrySet()) {
+      for (Pair<Integer, Note> note : placed.getValue()) {
+        end = Math.max(end, (long) placed.getKey() + note.getValue().getDuration());
+      }
+    }
+    return (int) Math.min(end, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Writes the grid of a piece as {@code write(IMusicModel, Appendable)} does, on every core. The
+   * grid is cut into blocks of rows, and each block reads only the notes sounding during it,
+   * through {@code IMusicModel.getNotesBetween()}, as {@code write(IMusicModel, Appendable, int,
+   * int)} does. The blocks are written into buffers of their own on the common fork-join pool and
+   * the buffers written out in order, a few at a time, so no more than a few blocks per core, and
+   * their notes, are held at once. Short pieces, and pieces on a machine with a single core, are
+   * written as by {@code write(IMusicModel, Appendable)}.
+   * @param model represents the piece.
+   * @param out   represents where the grid is written.
+   * @throws IOException if the grid can't be written.
+   */
+  public static void writeParallel(IMusicModel model, Appendable out) throws IOException {
+    writeParallel(model, lastStart(model.getMelodies()), out);
+  }
+
+  /**
+   * Writes the grid of a piece as {@code writeParallel(IMusicModel, Appendable)} does, for a piece
+   * that knows the last beat a sound of it starts on without making its {@code Melody}s.
+   * @param model     represents the piece.
+   * @param lastStart represents the last beat a sound of the piece starts on, rests included, or
+   *                  -1 if the piece has no melodies.
+   * @param out       represents where the grid is written.
+   * @throws IOException if the grid can't be written.
+   */
+  static void writeParallel(IMusicModel model, int lastStart, Appendable out)
+          throws IOException {
+    if (ForkJoinPool.getCommonPoolParallelism() < 2) {
+      write(model, lastStart, out, 0, Integer.MAX_VALUE, false, true);
+    }
+    else {
+      writeParallel(model, lastStart, out, ROWS_PER_BLOCK);
+    }
+  }
+
+  /**
+   * Writes the grid of a piece as {@code writeParallel(IMusicModel, Appendable)} does, in blocks
+   * of the given number of rows.
+   * @param model         represents the piece.
+   * @param out           represents where the grid is written.
+   * @param rowsPerBlock  represents the number of rows in a block.
+   * @throws IOException if the grid can't be written.
+   */
+  static void writeParallel(IMusicModel model, Appendable out, int rowsPerBlock)
+          throws IOException {
+    writeParallel(model, lastStart(model.getMelodies()), out, rowsPerBlock);
+  }
+
+  /**
+   * Writes the grid of a piece in blocks of the given number of rows, given the last beat a sound
+   * of it starts on.
+   * @param model         represents the piece.
+   * @param lastStart     represents the last beat a sound of the piece starts on, or -1 if the
+   *                      piece has no melodies.
+   * @param out           represents where the grid is written.
+   * @param rowsPerBlock  represents the number of rows in a block.
+   * @throws IOException if the grid can't be written.
+   */
+  private static void writeParallel(IMusicModel model, int lastStart, Appendable out,
+                                    int rowsPerBlock) throws IOException {
+    Note lowestNote = lastStart < 0 ? null : model.getLowestNote();
+    Note highestNote = lastStart < 0 ? null : model.getHighestNote();
+    if (lowestNote == null || highestNote == null) {
+      out.append('\n');
+      return;
+    }
+    int lowest = lowestNote.noteValue();
+    int columns = highestNote.noteValue() - lowest + 1;
+    char[] row = new char[LONGEST_NUMBER + columns * COLUMN_WIDTH];
+    putHeader(out, row, lowest, columns);
+
+    int end = rowCount(model, lastStart);
+    int blocks = (int) ((end + (long) rowsPerBlock - 1) / rowsPerBlock);
+    if (blocks < 2) {
+      writeRows(out, row, lowest, columns, 0, end, lastStart, new int[columns],
+              model.noteIterator());
+      out.append('\n');
+      return;
+    }
+
+    // Blocks are made a wave at a time, each reading its own notes when it is written.
+    int wave = 4 * ForkJoinPool.getCommonPoolParallelism();
+    for (int first = 0; first < blocks; first += wave) {
+      List<BlockTask> tasks = new ArrayList<>();
+      for (int b = first; b < Math.min(first + wave, blocks); b++) {
+        int from = b * rowsPerBlock;
+        tasks.add(new BlockTask(model, lowest, columns, from,
+                (int) Math.min((long) from + rowsPerBlock, end), lastStart));
+      }
+      ForkJoinTask.invokeAll(tasks);
+      for (BlockTask task : tasks) {
+        out.append(task.getRawResult());
+      }
+    }
+    out.append('\n');
+  }
+
+  /**
+   * Writes the rows of the given range of beats of the grid of a piece, and its header.
+   * @param model     represents the piece.
+   * @param lastStart represents the last beat a sound of the piece starts on, or -1 if the piece
+   *                  has no melodies.
+   * @param out       represents where the grid is written.
+   * @param fromBeat  represents the first beat written.
+   * @param toBeat    represents the beat after the last beat written.
+   * @param indexed   represents whether the notes are found through the index of the piece,
+   *                  rather than by walking every note from the start.
+   * @param whole     represents whether the header and the line break ending the grid are
+   *                  written too, rather than the rows alone.
+   * @throws IOException if the grid can't be written.
+   */
+  private static void write(IMusicModel model, int lastStart, Appendable out, int fromBeat,
+                            int toBeat, boolean indexed, boolean whole) throws IOException {
+    Note lowestNote = lastStart < 0 ? null : model.getLowestNote();
+    Note highestNote = lastStart < 0 ? null : model.getHighestNote();
+    if (lowestNote == null || highestNote == null) {
+      if (whole) {
+        out.append('\n');
+      }
+      return;
+    }
+    int lowest = lowestNote.noteValue();
+    int columns = highestNote.noteValue() - lowest + 1;
+    char[] row = new char[LONGEST_NUMBER + columns * COLUMN_WIDTH];
+    if (whole) {
+      putHeader(out, row, lowest, columns);
+    }
+
+    int from = Math.max(fromBeat, 0);
+    int[] held = new int[columns];
+    Iterator<IMusicModel.PlacedNote> notes = indexed
+            ? notesBetween(model, lowest, from, toBeat, held) : model.noteIterator();
+    writeRows(out, row, lowest, columns, from, toBeat, lastStart, held, notes);
+    if (whole) {
+      out.append('\n');
+    }
+  }
+
+  /**
+   * Gives the notes starting during a range of beats, read through
+   * {@code IMusicModel.getNotesBetween()}, and notes how long each column is held into the range
+   * by the notes starting before it.
+   * @param model  represents the piece.
+   * @param lowest represents the value of the pitch of the first column.
+   * @param from   represents the first beat of the range, which is not negative.
+   * @param to     represents the beat after the last beat of the range.
+   * @param held   represents the number of beats each column is held for from the first beat on,
+   *               filled in from the notes starting before it.
+   * @return the notes starting during the range, in the order they start.
+   */
+  private static Iterator<IMusicModel.PlacedNote> notesBetween(IMusicModel model, int lowest,
+                                                               int from, int to, int[] held) {
+    List<IMusicModel.PlacedNote> starting = new ArrayList<>();
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> placed
+            : new TreeMap<>(model.getNotesBetween(from, to)).entrySet()) {
+      for (Pair<Integer, Note> note : placed.getValue()) {
+        if (placed.getKey() < from) {
+          int c = note.getValue().noteValue() - lowest;
+          held[c] = Math.max(held[c], placed.getKey() + note.getValue().getDuration() - from);
+        }
+        else {
+          starting.add(new IMusicModel.PlacedNote(placed.getKey(), note.getKey(),
+                  note.getValue()));
+        }
+      }
+    }
+    return starting.iterator();
+  }
+
+  /**
+   * Writes the header of a grid, naming the pitch of each column.
+   * @param out     represents where the header is written.
+   * @param row     represents a buffer long enough for a row.
+   * @param lowest  represents the value of the pitch of the first column.
+   * @param columns represents the number of columns.
+   * @throws IOException if the header can't be written.
+   */
+  private static void putHeader(Appendable out, char[] row, int lowest, int columns)
+          throws IOException {
+    Arrays.fill(row, ' ');
+    int length = COLUMN_WIDTH;
+    for (int c = 0; c < columns; c++) {
+      length = putName(row, length, lowest + c);
+    }
+    put(out, row, length);
+  }
+
+  /**
+   * Gives the last beat a sound of a piece starts on.
+   * @param melodies represents the melodies of the piece.
+   * @return the last beat a sound starts on, rests included, or -1 if there are no melodies.
+   */
+  private static int lastStart(List<Melody> melodies) {
+    if (melodies.isEmpty()) {
+      return -1;
+    }
+    // Every beat a sound starts on gets a row, rests included, as do the beats notes are held for.
+    int lastStart = 0;
+    for (Melody melody : melodies) {
+      if (melody.size() > 0) {
+        lastStart = Math.max(lastStart, melody.numOfBeatsElapsedAt(melody.size() - 1));
+      }
+    }
+    return lastStart;
+  }
+
+  /**
+   * Writes the rows of a range of beats, each starting with a line break, stopping early once no
+   * sound starts or is held on the beats left.
+   * @param out       represents where the rows are written.
+   * @param row       represents a buffer long enough for a row.
+   * @param lowest    represents the value of the pitch of the first column.
+   * @param columns   represents the number of columns.
+   * @param from      represents the first beat written.
+   * @param to        represents the beat after the last beat written.
+   * @param lastStart represents the last beat a sound of the piece starts on.
+   * @param held      represents the number of beats each column is held for from the first beat
+   *                  on, by notes starting before it; counted down as the rows are written.
+   * @param notes     represents the notes starting from the first beat on, in the order they
+   *                  start.
+   * @throws IOException if the rows can't be written.
+   */
+  private static void writeRows(Appendable out, char[] row, int lowest, int columns, int from,
+                                int to, int lastStart, int[] held,
+                                Iterator<IMusicModel.PlacedNote> notes) throws IOException {
+    int holding = 0;
+    for (int c = 0; c < columns; c++) {
+      holding = Math.max(holding, held[c]);
+    }
+    IMusicModel.PlacedNote next = notes.hasNext() ? notes.next() : null;
+    for (int beat = from; beat < to && (beat <= lastStart || holding > 0); beat++) {
+      int start = putNumber(row, beat);
+      int length = start + columns * COLUMN_WIDTH;
+      Arrays.fill(row, start, length, ' ');
+      for (int c = 0; c < columns; c++) {
+        if (held[c] > 0) {
+          row[start + c * COLUMN_WIDTH + 1] = '|';
+          held[c]--;
+        }
+      }
+      while (next != null && next.getBeat() <= beat) {
+        if (next.getBeat() == beat) {
+          Note note = next.getNote();
+          int c = note.noteValue() - lowest;
+          row[start + c * COLUMN_WIDTH + 1] = 'X';
+          held[c] = Math.max(held[c], note.getDuration() - 1);
+        }
+        next = notes.hasNext() ? notes.next() : null;
+      }
+      holding = 0;
+      for (int c = 0; c < columns; c++) {
+        holding = Math.max(holding, held[c]);
+      }
+      put(out, row, length);
+    }
+  }
+
+  /**
+   * Puts the name of a pitch into a row, centred in its column.
+   * @param row   represents the row.
+   * @param at    represents the index the column starts at.
+   * @param pitch represents the value of the pitch.
+   * @return the index after the column.
+   */
+  private static int putName(char[] row, int at, int pitch) {
+    String name = Pitch.getPitchAtVal(Math.floorMod(pitch, 12)).toString()
+            + Math.floorDiv(pitch, 12);
+    int offset = Math.max((COLUMN_WIDTH - name.length()) / 2, 0);
+    name.getChars(0, name.length(), row, at + offset);
+    return at + Math.max(COLUMN_WIDTH, offset + name.length());
+  }
+
+  /**
+   * Puts a line break and then a beat number into the start of a row, right-aligned in its column
+   * and followed by a space.
+   * @param row  represents the row.
+   * @param beat represents the beat number.
+   * @return the index the first pitch column of the row starts at.
+   */
+  private static int putNumber(char[] row, int beat) {
+    int digits = 1;
+    for (int rest = beat / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int width = Math.max(COLUMN_WIDTH, digits);
+    row[0] = '\n';
+    Arrays.fill(row, 1, 1 + width - digits, ' ');
+    int at = width;
+    for (int rest = beat; at > width - digits; rest /= 10) {
+      row[at--] = (char) ('0' + rest % 10);
+    }
+    row[1 + width] = ' ';
+    return 2 + width;
+  }
+
+  /**
+   * Writes the start of a row, without copying it where the place written to allows.
+   * @param out    represents where the row is written.
+   * @param row    represents the row.
+   * @param length represents the number of characters of the row written.
+   * @throws IOException if the row can't be written.
+   */
+  private static void put(Appendable out, char[] row, int length) throws IOException {
+    if (out instanceof Writer) {
+      ((Writer) out).write(row, 0, length);
+    }
+    else if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(row, 0, length);
+    }
+    else {
+      out.append(CharBuffer.wrap(row, 0, length));
+    }
+  }
+
+  /**
+   * Writes a block of rows of a grid into a buffer of its own.
+   */
+  private static final class BlockTask extends RecursiveTask<String> {
+    /**
+     * Represents the version of this class, as tasks are serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Represents the piece.
+     */
+    private final IMusicModel model;
+
+    /**
+     * Represents the value of the pitch of the first column.
+     */
+    private final int lowest;
+
+    /**
+     * Represents the number of columns.
+     */
+    private final int columns;
+
+    /**
+     * Represents the first beat of the block.
+     */
+    private final int from;
+
+    /**
+     * Represents the beat after the last beat of the block.
+     */
+    private final int to;
+
+    /**
+     * Represents the last beat a sound of the piece starts on.
+     */
+    private final int lastStart;
+
+    BlockTask(IMusicModel model, int lowest, int columns, int from, int to, int lastStart) {
+      this.model = model;
+      this.lowest = lowest;
+      this.columns = columns;
+      this.from = from;
+      this.to = to;
+      this.lastStart = lastStart;
+    }
+
+    @Override
+    protected String compute() {
+      int[] held = new int[this.columns];
+      Iterator<IMusicModel.PlacedNote> notes = notesBetween(this.model, this.lowest, this.from,
+              this.to, held);
+      return render(block -> writeRows(block,
+              new char[LONGEST_NUMBER + this.columns * COLUMN_WIDTH], this.lowest, this.columns,
+              this.from, this.to, this.lastStart, held, notes));
+    }
+  }
+}
@@ -102,4 +102,11 @@ public interface IFlag {
    * @return the point which is skipped for any number of repetitions.
    */
   Integer getSkipPoint();
+
+  /**
+   * Gives a copy of this Flag, with its own count of repetitions, so that playing through the copy
+   * doesn't move this Flag.
+   * @return a copy of this Flag.
+   */
+  IFlag copy();
 }
@@ -0,0 +1,13 @@
+package cs3500.music.model;
+
+/**
+ * Listens for changes made to an {@code IMusicModel}.
+ */
+public interface IModelListener {
+  /**
+   * Called once a change has been made to the model, on the thread that made it. The model may be
+   * read from here, but must not be changed.
+   * @param change represents the change that was made.
+   */
+  void modelChanged(ModelChange change);
+}
@@ -1,5 +1,6 @@
 package cs3500.music.model;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +21,18 @@ import javafx.util.Pair;
  *            Map's value is a Pair with the Note keyed to the melody it exists in.
  * HW08:      Added a getEvents() method that allows for returning every flag in this piece.
  *            Added a getEvent() method that returns a flag at a specific beat.
+ *            Added a getNotesBetween() method that gives only the notes sounding during a range of
+ *              beats.
+ *            Added a changeOctave() method that changes the octave of a sound in a melody.
+ *            Added a getPitchRangeVersion() method that changes whenever the range of pitches does.
+ *            getHighestNote()/getLowestNote() now give a Note standing for the pitch, not the
+ *              Note object held in a melody.
+ *            Added a noteIterator() method that walks every note in the order the notes start,
+ *              without building a list. getNoteList() now gives notes in that same order.
+ *            Added a snapshot() method that gives a read-only copy of the model for other threads.
+ *            Added addListener()/removeListener(), so views can follow each change as it is made.
+ *            Added beatsPerMeasure()/getVolume(), so a piece can be saved with its settings.
+ *            Added getGameState(int, int), which shows only a range of beats.
  */
 public interface IMusicModel extends CompositionBuilder<IMusicModel> {
   /**
@@ -79,6 +92,61 @@ public interface IMusicModel extends CompositionBuilder<IMusicModel> {
     }
   }
 
+  /**
+   * Represents a Note along with the beat it starts at and the melody it exists in.
+   */
+  final class PlacedNote {
+    /**
+     * Represents the beat the note starts at.
+     */
+    private final int beat;
+
+    /**
+     * Represents the index of the melody the note exists in.
+     */
+    private final int melody;
+
+    /**
+     * Represents the Note itself.
+     */
+    private final Note note;
+
+    public PlacedNote(int beat, int melody, Note note) {
+      this.beat = beat;
+      this.melody = melody;
+      this.note = note;
+    }
+
+    /**
+     * Gives the beat the note starts at.
+     * @return the beat the note starts at.
+     */
+    public int getBeat() {
+      return this.beat;
+    }
+
+    /**
+     * Gives the index of the melody the note exists in.
+     * @return the index of the melody.
+     */
+    public int getMelody() {
+      return this.melody;
+    }
+
+    /**
+     * Gives the Note.
+     * @return the Note.
+     */
+    public Note getNote() {
+      return this.note;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + this.beat + ", " + this.melody + ", " + this.note + "]";
+    }
+  }
+
 
   /**
    * Adds an {@code Melody} so that it will play from the particular beat onward.
@@ -214,11 +282,32 @@ public interface IMusicModel extends CompositionBuilder<IMusicModel> {
   Map<Integer, List<Pair<Integer, Note>>> getAllNotesWithMelodies();
 
   /**
-   * Creates a List of Pairs of every Note keyed to the beat it starts at.
+   * Gives every Note that sounds during the given range of beats, whether it starts within the
+   * range or started earlier and is still being held, keyed to the beat it starts at and paired to
+   * the melody it exists in. Only looks at the part of the piece covered by the range.
+   * @param fromBeat represents the first beat of the range.
+   * @param toBeat   represents the beat after the last beat of the range.
+   * @return Map keyed with the start beat of each note tied to a List of Pairs of the melody index
+   *         to the Note.
+   */
+  Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat);
+
+  /**
+   * Creates a List of Pairs of every Note keyed to the beat it starts at, in the order given by
+   * {@code noteIterator()}.
    * @return {@code List} of {@code Pair<Integer, Note>}
    */
   List<Pair<Integer, Note>> getNoteList();
 
+  /**
+   * Walks every Note of this in the order the notes start; notes starting at the same beat are
+   * ordered by melody, and notes of a chord keep the order of the chord. Notes are found as they
+   * are reached, so the whole piece is never copied. This must not be changed while the iterator
+   * is in use.
+   * @return {@code Iterator} of every Note with the beat it starts at and the melody it exists in.
+   */
+  Iterator<PlacedNote> noteIterator();
+
   /**
    * Returns the current game state. Only finds notes that rest on beats, and doesn't display every
    * note.
@@ -226,26 +315,61 @@ public interface IMusicModel extends CompositionBuilder<IMusicModel> {
    */
   String getGameState();
 
+  /**
+   * Returns the rows of the current game state for the given range of beats, under the same header
+   * as {@code getGameState()}. Notes held into the range from before it are shown held.
+   * @param fromBeat represents the first beat shown.
+   * @param toBeat   represents the beat after the last beat shown.
+   * @return {@code String} representing the game state over the range.
+   */
+  String getGameState(int fromBeat, int toBeat);
+
   /**
    * Represents the total number of beats in a song.
    */
   int lengthOfSongInBeats();
 
   /**
-   * Represents the highest Note in this.
+   * Represents the highest Note in this, or null if there are no notes.
    */
   Note getHighestNote();
 
   /**
-   * Represents the lowest Note in this.
+   * Represents the lowest Note in this, or null if there are no notes.
    */
   Note getLowestNote();
 
+  /**
+   * Gives a number that changes every time the highest or lowest Note of this changes, so a view
+   * can tell whether it has to resize without asking for the notes again.
+   * @return the number of times the range of pitches has changed.
+   */
+  int getPitchRangeVersion();
+
+  /**
+   * Changes the octave of the sound starting at the given beat in the given melody.
+   * @param melodyIndex      represents the index of the melody the sound exists in.
+   * @param beat             represents the beat the sound starts at.
+   * @param octaveDifference represents what's being added to the octave of the sound.
+   * @throws IllegalArgumentException if no sound starts at the given beat.
+   */
+  void changeOctave(int melodyIndex, int beat, int octaveDifference);
+
   /**
    * Represents the number of microseconds per beat.
    */
   long microsecondsPerBeat();
 
+  /**
+   * Represents the number of beats in a standard measure.
+   */
+  int beatsPerMeasure();
+
+  /**
+   * Represents the volume of the whole piece, from 0 to 100.
+   */
+  int getVolume();
+
   /**
    * Returns the list of Flags associated with this IMusicModel.
    * @return a List of IFlags representing the events existing on this IMusicModel.
@@ -265,4 +389,29 @@ public interface IMusicModel extends CompositionBuilder<IMusicModel> {
    * @return {@param added}.
    */
   IFlag addEvent(IFlag added);
+
+  /**
+   * Gives a read-only view of this model as it is now, which later changes to this model never
+   * show through. Every method that would change the snapshot throws an
+   * {@code UnsupportedOperationException}. The same snapshot is given back until this model
+   * changes, so comparing snapshots tells whether anything has changed. A snapshot can be read
+   * from any thread while this model is being changed, as long as nothing changes the melodies,
+   * sounds or events it gives out.
+   * @return a snapshot of this model.
+   */
+  IMusicModel snapshot();
+
+  /**
+   * Adds a listener that is told of every change made to this model from now on, once the change
+   * has been made. A change that moves many sounds at once is given as a single change covering
+   * every beat it touched, so a listener never has to ask for the whole piece again to follow it.
+   * @param listener represents the listener.
+   */
+  void addListener(IModelListener listener);
+
+  /**
+   * Removes a listener added by {@code addListener()}, if it is there.
+   * @param listener represents the listener.
+   */
+  void removeListener(IModelListener listener);
 }
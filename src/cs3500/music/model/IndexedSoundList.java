@@ -0,0 +1,680 @@
+package cs3500.music.model;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@code List} of {@code ASound}s kept in a balanced tree (an implicit treap) where every node
+ * also knows the total duration of its subtree. This lets a {@code Melody} answer beat-addressed
+ * questions, such as which sound is playing at a beat or how many beats have passed before an
+ * index, in O(log n) without walking the list and without allocating.
+ * Every node also counts the rests in its subtree, so the first and last rests are found the same
+ * way. The durations of sounds are read as they are inserted, so a sound's duration should not
+ * change while it is held in this list.
+ * A rest is kept only as its duration; the {@code Rest} handed out for it is made when it is read,
+ * with the instrument of the melody, so changing it does not change this list. Rests are still
+ * kept one by one, as where one rest ends and the next starts matters to {@code MusicModel}. The
+ * model walks its melodies through a {@code Cursor}, which gives a rest only as its duration and
+ * so makes no {@code Rest}s at all.
+ */
+final class IndexedSoundList extends AbstractList<ASound> {
+  /**
+   * Represents a single sound in the tree, along with the sizes of its subtree.
+   */
+  private static final class Node {
+    /**
+     * Represents the sound held at this node, or null if this node holds a rest.
+     */
+    private ASound sound;
+
+    /**
+     * Represents the duration of the sound held at this node.
+     */
+    private int duration;
+
+    /**
+     * Represents the heap priority of this node, used to keep the tree balanced.
+     */
+    private final int priority;
+
+    /**
+     * Represents the number of sounds in the subtree rooted here.
+     */
+    private int count;
+
+    /**
+     * Represents the total number of beats in the subtree rooted here.
+     */
+    private int beats;
+
+    /**
+     * Represents the number of rests in the subtree rooted here.
+     */
+    private int rests;
+
+    /**
+     * Represents the sounds before this one.
+     */
+    private Node left;
+
+    /**
+     * Represents the sounds after this one.
+     */
+    private Node right;
+
+    Node(ASound sound, int duration, int priority) {
+      this.sound = sound;
+      this.duration = duration;
+      this.priority = priority;
+      this.count = 1;
+      this.beats = duration;
+      this.rests = sound == null ? 1 : 0;
+    }
+
+    /**
+     * Recomputes this node's subtree totals from its children.
+     */
+    private void pull() {
+      this.count = 1 + count(left) + count(right);
+      this.beats = duration + beats(left) + beats(right);
+      this.rests = (sound == null ? 1 : 0) + rests(left) + rests(right);
+    }
+  }
+
+  /**
+   * Represents the root of the tree, or null when this list is empty.
+   */
+  private Node root;
+
+  /**
+   * Represents the state of the generator used for node priorities.
+   */
+  private int seed = 0x2545F491;
+
+  /**
+   * Represents the instrument given to the rests handed out by this list.
+   */
+  private int instrument = 1;
+
+  /**
+   * Creates an empty IndexedSoundList.
+   */
+  IndexedSoundList() {
+    this.root = null;
+  }
+
+  /**
+   * Creates an IndexedSoundList holding the given sounds in order.
+   * @param sounds represents the sounds to be added.
+   */
+  IndexedSoundList(List<ASound> sounds) {
+    for (ASound s : sounds) {
+      this.add(s);
+    }
+  }
+
+  @Override
+  public int size() {
+    return count(this.root);
+  }
+
+  @Override
+  public ASound get(int index) {
+    return this.soundOf(this.nodeAt(index));
+  }
+
+  @Override
+  public ASound set(int index, ASound sound) {
+    Node node = this.nodeAt(index);
+    ASound old = this.soundOf(node);
+    if (node.duration == sound.getDuration() && (node.sound == null) == sound.isRest()) {
+      node.sound = sound.isRest() ? null : sound;
+    }
+    else {
+      this.remove(index);
+      this.add(index, sound);
+    }
+    return old;
+  }
+
+  @Override
+  public void add(int index, ASound sound) {
+    this.insert(index, sound.isRest() ? null : sound, sound.getDuration());
+  }
+
+  /**
+   * Inserts a rest of the given duration at the given index, without making a {@code Rest}.
+   * @param index    represents the index the rest will have.
+   * @param duration represents the duration of the rest.
+   * @throws IndexOutOfBoundsException if the index is greater than the size of this list.
+   */
+  void addRest(int index, int duration) {
+    this.insert(index, null, duration);
+  }
+
+  /**
+   * Inserts a node holding the given sound at the given index.
+   * @param index    represents the index the sound will have.
+   * @param sound    represents the sound, or null for a rest.
+   * @param duration represents the duration of the sound.
+   * @throws IndexOutOfBoundsException if the index is greater than the size of this list.
+   */
+  private void insert(int index, ASound sound, int duration) {
+    if (index < 0 || index > this.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+    }
+    Node[] parts = split(this.root, index);
+    this.root = merge(merge(parts[0], new Node(sound, duration, this.nextPriority())), parts[1]);
+    this.modCount++;
+  }
+
+  @Override
+  public ASound remove(int index) {
+    this.checkIndex(index);
+    Node[] before = split(this.root, index);
+    Node[] after = split(before[1], 1);
+    this.root = merge(before[0], after[1]);
+    this.modCount++;
+    return this.soundOf(after[0]);
+  }
+
+  /**
+   * Sets the instrument given to the rests handed out by this list from now on.
+   * @param instrument represents the MIDI code of the instrument.
+   */
+  void setRestInstrument(int instrument) {
+    this.instrument = instrument;
+  }
+
+  /**
+   * Determines whether the sound at the given index is a rest, without making a {@code Rest}.
+   * @param index represents the index of the sound.
+   * @return whether the sound at the given index is a rest.
+   * @throws IndexOutOfBoundsException if there is no such index.
+   */
+  boolean isRestAt(int index) {
+    return this.nodeAt(index).sound == null;
+  }
+
+  /**
+   * Gives the sound held at the given node, making a {@code Rest} for it if it holds a rest.
+   * @param node represents the node.
+   * @return the sound held at the node.
+   */
+  private ASound soundOf(Node node) {
+    if (node.sound != null) {
+      return node.sound;
+    }
+    Rest rest = new Rest(node.duration);
+    rest.setInstrument(this.instrument);
+    return rest;
+  }
+
+  @Override
+  public void clear() {
+    this.root = null;
+    this.modCount++;
+  }
+
+  @Override
+  public Iterator<ASound> iterator() {
+    return new Iterator<ASound>() {
+      private final Cursor cursor = new Cursor();
+
+      @Override
+      public boolean hasNext() {
+        return this.cursor.hasNext();
+      }
+
+      @Override
+      public ASound next() {
+        if (!this.cursor.next()) {
+          throw new NoSuchElementException();
+        }
+        return soundOf(this.cursor.node);
+      }
+    };
+  }
+
+  /**
+   * Gives a cursor over the sounds of this list, starting before the first.
+   * @return a new cursor.
+   */
+  Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Gives a cursor over the sounds of this list, starting before the sound playing at the given
+   * beat, or before the first sound if the beat is before it.
+   * @param beat represents the beat.
+   * @return a new cursor, with no sounds left if the beat is past the last sound.
+   */
+  Cursor cursor(int beat) {
+    if (beat <= 0) {
+      return new Cursor();
+    }
+    int index = this.indexPlayingAt(beat);
+    return new Cursor(index == -1 ? this.size() : index);
+  }
+
+  /**
+   * Walks the sounds of the list in order, giving the duration of each sound and the sound itself
+   * only where it isn't a rest, so walking a list makes no {@code Rest}s. The list must not be
+   * changed while a cursor walks it.
+   */
+  final class Cursor implements SoundCursor {
+    /**
+     * Represents the nodes whose own sounds and right subtrees have not been reached yet.
+     */
+    private Node[] stack = new Node[16];
+
+    /**
+     * Represents the number of nodes in the stack.
+     */
+    private int depth = 0;
+
+    /**
+     * Represents the node of the current sound, or null before the first sound and after the last.
+     */
+    private Node node = null;
+
+    /**
+     * Represents the beat the current sound starts at.
+     */
+    private int beat = 0;
+
+    /**
+     * Represents the beat the next sound starts at.
+     */
+    private int nextBeat = 0;
+
+    /**
+     * Represents the number of changes made to the list when this was made.
+     */
+    private final int expectedModCount = modCount;
+
+    /**
+     * Creates a cursor before the first sound of the list.
+     */
+    private Cursor() {
+      this.pushLeft(root);
+    }
+
+    /**
+     * Creates a cursor before the sound at the given index of the list, pushing every node on the
+     * way down to it that comes at or after it.
+     * @param index represents the index, or the size of the list.
+     */
+    private Cursor(int index) {
+      this.nextBeat = beatsBefore(index);
+      Node node = root;
+      while (node != null) {
+        int leftCount = count(node.left);
+        if (index <= leftCount) {
+          this.push(node);
+          node = node.left;
+        }
+        else {
+          index -= leftCount + 1;
+          node = node.right;
+        }
+      }
+    }
+
+    /**
+     * Pushes the given node onto the stack.
+     * @param node represents the node.
+     */
+    private void push(Node node) {
+      if (this.depth == this.stack.length) {
+        Node[] bigger = new Node[this.stack.length * 2];
+        System.arraycopy(this.stack, 0, bigger, 0, this.depth);
+        this.stack = bigger;
+      }
+      this.stack[this.depth++] = node;
+    }
+
+    /**
+     * Pushes the given node and every node down its left side onto the stack.
+     * @param node represents the node.
+     */
+    private void pushLeft(Node node) {
+      while (node != null) {
+        this.push(node);
+        node = node.left;
+      }
+    }
+
+    /**
+     * Determines whether there is a sound after the current one.
+     * @return whether there is a next sound.
+     */
+    boolean hasNext() {
+      return this.depth > 0;
+    }
+
+    /**
+     * Moves to the next sound.
+     * @return whether there was a next sound to move to.
+     * @throws java.util.ConcurrentModificationException if the list has changed.
+     */
+    @Override
+    public boolean next() {
+      if (modCount != this.expectedModCount) {
+        throw new java.util.ConcurrentModificationException();
+      }
+      if (this.depth == 0) {
+        this.node = null;
+        return false;
+      }
+      this.node = this.stack[--this.depth];
+      this.pushLeft(this.node.right);
+      this.beat = this.nextBeat;
+      this.nextBeat += this.node.duration;
+      return true;
+    }
+
+    @Override
+    public int beat() {
+      return this.beat;
+    }
+
+    @Override
+    public int duration() {
+      return this.node.duration;
+    }
+
+    @Override
+    public boolean isRest() {
+      return this.node.sound == null;
+    }
+
+    /**
+     * Gives the current sound, as held in the list.
+     * @return the current sound, or null if it is a rest.
+     */
+    ASound sound() {
+      return this.node.sound;
+    }
+  }
+
+  /**
+   * Gives the total number of beats of every sound in this list.
+   * @return the sum of the durations of every sound.
+   */
+  int totalBeats() {
+    return beats(this.root);
+  }
+
+  /**
+   * Gives the number of beats taken by the sounds before the given index.
+   * @param index represents the index of a sound, or the size of this list.
+   * @return the beat at which the sound at the given index starts.
+   * @throws IndexOutOfBoundsException if the index is greater than the size of this list.
+   */
+  int beatsBefore(int index) {
+    if (index <= 0) {
+      return 0;
+    }
+    if (index > this.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+    }
+    int beats = 0;
+    Node node = this.root;
+    while (node != null) {
+      int leftCount = count(node.left);
+      if (index <= leftCount) {
+        node = node.left;
+      }
+      else {
+        beats += beats(node.left) + node.duration;
+        index -= leftCount + 1;
+        node = node.right;
+      }
+    }
+    return beats;
+  }
+
+  /**
+   * Gives the first index whose sound starts at or after the given beat. The size of this list is
+   * returned when the given beat is exactly the end of the last sound.
+   * @param beat represents the beat being looked for.
+   * @return the first index starting at or after the beat, or -1 if the beat is past the end.
+   */
+  int firstIndexFrom(int beat) {
+    if (beat > this.totalBeats()) {
+      return -1;
+    }
+    int index = 0;
+    int elapsed = 0;
+    Node node = this.root;
+    while (node != null) {
+      int startOfNode = elapsed + beats(node.left);
+      if (startOfNode >= beat) {
+        node = node.left;
+      }
+      else {
+        index += count(node.left) + 1;
+        elapsed = startOfNode + node.duration;
+        node = node.right;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Gives the index of the sound that is sounding (starting or continuing) at the given beat.
+   * @param beat represents the beat being looked for.
+   * @return the index of the sound covering the beat, or -1 if no sound covers it.
+   */
+  int indexPlayingAt(int beat) {
+    if (beat < 0 || beat >= this.totalBeats()) {
+      return -1;
+    }
+    int index = 0;
+    Node node = this.root;
+    while (node != null) {
+      int leftBeats = beats(node.left);
+      if (beat < leftBeats) {
+        node = node.left;
+      }
+      else if (beat < leftBeats + node.duration) {
+        return index + count(node.left);
+      }
+      else {
+        beat -= leftBeats + node.duration;
+        index += count(node.left) + 1;
+        node = node.right;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gives the index of the sound that starts exactly at the given beat.
+   * @param beat represents the beat being looked for.
+   * @return the index of the sound starting at the beat, or -1 if no sound starts there.
+   */
+  int indexStartingAt(int beat) {
+    int index = this.indexPlayingAt(beat);
+    if (index >= 0 && this.beatsBefore(index) == beat) {
+      return index;
+    }
+    return -1;
+  }
+
+  /**
+   * Gives the index of the first rest in this list.
+   * @return the index of the first rest, or -1 if there are no rests.
+   */
+  int firstRestIndex() {
+    if (rests(this.root) == 0) {
+      return -1;
+    }
+    int index = 0;
+    Node node = this.root;
+    while (true) {
+      if (rests(node.left) > 0) {
+        node = node.left;
+      }
+      else if (node.sound == null) {
+        return index + count(node.left);
+      }
+      else {
+        index += count(node.left) + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /**
+   * Gives the index of the last rest in this list.
+   * @return the index of the last rest, or -1 if there are no rests.
+   */
+  int lastRestIndex() {
+    if (rests(this.root) == 0) {
+      return -1;
+    }
+    int index = 0;
+    Node node = this.root;
+    while (true) {
+      if (rests(node.right) > 0) {
+        index += count(node.left) + 1;
+        node = node.right;
+      }
+      else if (node.sound == null) {
+        return index + count(node.left);
+      }
+      else {
+        node = node.left;
+      }
+    }
+  }
+
+  /**
+   * Finds the node at the given index.
+   * @param index represents the index of the node.
+   * @return the node at the given index.
+   * @throws IndexOutOfBoundsException if there is no such index.
+   */
+  private Node nodeAt(int index) {
+    this.checkIndex(index);
+    Node node = this.root;
+    while (true) {
+      int leftCount = count(node.left);
+      if (index < leftCount) {
+        node = node.left;
+      }
+      else if (index == leftCount) {
+        return node;
+      }
+      else {
+        index -= leftCount + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  /**
+   * Throws an {@code IndexOutOfBoundsException} if the given index holds no sound.
+   * @param index represents the index being checked.
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= this.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+    }
+  }
+
+  /**
+   * Gives the next priority for a new node, using a xorshift generator.
+   * @return a pseudo-random int.
+   */
+  private int nextPriority() {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    return seed;
+  }
+
+  /**
+   * Splits the given tree so that the first {@code index} sounds are in the first tree returned.
+   * @param node  represents the tree being split.
+   * @param index represents the number of sounds to put in the first tree.
+   * @return an array of the tree before the index and the tree from the index onward.
+   */
+  private static Node[] split(Node node, int index) {
+    if (node == null) {
+      return new Node[]{null, null};
+    }
+    int leftCount = count(node.left);
+    if (index <= leftCount) {
+      Node[] parts = split(node.left, index);
+      node.left = parts[1];
+      node.pull();
+      parts[1] = node;
+      return parts;
+    }
+    else {
+      Node[] parts = split(node.right, index - leftCount - 1);
+      node.right = parts[0];
+      node.pull();
+      parts[0] = node;
+      return parts;
+    }
+  }
+
+  /**
+   * Joins two trees so that every sound of the first comes before every sound of the second.
+   * @param first  represents the earlier sounds.
+   * @param second represents the later sounds.
+   * @return the joined tree.
+   */
+  private static Node merge(Node first, Node second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    if (first.priority > second.priority) {
+      first.right = merge(first.right, second);
+      first.pull();
+      return first;
+    }
+    else {
+      second.left = merge(first, second.left);
+      second.pull();
+      return second;
+    }
+  }
+
+  /**
+   * Gives the number of sounds in the given tree.
+   * @param node represents the tree.
+   * @return the number of sounds, 0 for an empty tree.
+   */
+  private static int count(Node node) {
+    return node == null ? 0 : node.count;
+  }
+
+  /**
+   * Gives the number of beats in the given tree.
+   * @param node represents the tree.
+   * @return the number of beats, 0 for an empty tree.
+   */
+  private static int beats(Node node) {
+    return node == null ? 0 : node.beats;
+  }
+
+  /**
+   * Gives the number of rests in the given tree.
+   * @param node represents the tree.
+   * @return the number of rests, 0 for an empty tree.
+   */
+  private static int rests(Node node) {
+    return node == null ? 0 : node.rests;
+  }
+}
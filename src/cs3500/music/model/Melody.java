@@ -1,7 +1,6 @@
 package cs3500.music.model;
 
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * Represents a Melody in music.
@@ -11,6 +10,18 @@ import java.util.ArrayList;
  *            Added a changeInstrument method that changes the instrument to the given one.
  *            Fixed longstanding bug in getNoteAtBeat().
  *            Removed nonMatchingMeasureException() as Measures no longer exist.
+ *            Sounds are now kept in an IndexedSoundList, so every beat-addressed query runs in
+ *              logarithmic time rather than walking the list from the front.
+ *            Added firstRestBeat() and endOfLastRest(), giving the span of beats any rest can be
+ *              in.
+ *            Added copy(), for changing a Melody that is still being read elsewhere.
+ *            Rests are now kept only as durations, and Rest objects are made when they are read.
+ *              Added addRest(), which adds a rest without making one.
+ *            Added getDynamic().
+ *            Added soundCursor(), which walks the sounds without making a Rest for any rest.
+ *            soundCursor() can now start from the sound playing at a given beat.
+ *              copy() and changeInstrument() now walk the sounds that way.
+ *            Added checkRest(), which checks a rest the way addRest() does without adding it.
  */
 public class Melody {
   /**
@@ -20,9 +31,10 @@ public class Melody {
   private int dynamic;
 
   /**
-   * Represents the {@code List} of {@code ASound} in this {@code Melody}.
+   * Represents the {@code List} of {@code ASound} in this {@code Melody}, indexed by the beat each
+   * sound starts at.
    */
-  private List<ASound> sounds;
+  private IndexedSoundList sounds;
 
   /**
    * Represents the instrument int code as interpreted by MIDI. Sets the instrument to this.
@@ -40,7 +52,8 @@ public class Melody {
       throw new IllegalArgumentException("The dynamic cannot be less than 0 or greater than 100.");
     }
     this.dynamic = dynamic;
-    this.sounds = sounds;
+    this.sounds = new IndexedSoundList(sounds);
+    this.sounds.setRestInstrument(instrument);
     this.instrument = instrument;
     for (ASound s : this.sounds) {
       s.setInstrument(instrument);
@@ -60,7 +73,8 @@ public class Melody {
 
     this.dynamic = dynamic;
     this.instrument = instrument;
-    this.sounds = new ArrayList<ASound>();
+    this.sounds = new IndexedSoundList();
+    this.sounds.setRestInstrument(instrument);
     for (ASound s : sounds) {
       this.sounds.add(s);
       s.setInstrument(instrument);
@@ -90,7 +104,7 @@ public class Melody {
    * @param dynamic represents the volume of the melody.
    */
   public Melody(int dynamic) {
-    this(dynamic, new ArrayList<ASound>());
+    this(dynamic, new IndexedSoundList());
   }
 
   /**
@@ -122,6 +136,39 @@ public class Melody {
     this.addNotePrivate(note, noteIndex);
   }
 
+  /**
+   * Adds a rest at the given index, without making a {@code Rest}.
+   * @param duration  represents the duration of the rest.
+   * @param noteIndex represents the index to add the rest to.
+   * @throws IllegalArgumentException if the duration isn't positive or the index is invalid.
+   */
+  public void addRest(int duration, int noteIndex) {
+    this.checkRest(duration, noteIndex);
+    this.sounds.addRest(noteIndex, duration);
+  }
+
+  /**
+   * Throws the exception {@code addRest()} would throw for the given rest, without adding it.
+   * @param duration  represents the duration of the rest.
+   * @param noteIndex represents the index to add the rest to.
+   * @throws IllegalArgumentException if the duration isn't positive or the index is too large.
+   * @throws IndexOutOfBoundsException if the index is negative.
+   */
+  void checkRest(int duration, int noteIndex) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Attempted to give duration: " + duration);
+    }
+    if (this.sounds.size() < noteIndex) {
+      throw new IllegalArgumentException("This index doesn't exist: " + noteIndex
+              + " in list of size "
+              + this.sounds.size());
+    }
+    if (noteIndex < 0) {
+      throw new IndexOutOfBoundsException("Index: " + noteIndex + ", Size: "
+              + this.sounds.size());
+    }
+  }
+
   /**
    * Adds note to a given beat.
    * @param note      represents the note being added.
@@ -131,7 +178,7 @@ public class Melody {
     int oldIndex = getIndexOfBeat(beatIndex);
     if (oldIndex == -1 || this.sounds.size() < oldIndex) {
       if (beatIndex - this.numOfBeats() > 0) {
-        this.sounds.add(new Rest(beatIndex - this.numOfBeats()));
+        this.sounds.addRest(this.sounds.size(), beatIndex - this.numOfBeats());
       }
       this.sounds.add(note);
       return;
@@ -139,7 +186,7 @@ public class Melody {
 
     if (oldIndex == 0 && this.sounds.size() == 0) {
       if (beatIndex > 0) {
-        this.addNotePrivate(new Rest(beatIndex), 0);
+        this.sounds.addRest(0, beatIndex);
       }
       this.addNotePrivate(note, this.size());
       return;
@@ -150,25 +197,21 @@ public class Melody {
     }
 
     ASound oldSound = this.sounds.get(oldIndex);
+    int oldStart = this.numOfBeatsElapsedAt(oldIndex);
 
-    if (this.numOfBeatsElapsedAt(oldIndex) + oldSound.getDuration() <= beatIndex) {
+    if (oldStart + oldSound.getDuration() <= beatIndex) {
       int restLength = this.numOfBeats() - beatIndex;
       if (restLength > 0) {
-        this.addNotePrivate(new Rest(restLength), this.size());
+        this.sounds.addRest(this.size(), restLength);
       }
       this.addNotePrivate(note, this.size());
       return;
     }
 
-    boolean notePlaysDuringThisNote = false;
-    for (int i = beatIndex; i < beatIndex + note.getDuration(); i++) {
-      if (this.hasNotePlayingAt(i)) {
-        notePlaysDuringThisNote = true;
-      }
-    }
+    boolean notePlaysDuringThisNote =
+            this.hasNotePlayingBetween(beatIndex, beatIndex + note.getDuration());
 
     if (!oldSound.isRest() || notePlaysDuringThisNote) {
-      //this.sounds.add(oldIndex, oldSound);
       throw new IllegalArgumentException("Attempted to add note " + note +
               " to a beat that was already "
               + "occupied with note " + oldSound + ".");
@@ -180,18 +223,39 @@ public class Melody {
       + "overextended by " + (note.getDuration() - oldSound.getDuration()) + ".");
     }
 
-    int startDuration = beatIndex - this.numOfBeatsElapsedAt(oldIndex);
+    int startDuration = beatIndex - oldStart;
     int endPoint = beatIndex + note.getDuration();
-    int lastRestPosition = this.numOfBeatsElapsedAt(oldIndex) + oldSound.getDuration() - endPoint;
+    int lastRestPosition = oldStart + oldSound.getDuration() - endPoint;
+    this.sounds.remove(oldIndex);
     if (lastRestPosition > 0) {
-      this.sounds.add(oldIndex,
-              new Rest(lastRestPosition));
+      this.sounds.addRest(oldIndex, lastRestPosition);
     }
     this.sounds.add(oldIndex, note);
     if (endPoint - beatIndex > 0 && startDuration > 0) {
-      this.sounds.add(oldIndex, new Rest(startDuration));
+      this.sounds.addRest(oldIndex, startDuration);
+    }
+  }
+
+  /**
+   * Determines whether a note is playing during any beat from the first beat up to, but not
+   * including, the last beat. Only looks at each sound in that range once.
+   * @param from represents the first beat checked.
+   * @param to   represents the beat after the last beat checked.
+   * @return {@code boolean} determining whether there is a note playing in the given range.
+   */
+  private boolean hasNotePlayingBetween(int from, int to) {
+    int beat = from;
+    while (beat < to) {
+      if (this.hasNotePlayingAt(beat)) {
+        return true;
+      }
+      int index = this.sounds.indexPlayingAt(beat);
+      if (index == -1) {
+        return false;
+      }
+      beat = this.sounds.beatsBefore(index + 1);
     }
-    this.sounds.remove(oldSound);
+    return false;
   }
 
   /**
@@ -218,19 +282,17 @@ public class Melody {
    * @return {@code boolean} determining whether there is a note playing at the given beat.
    */
   public boolean hasNotePlayingAt(int beat) {
-    for (ASound s : this.sounds) {
-      if (beat == 0 && !s.isRest()) {
-        return true;
-      }
-      else if (beat == 0) {
-        return false;
-      }
-      beat -= s.getDuration();
-      if (beat < 0) {
-        return !s.isRest();
-      }
+    if (this.sounds.size() == 0) {
+      return false;
+    }
+    if (beat < 0) {
+      return !this.sounds.isRestAt(0);
+    }
+    int index = this.sounds.indexPlayingAt(beat);
+    if (index == -1) {
+      return !this.sounds.isRestAt(this.size() - 1);
     }
-    return this.size() != 0 && !this.sounds.get(this.size() - 1).isRest();
+    return !this.sounds.isRestAt(index);
   }
 
   /**
@@ -251,13 +313,11 @@ public class Melody {
    * @return {@code ASound} that's at the given beat.
    */
   public ASound getNoteAtBeat(int beat) {
-    for (ASound s : this.sounds) {
-      if (beat == 0) {
-        return s;
-      }
-      beat -= s.duration;
+    int index = this.sounds.indexStartingAt(beat);
+    if (index == -1) {
+      throw new IllegalArgumentException("There is no note at the given beat.");
     }
-    throw new IllegalArgumentException("There is no note at the given beat.");
+    return this.sounds.get(index);
   }
 
   /**
@@ -270,8 +330,7 @@ public class Melody {
     if (noteIndex >= this.sounds.size()) {
       throw new IllegalArgumentException("This index doesn't exist.");
     }
-    this.sounds.remove(noteIndex);
-    this.sounds.add(noteIndex, sound);
+    this.sounds.set(noteIndex, sound);
     sound.setInstrument(this.instrument);
   }
 
@@ -281,16 +340,7 @@ public class Melody {
    * @return whether a note starts at the given beat.
    */
   public boolean noteStartsAtExactBeat(int beat) {
-    for (ASound s : this.sounds) {
-      if (beat == 0) {
-        return true;
-      }
-      beat -= s.duration;
-      if (beat < 0) {
-        return false;
-      }
-    }
-    return false;
+    return this.sounds.indexStartingAt(beat) != -1;
   }
 
   /**
@@ -307,8 +357,12 @@ public class Melody {
    */
   public void changeInstrument(int instrument) {
     this.instrument = instrument;
-    for (ASound s : this.sounds) {
-      s.setInstrument(instrument);
+    this.sounds.setRestInstrument(instrument);
+    IndexedSoundList.Cursor sounds = this.sounds.cursor();
+    while (sounds.next()) {
+      if (!sounds.isRest()) {
+        sounds.sound().setInstrument(instrument);
+      }
     }
   }
 
@@ -328,16 +382,38 @@ public class Melody {
     }
   }
 
+  /**
+   * Gives the dynamic of this melody.
+   * @return the dynamic.
+   */
+  public int getDynamic() {
+    return this.dynamic;
+  }
+
   /**
    * Returns the total number of beats in this melody.
    * @return number of beats
    */
   public int numOfBeats() {
-    int numOfBeats = 0;
-    for (ASound s : this.sounds) {
-      numOfBeats += s.getDuration();
-    }
-    return numOfBeats;
+    return this.sounds.totalBeats();
+  }
+
+  /**
+   * Gives the beat the first rest of this melody starts at.
+   * @return the beat of the first rest, or -1 if there are no rests.
+   */
+  public int firstRestBeat() {
+    int index = this.sounds.firstRestIndex();
+    return index == -1 ? -1 : this.sounds.beatsBefore(index);
+  }
+
+  /**
+   * Gives the beat right after the last rest of this melody ends.
+   * @return the beat the last rest ends at, or -1 if there are no rests.
+   */
+  public int endOfLastRest() {
+    int index = this.sounds.lastRestIndex();
+    return index == -1 ? -1 : this.sounds.beatsBefore(index + 1);
   }
 
   /**
@@ -346,11 +422,7 @@ public class Melody {
    * @return the number of beats elapsed until the beginning of the given index
    */
   public int numOfBeatsElapsedAt(int index) {
-    int numOfBeats = 0;
-    for (int i = 0; i < index; i++) {
-      numOfBeats += sounds.get(i).getDuration();
-    }
-    return numOfBeats;
+    return this.sounds.beatsBefore(index);
   }
 
   /**
@@ -359,23 +431,10 @@ public class Melody {
    * @return the index at a given beat, or -1 if no such index exists.
    */
   public int getIndexOfBeat(int beat) {
-    int index = 0;
-    int curBeat = 0;
     if (this.sounds.size() == 0) {
       return 0;
     }
-    for (ASound s : this.sounds) {
-
-      if (curBeat >= beat) {
-        return index;
-      }
-      curBeat += s.getDuration();
-      index++;
-    }
-    if (curBeat >= beat) {
-      return index;
-    }
-    return -1;
+    return this.sounds.firstIndexFrom(beat);
   }
 
   /**
@@ -395,6 +454,49 @@ public class Melody {
     return list;
   }
 
+  /**
+   * Creates a copy of this Melody that shares no sounds with it, so that changing one never
+   * changes the other.
+   * @return a copy of this Melody.
+   */
+  public Melody copy() {
+    IndexedSoundList copies = new IndexedSoundList();
+    IndexedSoundList.Cursor sounds = this.sounds.cursor();
+    while (sounds.next()) {
+      if (sounds.isRest()) {
+        copies.addRest(copies.size(), sounds.duration());
+      }
+      else {
+        copies.add(sounds.sound().copy());
+      }
+    }
+    Melody copy = new Melody(this.dynamic);
+    copy.instrument = this.instrument;
+    copy.sounds = copies;
+    copy.sounds.setRestInstrument(this.instrument);
+    return copy;
+  }
+
+  /**
+   * Gives a cursor over the sounds of this Melody, which gives each rest only as its duration
+   * rather than making a {@code Rest} for it, for walking the melody inside the model.
+   * @return a cursor before the first sound.
+   */
+  IndexedSoundList.Cursor soundCursor() {
+    return this.sounds.cursor();
+  }
+
+  /**
+   * Gives a cursor over the sounds of this Melody from the sound playing at the given beat, as
+   * {@code soundCursor()} does.
+   * @param beat represents the beat.
+   * @return a cursor before the sound playing at the beat, or before the first sound if the beat
+   *         is before it.
+   */
+  IndexedSoundList.Cursor soundCursor(int beat) {
+    return this.sounds.cursor(beat);
+  }
+
   /**
    * Gives the size of this, in terms of the number of ASounds it contains.
    * @return the size of this Melody's Notes field.
@@ -0,0 +1,153 @@
+package cs3500.music.model;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Walks every note of a piece in the order the notes start, by merging the melodies of the piece.
+ * Each melody is already in time order, so only the next sound of every melody is held, in a heap
+ * ordered by start beat and then by melody. Notes starting at the same beat come out ordered by
+ * melody, and notes of the same chord keep the order of the chord. Nothing is copied out of the
+ * melodies, and rests are skipped by their durations without being made, so the piece must not be
+ * changed while this is in use.
+ */
+final class MergedNoteIterator implements Iterator<IMusicModel.PlacedNote> {
+  /**
+   * Represents the position reached in a single melody.
+   */
+  private static final class Cursor implements Comparable<Cursor> {
+    /**
+     * Represents the index of the melody this walks through.
+     */
+    private final int melody;
+
+    /**
+     * Represents the sounds of the melody not yet reached.
+     */
+    private final IndexedSoundList.Cursor sounds;
+
+    /**
+     * Represents the beat the current sound starts at.
+     */
+    private int beat = 0;
+
+    /**
+     * Represents the duration of the current sound.
+     */
+    private int duration = 0;
+
+    /**
+     * Represents the notes of the current sound, or null if the current sound is a single note.
+     */
+    private List<Note> chord;
+
+    /**
+     * Represents the current single note, when the current sound is not a chord.
+     */
+    private Note note;
+
+    /**
+     * Represents the position reached in the notes of the current sound.
+     */
+    private int position;
+
+    Cursor(int melody, IndexedSoundList.Cursor sounds) {
+      this.melody = melody;
+      this.sounds = sounds;
+    }
+
+    /**
+     * Moves to the next sound of the melody that holds any notes.
+     * @return whether there is such a sound.
+     */
+    private boolean advance() {
+      while (this.sounds.next()) {
+        this.beat += this.duration;
+        this.duration = this.sounds.duration();
+        this.position = 0;
+        if (this.sounds.isRest()) {
+          continue;
+        }
+        ASound s = this.sounds.sound();
+        if (s.isNote()) {
+          this.note = (Note) s;
+          this.chord = null;
+          return true;
+        }
+        this.chord = s.getNotesIn();
+        if (!this.chord.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Determines whether the current sound still has notes to give.
+     * @return whether there are notes left in the current sound.
+     */
+    private boolean hasNote() {
+      return this.chord == null ? this.position == 0 : this.position < this.chord.size();
+    }
+
+    /**
+     * Gives the next note of the current sound.
+     * @return the next note.
+     */
+    private Note nextNote() {
+      Note n = this.chord == null ? this.note : this.chord.get(this.position);
+      this.position++;
+      return n;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      if (this.beat != other.beat) {
+        return Integer.compare(this.beat, other.beat);
+      }
+      return Integer.compare(this.melody, other.melody);
+    }
+  }
+
+  /**
+   * Represents every melody that still has notes, with the earliest next note first.
+   */
+  private final PriorityQueue<Cursor> heap;
+
+  /**
+   * Creates an iterator over every note of the given melodies.
+   * @param melodies represents the melodies of the piece.
+   */
+  MergedNoteIterator(List<Melody> melodies) {
+    this.heap = new PriorityQueue<>(Math.max(1, melodies.size()));
+    for (int i = 0; i < melodies.size(); i++) {
+      Cursor c = new Cursor(i, melodies.get(i).soundCursor());
+      if (c.advance()) {
+        this.heap.add(c);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !this.heap.isEmpty();
+  }
+
+  @Override
+  public IMusicModel.PlacedNote next() {
+    Cursor c = this.heap.peek();
+    if (c == null) {
+      throw new NoSuchElementException();
+    }
+    IMusicModel.PlacedNote placed = new IMusicModel.PlacedNote(c.beat, c.melody, c.nextNote());
+    if (!c.hasNote()) {
+      this.heap.poll();
+      if (c.advance()) {
+        this.heap.add(c);
+      }
+    }
+    return placed;
+  }
+}
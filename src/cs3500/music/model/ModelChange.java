@@ -0,0 +1,328 @@
+package cs3500.music.model;
+
+/**
+ * Describes one change made to an {@code IMusicModel}, given to every {@code IModelListener} of
+ * the model once the change has been made. A change names the melody it was made to and the beats
+ * and pitches it may have touched, so a view can update only that part of the piece and read the
+ * notes it needs back from the model. The beats run from {@code getFromBeat()} up to but not
+ * including {@code getToBeat()}, and cover where the changed notes were as well as where they are
+ * now; the pitches cover both the notes that went and the notes that came. A change that added a
+ * sound also carries a copy of that sound, so the notes added can be handed on without reading
+ * the beat back from the model, where other notes may start too.
+ */
+public final class ModelChange {
+  /**
+   * The kinds of change a model makes.
+   */
+  public enum Kind {
+    /**
+     * A sound was added to a melody, starting at {@code getFromBeat()}. Nothing else moved.
+     */
+    NOTE_ADDED,
+
+    /**
+     * The sound starting at {@code getFromBeat()} was replaced by a rest of the same length.
+     */
+    NOTE_REMOVED,
+
+    /**
+     * The sound starting at {@code getFromBeat()} was replaced by a sound of the same length, or
+     * had its notes changed in place.
+     */
+    NOTE_SWAPPED,
+
+    /**
+     * A melody was added after every other melody.
+     */
+    MELODY_ADDED,
+
+    /**
+     * A melody was removed, so every later melody now has an index one lower.
+     */
+    MELODY_REMOVED,
+
+    /**
+     * Sounds of a melody were moved, or the melody was changed as a whole, over the given beats.
+     */
+    MELODY_CHANGED,
+
+    /**
+     * An event was added over the given beats.
+     */
+    EVENT_ADDED,
+
+    /**
+     * The tempo of the piece was changed.
+     */
+    TEMPO_CHANGED,
+
+    /**
+     * The volume of the piece was changed.
+     */
+    VOLUME_CHANGED
+  }
+
+  /**
+   * Gathers the beats and pitches touched by a change as the model makes it.
+   */
+  static final class Extent {
+    /**
+     * Represents the first beat touched.
+     */
+    private int fromBeat = Integer.MAX_VALUE;
+
+    /**
+     * Represents the beat after the last beat touched.
+     */
+    private int toBeat = Integer.MIN_VALUE;
+
+    /**
+     * Represents the lowest pitch touched.
+     */
+    private int lowPitch = Integer.MAX_VALUE;
+
+    /**
+     * Represents the highest pitch touched.
+     */
+    private int highPitch = Integer.MIN_VALUE;
+
+    /**
+     * Widens this to cover the given beats.
+     * @param from represents the first beat.
+     * @param to   represents the beat after the last beat.
+     * @return this.
+     */
+    Extent beats(int from, int to) {
+      if (from < to) {
+        this.fromBeat = Math.min(this.fromBeat, from);
+        this.toBeat = Math.max(this.toBeat, to);
+      }
+      return this;
+    }
+
+    /**
+     * Widens this to cover a note.
+     * @param start    represents the beat the note starts at.
+     * @param duration represents the duration of the note.
+     * @param pitch    represents the value of the note, as given by {@code Note.noteValue()}.
+     * @return this.
+     */
+    Extent note(int start, int duration, int pitch) {
+      this.beats(start, start + duration);
+      this.lowPitch = Math.min(this.lowPitch, pitch);
+      this.highPitch = Math.max(this.highPitch, pitch);
+      return this;
+    }
+
+    /**
+     * Widens this to cover every note of a sound.
+     * @param start represents the beat the sound starts at.
+     * @param sound represents the sound.
+     * @return this.
+     */
+    Extent sound(int start, ASound sound) {
+      this.beats(start, start + sound.getDuration());
+      return this.pitchesOf(sound);
+    }
+
+    /**
+     * Widens this to cover the pitches of every note of a sound, but not its beats.
+     * @param sound represents the sound.
+     * @return this.
+     */
+    private Extent pitchesOf(ASound sound) {
+      if (!sound.isRest()) {
+        for (Note n : sound.getNotesIn()) {
+          this.pitch(n.noteValue());
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Widens this to cover a pitch, but no beats.
+     * @param pitch represents the value of the pitch, as given by {@code Note.noteValue()}.
+     * @return this.
+     */
+    Extent pitch(int pitch) {
+      this.lowPitch = Math.min(this.lowPitch, pitch);
+      this.highPitch = Math.max(this.highPitch, pitch);
+      return this;
+    }
+
+    /**
+     * Widens this to cover a melody from the given beat to its end.
+     * @param melody   represents the melody.
+     * @param offset   represents the beat the melody is placed at.
+     * @param fromBeat represents the first beat to cover.
+     * @return this.
+     */
+    Extent melody(Melody melody, int offset, int fromBeat) {
+      int beat = offset;
+      IndexedSoundList.Cursor sounds = melody.soundCursor();
+      while (sounds.next()) {
+        if (!sounds.isRest() && beat + sounds.duration() > fromBeat) {
+          this.pitchesOf(sounds.sound());
+        }
+        beat += sounds.duration();
+      }
+      return this.beats(fromBeat, beat);
+    }
+  }
+
+  /**
+   * Represents the kind of change.
+   */
+  private final Kind kind;
+
+  /**
+   * Represents the index of the melody changed, or -1 if the change wasn't made to a melody.
+   */
+  private final int melody;
+
+  /**
+   * Represents the first beat touched.
+   */
+  private final int fromBeat;
+
+  /**
+   * Represents the beat after the last beat touched.
+   */
+  private final int toBeat;
+
+  /**
+   * Represents the lowest pitch touched.
+   */
+  private final int lowPitch;
+
+  /**
+   * Represents the highest pitch touched.
+   */
+  private final int highPitch;
+
+  /**
+   * Represents a copy of the sound added, or null if the change didn't add a sound.
+   */
+  private final ASound sound;
+
+  /**
+   * Creates a change covering the given extent that added the given sound.
+   * @param kind   represents the kind of change.
+   * @param melody represents the index of the melody changed, or -1.
+   * @param extent represents the beats and pitches touched.
+   * @param sound  represents the sound added, or null if no sound was added.
+   */
+  ModelChange(Kind kind, int melody, Extent extent, ASound sound) {
+    this.kind = kind;
+    this.melody = melody;
+    if (extent.fromBeat < extent.toBeat) {
+      this.fromBeat = extent.fromBeat;
+      this.toBeat = extent.toBeat;
+    }
+    else {
+      this.fromBeat = 0;
+      this.toBeat = 0;
+    }
+    this.lowPitch = extent.lowPitch;
+    this.highPitch = extent.highPitch;
+    this.sound = sound == null ? null : sound.copy();
+  }
+
+  /**
+   * Creates a change covering the given extent that added no sound.
+   * @param kind   represents the kind of change.
+   * @param melody represents the index of the melody changed, or -1.
+   * @param extent represents the beats and pitches touched.
+   */
+  ModelChange(Kind kind, int melody, Extent extent) {
+    this(kind, melody, extent, null);
+  }
+
+  /**
+   * Creates a change that touches no notes.
+   * @param kind   represents the kind of change.
+   * @param melody represents the index of the melody changed, or -1.
+   */
+  ModelChange(Kind kind, int melody) {
+    this(kind, melody, new Extent());
+  }
+
+  /**
+   * Gives the kind of change.
+   * @return the kind of change.
+   */
+  public Kind getKind() {
+    return this.kind;
+  }
+
+  /**
+   * Gives the index the changed melody has now, or had before it was removed.
+   * @return the index of the melody, or -1 if the change wasn't made to a melody.
+   */
+  public int getMelody() {
+    return this.melody;
+  }
+
+  /**
+   * Gives the first beat touched by the change.
+   * @return the first beat, or 0 if no beats were touched.
+   */
+  public int getFromBeat() {
+    return this.fromBeat;
+  }
+
+  /**
+   * Gives the beat after the last beat touched by the change.
+   * @return the beat after the last beat, or 0 if no beats were touched.
+   */
+  public int getToBeat() {
+    return this.toBeat;
+  }
+
+  /**
+   * Determines whether the change touched any notes.
+   * @return whether there are pitches touched by the change.
+   */
+  public boolean hasPitches() {
+    return this.lowPitch <= this.highPitch;
+  }
+
+  /**
+   * Gives the lowest pitch touched by the change, as given by {@code Note.noteValue()}.
+   * @return the lowest pitch.
+   * @throws IllegalStateException if the change touched no notes.
+   */
+  public int getLowPitch() {
+    if (!this.hasPitches()) {
+      throw new IllegalStateException("This change touched no notes.");
+    }
+    return this.lowPitch;
+  }
+
+  /**
+   * Gives the highest pitch touched by the change, as given by {@code Note.noteValue()}.
+   * @return the highest pitch.
+   * @throws IllegalStateException if the change touched no notes.
+   */
+  public int getHighPitch() {
+    if (!this.hasPitches()) {
+      throw new IllegalStateException("This change touched no notes.");
+    }
+    return this.highPitch;
+  }
+
+  /**
+   * Gives the sound added by a {@code NOTE_ADDED} change, which starts at {@code getFromBeat()}.
+   * @return a copy of the sound added, or null if the change didn't add a sound.
+   */
+  public ASound getSound() {
+    return this.sound == null ? null : this.sound.copy();
+  }
+
+  @Override
+  public String toString() {
+    String pitches = this.hasPitches() ? ", pitches " + this.lowPitch + "-" + this.highPitch : "";
+    return this.kind + " [melody " + this.melody + ", beats " + this.fromBeat + "-" + this.toBeat
+            + pitches + "]";
+  }
+}
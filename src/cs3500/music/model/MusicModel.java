@@ -1,11 +1,18 @@
 package cs3500.music.model;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
 import java.util.TreeMap;
 
 import cs3500.music.util.CompositionBuilder;
+import cs3500.music.util.NoteBuffer;
 import javafx.util.Pair;
 
 /**
@@ -29,17 +36,58 @@ import javafx.util.Pair;
  *            Changed methods getLowestNote() and getHighestNote() to significantly increase
  *              run speed of all methods that use these.
  *            Changed method getAllNotesMap() to significantly improve run speed for larger pieces.
+ *            Now keeps the length of every melody, and a count of how many melodies have each
+ *              length, up to date on every change, so the length of the song is read in constant
+ *              time rather than found by checking every melody.
+ *            Now keeps a NoteIntervalIndex of every note, updated on every change, so the notes
+ *              sounding during a range of beats are found without rebuilding a map of the piece.
+ *            Now counts the notes at every pitch, so getHighestNote() and getLowestNote() no
+ *              longer look through every note. Added changeOctave() so octave changes are counted,
+ *              and getPitchRangeVersion() so views can tell when the range of pitches changes.
+ *            Now keeps a TrackPlacement of the melodies of every instrument, so addNote() finds a
+ *              melody for a new note without checking every melody in turn.
+ *            getNoteList() now merges the melodies through noteIterator() rather than inserting
+ *              every note into a sorted list one at a time.
+ *            Added snapshot(). Melodies handed to a snapshot are copied before they are next
+ *              changed, and every method that changes the model is now synchronized.
+ *            Added addListener()/removeListener(). Every change is given to the listeners as a
+ *              ModelChange covering the beats and pitches it touched.
+ *            Added addNotes(), which adds notes by instrument and start, and the Builder now
+ *              holds its notes until it is built and adds them that way.
+ *            getGameState() is now written by GameStateWriter a row at a time, with every column
+ *              named from its own pitch, so pieces crossing from B to C no longer fail.
+ *            Added getGameState(int, int), which shows only a range of beats.
+ *            getGameState() now writes long pieces on every core, in blocks of rows.
+ *            getGameState() now keeps the rows it wrote, and after a change writes again only the
+ *              rows of the beats the change touched.
+ *            The melodies are now walked inside the model without making a Rest for every rest.
+ *            snapshot() now shares the index of notes and the counts of pitches with the snapshot,
+ *              copying a part of them only before changing it, and gives the last snapshot taken
+ *              without taking the lock.
+ *            spliceTracks() now checks the rest it adds to every melody before adding any, so a
+ *              splice that fails leaves the piece, its index and its listeners as they were.
  */
 public class MusicModel implements IMusicModel {
 
   /**
-   * Allows for building a Composition without knowing of the MusicModel.
+   * Allows for building a Composition without knowing of the MusicModel. The notes given are held
+   * until the piece is built and then added all at once through {@code addNotes()}, by instrument
+   * and then by the beat they start at, rather than in the order they were given. A note goes into
+   * the first melody of its instrument with room for it, so the melodies a piece is split into
+   * follow that order: a file may load into fewer melodies than adding its notes one at a time in
+   * the order of the file would give, as df-ttfaf.txt loads into 35 melodies rather than 48.
    */
   public static class Builder implements CompositionBuilder<MusicModel> {
     IMusicModel model = new MusicModel(4, 100);
 
+    /**
+     * Represents the notes given so far, added to the model all at once when it is built.
+     */
+    private final NoteBuffer notes = new NoteBuffer();
+
     @Override
     public MusicModel build() {
+      this.notes.addTo(model);
       return (MusicModel)model;
     }
 
@@ -52,7 +100,7 @@ public class MusicModel implements IMusicModel {
     @Override
     public CompositionBuilder<MusicModel> addNote(int start, int end, int instrument,
                                                   int pitch, int volume) {
-      model.addNote(start, end, instrument, pitch, volume);
+      this.notes.add(start, end, instrument, pitch, volume);
       return this;
     }
   }
@@ -82,6 +130,58 @@ public class MusicModel implements IMusicModel {
    */
   private List<IFlag> events = new ArrayList<>();
 
+  /**
+   * Represents the length in beats of each melody, in the same order as the melodies.
+   */
+  private List<Integer> trackLengths = new ArrayList<>();
+
+  /**
+   * Maps a length in beats to the number of melodies that are that long.
+   */
+  private NavigableMap<Integer, Integer> lengthCounts = new TreeMap<>();
+
+  /**
+   * Represents the length of the longest melody, in beats.
+   */
+  private int songLength = 0;
+
+  /**
+   * Represents the index of every note by the beats it sounds during.
+   */
+  private NoteIntervalIndex noteIndex = new NoteIntervalIndex();
+
+  /**
+   * Represents the number of notes at every pitch.
+   */
+  private PitchRange pitchRange = new PitchRange();
+
+  /**
+   * Represents the melodies of every instrument, for finding where a new note can go.
+   */
+  private TrackPlacement placement = new TrackPlacement();
+
+  /**
+   * Represents the melodies held by the last snapshot, which are copied before being changed.
+   */
+  private Set<Melody> shared = Collections.newSetFromMap(new IdentityHashMap<Melody, Boolean>());
+
+  /**
+   * Represents the last snapshot taken, or null if this has changed since. It is read without the
+   * lock of this.
+   */
+  private volatile MusicSnapshot snapshot;
+
+  /**
+   * Represents the listeners told of every change to this.
+   */
+  private List<IModelListener> listeners = new ArrayList<>();
+
+  /**
+   * Represents the rows of the grid last given by {@code getGameState()}, or null if it hasn't
+   * been asked for.
+   */
+  private GameStateCache gameState;
+
   /**
    * Creates a MusicModel out of a {@code List} of {@code Melodies}.
    * @param melodies   represents the melodies to be added.
@@ -94,7 +194,8 @@ public class MusicModel implements IMusicModel {
 
     this.melodies = new ArrayList<Melody>();
     for (Melody m : melodies) {
-      melodies.add(m);
+      this.melodies.add(m);
+      this.trackAdded(m);
     }
 
     this.volumeMult = volumeMult / 100.0;
@@ -117,6 +218,7 @@ public class MusicModel implements IMusicModel {
     this.melodies = new ArrayList<Melody>();
     for (Melody m : melodies) {
       this.melodies.add(m);
+      this.trackAdded(m);
     }
 
     this.volumeMult = volumeMult / 100.0;
@@ -135,8 +237,10 @@ public class MusicModel implements IMusicModel {
   }
 
   @Override
-  public CompositionBuilder<IMusicModel> setTempo(int tempo) {
+  public synchronized CompositionBuilder<IMusicModel> setTempo(int tempo) {
+    this.changed();
     this.tempo = tempo;
+    this.fire(new ModelChange(ModelChange.Kind.TEMPO_CHANGED, -1));
     return this;
   }
 
@@ -150,8 +254,8 @@ public class MusicModel implements IMusicModel {
    * @param volume The volume (in the range [0, 127]).
    * @return this with the note of given parameters added.
    */
-  public CompositionBuilder<IMusicModel> addNote(int start, int end, int instrument,
-                                                 int pitch, int volume) {
+  public synchronized CompositionBuilder<IMusicModel> addNote(int start, int end, int instrument,
+                                                              int pitch, int volume) {
     if (end - start == 0) {
       return this;
     }
@@ -159,37 +263,92 @@ public class MusicModel implements IMusicModel {
     Note newNote = new Note(Pitch.getPitchAtVal(pitch % 12),
             (pitch / 12), volume, end - start, instrument);
 
-    Melody cur = null;
-    for (Melody m : this.melodies) {
-      if (m.getInstrument() == instrument
-              && (m.numOfBeats() <= start
-                  || (m.getIndexOfBeat(start) >= 0
-                  && !m.noteStartsAtExactBeat(start)
-                  && (!m.hasNotePlayingAt(start))
-                    || m.noteStartsAtExactBeat(start)
-                      && m.getNoteAtBeat(start).getDuration() == newNote.getDuration())
-                  && !m.hasNotePlayingAt(end - 1))) {
-        cur = m;
-        break;
-      }
+    Melody cur;
+    int curIndex = this.placement.find(instrument, start,
+        i -> canTakeNote(this.melodies.get(i), start, end, newNote));
+    if (curIndex != -1) {
+      cur = this.writable(curIndex);
     }
-    if (cur == null) {
+    else {
+      this.changed();
+      curIndex = this.melodies.size();
       cur = new Melody(50, instrument);
       this.melodies.add(cur);
+      this.trackAdded(cur);
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, curIndex));
     }
 
+    int lengthBefore = cur.numOfBeats();
     addNoteToProperMelody(newNote, cur, start);
+    this.trackChanged(curIndex, start, end);
+    this.soundInserted(start, curIndex, newNote, lengthBefore);
 
     return this;
   }
 
 
+  /**
+   * Adds many notes at once, in order of instrument and then of the beat they start at, notes
+   * that tie keeping the order they were given in. Added in that order, nearly every note goes at
+   * the end of a melody, so the notes take O(N log N) time to add however they were given.
+   */
+  @Override
+  public synchronized CompositionBuilder<IMusicModel> addNotes(int[] starts, int[] ends,
+                                                               int[] instruments, int[] pitches,
+                                                               int[] volumes) {
+    CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+    for (int i : startOrder(starts, instruments)) {
+      this.addNote(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    return this;
+  }
+
+  /**
+   * Gives the order notes given to {@code addNotes()} are added in: by instrument, then by the
+   * beat they start at, then by the order they were given in.
+   * @param starts      represents the beat each note starts at.
+   * @param instruments represents the instrument of each note.
+   * @return the indices of the notes, in the order they are added.
+   */
+  static Integer[] startOrder(int[] starts, int[] instruments) {
+    Integer[] order = new Integer[starts.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> instruments[a] != instruments[b]
+            ? Integer.compare(instruments[a], instruments[b])
+            : Integer.compare(starts[a], starts[b]));
+    return order;
+  }
+
   @Override
-  public void addNote(ASound note, int melodyIndex, int beat) {
+  public synchronized void addNote(ASound note, int melodyIndex, int beat) {
     if (melodyIndex > melodies.size() - 1) {
       throw new IllegalArgumentException("The melody index is out of bounds.");
     }
-    melodies.get(melodyIndex).addNoteToBeat(note, beat);
+    Melody melody = this.writable(melodyIndex);
+    int lengthBefore = melody.numOfBeats();
+    melody.addNoteToBeat(note, beat);
+    this.trackChanged(melodyIndex, beat, beat + note.getDuration());
+    this.soundInserted(beat, melodyIndex, note, lengthBefore);
+  }
+
+  /**
+   * Determines whether the given melody can take a new note over the given beats.
+   * @param m       represents the melody.
+   * @param start   represents the beat the note starts at.
+   * @param end     represents the beat the note ends at.
+   * @param newNote represents the note.
+   * @return whether the note can be added to the melody.
+   */
+  private static boolean canTakeNote(Melody m, int start, int end, ASound newNote) {
+    return m.numOfBeats() <= start
+            || (m.getIndexOfBeat(start) >= 0
+            && !m.noteStartsAtExactBeat(start)
+            && (!m.hasNotePlayingAt(start))
+              || m.noteStartsAtExactBeat(start)
+                && m.getNoteAtBeat(start).getDuration() == newNote.getDuration())
+            && !m.hasNotePlayingAt(end - 1);
   }
 
   /**
@@ -203,17 +362,17 @@ public class MusicModel implements IMusicModel {
   }
 
   @Override
-  public void addTracks(Melody melody, int beat) {
+  public synchronized void addTracks(Melody melody, int beat) {
     this.privateAddTracks(melody, beat);
   }
 
   @Override
-  public void addTracks(Melody other) {
+  public synchronized void addTracks(Melody other) {
     this.privateAddTracks(other, 0);
   }
 
   @Override
-  public void mergeMusic(IMusicModel other, int beat) {
+  public synchronized void mergeMusic(IMusicModel other, int beat) {
     for (Melody m : other.getMelodies()) {
       this.privateAddTracks(m, beat);
     }
@@ -231,57 +390,114 @@ public class MusicModel implements IMusicModel {
    * @param beats represents the beat to add to.
    */
   private void privateAddTracks(Melody melody, int beats) {
+    this.changed();
     if (beats > 0) {
-      melody.addNote(new Rest(beats), 0);
+      melody.addRest(beats, 0);
     }
     this.melodies.add(melody);
+    this.trackAdded(melody);
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, this.melodies.size() - 1,
+            new ModelChange.Extent().melody(melody, 0, 0)));
   }
 
   @Override
-  public void addToEnd(Melody other) {
-    this.privateAddTracks(other, longestTrack().numOfBeats());
+  public synchronized void addToEnd(Melody other) {
+    this.privateAddTracks(other, this.lengthOfSongInBeats());
   }
 
   @Override
-  public void removeMelody(int melodyIndex) {
-    this.melodies.remove(melodyIndex);
+  public synchronized void removeMelody(int melodyIndex) {
+    this.changed();
+    Melody removed = this.melodies.remove(melodyIndex);
+    this.forgetLength(this.trackLengths.remove(melodyIndex));
+    this.placement.rebuild(this.melodies);
+    this.reindexNotes();
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_REMOVED, melodyIndex,
+            new ModelChange.Extent().melody(removed, 0, 0)));
   }
 
   @Override
-  public void spliceTracks(int beat, Melody melody) {
-
+  public synchronized void spliceTracks(int beat, Melody melody) {
+    // Every rest is checked before any is added, so a splice that fails changes nothing.
     for (Melody m : this.melodies) {
-      m.addNote(new Rest(melody.numOfBeats()), beat);
+      m.checkRest(melody.numOfBeats(), beat);
+    }
+    melody.checkRest(beat, 0);
+    this.changed();
+    for (int i = 0; i < this.melodies.size(); i++) {
+      this.writable(i).addRest(melody.numOfBeats(), beat);
+      this.trackChanged(i, beat, Integer.MAX_VALUE);
     }
 
-    melody.addNote(new Rest(beat), 0);
+    melody.addRest(beat, 0);
 
     this.melodies.add(melody);
+    this.trackAdded(melody);
+    this.reindexNotes();
+    for (int i = 0; i < this.melodies.size() - 1; i++) {
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, i,
+              new ModelChange.Extent().melody(this.melodies.get(i), 0, beat)));
+    }
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_ADDED, this.melodies.size() - 1,
+            new ModelChange.Extent().melody(melody, 0, 0)));
   }
 
   @Override
-  public void swapNote(ASound note, int melodyIndex, int beat) {
-    melodies.get(melodyIndex).swapNote(note, beat);
+  public synchronized void swapNote(ASound note, int melodyIndex, int beat) {
+    Melody melody = this.writable(melodyIndex);
+    int noteIndex = melody.getIndexOfBeat(beat);
+    ASound old = noteIndex >= 0 && noteIndex < melody.size() ? melody.getNote(noteIndex) : null;
+    int lengthBefore = melody.numOfBeats();
+    melody.swapNote(note, beat);
+    int start = melody.numOfBeatsElapsedAt(noteIndex);
+    boolean sameLength = old != null && old.getDuration() == note.getDuration();
+    this.trackChanged(melodyIndex, start, sameLength ? start + note.getDuration()
+            : Integer.MAX_VALUE);
+    if (sameLength) {
+      this.soundRemoved(start, melodyIndex, old);
+      this.soundAdded(start, melodyIndex, note);
+      this.fire(new ModelChange(ModelChange.Kind.NOTE_SWAPPED, melodyIndex,
+              new ModelChange.Extent().sound(start, old).sound(start, note)));
+    }
+    else {
+      this.reindexNotes();
+      ModelChange.Extent extent = new ModelChange.Extent().melody(melody, 0, start)
+              .beats(start, lengthBefore);
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, melodyIndex,
+              old == null ? extent : extent.sound(start, old)));
+    }
   }
 
   @Override
-  public void removeNote(Note removed, int beat) {
-    for (Melody m : melodies) {
+  public synchronized void removeNote(Note removed, int beat) {
+    for (int i = 0; i < melodies.size(); i++) {
+      Melody m = melodies.get(i);
       if (m.getInstrument() == removed.getInstrument() &&
               m.noteStartsAtExactBeat(beat) && m.getNoteAtBeat(beat).equals(removed)) {
+        m = this.writable(i);
+        ASound sound = m.getNoteAtBeat(beat);
+        this.soundRemoved(beat, i, sound);
         m.swapNote(new Rest(removed.getDuration()), beat);
+        this.trackChanged(i, beat, beat + removed.getDuration());
+        this.fire(new ModelChange(ModelChange.Kind.NOTE_REMOVED, i,
+                new ModelChange.Extent().sound(beat, sound)));
         return;
       }
     }
   }
 
   @Override
-  public void setInstrument(int instrument, int melodyIndex) {
-    this.melodies.get(melodyIndex).changeInstrument(instrument);
+  public synchronized void setInstrument(int instrument, int melodyIndex) {
+    Melody melody = this.writable(melodyIndex);
+    melody.changeInstrument(instrument);
+    this.trackChanged(melodyIndex, 0, 0);
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, melodyIndex,
+            new ModelChange.Extent().melody(melody, 0, 0)));
   }
 
   @Override
-  public void changeVolume(int changeAmount) {
+  public synchronized void changeVolume(int changeAmount) {
+    this.changed();
     this.volumeMult += changeAmount / 100.0;
     if (volumeMult > 1) {
       volumeMult = 1;
@@ -289,28 +505,49 @@ public class MusicModel implements IMusicModel {
     if (volumeMult < 0) {
       volumeMult = 0;
     }
+    this.fire(new ModelChange(ModelChange.Kind.VOLUME_CHANGED, -1));
   }
 
   @Override
-  public void setVolume(int newVolume) {
+  public synchronized void setVolume(int newVolume) {
     if (newVolume > 100 || newVolume < 0) {
       throw new IllegalArgumentException("This volume is outside acceptable range.");
     }
+    this.changed();
     this.volumeMult = newVolume / 100.0;
+    this.fire(new ModelChange(ModelChange.Kind.VOLUME_CHANGED, -1));
   }
 
   @Override
-  public void mergeTracks(int trackToMerge,
-                          int positionToMerge,
-                          Melody melody) {
+  public synchronized void mergeTracks(int trackToMerge,
+                                       int positionToMerge,
+                                       Melody melody) {
     if (trackToMerge >= this.melodies.size()) {
       throw new IllegalArgumentException("Index out of bounds.");
     }
-    this.melodies.get(trackToMerge).merge(positionToMerge, melody);
+    Melody merged = this.writable(trackToMerge);
+    int lengthBefore = merged.numOfBeats();
+    merged.merge(positionToMerge, melody);
+    this.trackChanged(trackToMerge, 0, Integer.MAX_VALUE);
+    this.reindexNotes();
+    this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, trackToMerge,
+            new ModelChange.Extent().melody(merged, 0, 0).beats(0, lengthBefore)));
   }
 
   @Override
   public ASound getNote(int melodyIndex, int noteIndex) {
+    return getNote(this.melodies, melodyIndex, noteIndex);
+  }
+
+  /**
+   * Gives the sound at the given index of the melody at the given index.
+   * @param melodies    represents the melodies of a piece.
+   * @param melodyIndex represents the index of the melody.
+   * @param noteIndex   represents the index of the sound in the melody.
+   * @return the sound.
+   * @throws IllegalArgumentException if either index is out of bounds.
+   */
+  static ASound getNote(List<Melody> melodies, int melodyIndex, int noteIndex) {
     try {
       return melodies.get(melodyIndex).getNote(noteIndex);
     } catch (IndexOutOfBoundsException e) {
@@ -320,15 +557,22 @@ public class MusicModel implements IMusicModel {
 
   @Override
   public Map<Integer, List<ASound>> getAllSounds() {
-    return this.getAllSoundsPrivate();
+    return getAllSounds(this.melodies, this.lengthOfSongInBeats());
   }
 
-  private Map<Integer, List<ASound>> getAllSoundsPrivate() {
+  /**
+   * Gives every sound of a piece, by the beat it sounds on, a sound being given again for each
+   * beat it is held on.
+   * @param melodies represents the melodies of the piece.
+   * @param length   represents the length of the piece in beats.
+   * @return a {@code Map} of every beat to the sounds on it.
+   */
+  static Map<Integer, List<ASound>> getAllSounds(List<Melody> melodies, int length) {
     Map<Integer, List<ASound>> allNotes = new TreeMap<Integer, List<ASound>>();
     int beatCount = 0;
-    while (beatCount <= this.longestTrack().numOfBeats()) {
+    while (beatCount <= length) {
       List<ASound> sounds = new ArrayList<>();
-      for (Melody current : this.melodies) {
+      for (Melody current : melodies) {
         try {
           for (ASound s : current.getNoteAtBeat(beatCount).getSoundsIn()) {
             sounds.add(s);
@@ -353,23 +597,25 @@ public class MusicModel implements IMusicModel {
 
   @Override
   public synchronized Map<Integer, List<Note>> getAllNotesMap() {
-    return this.getAllNotesPrivate();
+    return getAllNotesMap(this.melodies);
   }
 
   /**
    * Gets every note, without the melody it exists in.
+   * @param melodies represents the melodies of a piece.
    * @return a {@code Map} of {@code Integer}s to {@code List}s of every note at the given integer.
    */
-  private Map<Integer, List<Note>> getAllNotesPrivate() {
+  static Map<Integer, List<Note>> getAllNotesMap(List<Melody> melodies) {
     Map<Integer, List<Note>> allNotes = new TreeMap<Integer, List<Note>>();
-    int beatCount = 0;
-    int length = this.longestTrack().numOfBeats();
-    for (Melody current : this.melodies) {
+    for (Melody current : melodies) {
       int beat = 0;
-      for (ASound s : current.getMelodySounds()) {
+      IndexedSoundList.Cursor sounds = current.soundCursor();
+      while (sounds.next()) {
         allNotes.putIfAbsent(beat, new ArrayList<>());
-        allNotes.get(beat).addAll(s.getNotesIn());
-        beat += s.getDuration();
+        if (!sounds.isRest()) {
+          allNotes.get(beat).addAll(sounds.sound().getNotesIn());
+        }
+        beat += sounds.duration();
       }
     }
     return allNotes;
@@ -377,45 +623,77 @@ public class MusicModel implements IMusicModel {
 
   @Override
   public Map<Integer, List<Pair<Integer, Note>>> getAllNotesWithMelodies() {
-    return this.getAllNotesPrivateWithMelody();
+    return getAllNotesWithMelodies(this.melodies);
+  }
+
+  @Override
+  public Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat) {
+    return getNotesBetween(this.noteIndex, fromBeat, toBeat);
+  }
+
+  /**
+   * Gives every note in an index sounding during a range of beats, as {@code getNotesBetween()}
+   * does.
+   * @param index    represents the index of the notes of a piece.
+   * @param fromBeat represents the first beat of the range.
+   * @param toBeat   represents the beat after the last beat of the range.
+   * @return a {@code Map} of the beat each note starts on to the notes and their melodies.
+   */
+  static Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(NoteIntervalIndex index,
+                                                                 int fromBeat, int toBeat) {
+    Map<Integer, List<Pair<Integer, Note>>> notes = new TreeMap<>();
+    for (NoteIntervalIndex.Entry e : index.between(fromBeat, toBeat)) {
+      notes.putIfAbsent(e.start, new ArrayList<Pair<Integer, Note>>());
+      notes.get(e.start).add(new Pair<Integer, Note>(e.melody, e.note));
+    }
+    return notes;
   }
 
   @Override
   public List<Pair<Integer, Note>> getNoteList() {
+    return getNoteList(this.noteIterator());
+  }
+
+  /**
+   * Gives every note walked by an iterator, paired to the beat it starts on.
+   * @param notes represents the iterator, as given by {@code noteIterator()}.
+   * @return a {@code List} of the notes in the order they were walked.
+   */
+  static List<Pair<Integer, Note>> getNoteList(Iterator<PlacedNote> notes) {
     List<Pair<Integer, Note>> noteList = new ArrayList<>();
-    for (Melody m : this.melodies) {
-      int beat = 0;
-      for (ASound s : m.getMelodySounds()) {
-        for (Note n : s.getNotesIn()) {
-          int i = 1;
-          while (noteList.size() > i && noteList.get(i - 1).getKey() < beat) {
-            i++;
-          }
-          noteList.add(i - 1, new Pair<>(beat, n));
-        }
-        beat += s.getDuration();
-      }
+    while (notes.hasNext()) {
+      PlacedNote n = notes.next();
+      noteList.add(new Pair<>(n.getBeat(), n.getNote()));
     }
     return noteList;
   }
 
+  @Override
+  public Iterator<PlacedNote> noteIterator() {
+    return new MergedNoteIterator(this.melodies);
+  }
+
   /**
    * Gives every note that exists at a given beat paired to the melody it exists at. Essentially
    * contains the highest level of information relevant to the model possible, without filtering.
+   * @param melodies represents the melodies of a piece.
    * @return {@code Map} of Integers to Lists of Pairs of  Integers to ASounds.
    */
-  private Map<Integer, List<Pair<Integer, Note>>> getAllNotesPrivateWithMelody() {
+  static Map<Integer, List<Pair<Integer, Note>>> getAllNotesWithMelodies(List<Melody> melodies) {
     Map<Integer, List<Pair<Integer, Note>>> allNotes
             = new TreeMap<Integer, List<Pair<Integer, Note>>>();
     int melodyCount = 0;
-    for (Melody melody : this.melodies) {
+    for (Melody melody : melodies) {
       int beatCount = 0;
-      for (ASound s : melody.getMelodySounds()) {
-        for (Note n : s.getNotesIn()) {
-          allNotes.putIfAbsent(beatCount, new ArrayList<Pair<Integer, Note>>());
-          allNotes.get(beatCount).add(new Pair<Integer, Note>(melodyCount, n));
+      IndexedSoundList.Cursor sounds = melody.soundCursor();
+      while (sounds.next()) {
+        if (!sounds.isRest()) {
+          for (Note n : sounds.sound().getNotesIn()) {
+            allNotes.putIfAbsent(beatCount, new ArrayList<Pair<Integer, Note>>());
+            allNotes.get(beatCount).add(new Pair<Integer, Note>(melodyCount, n));
+          }
         }
-        beatCount += s.getDuration();
+        beatCount += sounds.duration();
       }
       melodyCount++;
     }
@@ -425,37 +703,51 @@ public class MusicModel implements IMusicModel {
 
   @Override
   public int lengthOfSongInBeats() {
-    return this.longestTrack().numOfBeats();
+    if (this.melodies.isEmpty()) {
+      throw new IllegalStateException("There are no melodies, so there is no longest melody");
+    }
+    return this.songLength;
   }
 
   @Override
   public Note getHighestNote() {
-    Note highestNote = null;
-    for (Melody m : this.melodies) {
-      for (ASound s : m.getMelodySounds()) {
-        for (Note n : s.getNotesIn()) {
-          if (highestNote == null || n.higherThan(highestNote)) {
-            highestNote = n;
-          }
-        }
-      }
+    if (this.pitchRange.isEmpty()) {
+      return null;
     }
-    return highestNote;
+    return noteAtValue(this.pitchRange.highest());
   }
 
   @Override
   public Note getLowestNote() {
-    Note lowestNote = null;
-    for (Melody m : this.melodies) {
-      for (ASound s : m.getMelodySounds()) {
-        for (Note n : s.getNotesIn()) {
-          if (lowestNote == null || n.lowerThan(lowestNote)) {
-            lowestNote = n;
-          }
-        }
-      }
+    if (this.pitchRange.isEmpty()) {
+      return null;
     }
-    return lowestNote;
+    return noteAtValue(this.pitchRange.lowest());
+  }
+
+  @Override
+  public int getPitchRangeVersion() {
+    return this.pitchRange.version();
+  }
+
+  @Override
+  public synchronized void changeOctave(int melodyIndex, int beat, int octaveDifference) {
+    ASound sound = this.writable(melodyIndex).getNoteAtBeat(beat);
+    ModelChange.Extent extent = new ModelChange.Extent().sound(beat, sound);
+    this.soundRemoved(beat, melodyIndex, sound);
+    sound.changeOctave(octaveDifference);
+    this.soundAdded(beat, melodyIndex, sound);
+    this.fire(new ModelChange(ModelChange.Kind.NOTE_SWAPPED, melodyIndex,
+            extent.sound(beat, sound)));
+  }
+
+  /**
+   * Creates a one-beat Note standing for the given note value.
+   * @param value represents the value of the note, as given by {@code Note.noteValue()}.
+   * @return a Note of that value.
+   */
+  static Note noteAtValue(int value) {
+    return new Note(Pitch.getPitchAtVal(Math.floorMod(value, 12)), Math.floorDiv(value, 12), 1);
   }
 
   @Override
@@ -464,6 +756,16 @@ public class MusicModel implements IMusicModel {
     return tempo;
   }
 
+  @Override
+  public int beatsPerMeasure() {
+    return this.beat;
+  }
+
+  @Override
+  public int getVolume() {
+    return (int) Math.round(this.volumeMult * 100);
+  }
+
   @Override
   public List<IFlag> getEvents() {
     return events;
@@ -471,7 +773,109 @@ public class MusicModel implements IMusicModel {
 
   @Override
   public IFlag getEvent(int originalStart) {
-    for (IFlag flag : this.events) {
+    return findEvent(this.events, originalStart);
+  }
+
+  @Override
+  public synchronized IFlag addEvent(IFlag added) {
+    this.changed();
+    insertEvent(this.events, added);
+    this.fire(new ModelChange(ModelChange.Kind.EVENT_ADDED, -1, new ModelChange.Extent()
+            .beats(added.getEarliestBeat(), added.getLatestBeat() + 1)));
+    return added;
+  }
+
+  /**
+   * Gives a snapshot of this. The last snapshot taken is given again, without taking the lock of
+   * this, until this changes; a new one is then taken under the lock, sharing the melodies, the
+   * index of notes and the counts of pitches, which this copies before it next changes them.
+   * @return a snapshot of this as it is now.
+   */
+  @Override
+  public IMusicModel snapshot() {
+    MusicSnapshot taken = this.snapshot;
+    if (taken != null) {
+      return taken;
+    }
+    synchronized (this) {
+      if (this.snapshot == null) {
+        this.shared.clear();
+        this.shared.addAll(this.melodies);
+        this.snapshot = new MusicSnapshot(this.melodies, this.events, this.beat,
+                (int) Math.round(this.volumeMult * 100), this.tempo, this.noteIndex.share(),
+                this.pitchRange.share(), this.songLength);
+      }
+      return this.snapshot;
+    }
+  }
+
+  @Override
+  public synchronized void addListener(IModelListener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public synchronized void removeListener(IModelListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Tells every listener of a change that has just been made.
+   * @param change represents the change.
+   */
+  private void fire(ModelChange change) {
+    if (this.listeners.isEmpty()) {
+      return;
+    }
+    for (IModelListener listener : new ArrayList<>(this.listeners)) {
+      listener.modelChanged(change);
+    }
+  }
+
+  /**
+   * Forgets the last snapshot taken, as this is about to change.
+   */
+  private void changed() {
+    this.snapshot = null;
+  }
+
+  /**
+   * Gives the melody at the given index so that it can be changed, first replacing it with a copy
+   * if the last snapshot holds it.
+   * @param melodyIndex represents the index of the melody.
+   * @return the melody at that index, which no snapshot holds.
+   */
+  private Melody writable(int melodyIndex) {
+    this.changed();
+    Melody melody = this.melodies.get(melodyIndex);
+    if (this.shared.remove(melody)) {
+      // The index of notes holds the notes themselves, so the copies take their place.
+      Melody copy = melody.copy();
+      IndexedSoundList.Cursor originals = melody.soundCursor();
+      IndexedSoundList.Cursor copies = copy.soundCursor();
+      int beat = 0;
+      while (originals.next()) {
+        copies.next();
+        if (!originals.isRest()) {
+          this.noteIndex.removeAll(beat, melodyIndex, originals.sound());
+          this.noteIndex.addAll(beat, melodyIndex, copies.sound());
+        }
+        beat += originals.duration();
+      }
+      melody = copy;
+      this.melodies.set(melodyIndex, melody);
+    }
+    return melody;
+  }
+
+  /**
+   * Finds the Flag in the given events that starts at the given beat.
+   * @param events        represents the events of a piece, in order.
+   * @param originalStart represents the first possible starting point for the event.
+   * @return the Flag starting there, or null if there is no such Flag.
+   */
+  static IFlag findEvent(List<IFlag> events, int originalStart) {
+    for (IFlag flag : events) {
       if (originalStart == flag.getOriginalStartBeat()) {
         return flag;
       }
@@ -479,9 +883,15 @@ public class MusicModel implements IMusicModel {
     return null;
   }
 
-  @Override
-  public IFlag addEvent(IFlag added) {
-    for (int i = 0; i < this.events.size(); i++) {
+  /**
+   * Adds a Flag to the given events, keeping them in order.
+   * @param events represents the events of a piece, in order.
+   * @param added  represents the Flag being added.
+   * @return {@param added}.
+   * @throws IllegalArgumentException if the Flag overlaps another event.
+   */
+  static IFlag insertEvent(List<IFlag> events, IFlag added) {
+    for (int i = 0; i < events.size(); i++) {
       IFlag flag = events.get(i);
       if (flag.getEarliestBeat() > added.getEarliestBeat()) {
         if (added.getLatestBeat() > flag.getEarliestBeat()) {
@@ -513,160 +923,171 @@ public class MusicModel implements IMusicModel {
               + " as there is an event between " + flag.getEarliestBeat() + " and "
               + flag.getLatestBeat() + ".");
     }
-    this.events.add(added);
+    events.add(added);
 
     return added;
   }
 
   /**
-   * Determines the longest Melody in this Model.
-   * @return {@code Melody} that is the longest track in this piece.
-   * @throws IllegalStateException if the ist of Melody's is empty.
+   * Records the length of a melody that was just added to the end of the melodies.
+   * @param added represents the melody that was added.
    */
-  private Melody longestTrack() {
-    if (this.melodies.isEmpty()) {
-      throw new IllegalStateException("There are no melodies, so there is no longest melody");
+  private void trackAdded(Melody added) {
+    int length = added.numOfBeats();
+    this.trackLengths.add(length);
+    this.rememberLength(length);
+    this.placement.trackAdded(added);
+    this.indexNotesOf(this.melodies.size() - 1);
+  }
+
+  /**
+   * Updates the recorded length and placement of the melody at the given index after it has
+   * changed over the given beats.
+   * @param melodyIndex represents the index of the melody that changed.
+   * @param fromBeat    represents the first beat that may have changed.
+   * @param toBeat      represents the beat after the last beat that may have changed, not counting
+   *                    sounds that only moved because the melody grew or shrank before them.
+   */
+  private void trackChanged(int melodyIndex, int fromBeat, int toBeat) {
+    int length = this.melodies.get(melodyIndex).numOfBeats();
+    int oldLength = this.trackLengths.set(melodyIndex, length);
+    if (oldLength != length) {
+      this.forgetLength(oldLength);
+      this.rememberLength(length);
     }
-    Melody longestMelody = this.melodies.get(0);
-    for (Melody m : melodies) {
-      if (m.numOfBeats() > longestMelody.numOfBeats()) {
-        longestMelody = m;
+    this.placement.trackChanged(melodyIndex, this.melodies.get(melodyIndex), this.melodies,
+            fromBeat, toBeat);
+  }
+
+  /**
+   * Adds every note of the melody at the given index to the index of notes.
+   * @param melodyIndex represents the index of the melody.
+   */
+  private void indexNotesOf(int melodyIndex) {
+    int beat = 0;
+    IndexedSoundList.Cursor sounds = this.melodies.get(melodyIndex).soundCursor();
+    while (sounds.next()) {
+      if (!sounds.isRest()) {
+        this.soundAdded(beat, melodyIndex, sounds.sound());
       }
+      beat += sounds.duration();
     }
-    return longestMelody;
   }
 
-  @Override
-  public String getGameState() {
-
-    Map<Integer, List<ASound>> active;
-
-    try {
-      active = this.getAllSounds();
-    } catch (IllegalStateException e) {
-      return "\n";
+  /**
+   * Records every note of a sound that was added to a melody.
+   * @param start       represents the beat the sound starts at.
+   * @param melodyIndex represents the index of the melody the sound was added to.
+   * @param sound       represents the sound.
+   */
+  private void soundAdded(int start, int melodyIndex, ASound sound) {
+    this.noteIndex.addAll(start, melodyIndex, sound);
+    if (!sound.isRest()) {
+      for (Note n : sound.getNotesIn()) {
+        this.pitchRange.add(n.noteValue());
+      }
     }
+  }
 
-    Note lowestNote = this.getLowestNote();
-
-    Note highestNote = this.getHighestNote();
-
-    if (lowestNote == null || highestNote == null) {
-      return "\n";
+  /**
+   * Records every note of a sound that was just added to a melody by its beat. A sound added over
+   * rests too short for it pushes the rest of the melody back, which shows as the melody growing
+   * by more than the sound reaches past its old end; the whole index is rebuilt then, and the
+   * listeners are told the melody changed from the sound on rather than that a note was added.
+   * @param start        represents the beat the sound was added at.
+   * @param melodyIndex  represents the index of the melody the sound was added to.
+   * @param sound        represents the sound.
+   * @param lengthBefore represents the length of the melody before the sound was added.
+   */
+  private void soundInserted(int start, int melodyIndex, ASound sound, int lengthBefore) {
+    Melody melody = this.melodies.get(melodyIndex);
+    if (melody.numOfBeats() != Math.max(lengthBefore, start + sound.getDuration())) {
+      this.reindexNotes();
+      this.fire(new ModelChange(ModelChange.Kind.MELODY_CHANGED, melodyIndex,
+              new ModelChange.Extent().melody(melody, 0, start)));
     }
-
-    for (Pitch p : Pitch.values()) {
-      ASound.PITCHES.put(p.val, p);
+    else {
+      this.soundAdded(start, melodyIndex, sound);
+      this.fire(new ModelChange(ModelChange.Kind.NOTE_ADDED, melodyIndex,
+              new ModelChange.Extent().sound(start, sound), sound));
     }
+  }
 
-    int lowestNoteVal = lowestNote.noteValue();
-
-    int lowestOctave = lowestNote.getOctave();
-
-    int curOctave = lowestNote.getOctave();
-
-    Pitch lowestPitch = lowestNote.getPitch();
-
-    Pitch curPitch = lowestNote.getPitch();
-
-    Pitch highestPitch = highestNote.getPitch();
-
-    int highestOctave = highestNote.getOctave();
-
-    int numOfPitches = 0;
-
-    StringBuilder gameState = new StringBuilder("     ");
-
-    while (curOctave < highestOctave
-            || curOctave == highestOctave && curPitch.compare(highestPitch) <= 0) {
-      int pitchSize = 5;
-
-      String name = curPitch.toString() + curOctave;
-
-      int offsetPosition = (pitchSize - name.length()) / 2;
-
-      String pitch = "";
-      for (int i = 0; i < offsetPosition; i++) {
-        pitch = pitch + " ";
-      }
-
-      pitch = pitch + name;
-
-      while (pitch.length() < 5) {
-        pitch = pitch + " ";
-      }
-
-      gameState.append(pitch);
-
-      curPitch = curPitch.getNextPitch();
-      if (curPitch == Pitch.A) {
-        curOctave++;
+  /**
+   * Forgets every note of a sound that is being removed from a melody.
+   * @param start       represents the beat the sound starts at.
+   * @param melodyIndex represents the index of the melody the sound is in.
+   * @param sound       represents the sound.
+   */
+  private void soundRemoved(int start, int melodyIndex, ASound sound) {
+    this.noteIndex.removeAll(start, melodyIndex, sound);
+    if (!sound.isRest()) {
+      for (Note n : sound.getNotesIn()) {
+        this.pitchRange.remove(n.noteValue());
       }
-
-      numOfPitches++;
     }
+  }
 
-    int totalNumberOfBeats = 0;
-    for (int i : active.keySet()) {
-      if (i > totalNumberOfBeats) {
-        totalNumberOfBeats = i;
-      }
+  /**
+   * Rebuilds the index of notes from every melody, for changes that move many notes at once.
+   */
+  private void reindexNotes() {
+    this.noteIndex.clear();
+    this.pitchRange.clear();
+    for (int i = 0; i < this.melodies.size(); i++) {
+      this.indexNotesOf(i);
     }
+  }
 
-    List<ActiveSound> activeSoundList = new ArrayList<>();
-    Integer currentBeat = 0;
-
-    while (currentBeat <= totalNumberOfBeats || !activeSoundList.isEmpty()) {
-
-      gameState.append("\n     ");
-      gameState.replace(gameState.length() - currentBeat.toString().length(),
-              gameState.length() - 1,
-              currentBeat.toString());
-      StringBuilder lineState = new StringBuilder("");
-      for (int i = 0; i < numOfPitches; i++) {
-        lineState.append("     ");
-      }
-      for (ActiveSound note : activeSoundList) {
-        int noteVal = (note.getNote().getOctave() * 12) + note.getNote().getPitch().val
-                - (lowestPitch.val + (12 * lowestOctave));
-
-        lineState.replace(noteVal * 5 + 1, noteVal * 5 + 2, "|");
-      }
-
-      for (int i = 0; i < activeSoundList.size();) {
-        ActiveSound note = activeSoundList.get(i);
-        note.decreaseDuration(1);
-        if (!note.hasDurationLeft()) {
-          activeSoundList.remove(note);
-        }
-        else {
-          i++;
-        }
-      }
-
-
-      if (active.get(currentBeat) != null) {
-        List<Note> aSoundList = ASound.getNotesIn(active.get(currentBeat));
-        for (Note note : aSoundList) {
-          ActiveSound sound = new ActiveSound(note);
-          sound.decreaseDuration(1);
-          if (sound.hasDurationLeft()) {
-            activeSoundList.add(sound);
-          }
-
-          int noteVal = note.noteValue() - lowestNoteVal;
+  /**
+   * Counts one more melody of the given length.
+   * @param length represents the length of the melody, in beats.
+   */
+  private void rememberLength(int length) {
+    this.lengthCounts.merge(length, 1, Integer::sum);
+    this.songLength = Math.max(this.songLength, length);
+  }
 
-          lineState.replace(noteVal * 5 + 1, noteVal * 5 + 2, "X");
-        }
+  /**
+   * Counts one fewer melody of the given length.
+   * @param length represents the length of the melody, in beats.
+   */
+  private void forgetLength(int length) {
+    int count = this.lengthCounts.get(length);
+    if (count == 1) {
+      this.lengthCounts.remove(length);
+      if (length == this.songLength) {
+        this.songLength = this.lengthCounts.isEmpty() ? 0 : this.lengthCounts.lastKey();
       }
+    }
+    else {
+      this.lengthCounts.put(length, count - 1);
+    }
+  }
 
+  @Override
+  public synchronized String getGameState() {
+    if (this.gameState == null) {
+      this.gameState = new GameStateCache(this);
+      this.addListener(this.gameState);
+    }
+    return this.gameState.getGameState();
+  }
 
+  @Override
+  public String getGameState(int fromBeat, int toBeat) {
+    return getGameState(this, fromBeat, toBeat);
+  }
 
-      gameState.append(lineState);
-      currentBeat++;
-    }
-    gameState.append("\n");
-    return gameState.toString();
+  /**
+   * Gives the grid of a range of beats of a piece, as {@code getGameState(int, int)} does.
+   * @param piece    represents the piece.
+   * @param fromBeat represents the first beat of the range.
+   * @param toBeat   represents the beat after the last beat of the range.
+   * @return the grid of those beats.
+   */
+  static String getGameState(IMusicModel piece, int fromBeat, int toBeat) {
+    return GameStateWriter.render(out -> GameStateWriter.write(piece, out, fromBeat, toBeat));
   }
 
   @Override
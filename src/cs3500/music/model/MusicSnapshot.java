@@ -0,0 +1,394 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import cs3500.music.util.CompositionBuilder;
+import javafx.util.Pair;
+
+/**
+ * A read-only {@code IMusicModel} holding a piece as it was when the snapshot was taken. The
+ * melodies are shared with the model the snapshot was taken of, which copies a melody before it
+ * next changes it, so taking a snapshot only copies the list of melodies. The events are copied,
+ * so that playing through them doesn't move the events of the model. Everything a snapshot
+ * holds is set when it is made, so it can be read from any thread without locking. The index of
+ * the notes and the counts of pitches are also shared with the model, which copies a part of them
+ * before it next changes it, so lookups are answered from them as the model answers its own.
+ */
+public final class MusicSnapshot implements IMusicModel {
+  /**
+   * Represents the melodies of the piece, which are never changed.
+   */
+  private final List<Melody> melodies;
+
+  /**
+   * Represents copies of the events of the piece, whose counts of repetitions are moved by playing
+   * the snapshot rather than the events of the model.
+   */
+  private final List<IFlag> events;
+
+  /**
+   * Represents number of beats per measure.
+   */
+  private final int beat;
+
+  /**
+   * Represents the volume of the whole piece, from 0 to 100.
+   */
+  private final int volume;
+
+  /**
+   * Represents the tempo in microseconds per beat.
+   */
+  private final int tempo;
+
+  /**
+   * Represents the index of every note by the beats it sounds during, which is never changed.
+   */
+  private final NoteIntervalIndex noteIndex;
+
+  /**
+   * Represents the number of notes at every pitch, which is never changed.
+   */
+  private final PitchRange pitchRange;
+
+  /**
+   * Represents the length of the longest melody, in beats.
+   */
+  private final int songLength;
+
+  /**
+   * Represents the grid of the piece, or null until it is asked for.
+   */
+  private volatile String gameState;
+
+  /**
+   * Creates a snapshot of the given piece. The given melodies, index and counts must never be
+   * changed again.
+   * @param melodies   represents the melodies of the piece.
+   * @param events     represents the events of the piece.
+   * @param beat       represents the number of beats per measure.
+   * @param volume     represents the volume of the whole piece, from 0 to 100.
+   * @param tempo      represents the tempo in microseconds per beat.
+   * @param noteIndex  represents the index of every note of the melodies.
+   * @param pitchRange represents the number of notes of the melodies at every pitch.
+   * @param songLength represents the length of the longest melody, in beats.
+   */
+  MusicSnapshot(List<Melody> melodies, List<IFlag> events, int beat, int volume, int tempo,
+                NoteIntervalIndex noteIndex, PitchRange pitchRange, int songLength) {
+    this.noteIndex = noteIndex;
+    this.pitchRange = pitchRange;
+    this.songLength = songLength;
+    this.melodies = Collections.unmodifiableList(new ArrayList<>(melodies));
+    List<IFlag> copies = new ArrayList<>(events.size());
+    for (IFlag event : events) {
+      copies.add(event.copy());
+    }
+    this.events = Collections.unmodifiableList(copies);
+    this.beat = beat;
+    this.volume = volume;
+    this.tempo = tempo;
+  }
+
+  /**
+   * Creates a snapshot of the given piece, indexing its notes. The given melodies must never be
+   * changed again.
+   * @param melodies represents the melodies of the piece.
+   * @param events   represents the events of the piece.
+   * @param beat     represents the number of beats per measure.
+   * @param volume   represents the volume of the whole piece, from 0 to 100.
+   * @param tempo    represents the tempo in microseconds per beat.
+   */
+  MusicSnapshot(List<Melody> melodies, List<IFlag> events, int beat, int volume, int tempo) {
+    this(melodies, events, beat, volume, tempo, indexOf(melodies), pitchesOf(melodies),
+            lengthOf(melodies));
+  }
+
+  /**
+   * Indexes every note of the given melodies by the beats it sounds during.
+   * @param melodies represents the melodies.
+   * @return the index of their notes.
+   */
+  private static NoteIntervalIndex indexOf(List<Melody> melodies) {
+    NoteIntervalIndex index = new NoteIntervalIndex();
+    for (int m = 0; m < melodies.size(); m++) {
+      int beat = 0;
+      IndexedSoundList.Cursor sounds = melodies.get(m).soundCursor();
+      while (sounds.next()) {
+        if (!sounds.isRest()) {
+          index.addAll(beat, m, sounds.sound());
+        }
+        beat += sounds.duration();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Counts every note of the given melodies at its pitch.
+   * @param melodies represents the melodies.
+   * @return the counts of their pitches.
+   */
+  private static PitchRange pitchesOf(List<Melody> melodies) {
+    PitchRange range = new PitchRange();
+    for (Melody melody : melodies) {
+      IndexedSoundList.Cursor sounds = melody.soundCursor();
+      while (sounds.next()) {
+        if (!sounds.isRest()) {
+          for (Note n : sounds.sound().getNotesIn()) {
+            range.add(n.noteValue());
+          }
+        }
+      }
+    }
+    return range;
+  }
+
+  /**
+   * Gives the length of the longest of the given melodies.
+   * @param melodies represents the melodies.
+   * @return the length of the longest melody in beats, or 0 if there are none.
+   */
+  private static int lengthOf(List<Melody> melodies) {
+    int longest = 0;
+    for (Melody melody : melodies) {
+      longest = Math.max(longest, melody.numOfBeats());
+    }
+    return longest;
+  }
+
+  /**
+   * Gives the exception thrown by every method that would change this.
+   * @return an UnsupportedOperationException.
+   */
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("A snapshot of a piece can't be changed.");
+  }
+
+  @Override
+  public IMusicModel build() {
+    return this;
+  }
+
+  @Override
+  public CompositionBuilder<IMusicModel> setTempo(int tempo) {
+    throw readOnly();
+  }
+
+  @Override
+  public CompositionBuilder<IMusicModel> addNote(int start, int end, int instrument, int pitch,
+                                                 int volume) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addTracks(Melody melody, int beat) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addTracks(Melody other) {
+    throw readOnly();
+  }
+
+  @Override
+  public void mergeMusic(IMusicModel other, int beat) {
+    throw readOnly();
+  }
+
+  @Override
+  public List<Melody> getMelodies() {
+    return this.melodies;
+  }
+
+  @Override
+  public void addToEnd(Melody other) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeMelody(int melodyIndex) {
+    throw readOnly();
+  }
+
+  @Override
+  public void spliceTracks(int beat, Melody melody) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addNote(ASound note, int melodyIndex, int beat) {
+    throw readOnly();
+  }
+
+  @Override
+  public void swapNote(ASound note, int melodyIndex, int beat) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeNote(Note removed, int beat) {
+    throw readOnly();
+  }
+
+  @Override
+  public void setInstrument(int instrument, int melodyIndex) {
+    throw readOnly();
+  }
+
+  @Override
+  public void changeVolume(int changeAmount) {
+    throw readOnly();
+  }
+
+  @Override
+  public void setVolume(int newVolume) {
+    throw readOnly();
+  }
+
+  @Override
+  public void mergeTracks(int trackToMerge, int positionToMerge, Melody melody) {
+    throw readOnly();
+  }
+
+  @Override
+  public ASound getNote(int melodyIndex, int noteIndex) {
+    return MusicModel.getNote(this.melodies, melodyIndex, noteIndex);
+  }
+
+  @Override
+  public Map<Integer, List<ASound>> getAllSounds() {
+    return MusicModel.getAllSounds(this.melodies, this.lengthOfSongInBeats());
+  }
+
+  @Override
+  public Map<Integer, List<Note>> getAllNotesMap() {
+    return MusicModel.getAllNotesMap(this.melodies);
+  }
+
+  @Override
+  public Map<Integer, List<Pair<Integer, Note>>> getAllNotesWithMelodies() {
+    return MusicModel.getAllNotesWithMelodies(this.melodies);
+  }
+
+  @Override
+  public Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat) {
+    return MusicModel.getNotesBetween(this.noteIndex, fromBeat, toBeat);
+  }
+
+  @Override
+  public List<Pair<Integer, Note>> getNoteList() {
+    return MusicModel.getNoteList(this.noteIterator());
+  }
+
+  @Override
+  public Iterator<PlacedNote> noteIterator() {
+    return new MergedNoteIterator(this.melodies);
+  }
+
+  /**
+   * Gives the grid of the piece, writing it the first time it is asked for. Two threads may both
+   * write it; either is correct.
+   * @return the grid of the piece.
+   */
+  @Override
+  public String getGameState() {
+    String written = this.gameState;
+    if (written == null) {
+      written = GameStateWriter.render(out -> GameStateWriter.writeParallel(this, out));
+      this.gameState = written;
+    }
+    return written;
+  }
+
+  @Override
+  public String getGameState(int fromBeat, int toBeat) {
+    return MusicModel.getGameState(this, fromBeat, toBeat);
+  }
+
+  @Override
+  public int lengthOfSongInBeats() {
+    if (this.melodies.isEmpty()) {
+      throw new IllegalStateException("There are no melodies, so there is no longest melody");
+    }
+    return this.songLength;
+  }
+
+  @Override
+  public Note getHighestNote() {
+    if (this.pitchRange.isEmpty()) {
+      return null;
+    }
+    return MusicModel.noteAtValue(this.pitchRange.highest());
+  }
+
+  @Override
+  public Note getLowestNote() {
+    if (this.pitchRange.isEmpty()) {
+      return null;
+    }
+    return MusicModel.noteAtValue(this.pitchRange.lowest());
+  }
+
+  @Override
+  public int getPitchRangeVersion() {
+    return this.pitchRange.version();
+  }
+
+  @Override
+  public void changeOctave(int melodyIndex, int beat, int octaveDifference) {
+    throw readOnly();
+  }
+
+  @Override
+  public long microsecondsPerBeat() {
+    return this.tempo;
+  }
+
+  @Override
+  public int beatsPerMeasure() {
+    return this.beat;
+  }
+
+  @Override
+  public int getVolume() {
+    return this.volume;
+  }
+
+  @Override
+  public List<IFlag> getEvents() {
+    return this.events;
+  }
+
+  @Override
+  public IFlag getEvent(int originalStart) {
+    return MusicModel.findEvent(this.events, originalStart);
+  }
+
+  @Override
+  public IFlag addEvent(IFlag added) {
+    throw readOnly();
+  }
+
+  @Override
+  public IMusicModel snapshot() {
+    return this;
+  }
+
+  /**
+   * Does nothing, as a snapshot never changes.
+   * @param listener represents the listener.
+   */
+  @Override
+  public void addListener(IModelListener listener) {
+    // A snapshot never changes, so there is nothing to tell the listener.
+  }
+
+  @Override
+  public void removeListener(IModelListener listener) {
+    // No listener is ever kept.
+  }
+}
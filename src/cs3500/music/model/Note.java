@@ -158,6 +158,14 @@ public class Note extends ASound {
     return new Chord(this.duration, this, note);
   }
 
+  @Override
+  public Note copy() {
+    Note copy = new Note(this.name, this.octave, this.duration);
+    copy.volume = this.volume;
+    copy.instrument = this.instrument;
+    return copy;
+  }
+
   /**
    * Gives the Pitch this is at.
    * @return {@code Pitch} of this.
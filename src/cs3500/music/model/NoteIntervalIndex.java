@@ -0,0 +1,233 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Indexes every note of a piece by the beats it sounds during, so the notes that start or
+ * continue during a range of beats can be found without looking at the rest of the piece.
+ * The beats are split into buckets of {@code BUCKET_SIZE}; a note is kept in every bucket that
+ * its start-to-end range touches. Finding the notes in a range of beats then only looks at the
+ * buckets covering that range. A copy given by {@code share()} holds the same buckets, and this
+ * copies a bucket the copy holds before it next changes it, so sharing only copies the list of
+ * buckets.
+ */
+final class NoteIntervalIndex {
+  /**
+   * Represents the number of beats covered by a single bucket.
+   */
+  static final int BUCKET_SIZE = 32;
+
+  /**
+   * Represents a single note in the index, along with where it plays and which melody holds it.
+   */
+  static final class Entry {
+    /**
+     * Represents the beat the note starts at.
+     */
+    final int start;
+
+    /**
+     * Represents the beat after the last beat the note sounds during.
+     */
+    final int end;
+
+    /**
+     * Represents the index of the melody the note exists in.
+     */
+    final int melody;
+
+    /**
+     * Represents the note itself.
+     */
+    final Note note;
+
+    /**
+     * Represents when this entry was added, so notes of the same chord keep their order.
+     */
+    private final long order;
+
+    Entry(int start, int melody, Note note, long order) {
+      this.start = start;
+      this.end = start + note.getDuration();
+      this.melody = melody;
+      this.note = note;
+      this.order = order;
+    }
+  }
+
+  /**
+   * Orders entries by start beat, then melody, then the order they were added in.
+   */
+  private static final Comparator<Entry> PIECE_ORDER = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry first, Entry second) {
+      if (first.start != second.start) {
+        return Integer.compare(first.start, second.start);
+      }
+      if (first.melody != second.melody) {
+        return Integer.compare(first.melody, second.melody);
+      }
+      return Long.compare(first.order, second.order);
+    }
+  };
+
+  /**
+   * Represents the buckets of entries; bucket {@code b} holds every entry sounding during any of
+   * the beats from {@code b * BUCKET_SIZE} up to {@code (b + 1) * BUCKET_SIZE}.
+   */
+  private final List<List<Entry>> buckets = new ArrayList<>();
+
+  /**
+   * Represents the number of entries added so far, used to order entries.
+   */
+  private long added = 0;
+
+  /**
+   * Represents the buckets also held by the last copy given by {@code share()}, which are copied
+   * before they are next changed.
+   */
+  private final BitSet shared = new BitSet();
+
+  /**
+   * Gives a copy of this index holding the same buckets, which must never be changed. Each bucket
+   * is copied by this before this next changes it, so the copy keeps the notes as they are now.
+   * @return a copy of this index.
+   */
+  NoteIntervalIndex share() {
+    NoteIntervalIndex copy = new NoteIntervalIndex();
+    copy.buckets.addAll(this.buckets);
+    copy.added = this.added;
+    this.shared.set(0, this.buckets.size());
+    return copy;
+  }
+
+  /**
+   * Adds a note to this index.
+   * @param start  represents the beat the note starts at.
+   * @param melody represents the index of the melody the note exists in.
+   * @param note   represents the note.
+   */
+  void add(int start, int melody, Note note) {
+    Entry entry = new Entry(start, melody, note, this.added++);
+    int last = bucketOf(entry.end - 1);
+    while (this.buckets.size() <= last) {
+      this.buckets.add(new ArrayList<Entry>());
+    }
+    for (int b = bucketOf(start); b <= last; b++) {
+      this.writable(b).add(entry);
+    }
+  }
+
+  /**
+   * Adds every note of the given sound to this index.
+   * @param start  represents the beat the sound starts at.
+   * @param melody represents the index of the melody the sound exists in.
+   * @param sound  represents the sound.
+   */
+  void addAll(int start, int melody, ASound sound) {
+    if (sound.isRest()) {
+      return;
+    }
+    for (Note n : sound.getNotesIn()) {
+      this.add(start, melody, n);
+    }
+  }
+
+  /**
+   * Removes the given note, which must be the same object that was added, from this index.
+   * @param start  represents the beat the note starts at.
+   * @param melody represents the index of the melody the note exists in.
+   * @param note   represents the note.
+   */
+  void remove(int start, int melody, Note note) {
+    int last = Math.min(bucketOf(start + note.getDuration() - 1), this.buckets.size() - 1);
+    for (int b = bucketOf(start); b <= last; b++) {
+      List<Entry> bucket = this.buckets.get(b);
+      for (int i = 0; i < bucket.size(); i++) {
+        Entry e = bucket.get(i);
+        if (e.note == note && e.start == start && e.melody == melody) {
+          this.writable(b).remove(i);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every note of the given sound from this index.
+   * @param start  represents the beat the sound starts at.
+   * @param melody represents the index of the melody the sound exists in.
+   * @param sound  represents the sound.
+   */
+  void removeAll(int start, int melody, ASound sound) {
+    if (sound.isRest()) {
+      return;
+    }
+    for (Note n : sound.getNotesIn()) {
+      this.remove(start, melody, n);
+    }
+  }
+
+  /**
+   * Removes every note from this index.
+   */
+  void clear() {
+    this.buckets.clear();
+    this.shared.clear();
+    this.added = 0;
+  }
+
+  /**
+   * Gives every note that sounds during any beat from {@code from} up to, but not including,
+   * {@code to}. Notes that started before {@code from} and are still sounding are included.
+   * @param from represents the first beat of the range.
+   * @param to   represents the beat after the last beat of the range.
+   * @return the entries of those notes, ordered by start beat, then melody.
+   */
+  List<Entry> between(int from, int to) {
+    List<Entry> found = new ArrayList<>();
+    if (to <= from || this.buckets.isEmpty()) {
+      return found;
+    }
+    int first = bucketOf(from);
+    int last = Math.min(bucketOf(to - 1), this.buckets.size() - 1);
+    for (int b = first; b <= last; b++) {
+      for (Entry e : this.buckets.get(b)) {
+        // An entry spanning several buckets is only reported from the first one searched.
+        if (e.start < to && e.end > from && Math.max(bucketOf(e.start), first) == b) {
+          found.add(e);
+        }
+      }
+    }
+    found.sort(PIECE_ORDER);
+    return found;
+  }
+
+  /**
+   * Gives the bucket at the given index so that it can be changed, first replacing it with a copy
+   * if a copy of this index holds it.
+   * @param b represents the index of the bucket.
+   * @return the bucket, which no copy of this index holds.
+   */
+  private List<Entry> writable(int b) {
+    List<Entry> bucket = this.buckets.get(b);
+    if (this.shared.get(b)) {
+      bucket = new ArrayList<>(bucket);
+      this.buckets.set(b, bucket);
+      this.shared.clear(b);
+    }
+    return bucket;
+  }
+
+  /**
+   * Gives the bucket that holds the given beat.
+   * @param beat represents the beat.
+   * @return the index of the bucket.
+   */
+  private static int bucketOf(int beat) {
+    return Math.max(beat, 0) / BUCKET_SIZE;
+  }
+}
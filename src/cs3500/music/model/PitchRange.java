@@ -0,0 +1,235 @@
+package cs3500.music.model;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Counts how many notes of a piece are at each pitch, so the highest and lowest pitches are known
+ * at all times without looking through the piece. MIDI pitches (0 to 127) are counted in a plain
+ * array; pitches outside that range, which can only come from notes built by hand, are counted in
+ * a small sorted map. A copy given by {@code share()} holds the same counts, and this copies them
+ * before it next changes them.
+ */
+final class PitchRange {
+  /**
+   * Represents the number of MIDI pitches.
+   */
+  private static final int MIDI_PITCHES = 128;
+
+  /**
+   * Represents the number of notes at each MIDI pitch.
+   */
+  private int[] counts = new int[MIDI_PITCHES];
+
+  /**
+   * Maps each pitch outside of the MIDI range to the number of notes at that pitch.
+   */
+  private NavigableMap<Integer, Integer> outside = new TreeMap<>();
+
+  /**
+   * Represents the total number of notes counted.
+   */
+  private int total = 0;
+
+  /**
+   * Represents the highest pitch counted, if there are any notes.
+   */
+  private int highest;
+
+  /**
+   * Represents the lowest pitch counted, if there are any notes.
+   */
+  private int lowest;
+
+  /**
+   * Represents the number of times the highest or lowest pitch has changed.
+   */
+  private int version = 0;
+
+  /**
+   * Represents whether the last copy given by {@code share()} holds the counts of this.
+   */
+  private boolean shared = false;
+
+  /**
+   * Gives a copy of this holding the same counts, which must never be changed. The counts are
+   * copied by this before this next changes them, so the copy keeps them as they are now.
+   * @return a copy of this.
+   */
+  PitchRange share() {
+    PitchRange copy = new PitchRange();
+    copy.counts = this.counts;
+    copy.outside = this.outside;
+    copy.total = this.total;
+    copy.highest = this.highest;
+    copy.lowest = this.lowest;
+    copy.version = this.version;
+    this.shared = true;
+    return copy;
+  }
+
+  /**
+   * Replaces the counts with copies of them, if a copy of this holds them.
+   */
+  private void unshare() {
+    if (this.shared) {
+      this.counts = this.counts.clone();
+      this.outside = new TreeMap<>(this.outside);
+      this.shared = false;
+    }
+  }
+
+  /**
+   * Counts a note of the given pitch.
+   * @param pitch represents the value of the note, as given by {@code Note.noteValue()}.
+   */
+  void add(int pitch) {
+    this.unshare();
+    if (pitch >= 0 && pitch < MIDI_PITCHES) {
+      this.counts[pitch]++;
+    }
+    else {
+      this.outside.merge(pitch, 1, Integer::sum);
+    }
+    this.total++;
+    if (this.total == 1) {
+      this.highest = pitch;
+      this.lowest = pitch;
+      this.version++;
+    }
+    else if (pitch > this.highest || pitch < this.lowest) {
+      this.highest = Math.max(this.highest, pitch);
+      this.lowest = Math.min(this.lowest, pitch);
+      this.version++;
+    }
+  }
+
+  /**
+   * Stops counting a note of the given pitch.
+   * @param pitch represents the value of the note, as given by {@code Note.noteValue()}.
+   * @throws IllegalArgumentException if no note of the given pitch is being counted.
+   */
+  void remove(int pitch) {
+    if (this.countOf(pitch) == 0) {
+      throw new IllegalArgumentException("No note is counted at pitch " + pitch + ".");
+    }
+    this.unshare();
+    if (pitch >= 0 && pitch < MIDI_PITCHES) {
+      this.counts[pitch]--;
+    }
+    else if (this.outside.get(pitch) == 1) {
+      this.outside.remove(pitch);
+    }
+    else {
+      this.outside.merge(pitch, -1, Integer::sum);
+    }
+    this.total--;
+    if (this.total == 0) {
+      this.version++;
+      return;
+    }
+    if (pitch == this.highest && this.countOf(pitch) == 0) {
+      this.highest = this.nextPitch(pitch, -1);
+      this.version++;
+    }
+    if (pitch == this.lowest && this.countOf(pitch) == 0) {
+      this.lowest = this.nextPitch(pitch, 1);
+      this.version++;
+    }
+  }
+
+  /**
+   * Stops counting every note.
+   */
+  void clear() {
+    if (this.total > 0) {
+      this.version++;
+    }
+    if (this.shared) {
+      this.counts = new int[MIDI_PITCHES];
+      this.outside = new TreeMap<>();
+      this.shared = false;
+    }
+    else {
+      Arrays.fill(this.counts, 0);
+      this.outside.clear();
+    }
+    this.total = 0;
+  }
+
+  /**
+   * Determines whether there are no notes counted.
+   * @return whether there are no notes counted.
+   */
+  boolean isEmpty() {
+    return this.total == 0;
+  }
+
+  /**
+   * Gives the highest pitch counted.
+   * @return the highest pitch.
+   * @throws IllegalStateException if there are no notes counted.
+   */
+  int highest() {
+    if (this.total == 0) {
+      throw new IllegalStateException("There are no notes.");
+    }
+    return this.highest;
+  }
+
+  /**
+   * Gives the lowest pitch counted.
+   * @return the lowest pitch.
+   * @throws IllegalStateException if there are no notes counted.
+   */
+  int lowest() {
+    if (this.total == 0) {
+      throw new IllegalStateException("There are no notes.");
+    }
+    return this.lowest;
+  }
+
+  /**
+   * Gives a number that changes every time the highest or lowest pitch changes.
+   * @return the number of changes to the range of pitches so far.
+   */
+  int version() {
+    return this.version;
+  }
+
+  /**
+   * Gives the number of notes counted at the given pitch.
+   * @param pitch represents the pitch.
+   * @return the number of notes at that pitch.
+   */
+  private int countOf(int pitch) {
+    if (pitch >= 0 && pitch < MIDI_PITCHES) {
+      return this.counts[pitch];
+    }
+    return this.outside.getOrDefault(pitch, 0);
+  }
+
+  /**
+   * Finds the nearest counted pitch past the given one, moving in the given direction. Only
+   * called while at least one note is counted.
+   * @param pitch     represents the pitch to start from, which is no longer counted.
+   * @param direction represents the direction to move in, 1 for up and -1 for down.
+   * @return the nearest counted pitch in that direction.
+   */
+  private int nextPitch(int pitch, int direction) {
+    if (direction < 0 && !this.outside.isEmpty() && this.outside.lastKey() >= MIDI_PITCHES) {
+      return this.outside.lastKey();
+    }
+    if (direction > 0 && !this.outside.isEmpty() && this.outside.firstKey() < 0) {
+      return this.outside.firstKey();
+    }
+    int start = direction < 0 ? Math.min(pitch, MIDI_PITCHES) - 1 : Math.max(pitch, -1) + 1;
+    for (int p = start; p >= 0 && p < MIDI_PITCHES; p += direction) {
+      if (this.counts[p] > 0) {
+        return p;
+      }
+    }
+    return direction < 0 ? this.outside.lastKey() : this.outside.firstKey();
+  }
+}
@@ -29,6 +29,19 @@ public class Repeat extends AFlag {
     }
   }
 
+  /**
+   * Creates a copy of the given Repeat.
+   * @param other represents the Repeat copied.
+   */
+  private Repeat(Repeat other) {
+    super(other);
+  }
+
+  @Override
+  public IFlag copy() {
+    return new Repeat(this);
+  }
+
   @Override
   public boolean equals(Object other) {
     return super.equals(other) && (other instanceof Repeat);
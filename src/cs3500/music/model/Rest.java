@@ -84,6 +84,13 @@ public final class Rest extends ASound {
     throw new IllegalArgumentException("Chords cannot be made from Rests");
   }
 
+  @Override
+  public Rest copy() {
+    Rest copy = new Rest(this.duration);
+    copy.instrument = this.instrument;
+    return copy;
+  }
+
   @Override
   public int hashCode() {
     return this.getDuration() * 5;
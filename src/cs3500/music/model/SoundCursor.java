@@ -0,0 +1,31 @@
+package cs3500.music.model;
+
+/**
+ * Walks the sounds of a melody in order, a sound at a time, giving where each one starts, how long
+ * it lasts and whether it is a rest, without making any {@code ASound}s.
+ */
+interface SoundCursor {
+  /**
+   * Moves to the next sound.
+   * @return whether there was a next sound to move to.
+   */
+  boolean next();
+
+  /**
+   * Gives the beat the current sound starts at.
+   * @return the beat the current sound starts at.
+   */
+  int beat();
+
+  /**
+   * Gives the duration of the current sound.
+   * @return the duration of the current sound.
+   */
+  int duration();
+
+  /**
+   * Determines whether the current sound is a rest.
+   * @return whether the current sound is a rest.
+   */
+  boolean isRest();
+}
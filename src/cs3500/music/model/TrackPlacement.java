@@ -0,0 +1,331 @@
+package cs3500.music.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Groups the melodies of a piece by instrument so that a melody able to take a new note can be
+ * found without asking every melody. A melody can only take a note starting at a beat if it has
+ * ended by then, or if one of its rests sounds on that beat. The melodies of each instrument are
+ * kept, in order, in a segment tree recording the shortest length under every node, so the first
+ * melody that has ended is found by walking down the tree; and the beats are split into buckets of
+ * {@code BEATS_PER_BUCKET}, each noting which melodies have a rest sounding during it, so only the
+ * melodies resting near the beat are asked before that one.
+ */
+final class TrackPlacement {
+  /**
+   * Represents the number of beats covered by a single bucket of rests.
+   */
+  static final int BEATS_PER_BUCKET = 4;
+
+  /**
+   * Represents the melodies of a single instrument, in the order they appear in the piece.
+   */
+  private static final class Group {
+    /**
+     * Represents the indices of the melodies in this group, in increasing order.
+     */
+    private final List<Integer> melodies = new ArrayList<>();
+
+    /**
+     * Represents the number of leaves of the tree; always a power of two.
+     */
+    private int capacity = 1;
+
+    /**
+     * Represents the shortest melody under each node, in beats.
+     */
+    private int[] minLength = new int[2];
+
+    /**
+     * Represents the buckets of rests; bucket {@code b} holds the position of every melody with a
+     * rest sounding during any of the beats from {@code b * BEATS_PER_BUCKET} up to
+     * {@code (b + 1) * BEATS_PER_BUCKET}.
+     */
+    private final List<BitSet> resting = new ArrayList<>();
+
+    Group() {
+      this.fillEmpty(1);
+    }
+
+    /**
+     * Adds a melody after every other melody of this group.
+     * @param melodyIndex represents the index of the melody in the piece.
+     * @param length      represents the length of the melody in beats.
+     * @param sounds      represents a walk over the sounds of the melody from a given beat.
+     * @return the position of the melody in this group.
+     */
+    private int append(int melodyIndex, int length, IntFunction<? extends SoundCursor> sounds) {
+      int position = this.melodies.size();
+      this.melodies.add(melodyIndex);
+      if (position == this.capacity) {
+        this.grow();
+      }
+      this.set(position, length, sounds, 0, length);
+      return position;
+    }
+
+    /**
+     * Records the length of the melody at the given position of this group, and its rests over
+     * the given beats. If the length has changed, the rests are recorded again up to the later of
+     * the old and new ends as well, as every sound after the change may have moved.
+     * @param position represents the position of the melody in this group.
+     * @param length   represents the length of the melody in beats.
+     * @param sounds   represents a walk over the sounds of the melody from a given beat.
+     * @param fromBeat represents the first beat that may have changed.
+     * @param toBeat   represents the beat after the last beat that may have changed.
+     */
+    private void set(int position, int length, IntFunction<? extends SoundCursor> sounds,
+                     int fromBeat, int toBeat) {
+      int node = this.capacity + position;
+      int oldLength = this.minLength[node] == Integer.MAX_VALUE ? 0 : this.minLength[node];
+      if (length != oldLength) {
+        fromBeat = Math.min(fromBeat, Math.min(length, oldLength));
+        toBeat = Math.max(toBeat, Math.max(length, oldLength));
+      }
+      toBeat = Math.min(toBeat, Math.max(length, oldLength));
+      this.minLength[node] = length;
+      for (node /= 2; node > 0; node /= 2) {
+        this.pull(node);
+      }
+
+      if (toBeat <= Math.max(fromBeat, 0)) {
+        return;
+      }
+      int first = bucketOf(fromBeat);
+      int last = bucketOf(toBeat - 1);
+      for (int b = first; b <= Math.min(last, this.resting.size() - 1); b++) {
+        this.resting.get(b).clear(position);
+      }
+      // Every sound sounding during the buckets is walked, even where it started before them.
+      SoundCursor walk = sounds.apply(first * BEATS_PER_BUCKET);
+      while (walk.next() && walk.beat() < (last + 1) * BEATS_PER_BUCKET) {
+        if (walk.isRest()) {
+          int end = Math.min(bucketOf(walk.beat() + walk.duration() - 1), last);
+          for (int b = Math.max(bucketOf(walk.beat()), first); b <= end; b++) {
+            while (this.resting.size() <= b) {
+              this.resting.add(new BitSet());
+            }
+            this.resting.get(b).set(position);
+          }
+        }
+      }
+    }
+
+    /**
+     * Finds the first melody of this group that can take a note starting at the given beat.
+     * @param start represents the beat the note starts at.
+     * @param fits  represents the full check of whether a melody can take the note.
+     * @return the index of the melody in the piece, or -1 if none can take the note.
+     */
+    private int find(int start, IntPredicate fits) {
+      if (start < 0) {
+        // Before the first beat, rests are judged by the first sound, so nothing is skipped.
+        for (int m : this.melodies) {
+          if (fits.test(m)) {
+            return m;
+          }
+        }
+        return -1;
+      }
+      int bucket = bucketOf(start);
+      BitSet resting = bucket < this.resting.size() ? this.resting.get(bucket) : new BitSet();
+      int position = 0;
+      while (true) {
+        int ended = this.firstEnded(1, 0, this.capacity, position, start);
+        int rest = resting.nextSetBit(position);
+        int next = rest == -1 || (ended != -1 && ended < rest) ? ended : rest;
+        if (next == -1) {
+          return -1;
+        }
+        int melodyIndex = this.melodies.get(next);
+        if (fits.test(melodyIndex)) {
+          return melodyIndex;
+        }
+        position = next + 1;
+      }
+    }
+
+    /**
+     * Finds the first position, at or after the given one and under the given node, of a melody
+     * that has ended by the given beat.
+     * @param node  represents the node being searched.
+     * @param low   represents the first position under the node.
+     * @param high  represents the position after the last position under the node.
+     * @param from  represents the first position to consider.
+     * @param start represents the beat.
+     * @return the position of the melody, or -1 if there is none under the node.
+     */
+    private int firstEnded(int node, int low, int high, int from, int start) {
+      if (high <= from || this.minLength[node] > start) {
+        return -1;
+      }
+      if (node >= this.capacity) {
+        return low;
+      }
+      int middle = (low + high) / 2;
+      int found = this.firstEnded(2 * node, low, middle, from, start);
+      return found != -1 ? found : this.firstEnded(2 * node + 1, middle, high, from, start);
+    }
+
+    /**
+     * Doubles the number of leaves of the tree, keeping every leaf already recorded.
+     */
+    private void grow() {
+      int oldCapacity = this.capacity;
+      int[] lengths = Arrays.copyOfRange(this.minLength, oldCapacity, 2 * oldCapacity);
+      this.fillEmpty(2 * oldCapacity);
+      System.arraycopy(lengths, 0, this.minLength, this.capacity, oldCapacity);
+      for (int node = this.capacity - 1; node > 0; node--) {
+        this.pull(node);
+      }
+    }
+
+    /**
+     * Replaces the tree with an empty one of the given number of leaves.
+     * @param capacity represents the number of leaves.
+     */
+    private void fillEmpty(int capacity) {
+      this.capacity = capacity;
+      this.minLength = new int[2 * capacity];
+      Arrays.fill(this.minLength, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Recomputes the given node from its children.
+     * @param node represents the node.
+     */
+    private void pull(int node) {
+      this.minLength[node] = Math.min(this.minLength[2 * node], this.minLength[2 * node + 1]);
+    }
+
+    /**
+     * Gives the bucket of rests that holds the given beat.
+     * @param beat represents the beat.
+     * @return the index of the bucket.
+     */
+    private static int bucketOf(int beat) {
+      return Math.max(beat, 0) / BEATS_PER_BUCKET;
+    }
+  }
+
+  /**
+   * Maps each instrument to its group of melodies.
+   */
+  private final Map<Integer, Group> groups = new HashMap<>();
+
+  /**
+   * Represents the instrument each melody was recorded under, in the order of the piece.
+   */
+  private final List<Integer> instruments = new ArrayList<>();
+
+  /**
+   * Represents the position of each melody within its group, in the order of the piece.
+   */
+  private final List<Integer> positions = new ArrayList<>();
+
+  /**
+   * Records a melody added after every other melody of the piece.
+   * @param melody represents the melody.
+   */
+  void trackAdded(Melody melody) {
+    this.trackAdded(melody.getInstrument(), melody.numOfBeats(), melody::soundCursor);
+  }
+
+  /**
+   * Records a melody added after every other melody of the piece, for pieces that don't keep
+   * their melodies as {@code Melody}s.
+   * @param instrument represents the instrument of the melody.
+   * @param length     represents the length of the melody in beats.
+   * @param sounds     represents a walk over the sounds of the melody from the sound playing at a
+   *                   given beat, as {@code Melody.soundCursor(int)} gives.
+   */
+  void trackAdded(int instrument, int length, IntFunction<? extends SoundCursor> sounds) {
+    int melodyIndex = this.instruments.size();
+    Group group = this.groups.get(instrument);
+    if (group == null) {
+      group = new Group();
+      this.groups.put(instrument, group);
+    }
+    this.instruments.add(instrument);
+    this.positions.add(group.append(melodyIndex, length, sounds));
+  }
+
+  /**
+   * Records the new length and rests of a melody that has changed over the given beats.
+   * @param melodyIndex represents the index of the melody in the piece.
+   * @param melody      represents the melody.
+   * @param melodies    represents every melody of the piece, used if the melody has moved to
+   *                    another instrument.
+   * @param fromBeat    represents the first beat of the melody that may have changed.
+   * @param toBeat      represents the beat after the last beat of the melody that may have
+   *                    changed, not counting sounds that only moved because the melody grew or
+   *                    shrank before them.
+   */
+  void trackChanged(int melodyIndex, Melody melody, List<Melody> melodies, int fromBeat,
+                    int toBeat) {
+    if (this.instruments.get(melodyIndex) != melody.getInstrument()) {
+      this.rebuild(melodies);
+      return;
+    }
+    this.trackChanged(melodyIndex, melody.numOfBeats(), melody::soundCursor, fromBeat, toBeat);
+  }
+
+  /**
+   * Records the new length and rests of a melody that has changed over the given beats, as
+   * {@code trackChanged(int, Melody, List, int, int)} does, for pieces that don't keep their
+   * melodies as {@code Melody}s. The melody must still have the instrument it was recorded under.
+   * @param melodyIndex represents the index of the melody in the piece.
+   * @param length      represents the length of the melody in beats.
+   * @param sounds      represents a walk over the sounds of the melody from the sound playing at
+   *                    a given beat.
+   * @param fromBeat    represents the first beat of the melody that may have changed.
+   * @param toBeat      represents the beat after the last beat of the melody that may have
+   *                    changed.
+   */
+  void trackChanged(int melodyIndex, int length, IntFunction<? extends SoundCursor> sounds,
+                    int fromBeat, int toBeat) {
+    this.groups.get(this.instruments.get(melodyIndex)).set(this.positions.get(melodyIndex),
+            length, sounds, fromBeat, toBeat);
+  }
+
+  /**
+   * Forgets every melody and records the given ones instead.
+   * @param melodies represents every melody of the piece, in order.
+   */
+  void rebuild(List<Melody> melodies) {
+    this.clear();
+    for (Melody m : melodies) {
+      this.trackAdded(m);
+    }
+  }
+
+  /**
+   * Forgets every melody.
+   */
+  void clear() {
+    this.groups.clear();
+    this.instruments.clear();
+    this.positions.clear();
+  }
+
+  /**
+   * Finds the first melody of the given instrument that can take a note starting at the given
+   * beat. Every melody that could take it is checked with {@code fits}, in order, so the melody
+   * found is the same one that checking every melody in order would find.
+   * @param instrument represents the instrument of the note.
+   * @param start      represents the beat the note starts at.
+   * @param fits       represents the full check of whether the melody at an index can take it.
+   * @return the index of the melody, or -1 if no melody can take the note.
+   */
+  int find(int instrument, int start, IntPredicate fits) {
+    Group group = this.groups.get(instrument);
+    return group == null ? -1 : group.find(start, fits);
+  }
+}
@@ -21,6 +21,15 @@ public interface IViewModel<NoteRep> {
    */
   public List<NoteRep> getNotesAt(int beat) throws IllegalArgumentException;
 
+  /**
+   * Returns which pitches start and which are held on each beat of given range, for every pitch
+   * from the lowest note of the model to the highest.
+   * @param fromBeat  the first beat of the range.
+   * @param toBeat    the beat after the last beat of the range.
+   * @return the {@code PitchMasks} of the range.
+   */
+  public PitchMasks getPitchMasks(int fromBeat, int toBeat);
+
   /**
    * Returns a list of {@code Note} played at given beat.
    * @return All the {@code Note} being played at given beat as a List.
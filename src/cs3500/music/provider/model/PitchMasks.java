@@ -0,0 +1,131 @@
+package cs3500.music.provider.model;
+
+/**
+ * Class to represent which pitches start and which are held on each beat of a range of beats, as
+ * bits. Each beat has a row of bits for the notes starting on it and a row for the notes held
+ * from an earlier beat, with a bit for every pitch from the lowest to the highest, so a view can
+ * find what to draw on a beat by walking the set bits rather than searching its notes.
+ */
+public final class PitchMasks {
+
+  private final int lowest;
+  private final int pitches;
+  private final int fromBeat;
+  private final int toBeat;
+  private final int words;
+  private final long[] starts;
+  private final long[] sustains;
+
+  /**
+   * Creates the masks of a range of beats with no notes in them yet.
+   * @param lowest    the value of the lowest pitch, as given by {@code valueOf()}.
+   * @param highest   the value of the highest pitch, as given by {@code valueOf()}.
+   * @param fromBeat  the first beat of the range.
+   * @param toBeat    the beat after the last beat of the range.
+   * @throws IllegalArgumentException if the range of beats or of pitches is backwards.
+   */
+  public PitchMasks(int lowest, int highest, int fromBeat, int toBeat) {
+
+    if (toBeat < fromBeat || highest < lowest - 1) {
+      throw new IllegalArgumentException("The range of beats or of pitches is backwards.");
+    }
+    this.lowest = lowest;
+    this.pitches = highest - lowest + 1;
+    this.fromBeat = fromBeat;
+    this.toBeat = toBeat;
+    this.words = (this.pitches + Long.SIZE - 1) / Long.SIZE;
+    this.starts = new long[(toBeat - fromBeat) * this.words];
+    this.sustains = new long[(toBeat - fromBeat) * this.words];
+  }
+
+  /**
+   * Returns the value of the pitch of an ANote, counting semitones up from C in octave 0.
+   * @param note  the ANote.
+   * @return the value of its pitch.
+   */
+  public static int valueOf(ANote note) {
+    return note.getOctave() * 12 + note.getTone().ordinal();
+  }
+
+  /**
+   * Marks a note as starting on its first beat and held on the rest, for the beats of it inside
+   * the range. Notes with a pitch outside the range of pitches are left out.
+   * @param pitch     the value of the pitch of the note.
+   * @param start     the beat the note starts on.
+   * @param duration  the number of beats the note lasts.
+   */
+  public void add(int pitch, int start, int duration) {
+
+    int bit = pitch - this.lowest;
+    if (bit < 0 || bit >= this.pitches) {
+      return;
+    }
+    int word = bit / Long.SIZE;
+    long mask = 1L << (bit % Long.SIZE);
+    int end = (int) Math.min((long) start + duration, this.toBeat);
+
+    for (int beat = Math.max(start, this.fromBeat); beat < end; beat++) {
+      int at = (beat - this.fromBeat) * this.words + word;
+      if (beat == start) {
+        this.starts[at] |= mask;
+      }
+      else {
+        this.sustains[at] |= mask;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of pitches, the lowest first.
+   * @return the number of pitches.
+   */
+  public int getPitches() {
+    return this.pitches;
+  }
+
+  /**
+   * Returns the number of longs each row of bits of a beat takes.
+   * @return the number of longs in a row.
+   */
+  public int getWords() {
+    return this.words;
+  }
+
+  /**
+   * Returns the first beat of the range.
+   * @return the first beat.
+   */
+  public int getFromBeat() {
+    return this.fromBeat;
+  }
+
+  /**
+   * Returns the beat after the last beat of the range.
+   * @return the beat after the last beat.
+   */
+  public int getToBeat() {
+    return this.toBeat;
+  }
+
+  /**
+   * Returns the bits of the pitches starting on a beat, bit {@code i} of word {@code w} standing
+   * for the pitch {@code 64 * w + i} above the lowest.
+   * @param beat  the beat, inside the range.
+   * @param word  the word of the row.
+   * @return the bits of the pitches starting.
+   */
+  public long getStarts(int beat, int word) {
+    return this.starts[(beat - this.fromBeat) * this.words + word];
+  }
+
+  /**
+   * Returns the bits of the pitches held on a beat from an earlier beat and not starting again on
+   * it, laid out as in {@code getStarts()}.
+   * @param beat  the beat, inside the range.
+   * @param word  the word of the row.
+   * @return the bits of the pitches held.
+   */
+  public long getSustains(int beat, int word) {
+    return this.sustains[(beat - this.fromBeat) * this.words + word] & ~this.getStarts(beat, word);
+  }
+}
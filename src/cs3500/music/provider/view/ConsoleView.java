@@ -2,17 +2,14 @@ package cs3500.music.provider.view;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
 
 import cs3500.music.provider.model.ANote;
 import cs3500.music.provider.model.ASound;
-import cs3500.music.provider.model.BeatState;
 import cs3500.music.provider.model.IViewModel;
 import cs3500.music.provider.model.Note;
+import cs3500.music.provider.model.PitchMasks;
 import cs3500.music.provider.model.Sound;
 import cs3500.music.provider.model.Tone;
 
@@ -21,9 +18,16 @@ import cs3500.music.provider.model.Tone;
  */
 public class ConsoleView implements IView<ASound> {
 
+  // Widths of the number at the start of a row, at least, and of the cell of each pitch.
+  private static final int NUMBER_WIDTH = 3;
+  private static final int CELL_WIDTH = 5;
+  // Number of beats whose masks are asked for at a time.
+  private static final int BLOCK_SIZE = 1024;
+
   private Appendable output;
   private IViewModel<ASound> viewModel;
-  private Map<ASound, Integer> notes;
+  private int fromBeat;
+  private int toBeat;
 
   /**
    * Creates a ConsoleView with the given View-Model which prints output to given Appendable.
@@ -32,11 +36,26 @@ public class ConsoleView implements IView<ASound> {
    * @throws IllegalArgumentException if View-Model provided is null.
    */
   public ConsoleView(IViewModel<ASound> viewModel, Appendable output) {
+    this(viewModel, output, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a ConsoleView with the given View-Model which prints only the given range of beats to
+   * given Appendable. Notes held into the range from before it are printed held.
+   * @param viewModel the viewModel for the View.
+   * @param output    the appendable on which to produce console output.
+   * @param fromBeat  the first beat printed.
+   * @param toBeat    the beat after the last beat printed.
+   * @throws IllegalArgumentException if View-Model provided is null.
+   */
+  public ConsoleView(IViewModel<ASound> viewModel, Appendable output, int fromBeat,
+                     int toBeat) {
 
     try {
       this.viewModel = Objects.requireNonNull(viewModel);
       this.output = output;
-      this.notes = new HashMap<ASound, Integer>();
+      this.fromBeat = fromBeat;
+      this.toBeat = toBeat;
 
     } catch (NullPointerException e) {
       throw new IllegalArgumentException("View and output appendable cannot be null.");
@@ -78,10 +97,22 @@ public class ConsoleView implements IView<ASound> {
 
     stringRep.append(this.getHeader());
 
-    for (int i = 0; i < this.viewModel.getDurationInBeats(); i++) {
-      stringRep.append(String.format("% 3d", i));
-      stringRep.append(this.getBeatAsString(i));
-      stringRep.append("\n");
+    int from = Math.max(this.fromBeat, 0);
+    int to = Math.min(this.toBeat, this.viewModel.getDurationInBeats());
+    ASound lowest = this.viewModel.getLowest();
+    ASound highest = this.viewModel.getHighest();
+    int columns = lowest.equals(Sound.MUTE) || highest.equals(Sound.MUTE) ? 0
+            : PitchMasks.valueOf(highest) - PitchMasks.valueOf(lowest) + 1;
+    char[] row = new char[Math.max(NUMBER_WIDTH, Integer.toString(to).length() + 1)
+            + columns * CELL_WIDTH + 1];
+
+    // The beats are drawn a block at a time, so the masks never hold more than a block of them.
+    for (int block = from; block < to; block += BLOCK_SIZE) {
+      PitchMasks masks = this.viewModel.getPitchMasks(block, Math.min(block + BLOCK_SIZE, to));
+      for (int i = masks.getFromBeat(); i < masks.getToBeat(); i++) {
+        int length = this.getBeatAsRow(masks, i, columns, row);
+        stringRep.append(row, 0, length);
+      }
     }
 
     return new String(stringRep);
@@ -127,94 +158,57 @@ public class ConsoleView implements IView<ASound> {
   }
 
   /**
-   * Returns the String representation of all the notes played at a beat.
-   * @param beat the beat to convert to String.
-   * @return String representation of the notes at that beat.
+   * Draws a beat into a row: its number, then a cell for each pitch with an X if a note of that
+   * pitch starts on the beat or a | if one is held on it, then a line break. Only the cells of
+   * the pitches sounding are visited, by walking the set bits of the beat's masks.
+   * @param masks    the masks of a range of beats holding the beat.
+   * @param beat     the beat to draw.
+   * @param columns  the number of pitch cells in a row.
+   * @param row      the row drawn into, with room for the number, the cells and the line break.
+   * @return the number of chars of the row drawn.
    */
-  private String getBeatAsString(int beat) {
-
-    StringBuilder stringRep = new StringBuilder("");
-    ASound lowest = this.viewModel.getLowest();
-    ASound highest = this.viewModel.getHighest();
-    List<ASound> notes = this.viewModel.getNotesAt(beat);
-    ArrayList<Tone> allTones = Tone.getAllTones();
-
-    if (lowest.equals(Sound.MUTE) || highest.equals(Sound.MUTE)) {
-      return "";
-    }
-
-    for (int o = lowest.getOctave(); o <= highest.getOctave(); o++) {
-
-      for (int n = 0; n < allTones.size(); n++) {
+  private int getBeatAsRow(PitchMasks masks, int beat, int columns, char[] row) {
 
-        ANote curNote = new Note(allTones.get(n), o);
-
-        if (curNote.compareTo(lowest) < 0) {
-          continue;
-
-        } else if (curNote.compareTo(highest) > 0) {
-          break;
-
-        } else {
-
-          ASound soundFound = this.findNote(curNote, notes);
-          if (!soundFound.isMute()) {
-
-            if (soundFound.getState().equals(BeatState.START)) {
-              stringRep.append(this.pad("X"));
-
-              if (soundFound.getDuration() > 1) {
-                this.notes.put(soundFound, soundFound.getDuration() - 1);
-              }
+    int at = this.putNumber(row, beat);
+    int end = at + Math.min(columns, masks.getPitches()) * CELL_WIDTH;
+    Arrays.fill(row, at, end, ' ');
 
-            } else if (soundFound.getState().equals(BeatState.SUSTAIN)) {
-              stringRep.append(this.pad("|"));
-              this.notes.put(soundFound, this.notes.get(soundFound) - 1);
-            }
+    for (int w = 0; w < masks.getWords(); w++) {
+      int first = at + w * Long.SIZE * CELL_WIDTH + CELL_WIDTH / 2;
 
-          } else {
-
-            soundFound = this.findNote(curNote, this.notes.keySet());
-            if (!soundFound.isMute() && this.notes.get(soundFound) > 0) {
-              stringRep.append(this.pad("|"));
-              this.notes.put(soundFound, this.notes.get(soundFound) - 1);
-
-              if (this.notes.get(soundFound) == 0) {
-                this.notes.remove(soundFound);
-              }
-            }
-            else {
-              stringRep.append(this.pad(""));
-            }
-          }
-
-        }
+      for (long bits = masks.getSustains(beat, w); bits != 0; bits &= bits - 1) {
+        row[first + Long.numberOfTrailingZeros(bits) * CELL_WIDTH] = '|';
+      }
+      for (long bits = masks.getStarts(beat, w); bits != 0; bits &= bits - 1) {
+        row[first + Long.numberOfTrailingZeros(bits) * CELL_WIDTH] = 'X';
       }
     }
 
-    return new String(stringRep);
+    row[end] = '\n';
+    return end + 1;
   }
 
   /**
-   * Find an ASound which plays given ANote in a list of ASound.
-   * @param curNote  the given ANote.
-   * @param notes    the collection of ASounds.
-   * @return the first ASound that matches given note in the List.
+   * Puts the number of a beat at the start of a row, as {@code String.format("% 3d", beat)}
+   * would.
+   * @param row   the row.
+   * @param beat  the number of the beat, not negative.
+   * @return the index after the number.
    */
-  private ASound findNote(ANote curNote, Collection<ASound> notes) {
+  private int putNumber(char[] row, int beat) {
 
-    ASound ret = Sound.MUTE;
-
-    for (ASound curSound : notes) {
-
-      if (curNote.compareTo(curSound) == 0) {
-        if (ret.equals(Sound.MUTE) || curSound.getState().equals(BeatState.START)) {
-          ret = curSound;
-        }
-      }
+    int digits = 1;
+    for (int rest = beat / 10; rest > 0; rest /= 10) {
+      digits++;
     }
+    int width = Math.max(NUMBER_WIDTH, digits + 1);
+    Arrays.fill(row, 0, width - digits, ' ');
 
-    return ret;
+    int at = width;
+    for (int rest = beat; at > width - digits; rest /= 10) {
+      row[--at] = (char) ('0' + rest % 10);
+    }
+    return width;
   }
 
   /**
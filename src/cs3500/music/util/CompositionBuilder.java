@@ -6,6 +6,7 @@ package cs3500.music.util;
  * by an unknown type.
  *
  * @param <T> The type of the constructed composition.
+ * CHANGELOG: Added addNotes(), which adds many notes at once so a builder can sort them first.
  */
 public interface CompositionBuilder<T> {
   /**
@@ -32,4 +33,45 @@ public interface CompositionBuilder<T> {
    * @return This builder.
    */
   CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch, int volume);
+
+  /**
+   * Adds many notes to the piece at once, the note at each index of the arrays being given by
+   * the values at that index. A builder may add the notes in any order, such as by instrument and
+   * the beat they start at, so the piece built may not split the notes among its parts the way
+   * adding them one at a time would. By default, the notes are added one at a time in the order
+   * given.
+   * @param starts The start times of the notes, in beats.
+   * @param ends The end times of the notes, in beats.
+   * @param instruments The instrument numbers of the notes.
+   * @param pitches The pitches of the notes.
+   * @param volumes The volumes of the notes.
+   * @return This builder.
+   * @throws IllegalArgumentException if the arrays are not all the same length.
+   */
+  default CompositionBuilder<T> addNotes(int[] starts, int[] ends, int[] instruments,
+                                         int[] pitches, int[] volumes) {
+    checkNotes(starts, ends, instruments, pitches, volumes);
+    for (int i = 0; i < starts.length; i++) {
+      this.addNote(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+    }
+    return this;
+  }
+
+  /**
+   * Checks that arrays of notes given to {@code addNotes()} are all the same length.
+   * @param starts The start times of the notes.
+   * @param ends The end times of the notes.
+   * @param instruments The instrument numbers of the notes.
+   * @param pitches The pitches of the notes.
+   * @param volumes The volumes of the notes.
+   * @throws IllegalArgumentException if the arrays are not all the same length.
+   */
+  static void checkNotes(int[] starts, int[] ends, int[] instruments, int[] pitches,
+                         int[] volumes) {
+    int count = starts.length;
+    if (ends.length != count || instruments.length != count || pitches.length != count
+            || volumes.length != count) {
+      throw new IllegalArgumentException("Every array of notes must be the same length.");
+    }
+  }
 }
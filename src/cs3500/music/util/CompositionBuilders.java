@@ -0,0 +1,261 @@
+package cs3500.music.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builders that pass what they are given on to other builders, so that a single read of a file
+ * can feed several compositions at once, or feed one a changed piece, without building a model
+ * in between. Each is made by a static method, and they can be put inside one another, as in
+ * {@code tee(model, transpose(onlyInstruments(other, 1), 12))}. Notes given all at once through
+ * {@code addNotes()} are passed on all at once.
+ */
+public final class CompositionBuilders {
+  /**
+   * Decides which notes are passed on by {@code filter()}.
+   */
+  public interface NoteFilter {
+    /**
+     * Decides whether a note is passed on.
+     * @param start The start time of the note, in beats.
+     * @param end The end time of the note, in beats.
+     * @param instrument The instrument number.
+     * @param pitch The pitch.
+     * @param volume The volume.
+     * @return whether the note is passed on.
+     */
+    boolean accept(int start, int end, int instrument, int pitch, int volume);
+  }
+
+  /**
+   * Passes every tempo and note on to each of the given builders, and builds all of them.
+   * @param builders represents the builders.
+   * @param <T>      represents the type of composition each builds.
+   * @return a builder giving the composition of each builder, in the same order.
+   */
+  @SafeVarargs
+  public static <T> CompositionBuilder<List<T>> tee(CompositionBuilder<? extends T>... builders) {
+    // The builders are copied out of the array, so that it never escapes.
+    List<CompositionBuilder<? extends T>> list = new ArrayList<>();
+    for (CompositionBuilder<? extends T> builder : builders) {
+      list.add(builder);
+    }
+    return tee(list);
+  }
+
+  /**
+   * Passes every tempo and note on to each of the given builders, and builds all of them.
+   * @param builders represents the builders.
+   * @param <T>      represents the type of composition each builds.
+   * @return a builder giving the composition of each builder, in the same order.
+   */
+  public static <T> CompositionBuilder<List<T>> tee(
+          final List<? extends CompositionBuilder<? extends T>> builders) {
+    return new CompositionBuilder<List<T>>() {
+      @Override
+      public List<T> build() {
+        List<T> built = new ArrayList<>();
+        for (CompositionBuilder<? extends T> builder : builders) {
+          built.add(builder.build());
+        }
+        return built;
+      }
+
+      @Override
+      public CompositionBuilder<List<T>> setTempo(int tempo) {
+        for (CompositionBuilder<? extends T> builder : builders) {
+          builder.setTempo(tempo);
+        }
+        return this;
+      }
+
+      @Override
+      public CompositionBuilder<List<T>> addNote(int start, int end, int instrument, int pitch,
+                                                 int volume) {
+        for (CompositionBuilder<? extends T> builder : builders) {
+          builder.addNote(start, end, instrument, pitch, volume);
+        }
+        return this;
+      }
+
+      @Override
+      public CompositionBuilder<List<T>> addNotes(int[] starts, int[] ends, int[] instruments,
+                                                  int[] pitches, int[] volumes) {
+        CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+        for (CompositionBuilder<? extends T> builder : builders) {
+          builder.addNotes(starts.clone(), ends.clone(), instruments.clone(), pitches.clone(),
+                  volumes.clone());
+        }
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Passes on only the notes the given filter accepts.
+   * @param builder represents the builder passed to.
+   * @param filter  represents the filter.
+   * @param <T>     represents the type of composition.
+   * @return the filtering builder.
+   */
+  public static <T> CompositionBuilder<T> filter(CompositionBuilder<T> builder,
+                                                 final NoteFilter filter) {
+    return new Passing<T>(builder) {
+      @Override
+      public CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch,
+                                           int volume) {
+        if (filter.accept(start, end, instrument, pitch, volume)) {
+          this.builder.addNote(start, end, instrument, pitch, volume);
+        }
+        return this;
+      }
+
+      @Override
+      public CompositionBuilder<T> addNotes(int[] starts, int[] ends, int[] instruments,
+                                            int[] pitches, int[] volumes) {
+        CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+        NoteBuffer accepted = new NoteBuffer();
+        for (int i = 0; i < starts.length; i++) {
+          if (filter.accept(starts[i], ends[i], instruments[i], pitches[i], volumes[i])) {
+            accepted.add(starts[i], ends[i], instruments[i], pitches[i], volumes[i]);
+          }
+        }
+        accepted.addTo(this.builder);
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Passes on only the notes played by one of the given instruments.
+   * @param builder     represents the builder passed to.
+   * @param instruments represents the instruments kept.
+   * @param <T>         represents the type of composition.
+   * @return the filtering builder.
+   */
+  public static <T> CompositionBuilder<T> onlyInstruments(CompositionBuilder<T> builder,
+                                                          int... instruments) {
+    final boolean[] kept = new boolean[129];
+    for (int instrument : instruments) {
+      if (instrument >= 0 && instrument < kept.length) {
+        kept[instrument] = true;
+      }
+    }
+    return filter(builder, (start, end, instrument, pitch, volume) ->
+            instrument >= 0 && instrument < kept.length && kept[instrument]);
+  }
+
+  /**
+   * Passes on only the notes with a pitch in the given range.
+   * @param builder represents the builder passed to.
+   * @param low     represents the lowest pitch kept.
+   * @param high    represents the highest pitch kept.
+   * @param <T>     represents the type of composition.
+   * @return the filtering builder.
+   */
+  public static <T> CompositionBuilder<T> pitchesBetween(CompositionBuilder<T> builder,
+                                                         final int low, final int high) {
+    return filter(builder, (start, end, instrument, pitch, volume) ->
+            pitch >= low && pitch <= high);
+  }
+
+  /**
+   * Passes every note on the given number of beats later, or earlier if it is negative.
+   * @param builder represents the builder passed to.
+   * @param beats   represents the number of beats each note is moved by.
+   * @param <T>     represents the type of composition.
+   * @return the shifting builder.
+   */
+  public static <T> CompositionBuilder<T> shift(CompositionBuilder<T> builder, final int beats) {
+    return new Passing<T>(builder) {
+      @Override
+      public CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch,
+                                           int volume) {
+        this.builder.addNote(start + beats, end + beats, instrument, pitch, volume);
+        return this;
+      }
+
+      @Override
+      public CompositionBuilder<T> addNotes(int[] starts, int[] ends, int[] instruments,
+                                            int[] pitches, int[] volumes) {
+        CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+        this.builder.addNotes(added(starts, beats), added(ends, beats), instruments, pitches,
+                volumes);
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Passes every note on the given number of semitones higher, or lower if it is negative. Notes
+   * moved out of the range of MIDI pitches, 0 to 127, are not passed on.
+   * @param builder   represents the builder passed to.
+   * @param semitones represents the number of semitones each note is moved by.
+   * @param <T>       represents the type of composition.
+   * @return the transposing builder.
+   */
+  public static <T> CompositionBuilder<T> transpose(CompositionBuilder<T> builder,
+                                                    final int semitones) {
+    return new Passing<T>(pitchesBetween(builder, 0, 127)) {
+      @Override
+      public CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch,
+                                           int volume) {
+        this.builder.addNote(start, end, instrument, pitch + semitones, volume);
+        return this;
+      }
+
+      @Override
+      public CompositionBuilder<T> addNotes(int[] starts, int[] ends, int[] instruments,
+                                            int[] pitches, int[] volumes) {
+        CompositionBuilder.checkNotes(starts, ends, instruments, pitches, volumes);
+        this.builder.addNotes(starts, ends, instruments, added(pitches, semitones), volumes);
+        return this;
+      }
+    };
+  }
+
+  /**
+   * Gives a copy of an array with the given amount added to every element.
+   * @param array  represents the array.
+   * @param amount represents the amount added.
+   * @return the new array.
+   */
+  private static int[] added(int[] array, int amount) {
+    int[] added = new int[array.length];
+    for (int i = 0; i < array.length; i++) {
+      added[i] = array[i] + amount;
+    }
+    return added;
+  }
+
+  /**
+   * A builder that passes its tempo on to another builder and builds it; what it does with notes
+   * is left to each kind of passing builder.
+   * @param <T> represents the type of composition.
+   */
+  private abstract static class Passing<T> implements CompositionBuilder<T> {
+    /**
+     * Represents the builder passed to.
+     */
+    protected final CompositionBuilder<T> builder;
+
+    /**
+     * Creates a builder passing to the given builder.
+     * @param builder represents the builder passed to.
+     */
+    Passing(CompositionBuilder<T> builder) {
+      this.builder = builder;
+    }
+
+    @Override
+    public T build() {
+      return this.builder.build();
+    }
+
+    @Override
+    public CompositionBuilder<T> setTempo(int tempo) {
+      this.builder.setTempo(tempo);
+      return this;
+    }
+  }
+}
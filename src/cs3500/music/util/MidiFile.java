@@ -0,0 +1,329 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.Melody;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.Note;
+import javafx.util.Pair;
+
+/**
+ * Reads Standard MIDI Files into any {@code CompositionBuilder}, and writes a piece out as one.
+ * Reading walks the events of every track in order, pairing each note-on with the next note-off
+ * of the same pitch and channel, so only the notes still sounding are ever held. Writing reads
+ * the notes each pass through the repeats of the piece starts, by the beats of that pass alone.
+ * Neither needs a MIDI device, so both can be run headless through {@code main()}.
+ */
+public final class MidiFile {
+  /**
+   * Represents the number of ticks in a beat of a written file.
+   */
+  private static final int TICKS_PER_BEAT = 96;
+
+  /**
+   * Represents the type of the meta message that sets the tempo.
+   */
+  private static final int TEMPO_MESSAGE = 0x51;
+
+  /**
+   * Represents the channel MIDI keeps for percussion, which no melody is written to.
+   */
+  private static final int PERCUSSION_CHANNEL = 9;
+
+  /**
+   * Represents the number of channels.
+   */
+  private static final int CHANNELS = 16;
+
+  /**
+   * Reads a Standard MIDI File and gives its tempo and notes to the given builder, the notes all
+   * at once through {@code addNotes()}.
+   * @param file    represents the file.
+   * @param builder represents the builder of the composition.
+   * @param <T>     represents the type of composition.
+   * @return the composition built.
+   * @throws IOException if the file can't be read.
+   * @throws InvalidMidiDataException if the file is not a MIDI file.
+   * @throws IllegalArgumentException if the file is timed in frames rather than beats.
+   */
+  public static <T> T read(Path file, CompositionBuilder<T> builder)
+          throws IOException, InvalidMidiDataException {
+    return read(MidiSystem.getSequence(file.toFile()), builder);
+  }
+
+  /**
+   * Gives the tempo and notes of a sequence to the given builder. Only the first tempo of the
+   * sequence is kept, and each note takes the instrument last chosen on its channel. Times are
+   * rounded to the nearest beat, and every note is given at least one beat.
+   * @param sequence represents the sequence.
+   * @param builder  represents the builder of the composition.
+   * @param <T>      represents the type of composition.
+   * @return the composition built.
+   * @throws IllegalArgumentException if the sequence is timed in frames rather than beats.
+   */
+  public static <T> T read(Sequence sequence, CompositionBuilder<T> builder) {
+    if (sequence.getDivisionType() != Sequence.PPQ) {
+      throw new IllegalArgumentException("Only MIDI files timed in beats can be read.");
+    }
+    int resolution = sequence.getResolution();
+    boolean tempoSet = false;
+    NoteBuffer notes = new NoteBuffer();
+    for (Track track : sequence.getTracks()) {
+      int[] programs = new int[CHANNELS];
+      Map<Integer, Deque<long[]>> open = new HashMap<>();
+      long lastTick = 0;
+      for (int i = 0; i < track.size(); i++) {
+        MidiEvent event = track.get(i);
+        MidiMessage message = event.getMessage();
+        lastTick = event.getTick();
+        if (message instanceof MetaMessage) {
+          MetaMessage meta = (MetaMessage) message;
+          if (meta.getType() == TEMPO_MESSAGE && !tempoSet && meta.getData().length == 3) {
+            byte[] data = meta.getData();
+            builder.setTempo((data[0] & 0xFF) << 16 | (data[1] & 0xFF) << 8 | (data[2] & 0xFF));
+            tempoSet = true;
+          }
+        }
+        else if (message instanceof ShortMessage) {
+          ShortMessage shortMessage = (ShortMessage) message;
+          int channel = shortMessage.getChannel();
+          int key = channel * 128 + shortMessage.getData1();
+          switch (shortMessage.getCommand()) {
+            case ShortMessage.PROGRAM_CHANGE:
+              programs[channel] = shortMessage.getData1();
+              break;
+            case ShortMessage.NOTE_ON:
+              if (shortMessage.getData2() > 0) {
+                open.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(new long[]{
+                    event.getTick(), shortMessage.getData2(), programs[channel]});
+              }
+              else {
+                // A note-on with no velocity ends the note.
+                noteOff(notes, open.get(key), event.getTick(), shortMessage.getData1(),
+                        resolution);
+              }
+              break;
+            case ShortMessage.NOTE_OFF:
+              noteOff(notes, open.get(key), event.getTick(), shortMessage.getData1(), resolution);
+              break;
+            default:
+              break;
+          }
+        }
+      }
+      for (Map.Entry<Integer, Deque<long[]>> sounding : open.entrySet()) {
+        for (long[] note : sounding.getValue()) {
+          addNote(notes, note, lastTick, sounding.getKey() % 128, resolution);
+        }
+      }
+    }
+    notes.addTo(builder);
+    return builder.build();
+  }
+
+  /**
+   * Ends the first note still sounding at a pitch on a channel, if there is one, and holds it.
+   * @param notes      represents the notes read so far.
+   * @param sounding   represents the notes sounding at the pitch on the channel, the first started
+   *                   first, or null if there have been none.
+   * @param endTick    represents the tick the note ended at.
+   * @param pitch      represents the pitch of the note.
+   * @param resolution represents the number of ticks in a beat.
+   */
+  private static void noteOff(NoteBuffer notes, Deque<long[]> sounding, long endTick, int pitch,
+                              int resolution) {
+    if (sounding != null && !sounding.isEmpty()) {
+      addNote(notes, sounding.removeFirst(), endTick, pitch, resolution);
+    }
+  }
+
+  /**
+   * Holds a note that was read, rounding its times to beats.
+   * @param notes      represents the notes read so far.
+   * @param note       represents the tick the note started at, its velocity and its program.
+   * @param endTick    represents the tick the note ended at.
+   * @param pitch      represents the pitch of the note.
+   * @param resolution represents the number of ticks in a beat.
+   */
+  private static void addNote(NoteBuffer notes, long[] note, long endTick, int pitch,
+                              int resolution) {
+    int start = (int) ((note[0] + resolution / 2) / resolution);
+    int end = Math.max(start + 1, (int) ((endTick + resolution / 2) / resolution));
+    notes.add(start, end, (int) note[2] + 1, pitch, (int) note[1]);
+  }
+
+  /**
+   * Writes a piece to a Standard MIDI File with a track for each melody, replacing anything
+   * already in the file.
+   * @param model represents the piece.
+   * @param file  represents the file.
+   * @throws IOException if the file can't be written.
+   */
+  public static void write(IMusicModel model, Path file) throws IOException {
+    MidiSystem.write(toSequence(model), 1, file.toFile());
+  }
+
+  /**
+   * Makes a sequence of a piece. The first track sets the tempo, and each melody gets a track of
+   * its own, playing its instrument on a channel of its own where there are enough of them. The
+   * repeats of the piece are unrolled, so the sequence plays the piece as the MIDI view does.
+   * @param model represents the piece.
+   * @return the sequence.
+   */
+  public static Sequence toSequence(IMusicModel model) {
+    Sequence sequence;
+    try {
+      sequence = new Sequence(Sequence.PPQ, TICKS_PER_BEAT);
+      int tempo = (int) model.microsecondsPerBeat();
+      sequence.createTrack().add(new MidiEvent(new MetaMessage(TEMPO_MESSAGE,
+              new byte[]{(byte) (tempo >> 16), (byte) (tempo >> 8), (byte) tempo}, 3), 0));
+
+      List<Melody> melodies = model.getMelodies();
+      Track[] tracks = new Track[melodies.size()];
+      int[] channels = new int[melodies.size()];
+      for (int m = 0; m < tracks.length; m++) {
+        tracks[m] = sequence.createTrack();
+        channels[m] = m % (CHANNELS - 1) < PERCUSSION_CHANNEL ? m % (CHANNELS - 1)
+                : m % (CHANNELS - 1) + 1;
+        tracks[m].add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, channels[m],
+                melodies.get(m).getInstrument() - 1, 0), 0));
+      }
+
+      if (melodies.isEmpty()) {
+        return sequence;
+      }
+      long offset = 0;
+      for (int[] pass : passes(model.getEvents(), model.lengthOfSongInBeats())) {
+        // Only the notes sounding during the pass are read, and those held over from before it
+        // were played by the pass before.
+        for (Map.Entry<Integer, List<Pair<Integer, Note>>> starting
+                : new TreeMap<>(model.getNotesBetween(pass[0], pass[1])).entrySet()) {
+          int beat = starting.getKey();
+          if (beat < pass[0]) {
+            continue;
+          }
+          for (Pair<Integer, Note> placed : starting.getValue()) {
+            Note note = placed.getValue();
+            int end = Math.min(beat + note.getDuration(), pass[1]);
+            long startTick = (offset + beat - pass[0]) * TICKS_PER_BEAT;
+            long endTick = (offset + end - pass[0]) * TICKS_PER_BEAT;
+            int channel = channels[placed.getKey()];
+            Track track = tracks[placed.getKey()];
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, channel,
+                    note.noteValue(), Math.max(1, note.getVolume())), startTick));
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, channel,
+                    note.noteValue(), 0), endTick));
+          }
+        }
+        offset += pass[1] - pass[0];
+      }
+    } catch (InvalidMidiDataException e) {
+      throw new IllegalArgumentException("The piece has a note MIDI can't play: "
+              + e.getMessage());
+    }
+    return sequence;
+  }
+
+  /**
+   * Gives the ranges of beats the piece plays through, in the order it plays them, following
+   * its repeats as {@code IFlag.changeBeat()} does: on reaching the end of its current
+   * repetition, a flag goes back to the start of that repetition. The flags themselves are not
+   * changed.
+   * @param events represents the events of the piece.
+   * @param length represents the length of the piece, in beats.
+   * @return each range as its first beat and the beat after its last.
+   */
+  static List<int[]> passes(List<IFlag> events, int length) {
+    List<int[]> passes = new ArrayList<>();
+    int[] repetitions = new int[events.size()];
+    int beat = 0;
+    while (beat < length) {
+      int jumpAt = length;
+      int flag = -1;
+      for (int f = 0; f < events.size(); f++) {
+        Integer end = events.get(f).getEndBeatAt(repetitions[f]);
+        if (end != null && Math.max(end, beat) < jumpAt) {
+          jumpAt = Math.max(end, beat);
+          flag = f;
+        }
+      }
+      if (jumpAt > beat) {
+        passes.add(new int[]{beat, jumpAt});
+      }
+      if (flag == -1) {
+        break;
+      }
+      Integer start = events.get(flag).getStartBeatAt(repetitions[flag]);
+      repetitions[flag]++;
+      beat = start == null ? jumpAt : start;
+    }
+    return passes;
+  }
+
+  /**
+   * Converts a piece between formats without opening any view. The first argument is the file
+   * read: a MIDI file if it ends in ".mid" or ".midi", otherwise a score file or a text file.
+   * The second is the file written: a MIDI file if it ends in ".mid" or ".midi", a text file if
+   * it ends in ".txt", otherwise a score file.
+   * @param args represents the file read and the file written.
+   * @throws IOException if either file can't be read or written.
+   * @throws InvalidMidiDataException if the file read is not a valid MIDI file.
+   */
+  public static void main(String[] args) throws IOException, InvalidMidiDataException {
+    if (args.length != 2) {
+      System.err.println("Usage: MidiFile <file to read> <file to write>");
+      return;
+    }
+    Path in = Paths.get(args[0]);
+    Path out = Paths.get(args[1]);
+    MusicModel model;
+    if (isMidi(in)) {
+      model = read(in, new MusicModel.Builder());
+    }
+    else if (ScoreFile.isScoreFile(in)) {
+      model = ScoreFile.load(in);
+    }
+    else {
+      model = MusicReader.parseFile(in, new MusicModel.Builder());
+    }
+    if (isMidi(out)) {
+      write(model, out);
+    }
+    else if (out.getFileName().toString().toLowerCase().endsWith(".txt")) {
+      MusicWriter.writeFile(model, out);
+    }
+    else {
+      ScoreFile.write(model, out);
+    }
+  }
+
+  /**
+   * Determines whether a file is named as a MIDI file.
+   * @param file represents the file.
+   * @return whether the name of the file ends in ".mid" or ".midi".
+   */
+  private static boolean isMidi(Path file) {
+    String name = file.getFileName().toString().toLowerCase();
+    return name.endsWith(".mid") || name.endsWith(".midi");
+  }
+}
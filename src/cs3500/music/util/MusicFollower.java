@@ -0,0 +1,100 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Follows a text file of music that another program keeps adding lines to. The follower keeps
+ * the place in the file it has read up to, and each read hands a builder only the records of the
+ * lines added since the last read, so the time a read takes depends on how much was added and
+ * not on the size of the file. Given a live {@code IMusicModel}, which is its own builder, each
+ * note is added to the model as it would be by an edit, and its listeners are told of it.
+ */
+public final class MusicFollower {
+  /**
+   * Represents the file followed.
+   */
+  private final Path file;
+
+  /**
+   * Represents the number of bytes of the file read so far, which always ends at a line break.
+   */
+  private long offset = 0;
+
+  /**
+   * Creates a follower of the given file, which has read none of it yet.
+   * @param file represents the file followed.
+   */
+  public MusicFollower(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Gives the file followed.
+   * @return the file.
+   */
+  public Path getFile() {
+    return this.file;
+  }
+
+  /**
+   * Gives the number of bytes of the file read so far.
+   * @return the number of bytes.
+   */
+  public synchronized long getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * Hands the records of every whole line added to the file since the last read, or of the whole
+   * file the first time, to the given builder, then builds it. A line still being written, with
+   * no line break after it yet, is left for a later read. A read stops at a record that can't be
+   * read, after the records before it have been handed over; the line that record starts on is
+   * skipped, and the lines after it are left for the next read.
+   * @param piece represents the builder of the composition.
+   * @param <T>   represents the type of composition.
+   * @return the composition built.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if a line added is malformed, giving its line and column
+   *                                  counted from the start of the lines added.
+   * @throws IllegalStateException if the file is now shorter than the part already read.
+   */
+  public synchronized <T> T read(CompositionBuilder<T> piece) throws IOException {
+    try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < this.offset) {
+        throw new IllegalStateException("The file followed is shorter than the part already "
+                + "read from it.");
+      }
+      // More than a buffer can hold is left for the reads after.
+      MappedByteBuffer added = channel.map(FileChannel.MapMode.READ_ONLY, this.offset,
+              Math.min(size - this.offset, Integer.MAX_VALUE));
+      int end = added.limit();
+      while (end > 0 && added.get(end - 1) != '\n') {
+        end--;
+      }
+      if (end == 0) {
+        return piece.build();
+      }
+      added.limit(end);
+      int read = end;
+      try {
+        return MusicReader.parseBytes(added, piece);
+      } catch (IllegalArgumentException e) {
+        // Only the lines up to the end of the bad record's first line are read, so the lines
+        // after it are read next time.
+        read = added.position();
+        while (added.get(read) != '\n') {
+          read++;
+        }
+        read++;
+        throw e;
+      } finally {
+        this.offset += read;
+      }
+    }
+  }
+}
@@ -1,12 +1,38 @@
 package cs3500.music.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * A helper to read music data and construct a music composition from it.
+ * CHANGELOG: Added parseFile(Path) and parseChannel(), which read the bytes of the file directly
+ *              rather than through a Scanner, and give the line and column of any error.
+ *            Added parseFileParallel(), which reads pieces of a large file on every core.
  */
 public class MusicReader {
+  /**
+   * Represents the keyword starting a tempo line.
+   */
+  private static final byte[] TEMPO = {'t', 'e', 'm', 'p', 'o'};
+
+  /**
+   * Represents the keyword starting a note line.
+   */
+  private static final byte[] NOTE = {'n', 'o', 't', 'e'};
+
   /**
    * A factory for producing new music compositions, given a source of music and a
    * builder for constructing compositions.
@@ -56,4 +82,489 @@ public class MusicReader {
     }
     return piece.build();
   }
+
+  /**
+   * Reads the music file at the given path in the same format as {@code parseFile(Readable)},
+   * through {@code parseChannel()}.
+   * @param path  represents the file of music.
+   * @param piece represents a builder for constructing the composition.
+   * @param <T>   represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is malformed, giving the line and column.
+   */
+  public static <T> T parseFile(Path path, CompositionBuilder<T> piece) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return parseChannel(channel, piece);
+    }
+  }
+
+  /**
+   * Reads music in the same format as {@code parseFile(Readable)}, giving the same calls to the
+   * builder, but straight from the bytes of the source: keywords are matched and numbers are read
+   * byte by byte, so nothing is made for each word or number. The source is read as ASCII; words
+   * are separated by any whitespace, as with a Scanner. The channel is not closed.
+   * @param channel represents the source of data for the music composition.
+   * @param piece   represents a builder for constructing the composition.
+   * @param <T>     represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IOException if the channel can't be read.
+   * @throws IllegalArgumentException if the music is malformed, giving the line and column.
+   */
+  public static <T> T parseChannel(ReadableByteChannel channel, CompositionBuilder<T> piece)
+          throws IOException {
+    return parse(new ByteTokenizer(channel), piece);
+  }
+
+  /**
+   * Reads the music file at the given path in the same format as {@code parseFile(Readable)}, on
+   * every core. The file is mapped into memory and cut into pieces at the starts of lines, each
+   * piece is read into a buffer of numbers on the common fork-join pool, and the buffers are then
+   * handed to the builder in the order of the file, so the builder is given exactly the same calls
+   * as by {@code parseFile(Path)}. A file that is malformed anywhere is read again from the start
+   * as {@code parseFile(Path)} would read it, so the same calls are made before the same error.
+   * Small files are read as by {@code parseFile(Path)}.
+   * @param path  represents the file of music.
+   * @param piece represents a builder for constructing the composition.
+   * @param <T>   represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is malformed, giving the line and column.
+   */
+  public static <T> T parseFileParallel(Path path, CompositionBuilder<T> piece)
+          throws IOException {
+    int cores = Runtime.getRuntime().availableProcessors();
+    return parseFileParallel(path, piece, cores < 2 ? 1 : 4 * cores);
+  }
+
+  /**
+   * Reads the music file at the given path as {@code parseFileParallel(Path)} does, cutting it
+   * into at most the given number of pieces.
+   * @param path   represents the file of music.
+   * @param piece  represents a builder for constructing the composition.
+   * @param pieces represents the most pieces to cut the file into.
+   * @param <T>    represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is malformed, giving the line and column.
+   */
+  static <T> T parseFileParallel(Path path, CompositionBuilder<T> piece, int pieces)
+          throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      pieces = (int) Math.min(pieces, size / MIN_CHUNK);
+      if (pieces < 2 || size > Integer.MAX_VALUE) {
+        return parseChannel(channel, piece);
+      }
+
+      ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      List<ChunkTask> tasks = new ArrayList<>();
+      int from = 0;
+      for (int i = 1; i <= pieces && from < size; i++) {
+        int to = i == pieces ? (int) size : startOfRecordFrom(file, (int) (size * i / pieces));
+        if (to > from) {
+          ByteBuffer chunk = file.duplicate();
+          chunk.position(from);
+          chunk.limit(to);
+          tasks.add(new ChunkTask(chunk.slice()));
+          from = to;
+        }
+      }
+
+      try {
+        ForkJoinTask.invokeAll(tasks);
+      } catch (IllegalArgumentException e) {
+        return parse(new ByteTokenizer(file.duplicate()), piece);
+      }
+      for (ChunkTask task : tasks) {
+        task.getRawResult().replay(piece);
+      }
+      return piece.build();
+    }
+  }
+
+  /**
+   * Finds where the line holding the given byte ends and the next record starts, which is at the
+   * start of the first later line whose first word is not a number.
+   * @param file represents the bytes of the file.
+   * @param from represents the index of the byte.
+   * @return the index of the start of that line, or the size of the file if there is none.
+   */
+  private static int startOfRecordFrom(ByteBuffer file, int from) {
+    int size = file.limit();
+    int i = from;
+    while (i < size) {
+      while (i < size && file.get(i) != '\n') {
+        i++;
+      }
+      i++;
+      int lineStart = i;
+      while (i < size && ByteTokenizer.isSpace(file.get(i))) {
+        i++;
+      }
+      if (i >= size) {
+        return size;
+      }
+      int b = file.get(i);
+      if (!(b >= '0' && b <= '9') && b != '-' && b != '+') {
+        return lineStart;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Reads every record from the given words, handing each to the builder as it is read.
+   * @param in    represents the words of the music.
+   * @param piece represents a builder for constructing the composition.
+   * @param <T>   represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IOException if the words can't be read.
+   * @throws IllegalArgumentException if the music is malformed, giving the line and column.
+   */
+  private static <T> T parse(ByteTokenizer in, CompositionBuilder<T> piece) throws IOException {
+    while (in.skipSpace()) {
+      in.startRecord();
+      if (in.nextLineType() == TEMPO) {
+        piece.setTempo(in.nextInt("tempo"));
+      }
+      else {
+        int startBeat = in.nextInt("note");
+        int endBeat = in.nextInt("note");
+        int instrument = in.nextInt("note");
+        int pitch = in.nextInt("note");
+        int volume = in.nextInt("note");
+        piece.addNote(startBeat, endBeat, instrument, pitch, volume);
+      }
+    }
+    return piece.build();
+  }
+
+  /**
+   * Reads music already in memory, in the same format as {@code parseFile(Readable)}. Lines and
+   * columns in errors are counted from the start of the bytes given. If the music is malformed,
+   * the records before the one that can't be read are handed to the builder, and the bytes are
+   * left at the start of that record.
+   * @param bytes represents the bytes of the music, from the start of a line.
+   * @param piece represents a builder for constructing the composition.
+   * @param <T>   represents the main model interface type describing music compositions.
+   * @return the parsed T.
+   * @throws IllegalArgumentException if the music is malformed, giving the line and column.
+   */
+  static <T> T parseBytes(ByteBuffer bytes, CompositionBuilder<T> piece) {
+    ByteTokenizer in = new ByteTokenizer(bytes);
+    try {
+      return parse(in, piece);
+    } catch (IllegalArgumentException e) {
+      bytes.position(in.recordStart);
+      throw e;
+    } catch (IOException e) {
+      // Bytes already in memory are never read from a channel.
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Represents the fewest bytes worth reading on a core of their own.
+   */
+  private static final int MIN_CHUNK = 1 << 16;
+
+  /**
+   * Reads one piece of a music file into a buffer of numbers.
+   */
+  private static final class ChunkTask extends RecursiveTask<NoteRecords> {
+    /**
+     * Represents the version of this class, as tasks are serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Represents the bytes of the piece, starting at the start of a line.
+     */
+    private final ByteBuffer chunk;
+
+    ChunkTask(ByteBuffer chunk) {
+      this.chunk = chunk;
+    }
+
+    @Override
+    protected NoteRecords compute() {
+      try {
+        return parse(new ByteTokenizer(this.chunk), new NoteRecords());
+      } catch (IOException e) {
+        // Bytes already in memory are never read from a channel.
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * A builder that only keeps the tempo and note records given to it, as numbers in the order they
+   * were given, so they can be handed to another builder later.
+   */
+  private static final class NoteRecords implements CompositionBuilder<NoteRecords> {
+    /**
+     * Marks a tempo record, which is followed by the tempo.
+     */
+    private static final int TEMPO_RECORD = 0;
+
+    /**
+     * Marks a note record, which is followed by the start, end, instrument, pitch and volume.
+     */
+    private static final int NOTE_RECORD = 1;
+
+    /**
+     * Represents the records, each a mark followed by its numbers.
+     */
+    private int[] records = new int[1024];
+
+    /**
+     * Represents the number of ints of {@code records} in use.
+     */
+    private int size = 0;
+
+    @Override
+    public NoteRecords build() {
+      return this;
+    }
+
+    @Override
+    public CompositionBuilder<NoteRecords> setTempo(int tempo) {
+      this.ensureRoom(2);
+      this.records[this.size++] = TEMPO_RECORD;
+      this.records[this.size++] = tempo;
+      return this;
+    }
+
+    @Override
+    public CompositionBuilder<NoteRecords> addNote(int start, int end, int instrument, int pitch,
+                                                   int volume) {
+      this.ensureRoom(6);
+      this.records[this.size++] = NOTE_RECORD;
+      this.records[this.size++] = start;
+      this.records[this.size++] = end;
+      this.records[this.size++] = instrument;
+      this.records[this.size++] = pitch;
+      this.records[this.size++] = volume;
+      return this;
+    }
+
+    /**
+     * Makes room for the given number of ints after those in use.
+     * @param needed represents the number of ints.
+     */
+    private void ensureRoom(int needed) {
+      if (this.size + needed > this.records.length) {
+        this.records = Arrays.copyOf(this.records, 2 * this.records.length);
+      }
+    }
+
+    /**
+     * Hands every record to the given builder, in the order they were given to this.
+     * @param piece represents the builder.
+     */
+    void replay(CompositionBuilder<?> piece) {
+      int i = 0;
+      while (i < this.size) {
+        if (this.records[i] == TEMPO_RECORD) {
+          piece.setTempo(this.records[i + 1]);
+          i += 2;
+        }
+        else {
+          piece.addNote(this.records[i + 1], this.records[i + 2], this.records[i + 3],
+                  this.records[i + 4], this.records[i + 5]);
+          i += 6;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the words and numbers of a music file from a channel, a buffer at a time, or from bytes
+   * already in memory, keeping track of the line and column it has reached.
+   */
+  private static final class ByteTokenizer {
+    /**
+     * Represents the source of the bytes, or null if they are all in the buffer.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Represents the bytes read but not yet used.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Represents whether the channel has no more bytes.
+     */
+    private boolean ended = false;
+
+    /**
+     * Represents the line of the next byte, counted from 1.
+     */
+    private int line = 1;
+
+    /**
+     * Represents the column of the next byte, counted from 1.
+     */
+    private int column = 1;
+
+    /**
+     * Represents the place in the buffer of the first byte of the record being read.
+     */
+    private int recordStart = 0;
+
+    ByteTokenizer(ReadableByteChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(1 << 16);
+      this.buffer.flip();
+    }
+
+    ByteTokenizer(ByteBuffer bytes) {
+      this.channel = null;
+      this.buffer = bytes;
+      this.ended = true;
+    }
+
+    /**
+     * Gives the next byte without using it.
+     * @return the next byte, or -1 if there are no more.
+     * @throws IOException if the channel can't be read.
+     */
+    private int peek() throws IOException {
+      while (!this.buffer.hasRemaining()) {
+        if (this.ended) {
+          return -1;
+        }
+        this.buffer.clear();
+        this.ended = this.channel.read(this.buffer) == -1;
+        this.buffer.flip();
+      }
+      return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+
+    /**
+     * Uses the next byte, which must exist.
+     * @return the byte used.
+     */
+    private int take() {
+      int b = this.buffer.get() & 0xFF;
+      if (b == '\n') {
+        this.line++;
+        this.column = 1;
+      }
+      else {
+        this.column++;
+      }
+      return b;
+    }
+
+    /**
+     * Determines whether the given byte separates words, as whitespace does for a Scanner.
+     * @param b represents the byte, or -1 for the end of the source.
+     * @return whether the byte is whitespace.
+     */
+    static boolean isSpace(int b) {
+      return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    /**
+     * Determines whether the given byte ends a word.
+     * @param b represents the byte, or -1 for the end of the source.
+     * @return whether the byte is whitespace or the end of the source.
+     */
+    private static boolean endsWord(int b) {
+      return b == -1 || isSpace(b);
+    }
+
+    /**
+     * Uses every whitespace byte up to the next word.
+     * @return whether there is another word.
+     * @throws IOException if the channel can't be read.
+     */
+    boolean skipSpace() throws IOException {
+      int b = this.peek();
+      while (isSpace(b)) {
+        this.take();
+        b = this.peek();
+      }
+      return b != -1;
+    }
+
+    /**
+     * Marks the next byte as the start of a record.
+     */
+    void startRecord() {
+      this.recordStart = this.buffer.position();
+    }
+
+    /**
+     * Uses the next word, which must be the keyword starting a line.
+     * @return {@code TEMPO} or {@code NOTE}, whichever the word is.
+     * @throws IOException if the channel can't be read.
+     * @throws IllegalArgumentException if the word is neither keyword, naming the word.
+     */
+    byte[] nextLineType() throws IOException {
+      int line = this.line;
+      int column = this.column;
+      byte[] keyword = this.peek() == TEMPO[0] ? TEMPO : NOTE;
+      int matched = 0;
+      while (matched < keyword.length && this.peek() == keyword[matched]) {
+        this.take();
+        matched++;
+      }
+      if (matched == keyword.length && endsWord(this.peek())) {
+        return keyword;
+      }
+
+      StringBuilder word = new StringBuilder(new String(keyword, 0, matched,
+              StandardCharsets.US_ASCII));
+      while (!endsWord(this.peek())) {
+        word.append((char) this.take());
+      }
+      throw new IllegalArgumentException("Bad line type: " + word + " at line " + line
+              + ", column " + column);
+    }
+
+    /**
+     * Uses the next word, which must be a number that fits in an int.
+     * @param lineType represents the kind of line being read, for reporting errors.
+     * @return the number.
+     * @throws IOException if the channel can't be read.
+     * @throws IllegalArgumentException if the next word is missing or isn't such a number.
+     */
+    int nextInt(String lineType) throws IOException {
+      this.skipSpace();
+      int line = this.line;
+      int column = this.column;
+      int b = this.peek();
+      boolean negative = b == '-';
+      if (negative || b == '+') {
+        this.take();
+        b = this.peek();
+      }
+      long value = 0;
+      int digits = 0;
+      while (b >= '0' && b <= '9') {
+        this.take();
+        value = value * 10 + (b - '0');
+        if (value > (long) Integer.MAX_VALUE + 1) {
+          break;
+        }
+        digits++;
+        b = this.peek();
+      }
+      if (negative) {
+        value = -value;
+      }
+      if (digits == 0 || !endsWord(b)
+              || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+        String found = b == -1 && digits == 0 ? "the end of the file" : "a word that is not a "
+                + "number";
+        throw new IllegalArgumentException("Malformed " + lineType + " line at line " + line
+                + ", column " + column + ": expected a number but found " + found + ".");
+      }
+      return (int) value;
+    }
+  }
 }
@@ -0,0 +1,123 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.Note;
+
+/**
+ * Writes a piece in the text format read by {@code MusicReader}: a tempo line, then a note line
+ * for every note in the order the notes start. The text is never built as a String; numbers are
+ * written digit by digit into a single buffer, which is emptied into the file whenever it fills,
+ * so writing takes the same memory however long the piece is.
+ */
+public final class MusicWriter {
+  /**
+   * Represents the size of the buffer written through, in bytes.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Represents the longest line written, in bytes: the keyword and five numbers of up to eleven
+   * characters, each after a space, and the line break.
+   */
+  private static final int LONGEST_LINE = 4 + 5 * 12 + 1;
+
+  /**
+   * Represents the keyword starting a tempo line.
+   */
+  private static final byte[] TEMPO = {'t', 'e', 'm', 'p', 'o'};
+
+  /**
+   * Represents the keyword starting a note line.
+   */
+  private static final byte[] NOTE = {'n', 'o', 't', 'e'};
+
+  /**
+   * Writes a piece to the given file, replacing anything already in it.
+   * @param model represents the piece.
+   * @param path  represents the file.
+   * @throws IOException if the file can't be written.
+   */
+  public static void writeFile(IMusicModel model, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeChannel(model, channel);
+    }
+  }
+
+  /**
+   * Writes a piece to the given channel. The channel is not closed.
+   * @param model   represents the piece.
+   * @param channel represents where the text is written.
+   * @throws IOException if the channel can't be written.
+   */
+  public static void writeChannel(IMusicModel model, WritableByteChannel channel)
+          throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    buffer.put(TEMPO);
+    putNumber(buffer, model.microsecondsPerBeat());
+    buffer.put((byte) '\n');
+
+    Iterator<IMusicModel.PlacedNote> notes = model.noteIterator();
+    while (notes.hasNext()) {
+      if (buffer.remaining() < LONGEST_LINE) {
+        drain(buffer, channel);
+      }
+      IMusicModel.PlacedNote placed = notes.next();
+      Note note = placed.getNote();
+      buffer.put(NOTE);
+      putNumber(buffer, placed.getBeat());
+      putNumber(buffer, placed.getBeat() + note.getDuration());
+      putNumber(buffer, note.getInstrument());
+      putNumber(buffer, note.noteValue());
+      putNumber(buffer, note.getVolume());
+      buffer.put((byte) '\n');
+    }
+    drain(buffer, channel);
+  }
+
+  /**
+   * Writes a space and then a number, in decimal, to the buffer.
+   * @param buffer represents the buffer.
+   * @param number represents the number.
+   */
+  private static void putNumber(ByteBuffer buffer, long number) {
+    buffer.put((byte) ' ');
+    if (number < 0) {
+      buffer.put((byte) '-');
+    }
+    else {
+      number = -number;
+    }
+    // Digits are found from a negative number, which has room for every int and long.
+    long place = -1;
+    while (number / place >= 10) {
+      place *= 10;
+    }
+    for (; place != 0; place /= 10) {
+      buffer.put((byte) ('0' + number / place));
+      number %= place;
+    }
+  }
+
+  /**
+   * Writes everything in the buffer to the channel, leaving the buffer empty.
+   * @param buffer  represents the buffer.
+   * @param channel represents the channel.
+   * @throws IOException if the channel can't be written.
+   */
+  private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,91 @@
+package cs3500.music.util;
+
+import java.util.Arrays;
+
+/**
+ * Holds notes given to a builder until the piece is built, as columns of primitives, so that they
+ * can be handed to a model all at once through {@code CompositionBuilder.addNotes()}.
+ */
+public final class NoteBuffer {
+  /**
+   * Represents the number of notes the columns start out able to hold.
+   */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * Represents the number of notes held.
+   */
+  private int size = 0;
+
+  /**
+   * Represents the start time of each note, in beats.
+   */
+  private int[] starts = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the end time of each note, in beats.
+   */
+  private int[] ends = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the instrument number of each note.
+   */
+  private int[] instruments = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the pitch of each note.
+   */
+  private int[] pitches = new int[INITIAL_CAPACITY];
+
+  /**
+   * Represents the volume of each note.
+   */
+  private int[] volumes = new int[INITIAL_CAPACITY];
+
+  /**
+   * Holds a note.
+   * @param start The start time of the note, in beats.
+   * @param end The end time of the note, in beats.
+   * @param instrument The instrument number.
+   * @param pitch The pitch.
+   * @param volume The volume.
+   */
+  public void add(int start, int end, int instrument, int pitch, int volume) {
+    if (this.size == this.starts.length) {
+      int capacity = 2 * this.size;
+      this.starts = Arrays.copyOf(this.starts, capacity);
+      this.ends = Arrays.copyOf(this.ends, capacity);
+      this.instruments = Arrays.copyOf(this.instruments, capacity);
+      this.pitches = Arrays.copyOf(this.pitches, capacity);
+      this.volumes = Arrays.copyOf(this.volumes, capacity);
+    }
+    this.starts[this.size] = start;
+    this.ends[this.size] = end;
+    this.instruments[this.size] = instrument;
+    this.pitches[this.size] = pitch;
+    this.volumes[this.size] = volume;
+    this.size++;
+  }
+
+  /**
+   * Gives every note held to the given builder at once, then forgets them.
+   * @param builder represents the builder.
+   */
+  public void addTo(CompositionBuilder<?> builder) {
+    if (this.size == 0) {
+      return;
+    }
+    builder.addNotes(Arrays.copyOf(this.starts, this.size), Arrays.copyOf(this.ends, this.size),
+            Arrays.copyOf(this.instruments, this.size), Arrays.copyOf(this.pitches, this.size),
+            Arrays.copyOf(this.volumes, this.size));
+    this.size = 0;
+  }
+
+  /**
+   * Gives the number of notes held.
+   * @return the number of notes.
+   */
+  public int size() {
+    return this.size;
+  }
+}
@@ -0,0 +1,473 @@
+package cs3500.music.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A builder that puts the notes it is given in the order they start before passing them on to
+ * another builder, holding no more of them in memory than its budget allows. Notes are gathered
+ * until the budget is full, then sorted and written to a temporary file as a run; when the piece
+ * is built the runs are merged, a little of each read at a time, and the notes passed on in
+ * order. Notes starting on the same beat are passed on in the order they were given. If every
+ * note fits in the budget, no file is written, and the notes are sorted where they are held and
+ * handed on at once.
+ * @param <T> represents the type of composition built.
+ */
+public final class NoteSorter<T> implements CompositionBuilder<T> {
+  /**
+   * Represents the memory notes may be held in, in bytes, unless given otherwise.
+   */
+  public static final long MEMORY_BUDGET = 64L << 20;
+
+  /**
+   * Represents the memory a note takes while it is held: five ints, and a long to sort it by.
+   */
+  static final int BYTES_PER_NOTE = 5 * Integer.BYTES + Long.BYTES;
+
+  /**
+   * Represents the most bytes of a run read ahead at a time.
+   */
+  private static final int MAX_READ_AHEAD = 1 << 16;
+
+  /**
+   * Represents the number of notes the columns start out able to hold.
+   */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * Represents the builder the sorted notes are passed on to.
+   */
+  private final CompositionBuilder<T> builder;
+
+  /**
+   * Represents the memory notes may be held in, in bytes.
+   */
+  private final long budget;
+
+  /**
+   * Represents the most notes held at once.
+   */
+  private final int capacity;
+
+  /**
+   * Represents the start time of each note held, in beats.
+   */
+  private int[] starts;
+
+  /**
+   * Represents the end time of each note held, in beats.
+   */
+  private int[] ends;
+
+  /**
+   * Represents the instrument number of each note held.
+   */
+  private int[] instruments;
+
+  /**
+   * Represents the pitch of each note held.
+   */
+  private int[] pitches;
+
+  /**
+   * Represents the volume of each note held.
+   */
+  private int[] volumes;
+
+  /**
+   * Represents the number of notes held.
+   */
+  private int size = 0;
+
+  /**
+   * Represents the files the runs written so far are in, in the order they were written.
+   */
+  private final List<Path> runs = new ArrayList<>();
+
+  /**
+   * Creates a sorter passing notes on to the given builder, holding notes in no more than
+   * {@code MEMORY_BUDGET} bytes.
+   * @param builder represents the builder the sorted notes are passed on to.
+   */
+  public NoteSorter(CompositionBuilder<T> builder) {
+    this(builder, MEMORY_BUDGET);
+  }
+
+  /**
+   * Creates a sorter passing notes on to the given builder, holding notes in no more than the
+   * given memory.
+   * @param builder represents the builder the sorted notes are passed on to.
+   * @param budget  represents the memory notes may be held in, in bytes.
+   * @throws IllegalArgumentException if the budget can't hold at least two notes.
+   */
+  public NoteSorter(CompositionBuilder<T> builder, long budget) {
+    if (budget < 2 * BYTES_PER_NOTE) {
+      throw new IllegalArgumentException("A sorter needs room for at least two notes.");
+    }
+    this.builder = builder;
+    this.budget = budget;
+    this.capacity = (int) Math.min(budget / BYTES_PER_NOTE, Integer.MAX_VALUE - 8);
+    this.allocate(Math.min(this.capacity, INITIAL_CAPACITY));
+  }
+
+  /**
+   * Gives the number of runs written to temporary files so far.
+   * @return the number of runs.
+   */
+  public int runCount() {
+    return this.runs.size();
+  }
+
+  @Override
+  public CompositionBuilder<T> setTempo(int tempo) {
+    this.builder.setTempo(tempo);
+    return this;
+  }
+
+  /**
+   * Holds a note, writing the notes held out as a run first if the budget is full.
+   * @throws UncheckedIOException if a run can't be written.
+   */
+  @Override
+  public CompositionBuilder<T> addNote(int start, int end, int instrument, int pitch,
+                                       int volume) {
+    if (this.size == this.capacity) {
+      this.spill();
+    }
+    else if (this.size == this.starts.length) {
+      this.allocate((int) Math.min(2L * this.size, this.capacity));
+    }
+    this.starts[this.size] = start;
+    this.ends[this.size] = end;
+    this.instruments[this.size] = instrument;
+    this.pitches[this.size] = pitch;
+    this.volumes[this.size] = volume;
+    this.size++;
+    return this;
+  }
+
+  /**
+   * Passes the notes on to the builder in the order they start, and builds it. The temporary
+   * files are deleted, whether or not the notes can be read back.
+   * @throws UncheckedIOException if a run can't be written or read.
+   */
+  @Override
+  public T build() {
+    if (this.runs.isEmpty()) {
+      this.sortHeld();
+      int[] sortedStarts = trimmed(this.starts, this.size);
+      int[] sortedEnds = trimmed(this.ends, this.size);
+      int[] sortedInstruments = trimmed(this.instruments, this.size);
+      int[] sortedPitches = trimmed(this.pitches, this.size);
+      int[] sortedVolumes = trimmed(this.volumes, this.size);
+      // The columns are handed on to the builder, so new ones are made for any later notes.
+      this.starts = null;
+      this.ends = null;
+      this.instruments = null;
+      this.pitches = null;
+      this.volumes = null;
+      this.size = 0;
+      this.allocate(Math.min(this.capacity, INITIAL_CAPACITY));
+      this.builder.addNotes(sortedStarts, sortedEnds, sortedInstruments, sortedPitches,
+              sortedVolumes);
+      return this.builder.build();
+    }
+
+    try {
+      if (this.size > 0) {
+        this.spill();
+      }
+      // The columns are given up, so that the merge has the whole budget.
+      this.starts = null;
+      this.ends = null;
+      this.instruments = null;
+      this.pitches = null;
+      this.volumes = null;
+      this.merge();
+      this.allocate(Math.min(this.capacity, INITIAL_CAPACITY));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      for (Path run : this.runs) {
+        run.toFile().delete();
+      }
+      this.runs.clear();
+    }
+    return this.builder.build();
+  }
+
+  /**
+   * Makes the columns able to hold the given number of notes, keeping the notes held.
+   * @param length represents the number of notes.
+   */
+  private void allocate(int length) {
+    this.starts = this.starts == null ? new int[length] : Arrays.copyOf(this.starts, length);
+    this.ends = this.ends == null ? new int[length] : Arrays.copyOf(this.ends, length);
+    this.instruments = this.instruments == null ? new int[length]
+            : Arrays.copyOf(this.instruments, length);
+    this.pitches = this.pitches == null ? new int[length] : Arrays.copyOf(this.pitches, length);
+    this.volumes = this.volumes == null ? new int[length] : Arrays.copyOf(this.volumes, length);
+  }
+
+  /**
+   * Gives the notes held in the order they start, each as its start in the high half of a long
+   * and its index in the low half, so that notes starting together keep the order they came in.
+   * @return the keys of the notes held, sorted.
+   */
+  private long[] sortedKeys() {
+    long[] keys = new long[this.size];
+    for (int i = 0; i < this.size; i++) {
+      keys[i] = (long) this.starts[i] << 32 | i;
+    }
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Puts the notes held in the order they start, where they are held. Each note is moved along
+   * the cycle of places its sorted order makes, so no column is copied.
+   */
+  private void sortHeld() {
+    long[] keys = this.sortedKeys();
+    for (int p = 0; p < this.size; p++) {
+      if ((int) keys[p] == p) {
+        continue;
+      }
+      int start = this.starts[p];
+      int end = this.ends[p];
+      int instrument = this.instruments[p];
+      int pitch = this.pitches[p];
+      int volume = this.volumes[p];
+      int to = p;
+      int from = (int) keys[to];
+      while (from != p) {
+        this.starts[to] = this.starts[from];
+        this.ends[to] = this.ends[from];
+        this.instruments[to] = this.instruments[from];
+        this.pitches[to] = this.pitches[from];
+        this.volumes[to] = this.volumes[from];
+        // A place that has its note is marked by pointing at itself.
+        keys[to] = to;
+        to = from;
+        from = (int) keys[to];
+      }
+      this.starts[to] = start;
+      this.ends[to] = end;
+      this.instruments[to] = instrument;
+      this.pitches[to] = pitch;
+      this.volumes[to] = volume;
+      keys[to] = to;
+    }
+  }
+
+  /**
+   * Gives a column cut to the number of notes it holds, copying it only if it is longer.
+   * @param column represents the column.
+   * @param size   represents the number of notes it holds.
+   * @return the column, or a copy of the part of it holding notes.
+   */
+  private static int[] trimmed(int[] column, int size) {
+    return column.length == size ? column : Arrays.copyOf(column, size);
+  }
+
+  /**
+   * Sorts the notes held and writes them to a new temporary file as a run, then forgets them.
+   * @throws UncheckedIOException if the run can't be written.
+   */
+  private void spill() {
+    try {
+      Path run = Files.createTempFile("notes", ".run");
+      run.toFile().deleteOnExit();
+      this.runs.add(run);
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run),
+              MAX_READ_AHEAD)) {
+        int previous = 0;
+        for (long key : this.sortedKeys()) {
+          int i = (int) key;
+          // Starts are written as the distance from the one before, which keeps them short.
+          writeNumber(out, (long) this.starts[i] - previous);
+          writeNumber(out, (long) this.ends[i] - this.starts[i]);
+          writeNumber(out, this.instruments[i]);
+          writeNumber(out, this.pitches[i]);
+          writeNumber(out, this.volumes[i]);
+          previous = this.starts[i];
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.size = 0;
+  }
+
+  /**
+   * Merges the runs, passing their notes on to the builder in the order they start, half a
+   * budget's worth of notes at a time.
+   * @throws IOException if a run can't be read.
+   */
+  private void merge() throws IOException {
+    int readAhead = (int) Math.max(64,
+            Math.min(MAX_READ_AHEAD, this.budget / 2 / this.runs.size()));
+    PriorityQueue<Run> queue = new PriorityQueue<>();
+    try {
+      for (int r = 0; r < this.runs.size(); r++) {
+        Run run = new Run(r, new BufferedInputStream(Files.newInputStream(this.runs.get(r)),
+                readAhead));
+        if (run.advance()) {
+          queue.add(run);
+        }
+        else {
+          run.in.close();
+        }
+      }
+
+      int batch = Math.max(1, this.capacity / 2);
+      NoteBuffer notes = new NoteBuffer();
+      int held = 0;
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+        notes.add(run.start, run.end, run.instrument, run.pitch, run.volume);
+        if (++held == batch) {
+          notes.addTo(this.builder);
+          held = 0;
+        }
+        if (run.advance()) {
+          queue.add(run);
+        }
+        else {
+          run.in.close();
+        }
+      }
+      notes.addTo(this.builder);
+    } finally {
+      for (Run run : queue) {
+        run.in.close();
+      }
+    }
+  }
+
+  /**
+   * Writes a number in as few bytes as it needs: seven bits to a byte, lowest first, with the top
+   * bit of each byte set if another follows. Its sign is moved to the lowest bit first, so that
+   * small negative numbers are short too.
+   * @param out    represents where the number is written.
+   * @param number represents the number.
+   * @throws IOException if the number can't be written.
+   */
+  private static void writeNumber(OutputStream out, long number) throws IOException {
+    long bits = number << 1 ^ number >> 63;
+    while ((bits & ~0x7FL) != 0) {
+      out.write((int) (bits & 0x7F) | 0x80);
+      bits >>>= 7;
+    }
+    out.write((int) bits);
+  }
+
+  /**
+   * Reads a number written by {@code writeNumber()}.
+   * @param in    represents where the rest of the number is read from.
+   * @param first represents the first byte of the number, already read.
+   * @return the number.
+   * @throws EOFException if the number is cut off.
+   * @throws IOException if the number can't be read.
+   */
+  private static long readNumber(InputStream in, int first) throws IOException {
+    long bits = 0;
+    int b = first;
+    for (int shift = 0; ; shift += 7) {
+      if (b < 0) {
+        throw new EOFException("A run of notes ends partway through a note.");
+      }
+      bits |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return bits >>> 1 ^ -(bits & 1);
+      }
+      b = in.read();
+    }
+  }
+
+  /**
+   * A run being merged, holding the next note to be passed on from it.
+   */
+  private static final class Run implements Comparable<Run> {
+    /**
+     * Represents the order the run was written in, which breaks ties between notes starting
+     * together.
+     */
+    private final int index;
+
+    /**
+     * Represents the notes of the run still to be read.
+     */
+    private final InputStream in;
+
+    /**
+     * Represents the start time of the next note of the run, in beats.
+     */
+    private int start = 0;
+
+    /**
+     * Represents the end time of the next note of the run, in beats.
+     */
+    private int end;
+
+    /**
+     * Represents the instrument number of the next note of the run.
+     */
+    private int instrument;
+
+    /**
+     * Represents the pitch of the next note of the run.
+     */
+    private int pitch;
+
+    /**
+     * Represents the volume of the next note of the run.
+     */
+    private int volume;
+
+    /**
+     * Creates a run being merged.
+     * @param index represents the order the run was written in.
+     * @param in    represents the notes of the run.
+     */
+    Run(int index, InputStream in) {
+      this.index = index;
+      this.in = in;
+    }
+
+    /**
+     * Reads the next note of the run.
+     * @return whether there was another note.
+     * @throws IOException if the run can't be read.
+     */
+    boolean advance() throws IOException {
+      int first = this.in.read();
+      if (first < 0) {
+        return false;
+      }
+      this.start += (int) readNumber(this.in, first);
+      this.end = this.start + (int) readNumber(this.in, this.in.read());
+      this.instrument = (int) readNumber(this.in, this.in.read());
+      this.pitch = (int) readNumber(this.in, this.in.read());
+      this.volume = (int) readNumber(this.in, this.in.read());
+      return true;
+    }
+
+    @Override
+    public int compareTo(Run other) {
+      int byStart = Integer.compare(this.start, other.start);
+      return byStart != 0 ? byStart : Integer.compare(this.index, other.index);
+    }
+  }
+}
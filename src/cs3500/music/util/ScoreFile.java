@@ -0,0 +1,613 @@
+package cs3500.music.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cs3500.music.model.ASound;
+import cs3500.music.model.Chord;
+import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.Melody;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.Note;
+import cs3500.music.model.Pitch;
+import cs3500.music.model.Repeat;
+import cs3500.music.model.Rest;
+import javafx.util.Pair;
+
+/**
+ * Saves a piece to a binary file, and reads it back without tokenizing any text. The file is
+ * mapped into memory when it is opened, and only the parts that are asked for are ever read, so
+ * the notes sounding during a few beats of a huge piece are found in logarithmic time.
+ *
+ * <p>Every number is a big-endian int unless said otherwise. The file is laid out as:</p>
+ * <ul>
+ *   <li>a header of {@code HEADER_SIZE} bytes: the magic number, the version, the tempo, the
+ *   beats per measure, the volume, the length of the piece in beats, the number of melodies,
+ *   events and records, the number of beats in each bucket of the index, the number of buckets,
+ *   and the offset of each of the sections below;</li>
+ *   <li>a table of melodies, each its instrument, its dynamic, the index of its first record and
+ *   its number of records;</li>
+ *   <li>a table of events, each a Repeat given as its start, the beat it skips back to or
+ *   {@code NO_SKIP}, its number of ends and the ends themselves;</li>
+ *   <li>the records of every sound, grouped by melody and in the order they play, each
+ *   {@code RECORD_SIZE} bytes: the beat it starts at, its duration, and its pitch and volume as
+ *   shorts. A rest has a pitch of {@code REST}, and the notes of a chord share a start;</li>
+ *   <li>the beat index: for every bucket of {@code bucketBeats} beats and every melody, the
+ *   position within the melody of its first record still sounding at the start of the
+ *   bucket.</li>
+ * </ul>
+ */
+public final class ScoreFile {
+  /**
+   * Represents the number at the start of every score file.
+   */
+  private static final int MAGIC = 0x4D534346;
+
+  /**
+   * Represents the version of the format written by this class.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * Represents the size of the header, in bytes.
+   */
+  private static final int HEADER_SIZE = 64;
+
+  /**
+   * Represents the size of an entry of the table of melodies, in bytes.
+   */
+  private static final int MELODY_SIZE = 16;
+
+  /**
+   * Represents the size of a record, in bytes.
+   */
+  private static final int RECORD_SIZE = 12;
+
+  /**
+   * Represents the pitch of a rest.
+   */
+  private static final short REST = -1;
+
+  /**
+   * Represents the skip point of a Repeat without one.
+   */
+  private static final int NO_SKIP = Integer.MIN_VALUE;
+
+  /**
+   * Represents the number of beats in each bucket of the index.
+   */
+  private static final int BUCKET_BEATS = 64;
+
+  /**
+   * Represents the whole file.
+   */
+  private final ByteBuffer bytes;
+
+  /**
+   * Represents the number of melodies.
+   */
+  private final int melodyCount;
+
+  /**
+   * Represents the number of beats in each bucket of the index.
+   */
+  private final int bucketBeats;
+
+  /**
+   * Represents the number of buckets in the index.
+   */
+  private final int bucketCount;
+
+  /**
+   * Represents the offset of the table of melodies.
+   */
+  private final int melodiesAt;
+
+  /**
+   * Represents the offset of the table of events.
+   */
+  private final int eventsAt;
+
+  /**
+   * Represents the offset of the records.
+   */
+  private final int recordsAt;
+
+  /**
+   * Represents the offset of the beat index.
+   */
+  private final int indexAt;
+
+  /**
+   * Reads the header of a score file.
+   * @param bytes represents the whole file.
+   * @throws IllegalArgumentException if the bytes are not a score file this can read.
+   */
+  private ScoreFile(ByteBuffer bytes) {
+    if (bytes.capacity() < HEADER_SIZE || bytes.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("This is not a score file.");
+    }
+    if (bytes.getInt(4) > VERSION) {
+      throw new IllegalArgumentException("Score files of version " + bytes.getInt(4)
+              + " can't be read; the latest version is " + VERSION + ".");
+    }
+    this.bytes = bytes;
+    this.melodyCount = bytes.getInt(24);
+    this.bucketBeats = bytes.getInt(36);
+    this.bucketCount = bytes.getInt(40);
+    this.melodiesAt = bytes.getInt(44);
+    this.eventsAt = bytes.getInt(48);
+    this.recordsAt = bytes.getInt(52);
+    this.indexAt = bytes.getInt(56);
+    if (this.indexAt + 4L * this.bucketCount * this.melodyCount > bytes.capacity()) {
+      throw new IllegalArgumentException("This score file has been cut short.");
+    }
+  }
+
+  /**
+   * Opens a score file, mapping it into memory. Only the header is read.
+   * @param file represents the file.
+   * @return the opened score file.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is not a score file this can read.
+   */
+  public static ScoreFile open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Score files can't be larger than 2 GB.");
+      }
+      return new ScoreFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Determines whether the given file starts like a score file.
+   * @param file represents the file.
+   * @return whether the file is a score file.
+   * @throws IOException if the file can't be read.
+   */
+  public static boolean isScoreFile(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer start = ByteBuffer.allocate(4);
+      int read = 0;
+      while (start.hasRemaining() && read != -1) {
+        read = channel.read(start);
+      }
+      return !start.hasRemaining() && start.getInt(0) == MAGIC;
+    }
+  }
+
+  /**
+   * Reads a score file and gives its tempo and notes to the given builder, the notes all at once
+   * through {@code addNotes()}.
+   * @param file    represents the file.
+   * @param builder represents the builder of the composition.
+   * @param <T>     represents the type of composition.
+   * @return the composition built.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is not a score file this can read.
+   */
+  public static <T> T read(Path file, CompositionBuilder<T> builder) throws IOException {
+    return open(file).addTo(builder);
+  }
+
+  /**
+   * Reads a score file back into a model with the same melodies, settings and events as the
+   * model that was saved.
+   * @param file represents the file.
+   * @return the model.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is not a score file this can read.
+   */
+  public static MusicModel load(Path file) throws IOException {
+    return open(file).toModel();
+  }
+
+  /**
+   * Saves a model to a score file, replacing anything already in it.
+   * @param model represents the model.
+   * @param file  represents the file.
+   * @throws IOException if the file can't be written.
+   * @throws IllegalArgumentException if the model has an event that is not a Repeat.
+   */
+  public static void write(IMusicModel model, Path file) throws IOException {
+    List<Melody> melodies = model.getMelodies();
+    List<IFlag> events = model.getEvents();
+    int length = melodies.isEmpty() ? 0 : model.lengthOfSongInBeats();
+    int bucketCount = Math.max(1, (length + BUCKET_BEATS - 1) / BUCKET_BEATS);
+
+    List<List<ASound>> sounds = new ArrayList<>();
+    int[] firstRecords = new int[melodies.size()];
+    int[][] index = new int[melodies.size()][];
+    int recordCount = 0;
+    for (int m = 0; m < melodies.size(); m++) {
+      List<ASound> melodySounds = melodies.get(m).getMelodySounds();
+      sounds.add(melodySounds);
+      firstRecords[m] = recordCount;
+      index[m] = bucketStarts(melodySounds, bucketCount);
+      recordCount += recordsIn(melodySounds);
+    }
+    int[][] ends = new int[events.size()][];
+    int eventBytes = 0;
+    for (int e = 0; e < events.size(); e++) {
+      ends[e] = endsOf(events.get(e));
+      eventBytes += 12 + 4 * ends[e].length;
+    }
+
+    int melodiesAt = HEADER_SIZE;
+    int eventsAt = melodiesAt + MELODY_SIZE * melodies.size();
+    int recordsAt = eventsAt + eventBytes;
+    long indexAt = recordsAt + (long) RECORD_SIZE * recordCount;
+    if (indexAt + 4L * bucketCount * melodies.size() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("This piece is too large for a score file.");
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt((int) model.microsecondsPerBeat());
+      out.writeInt(model.beatsPerMeasure());
+      out.writeInt(model.getVolume());
+      out.writeInt(length);
+      out.writeInt(melodies.size());
+      out.writeInt(events.size());
+      out.writeInt(recordCount);
+      out.writeInt(BUCKET_BEATS);
+      out.writeInt(bucketCount);
+      out.writeInt(melodiesAt);
+      out.writeInt(eventsAt);
+      out.writeInt(recordsAt);
+      out.writeInt((int) indexAt);
+      out.writeInt(0);
+
+      for (int m = 0; m < melodies.size(); m++) {
+        out.writeInt(melodies.get(m).getInstrument());
+        out.writeInt(melodies.get(m).getDynamic());
+        out.writeInt(firstRecords[m]);
+        out.writeInt((m + 1 < melodies.size() ? firstRecords[m + 1] : recordCount)
+                - firstRecords[m]);
+      }
+
+      for (int e = 0; e < events.size(); e++) {
+        Integer skip = events.get(e).getSkipPoint();
+        out.writeInt(events.get(e).getOriginalStartBeat());
+        out.writeInt(skip == null ? NO_SKIP : skip);
+        out.writeInt(ends[e].length);
+        for (int end : ends[e]) {
+          out.writeInt(end);
+        }
+      }
+
+      for (List<ASound> melodySounds : sounds) {
+        int beat = 0;
+        for (ASound s : melodySounds) {
+          if (s.isRest()) {
+            writeRecord(out, beat, s.getDuration(), REST, 0);
+          }
+          else {
+            for (Note n : s.getNotesIn()) {
+              writeRecord(out, beat, s.getDuration(), n.noteValue(), n.getVolume());
+            }
+          }
+          beat += s.getDuration();
+        }
+      }
+
+      for (int b = 0; b < bucketCount; b++) {
+        for (int[] melodyIndex : index) {
+          out.writeInt(melodyIndex[b]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes one record.
+   * @param out      represents the file being written.
+   * @param start    represents the beat the sound starts at.
+   * @param duration represents the duration of the sound.
+   * @param pitch    represents the pitch of the note, or {@code REST}.
+   * @param volume   represents the volume of the note.
+   * @throws IOException if the file can't be written.
+   */
+  private static void writeRecord(DataOutputStream out, int start, int duration, int pitch,
+                                  int volume) throws IOException {
+    out.writeInt(start);
+    out.writeInt(duration);
+    out.writeShort(pitch);
+    out.writeShort(volume);
+  }
+
+  /**
+   * Gives the number of records the given sounds are written as: one for each note, and one for
+   * each rest.
+   * @param sounds represents the sounds of a melody.
+   * @return the number of records.
+   */
+  private static int recordsIn(List<ASound> sounds) {
+    int records = 0;
+    for (ASound s : sounds) {
+      records += s.isRest() ? 1 : s.getNotesIn().size();
+    }
+    return records;
+  }
+
+  /**
+   * Gives, for every bucket of the index, the position of the first record of the given sounds
+   * still sounding at the start of the bucket, or the number of records if none is.
+   * @param sounds      represents the sounds of a melody.
+   * @param bucketCount represents the number of buckets.
+   * @return the position for every bucket.
+   */
+  private static int[] bucketStarts(List<ASound> sounds, int bucketCount) {
+    int[] starts = new int[bucketCount];
+    int bucket = 0;
+    int record = 0;
+    int beat = 0;
+    for (ASound s : sounds) {
+      beat += s.getDuration();
+      while (bucket < bucketCount && beat > bucket * BUCKET_BEATS) {
+        starts[bucket++] = record;
+      }
+      record += s.isRest() ? 1 : s.getNotesIn().size();
+    }
+    while (bucket < bucketCount) {
+      starts[bucket++] = record;
+    }
+    return starts;
+  }
+
+  /**
+   * Gives the ends of a Repeat, as they would be given to its constructor.
+   * @param event represents the event.
+   * @return the ends of the Repeat.
+   * @throws IllegalArgumentException if the event is not a Repeat.
+   */
+  private static int[] endsOf(IFlag event) {
+    if (!(event instanceof Repeat)) {
+      throw new IllegalArgumentException("Only repeats can be saved to a score file.");
+    }
+    if (event.getSkipPoint() == null) {
+      return new int[]{event.getOriginalEndBeat()};
+    }
+    // Each end is where the repetition after it starts from.
+    List<Integer> ends = new ArrayList<>();
+    for (int k = 0; event.getStartBeatAt(2 * k + 1) != null; k++) {
+      ends.add(event.getStartBeatAt(2 * k + 1));
+    }
+    int[] array = new int[ends.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = ends.get(i);
+    }
+    return array;
+  }
+
+  /**
+   * Gives the tempo of the piece.
+   * @return the tempo, in microseconds per beat.
+   */
+  public int getTempo() {
+    return this.bytes.getInt(8);
+  }
+
+  /**
+   * Gives the number of beats in a standard measure of the piece.
+   * @return the beats per measure.
+   */
+  public int beatsPerMeasure() {
+    return this.bytes.getInt(12);
+  }
+
+  /**
+   * Gives the volume of the piece.
+   * @return the volume, from 0 to 100.
+   */
+  public int getVolume() {
+    return this.bytes.getInt(16);
+  }
+
+  /**
+   * Gives the length of the piece.
+   * @return the number of beats in the piece.
+   */
+  public int lengthOfSongInBeats() {
+    return this.bytes.getInt(20);
+  }
+
+  /**
+   * Gives the number of melodies of the piece.
+   * @return the number of melodies.
+   */
+  public int getMelodyCount() {
+    return this.melodyCount;
+  }
+
+  /**
+   * Gives the events of the piece, as new Repeats.
+   * @return the events.
+   */
+  public List<IFlag> getEvents() {
+    List<IFlag> events = new ArrayList<>();
+    int at = this.eventsAt;
+    for (int e = this.bytes.getInt(28); e > 0; e--) {
+      int start = this.bytes.getInt(at);
+      int skip = this.bytes.getInt(at + 4);
+      int[] ends = new int[this.bytes.getInt(at + 8)];
+      for (int i = 0; i < ends.length; i++) {
+        ends[i] = this.bytes.getInt(at + 12 + 4 * i);
+      }
+      at += 12 + 4 * ends.length;
+      events.add(skip == NO_SKIP ? new Repeat(start, ends[0]) : new Repeat(start, skip, ends));
+    }
+    return events;
+  }
+
+  /**
+   * Gives every Note that sounds during the given range of beats, whether it starts within the
+   * range or started earlier and is still being held, keyed to the beat it starts at and paired to
+   * the melody it exists in, as {@code IMusicModel.getNotesBetween()} does. Only the records of
+   * the range are read.
+   * @param fromBeat represents the first beat of the range.
+   * @param toBeat   represents the beat after the last beat of the range.
+   * @return Map keyed with the start beat of each note tied to a List of Pairs of the melody index
+   *         to the Note.
+   */
+  public Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat) {
+    Map<Integer, List<Pair<Integer, Note>>> notes = new TreeMap<>();
+    if (fromBeat >= toBeat) {
+      return notes;
+    }
+    int bucket = Math.min(Math.max(fromBeat, 0) / this.bucketBeats, this.bucketCount - 1);
+    for (int m = 0; m < this.melodyCount; m++) {
+      int first = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 8);
+      int count = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 12);
+      int lo = this.indexEntry(bucket, m);
+      int hi = bucket + 1 < this.bucketCount ? this.indexEntry(bucket + 1, m) + 1 : count;
+      int record = this.firstEndingAfter(first, Math.min(lo, count), Math.min(hi, count),
+              fromBeat);
+      int instrument = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m);
+      for (; record < count; record++) {
+        int at = this.recordsAt + RECORD_SIZE * (first + record);
+        int start = this.bytes.getInt(at);
+        if (start >= toBeat) {
+          break;
+        }
+        if (this.bytes.getShort(at + 8) != REST) {
+          notes.putIfAbsent(start, new ArrayList<Pair<Integer, Note>>());
+          notes.get(start).add(new Pair<>(m, this.noteAt(at, instrument)));
+        }
+      }
+    }
+    return notes;
+  }
+
+  /**
+   * Gives the entry of the index for the given bucket and melody.
+   * @param bucket represents the bucket.
+   * @param melody represents the index of the melody.
+   * @return the position within the melody of its first record sounding at the bucket's start.
+   */
+  private int indexEntry(int bucket, int melody) {
+    return this.bytes.getInt(this.indexAt + 4 * (bucket * this.melodyCount + melody));
+  }
+
+  /**
+   * Finds the first record of a melody, among the given positions, that ends after the given
+   * beat. The records of a melody end in order, so this is a binary search.
+   * @param first represents the index of the first record of the melody.
+   * @param lo    represents the first position searched.
+   * @param hi    represents the position after the last position searched.
+   * @param beat  represents the beat.
+   * @return the position of the record, or {@code hi} if none of them ends after the beat.
+   */
+  private int firstEndingAfter(int first, int lo, int hi, int beat) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int at = this.recordsAt + RECORD_SIZE * (first + mid);
+      if (this.bytes.getInt(at) + this.bytes.getInt(at + 4) > beat) {
+        hi = mid;
+      }
+      else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Makes a Note of the record at the given offset.
+   * @param at         represents the offset of the record.
+   * @param instrument represents the instrument of the melody holding the record.
+   * @return a new Note with the recorded values.
+   */
+  private Note noteAt(int at, int instrument) {
+    int pitch = this.bytes.getShort(at + 8);
+    return new Note(Pitch.getPitchAtVal(pitch % 12), pitch / 12, this.bytes.getShort(at + 10),
+            this.bytes.getInt(at + 4), instrument);
+  }
+
+  /**
+   * Gives the tempo and every note of this file to the given builder, the notes all at once
+   * through {@code addNotes()}.
+   * @param builder represents the builder of the composition.
+   * @param <T>     represents the type of composition.
+   * @return the composition built.
+   */
+  public <T> T addTo(CompositionBuilder<T> builder) {
+    builder.setTempo(this.getTempo());
+    NoteBuffer notes = new NoteBuffer();
+    for (int m = 0; m < this.melodyCount; m++) {
+      int instrument = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m);
+      int first = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 8);
+      int count = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 12);
+      for (int record = first; record < first + count; record++) {
+        int at = this.recordsAt + RECORD_SIZE * record;
+        int pitch = this.bytes.getShort(at + 8);
+        if (pitch != REST) {
+          int start = this.bytes.getInt(at);
+          notes.add(start, start + this.bytes.getInt(at + 4), instrument, pitch,
+                  this.bytes.getShort(at + 10));
+        }
+      }
+    }
+    notes.addTo(builder);
+    return builder.build();
+  }
+
+  /**
+   * Makes a model with the melodies, settings and events of this file.
+   * @return the model.
+   */
+  public MusicModel toModel() {
+    Melody[] melodies = new Melody[this.melodyCount];
+    for (int m = 0; m < this.melodyCount; m++) {
+      int instrument = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m);
+      int first = this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 8);
+      int end = first + this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 12);
+      List<ASound> sounds = new ArrayList<>();
+      int reached = 0;
+      for (int record = first; record < end; ) {
+        int at = this.recordsAt + RECORD_SIZE * record;
+        int start = this.bytes.getInt(at);
+        int duration = this.bytes.getInt(at + 4);
+        if (start > reached) {
+          sounds.add(new Rest(start - reached));
+        }
+        if (this.bytes.getShort(at + 8) == REST) {
+          sounds.add(new Rest(duration));
+          record++;
+        }
+        else {
+          List<Note> chord = new ArrayList<>();
+          for (; record < end && this.bytes.getInt(this.recordsAt + RECORD_SIZE * record) == start;
+               record++) {
+            chord.add(this.noteAt(this.recordsAt + RECORD_SIZE * record, instrument));
+          }
+          sounds.add(chord.size() == 1 ? chord.get(0)
+                  : new Chord(duration, chord.toArray(new Note[chord.size()])));
+        }
+        reached = start + duration;
+      }
+      melodies[m] = new Melody(this.bytes.getInt(this.melodiesAt + MELODY_SIZE * m + 4),
+              instrument, sounds);
+    }
+    MusicModel model = new MusicModel(this.beatsPerMeasure(), this.getVolume(), melodies);
+    model.setTempo(this.getTempo());
+    for (IFlag event : this.getEvents()) {
+      model.addEvent(event);
+    }
+    return model;
+  }
+}
@@ -0,0 +1,243 @@
+package cs3500.music.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import cs3500.music.model.Note;
+import javafx.util.Pair;
+
+/**
+ * Reads the notes of a score file a region of beats at a time, for views that only show part of
+ * a long piece. Opening a window reads only the header of the file; the notes of a region are
+ * read the first time a view looks at it, along with a margin of regions on either side, and
+ * only a limited number of regions are kept, the ones looked at longest ago being dropped first.
+ * So the time taken to show the first beats, and the memory held, depend on the size of the
+ * window and not on the size of the piece.
+ */
+public final class ScoreWindow {
+  /**
+   * Represents the number of beats in a region, unless given otherwise.
+   */
+  public static final int REGION_BEATS = 256;
+
+  /**
+   * Represents the number of regions read on either side of the beats shown, unless given
+   * otherwise.
+   */
+  public static final int PREFETCH_REGIONS = 1;
+
+  /**
+   * Represents the number of regions kept, unless given otherwise.
+   */
+  public static final int MAX_REGIONS = 16;
+
+  /**
+   * Represents the score file read.
+   */
+  private final ScoreFile score;
+
+  /**
+   * Represents the number of beats in a region.
+   */
+  private final int regionBeats;
+
+  /**
+   * Represents the number of regions read on either side of the beats shown.
+   */
+  private final int prefetchRegions;
+
+  /**
+   * Maps each region kept to the notes starting in it, keyed to the beat they start at and
+   * paired to the melody they exist in, in the order the regions were last looked at.
+   */
+  private final Map<Integer, NavigableMap<Integer, List<Pair<Integer, Note>>>> regions;
+
+  /**
+   * Represents the number of times a region has been read from the file.
+   */
+  private int reads = 0;
+
+  /**
+   * Represents the first beat of the regions read for the beats last shown, margin included.
+   */
+  private int shownFrom = 0;
+
+  /**
+   * Represents the beat after the regions read for the beats last shown, margin included.
+   */
+  private int shownTo = 0;
+
+  /**
+   * Creates a window onto a score file.
+   * @param score           represents the score file.
+   * @param regionBeats     represents the number of beats in a region.
+   * @param prefetchRegions represents the number of regions read on either side of the beats
+   *                        shown.
+   * @param maxRegions      represents the number of regions kept.
+   * @throws IllegalArgumentException if a region has no beats, the margin is negative, or no
+   *                                  regions can be kept.
+   */
+  public ScoreWindow(ScoreFile score, int regionBeats, int prefetchRegions, final int maxRegions) {
+    if (regionBeats < 1 || prefetchRegions < 0 || maxRegions < 1) {
+      throw new IllegalArgumentException("A window needs regions of at least one beat, a margin "
+              + "of no fewer than zero regions, and room for at least one region.");
+    }
+    this.score = score;
+    this.regionBeats = regionBeats;
+    this.prefetchRegions = prefetchRegions;
+    this.regions = new LinkedHashMap<Integer, NavigableMap<Integer, List<Pair<Integer, Note>>>>(
+            16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+              Map.Entry<Integer, NavigableMap<Integer, List<Pair<Integer, Note>>>> eldest) {
+        return this.size() > maxRegions;
+      }
+    };
+  }
+
+  /**
+   * Opens a window onto the given score file, with regions of {@code REGION_BEATS} beats.
+   * @param file represents the file.
+   * @return the window.
+   * @throws IOException if the file can't be read.
+   * @throws IllegalArgumentException if the file is not a score file this can read.
+   */
+  public static ScoreWindow open(Path file) throws IOException {
+    return new ScoreWindow(ScoreFile.open(file), REGION_BEATS, PREFETCH_REGIONS, MAX_REGIONS);
+  }
+
+  /**
+   * Gives the score file this is a window onto, for its tempo, length and events.
+   * @return the score file.
+   */
+  public ScoreFile getScore() {
+    return this.score;
+  }
+
+  /**
+   * Gives the number of beats in a region.
+   * @return the number of beats.
+   */
+  public int getRegionBeats() {
+    return this.regionBeats;
+  }
+
+  /**
+   * Reads the regions covering the given beats, and the margin of regions around them, if they
+   * are not already kept. Called as the beats shown or played move.
+   * @param fromBeat represents the first beat shown.
+   * @param toBeat   represents the beat after the last beat shown.
+   */
+  public synchronized void showBeats(int fromBeat, int toBeat) {
+    int last = Math.max(this.regionOf(toBeat - 1), this.regionOf(fromBeat));
+    int lastRegion = this.regionOf(Math.max(this.score.lengthOfSongInBeats() - 1, 0));
+    int first = Math.min(Math.max(this.regionOf(fromBeat) - this.prefetchRegions, 0), lastRegion);
+    last = Math.min(last + this.prefetchRegions, lastRegion);
+    for (int r = first; r <= last; r++) {
+      this.region(r);
+    }
+    this.shownFrom = first * this.regionBeats;
+    this.shownTo = (int) Math.min((last + 1L) * this.regionBeats, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gives the range of beats covered by the regions read for the beats last shown, margin
+   * included, so that a view can be handed the notes of all of them at once.
+   * @return the first beat of the range and the beat after its last, both 0 if no beats have
+   *         been shown.
+   */
+  public synchronized int[] getShownBeats() {
+    return new int[]{this.shownFrom, this.shownTo};
+  }
+
+  /**
+   * Gives every Note that sounds during the given range of beats, whether it starts within the
+   * range or started earlier and is still being held, keyed to the beat it starts at and paired to
+   * the melody it exists in, as {@code IMusicModel.getNotesBetween()} does. The regions covering
+   * the range are read if they are not already kept.
+   * @param fromBeat represents the first beat of the range.
+   * @param toBeat   represents the beat after the last beat of the range.
+   * @return Map keyed with the start beat of each note tied to a List of Pairs of the melody index
+   *         to the Note.
+   */
+  public synchronized Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat,
+                                                                              int toBeat) {
+    Map<Integer, List<Pair<Integer, Note>>> notes = new TreeMap<>();
+    if (fromBeat >= toBeat) {
+      return notes;
+    }
+    // Notes held into the range from before it are found through the index of the file.
+    for (Map.Entry<Integer, List<Pair<Integer, Note>>> held
+            : this.score.getNotesBetween(fromBeat, fromBeat + 1).entrySet()) {
+      if (held.getKey() < fromBeat) {
+        notes.put(held.getKey(), held.getValue());
+      }
+    }
+    int from = Math.max(fromBeat, 0);
+    int lastBeat = Math.min(toBeat, this.score.lengthOfSongInBeats()) - 1;
+    for (int r = this.regionOf(from); r <= this.regionOf(lastBeat) && from <= lastBeat; r++) {
+      for (Map.Entry<Integer, List<Pair<Integer, Note>>> starting
+              : this.region(r).subMap(from, true, lastBeat, true).entrySet()) {
+        notes.put(starting.getKey(), new ArrayList<>(starting.getValue()));
+      }
+    }
+    return notes;
+  }
+
+  /**
+   * Gives the number of regions kept.
+   * @return the number of regions.
+   */
+  public synchronized int residentRegions() {
+    return this.regions.size();
+  }
+
+  /**
+   * Determines whether the region holding the given beat is kept.
+   * @param beat represents the beat.
+   * @return whether the region is kept.
+   */
+  public synchronized boolean isResident(int beat) {
+    return this.regions.containsKey(this.regionOf(beat));
+  }
+
+  /**
+   * Gives the number of times a region has been read from the file.
+   * @return the number of reads.
+   */
+  public synchronized int regionReads() {
+    return this.reads;
+  }
+
+  /**
+   * Gives the region holding the given beat.
+   * @param beat represents the beat.
+   * @return the index of the region.
+   */
+  private int regionOf(int beat) {
+    return Math.max(beat, 0) / this.regionBeats;
+  }
+
+  /**
+   * Gives the notes starting in the given region, reading them if the region is not kept.
+   * @param region represents the index of the region.
+   * @return the notes starting in the region.
+   */
+  private NavigableMap<Integer, List<Pair<Integer, Note>>> region(int region) {
+    NavigableMap<Integer, List<Pair<Integer, Note>>> notes = this.regions.get(region);
+    if (notes == null) {
+      int first = region * this.regionBeats;
+      notes = new TreeMap<>(new TreeMap<>(this.score.getNotesBetween(first,
+              first + this.regionBeats)).tailMap(first, true));
+      this.regions.put(region, notes);
+      this.reads++;
+    }
+    return notes;
+  }
+}
@@ -15,6 +15,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JScrollBar;
 
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
 
 /**
  * A skeleton Frame (i.e., a window) in Swing.
@@ -118,6 +119,15 @@ public class GuiViewFrame extends javax.swing.JFrame implements IMusicView, IGui
     return this.displayPanel.getBeat();
   }
 
+  @Override
+  public int[] getVisibleBeats() {
+    int left = this.scrollPane.getHorizontalScrollBar().getValue();
+    int width = this.scrollPane.getViewport().getWidth();
+    // A beat is shown from the column after the column of pitch names.
+    return new int[]{Math.max(left / NoteDisplayPanel.NOTE_WIDTH - 1, 0),
+        (left + width) / NoteDisplayPanel.NOTE_WIDTH};
+  }
+
   @Override
   public void setCurrentBeat(int beat) {
     this.displayPanel.setBeat(beat);
@@ -195,6 +205,11 @@ public class GuiViewFrame extends javax.swing.JFrame implements IMusicView, IGui
     this.displayPanel.drawNote(start, pitch, duration, melodyOrInstrument);
   }
 
+  @Override
+  public void showPiece(IMusicModel piece) {
+    // The notes are handed to the GUI one at a time.
+  }
+
   @Override
   public void showWarning(String warning) {
     JOptionPane.showMessageDialog(this, warning, "Error", JOptionPane.ERROR_MESSAGE);
@@ -8,6 +8,7 @@ import java.util.List;
 import javax.sound.midi.InvalidMidiDataException;
 
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
 
 /**
  * Represents the interface of a music view.
@@ -56,6 +57,13 @@ public interface IMusicView {
    */
   int getCurrentBeat();
 
+  /**
+   * Gives the range of beats the view shows now, so that a piece read a part at a time can read
+   * the part shown.
+   * @return the first beat shown and the beat after the last beat shown.
+   */
+  int[] getVisibleBeats();
+
   /**
    * Sets the view's beat to an integer.
    * @param beat represents the beat to set the view to.
@@ -91,6 +99,14 @@ public interface IMusicView {
    */
   void handNotes(int start, int duration, int pitch, int melodyOrInstrument);
 
+  /**
+   * Hands the view the whole piece, for views that read only the part they show straight from it
+   * rather than being handed every note. The piece may be the live model, so it is read at once
+   * and not kept.
+   * @param piece represents the piece.
+   */
+  void showPiece(IMusicModel piece);
+
   /**
    * Show error message with given String.
    * @param warning warning message.
@@ -21,6 +21,7 @@ import javax.sound.midi.Instrument;
 import javax.sound.midi.Track;
 
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
 
 /**
  * A skeleton for MIDI playback.
@@ -192,6 +193,11 @@ public class MidiViewImpl implements IMusicView {
     // Not necessary for MIDI.
   }
 
+  @Override
+  public void showPiece(IMusicModel piece) {
+    // Not necessary for MIDI.
+  }
+
   @Override
   public void showWarning(String warning) {
     //No warning displays by sound.
@@ -227,6 +233,13 @@ public class MidiViewImpl implements IMusicView {
     // state is currently not changing
   }
 
+  @Override
+  public int[] getVisibleBeats() {
+    // Only the beat playing is heard.
+    int beat = this.getCurrentBeat();
+    return new int[]{beat, beat + 1};
+  }
+
   @Override
   public int getCurrentBeat() {
     int beat = (int)(sequencer.getMicrosecondPosition()
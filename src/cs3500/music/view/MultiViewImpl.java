@@ -10,6 +10,7 @@ import java.util.TimerTask;
 import javax.sound.midi.InvalidMidiDataException;
 
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
 
 /**
  * A combination view of GUI and MIDI simultaneously.
@@ -88,6 +89,11 @@ public class MultiViewImpl implements IMusicView {
     return this.gui.getCurrentBeat();
   }
 
+  @Override
+  public int[] getVisibleBeats() {
+    return this.gui.getVisibleBeats();
+  }
+
   @Override
   public void setCurrentBeat(int beat) {
     this.gui.setCurrentBeat(beat);
@@ -145,6 +151,11 @@ public class MultiViewImpl implements IMusicView {
     this.gui.handNotes(start, duration, pitch, melodyOrInstrument);
   }
 
+  @Override
+  public void showPiece(IMusicModel piece) {
+    // The notes are handed to the GUI and MIDI views one at a time.
+  }
+
   @Override
   public void showWarning(String warning) {
     this.gui.showWarning(warning);
@@ -8,9 +8,16 @@ import java.util.List;
 import javax.sound.midi.InvalidMidiDataException;
 
 import cs3500.music.model.IFlag;
+import cs3500.music.model.IMusicModel;
 
 /**
  * Represents a textual view for a MusicEditor.
+ * CHANGELOG: Now shows the grid of the piece it is handed through showPiece(), either whole or
+ *              over a range of beats, reading only the notes sounding during the range.
+ *            A whole long piece is written on every core, in blocks of rows.
+ *            A whole piece is now given by its getGameState(), so a piece that keeps the rows of
+ *              its grid only writes the rows changed since it was last shown.
+ *            Added getVisibleBeats(), which gives the range of beats it shows.
  */
 public class TextView implements IMusicView {
   /**
@@ -18,8 +25,32 @@ public class TextView implements IMusicView {
    */
   private StringBuilder info;
 
+  /**
+   * Represents the first beat shown.
+   */
+  private final int fromBeat;
+
+  /**
+   * Represents the beat after the last beat shown.
+   */
+  private final int toBeat;
+
+  /**
+   * Creates a text view showing the whole piece.
+   */
   public TextView() {
+    this(0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a text view showing only the given range of beats of the piece.
+   * @param fromBeat represents the first beat shown.
+   * @param toBeat   represents the beat after the last beat shown.
+   */
+  public TextView(int fromBeat, int toBeat) {
     this.info = new StringBuilder();
+    this.fromBeat = fromBeat;
+    this.toBeat = toBeat;
   }
 
   @Override
@@ -53,6 +84,11 @@ public class TextView implements IMusicView {
     return 0;
   }
 
+  @Override
+  public int[] getVisibleBeats() {
+    return new int[]{this.fromBeat, this.toBeat};
+  }
+
   @Override
   public void setCurrentBeat(int beat) {
     // No current beat to set.
@@ -104,6 +140,16 @@ public class TextView implements IMusicView {
     // No handing note information to console.
   }
 
+  @Override
+  public void showPiece(IMusicModel piece) {
+    if (this.fromBeat <= 0 && this.toBeat == Integer.MAX_VALUE) {
+      this.info = new StringBuilder(piece.getGameState());
+    }
+    else {
+      this.info = new StringBuilder(piece.getGameState(this.fromBeat, this.toBeat));
+    }
+  }
+
   @Override
   public void showWarning(String warning) {
     info.append("/n").append(warning);
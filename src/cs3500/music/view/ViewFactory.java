@@ -11,6 +11,8 @@ import cs3500.music.provider.view.MusicEditorMidiPlayer;
 /**
  * Contains a single static method that allows for creation of views.
  * CHANGELOG: added codes for the other views given to us.
+ *            The console code may be followed by a range of beats, as in "console:120-240", to
+ *            show only those beats.
  */
 public class ViewFactory {
 
@@ -34,6 +36,11 @@ public class ViewFactory {
    */
   public static final String MULTI_VIEW = "multi";
 
+  /**
+   * Represents what separates a view code from the range of beats it shows.
+   */
+  public static final String RANGE_SEPARATOR = ":";
+
   /**
    * Creates a view depending on given values.
    * @param args represents the arguments given.
@@ -41,6 +48,10 @@ public class ViewFactory {
    * @throws IllegalArgumentException if the String isn't recognized.
    */
   public static IMusicView createView(String args) {
+    if (args.startsWith(TEXT_VIEW + RANGE_SEPARATOR)) {
+      int[] range = beatRange(args);
+      return new TextView(range[0], range[1]);
+    }
     switch (args) {
       case GUI_VIEW :
         return new GuiViewFrame();
@@ -63,6 +74,10 @@ public class ViewFactory {
    * @return the appropriate view.
    */
   public static IView<ASound> createView(String args, IViewModel<ASound> model) {
+    if (args.startsWith(TEXT_VIEW + RANGE_SEPARATOR)) {
+      int[] range = beatRange(args);
+      return new ConsoleView(model, System.out, range[0], range[1]);
+    }
     switch (args) {
       case GUI_VIEW :
         return new MusicEditorGuiView(model);
@@ -76,4 +91,22 @@ public class ViewFactory {
         throw new IllegalArgumentException("Unrecognized String command for frame.");
     }
   }
+
+  /**
+   * Reads the range of beats following a view code, as in "console:120-240".
+   * @param args represents the view code and range.
+   * @return the first beat of the range and the beat after its last.
+   * @throws IllegalArgumentException if the range isn't two numbers separated by a dash.
+   */
+  private static int[] beatRange(String args) {
+    String[] beats = args.substring(args.indexOf(RANGE_SEPARATOR) + 1).split("-");
+    try {
+      if (beats.length == 2) {
+        return new int[]{Integer.parseInt(beats[0].trim()), Integer.parseInt(beats[1].trim())};
+      }
+    } catch (NumberFormatException e) {
+      // Reported below, as any other malformed range.
+    }
+    throw new IllegalArgumentException("Unrecognized range of beats: " + args);
+  }
 }
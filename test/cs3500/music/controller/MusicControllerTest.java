@@ -4,16 +4,86 @@ import org.junit.Test;
 
 import java.awt.Point;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.JPanel;
 
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.Note;
+import cs3500.music.util.MusicFollower;
+import cs3500.music.util.MusicReader;
+import cs3500.music.view.TextView;
+import javafx.util.Pair;
+
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
 
 /**
  * Tests methods in the MouseEvent class;
  */
 public class MusicControllerTest {
+  /**
+   * A piece that notes every range of beats whose notes are read through the index.
+   */
+  private static final class WatchedModel extends MusicModel {
+    /**
+     * Represents each range read, as its first beat and the beat after its last.
+     */
+    private final List<String> reads = new ArrayList<>();
+
+    WatchedModel() {
+      super(4, 100);
+    }
+
+    @Override
+    public Map<Integer, List<Pair<Integer, Note>>> getNotesBetween(int fromBeat, int toBeat) {
+      this.reads.add(fromBeat + "-" + toBeat);
+      return super.getNotesBetween(fromBeat, toBeat);
+    }
+  }
+
+  // tests that a note added to the piece redraws only the rows of its beats in the text view
+  @Test
+  public void testEditRedrawsChangedRows() throws IOException {
+    StringBuilder text = new StringBuilder("tempo 200000\n");
+    for (int beat = 0; beat < 64; beat += 4) {
+      text.append("note ").append(beat).append(" ").append(beat + 2).append(" 1 60 64\n");
+    }
+    text.append("note 0 1 1 72 64\n");
+    Path file = Files.createTempFile("edit", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+
+    MusicFollower follower = new MusicFollower(file);
+    WatchedModel model = new WatchedModel();
+    follower.read(model);
+    TextView view = new TextView();
+    MusicController controller = new MusicController(model, view);
+    controller.goController();
+    controller.follow(follower, Integer.MAX_VALUE);
+
+    model.reads.clear();
+    Files.write(file, "note 30 32 1 66 64\n".getBytes(StandardCharsets.US_ASCII),
+            StandardOpenOption.APPEND);
+    controller.actionPerformed(null);
+    // Only the length of the grid and the rows of the beats of the note added are read.
+    assertTrue(model.reads.contains("30-32"));
+    for (String read : model.reads) {
+      String[] beats = read.split("-");
+      assertTrue(Integer.parseInt(beats[1]) - Integer.parseInt(beats[0]) <= 2);
+    }
+    assertEquals(view.getCurrentState(), MusicReader.parseFile(file, new MusicModel.Builder())
+            .getGameState());
+  }
+
 
   /**
    * Tests that the mouseEvent methods work as expected.
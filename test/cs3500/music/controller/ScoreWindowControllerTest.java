@@ -0,0 +1,170 @@
+package cs3500.music.controller;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cs3500.music.model.MusicModel;
+import cs3500.music.util.ScoreFile;
+import cs3500.music.util.ScoreWindow;
+import cs3500.music.view.TextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the ScoreWindowController class.
+ */
+public class ScoreWindowControllerTest {
+  /**
+   * Represents the length of the piece paged through.
+   */
+  private static final int LENGTH = 20000;
+
+  /**
+   * A view that shows whatever beats it is told to, and notes the notes it is handed.
+   */
+  private static final class ScrolledView extends TextView {
+    /**
+     * Represents the first beat shown and the beat after the last.
+     */
+    private volatile int[] visible = {0, 40};
+
+    /**
+     * Represents the beat playing.
+     */
+    private volatile int playing = 0;
+
+    /**
+     * Represents the notes last handed to be shown, as start, duration, pitch and instrument.
+     */
+    private volatile List<Integer[]> shownNotes = new ArrayList<>();
+
+    /**
+     * Represents the length of the piece last handed.
+     */
+    private volatile int length = 0;
+
+    /**
+     * Represents the start of each note handed to be played.
+     */
+    private final List<Long> playedStarts = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public int[] getVisibleBeats() {
+      return this.visible;
+    }
+
+    @Override
+    public int getCurrentBeat() {
+      return this.playing;
+    }
+
+    @Override
+    public void changeDisplay(int lowestNote, int highestNote, int lengthOfSong,
+                              List<Integer[]> noteList) {
+      this.shownNotes = noteList;
+      this.length = lengthOfSong;
+    }
+
+    @Override
+    public void playNote(long startTime, long endTime, int instrument, int pitch, long tempo) {
+      this.playedStarts.add(startTime);
+    }
+  }
+
+  /**
+   * Saves a piece of {@code LENGTH} beats, with a note starting every four beats, to a score file
+   * that is deleted once the tests are done.
+   * @return the path of the score file.
+   * @throws IOException if the file can't be written.
+   */
+  private static Path longScore() throws IOException {
+    MusicModel piece = new MusicModel(4, 100);
+    for (int beat = 0; beat < LENGTH; beat += 4) {
+      piece.addNote(beat, beat + 2, 1, 60 + beat / 4 % 12, 64);
+    }
+    Path file = Files.createTempFile("long", ".bin");
+    file.toFile().deleteOnExit();
+    ScoreFile.write(piece, file);
+    return file;
+  }
+
+  /**
+   * Checks that every note handed to the view to be shown starts within the given beats.
+   * @param view represents the view.
+   * @param from represents the first beat.
+   * @param to   represents the beat after the last.
+   */
+  private static void assertShownWithin(ScrolledView view, int from, int to) {
+    for (Integer[] note : view.shownNotes) {
+      assertTrue(note[0] >= from && note[0] < to);
+    }
+  }
+
+  // tests that only the regions around the beats shown are read, and old ones are dropped
+  @Test
+  public void testPageOnScroll() throws IOException {
+    ScoreWindow window = new ScoreWindow(ScoreFile.open(longScore()), 64, 1, 4);
+    ScrolledView view = new ScrolledView();
+    ScoreWindowController controller = new ScoreWindowController(window, view);
+    controller.goController();
+    // The beats shown and the region after them; the region playing is the first of those.
+    assertEquals(window.getShownBeats()[0], 0);
+    assertEquals(window.getShownBeats()[1], 128);
+    assertEquals(window.regionReads(), 2);
+    assertEquals(view.shownNotes.size(), 32);
+    assertShownWithin(view, 0, 128);
+    assertEquals(view.length, LENGTH - 2);
+
+    view.visible = new int[]{10000, 10040};
+    controller.actionPerformed(null);
+    assertTrue(window.isResident(10000));
+    assertFalse(window.isResident(0));
+    assertTrue(window.residentRegions() <= 4);
+    assertEquals(view.shownNotes.size(), 48);
+    assertShownWithin(view, 9920, 10112);
+    assertEquals(view.length, LENGTH - 2);
+
+    // Nothing is read again while the beats shown stay in the same regions.
+    int reads = window.regionReads();
+    view.visible = new int[]{10010, 10040};
+    controller.actionPerformed(null);
+    assertEquals(window.regionReads(), reads);
+  }
+
+  // tests that the notes of a region are handed over to be played once, as the playing nears it
+  @Test
+  public void testPageOnPlay() throws IOException {
+    ScoreWindow window = new ScoreWindow(ScoreFile.open(longScore()), 64, 1, 4);
+    ScrolledView view = new ScrolledView();
+    ScoreWindowController controller = new ScoreWindowController(window, view);
+    controller.goController();
+    assertEquals(view.playedStarts.size(), 32);
+
+    view.playing = 100;
+    controller.actionPerformed(null);
+    assertEquals(view.playedStarts.size(), 48);
+    for (long start : view.playedStarts) {
+      assertTrue(start < 192);
+    }
+
+    // The beats shown are left behind, and the regions played are read without them.
+    view.playing = 5000;
+    controller.actionPerformed(null);
+    assertEquals(view.playedStarts.size(), 80);
+    assertTrue(window.residentRegions() <= 4);
+    assertShownWithin(view, 0, 128);
+
+    // Playing from the start again hands nothing over twice.
+    view.playing = 0;
+    controller.actionPerformed(null);
+    assertEquals(view.playedStarts.size(), 80);
+  }
+}
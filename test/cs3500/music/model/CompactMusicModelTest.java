@@ -0,0 +1,227 @@
+package cs3500.music.model;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs3500.music.util.MusicReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the CompactMusicModel class, mostly by checking that it gives the same answers
+ * as a MusicModel given the same notes.
+ */
+public class CompactMusicModelTest {
+
+  /**
+   * Checks that the given models hold the same melodies and notes.
+   * @param expected represents the MusicModel.
+   * @param actual   represents the CompactMusicModel.
+   */
+  private static void assertSameModel(IMusicModel expected, IMusicModel actual) {
+    assertEquals(expected.getMelodies().toString(), actual.getMelodies().toString());
+    assertEquals(expected.getAllNotesMap(), actual.getAllNotesMap());
+    assertEquals(expected.getNoteList(), actual.getNoteList());
+    assertEquals(expected.getHighestNote(), actual.getHighestNote());
+    assertEquals(expected.getLowestNote(), actual.getLowestNote());
+    assertEquals(expected.lengthOfSongInBeats(), actual.lengthOfSongInBeats());
+  }
+
+  // tests that a file read into a CompactMusicModel matches the same file read into a MusicModel
+  @Test
+  public void testReadFile() {
+    try {
+      MusicModel piece = MusicReader.parseFile(
+              new BufferedReader(new FileReader("resources/mystery-1.txt")),
+              new MusicModel.Builder());
+      CompactMusicModel compact = MusicReader.parseFile(
+              new BufferedReader(new FileReader("resources/mystery-1.txt")),
+              new CompactMusicModel.Builder());
+      assertSameModel(piece, compact);
+      assertEquals(piece.getNotesBetween(10, 40), compact.getNotesBetween(10, 40));
+      assertEquals(piece.getNoteList().size(), compact.size());
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found: " + e.getMessage());
+    }
+  }
+
+  // tests that notes added at once land in the same melodies as in a MusicModel
+  @Test
+  public void testAddNotes() {
+    int[] starts = {12, 8, 0, 2, 8, 0, 4};
+    int[] ends = {14, 10, 4, 6, 12, 2, 5};
+    int[] instruments = {1, 1, 1, 1, 1, 3, 1};
+    int[] pitches = {60, 62, 64, 65, 67, 69, 71};
+    int[] volumes = {50, 60, 70, 80, 90, 100, 110};
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    piece.addNotes(starts, ends, instruments, pitches, volumes);
+    compact.addNotes(starts, ends, instruments, pitches, volumes);
+    assertSameModel(piece, compact);
+  }
+
+  // tests that notes added out of order and around removed notes land in the same melodies
+  @Test
+  public void testAddAndRemoveNotes() {
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    int[][] notes = {{8, 10, 1, 60}, {0, 2, 1, 62}, {4, 6, 1, 64}, {2, 6, 1, 65},
+        {12, 13, 2, 67}, {20, 22, 1, 69}, {4, 5, 1, 71}};
+    for (int[] n : notes) {
+      piece.addNote(n[0], n[1], n[2], n[3], 50);
+      compact.addNote(n[0], n[1], n[2], n[3], 50);
+      assertSameModel(piece, compact);
+    }
+
+    piece.removeNote(new Note(Pitch.E, 5, 50, 2, 1), 4);
+    compact.removeNote(new Note(Pitch.E, 5, 50, 2, 1), 4);
+    assertSameModel(piece, compact);
+
+    // the removed note leaves a rest next to another rest, which changes where this goes
+    piece.addNote(6, 7, 1, 72, 50);
+    compact.addNote(6, 7, 1, 72, 50);
+    piece.addNote(30, 31, 1, 74, 50);
+    compact.addNote(30, 31, 1, 74, 50);
+    assertSameModel(piece, compact);
+  }
+
+  // tests that changes to the sounds of a melody are the same as in a MusicModel
+  @Test
+  public void testMelodyChanges() {
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    // MusicModel keeps the melody it is given, so each model gets a melody of its own
+    piece.addTracks(new Melody(50, new Note(Pitch.C, 4, 2), new Rest(2),
+            new Chord(2, new Note(Pitch.E, 4, 2), new Note(Pitch.G, 4, 2))), 3);
+    compact.addTracks(new Melody(50, new Note(Pitch.C, 4, 2), new Rest(2),
+            new Chord(2, new Note(Pitch.E, 4, 2), new Note(Pitch.G, 4, 2))), 3);
+    assertSameModel(piece, compact);
+
+    piece.swapNote(new Note(Pitch.D, 4, 2), 0, 5);
+    compact.swapNote(new Note(Pitch.D, 4, 2), 0, 5);
+    piece.changeOctave(0, 3, 1);
+    compact.changeOctave(0, 3, 1);
+    piece.setInstrument(3, 0);
+    compact.setInstrument(3, 0);
+    assertSameModel(piece, compact);
+
+    compact.removeMelody(0);
+    assertEquals(compact.getMelodies().size(), 0);
+    assertNull(compact.getHighestNote());
+  }
+
+  // tests that splicing, merging and adding sounds by index move the notes as in a MusicModel
+  @Test
+  public void testSpliceAndMerge() {
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    List<ModelChange> pieceChanges = new ArrayList<>();
+    List<ModelChange> compactChanges = new ArrayList<>();
+    piece.addListener(pieceChanges::add);
+    compact.addListener(compactChanges::add);
+    for (IMusicModel model : Arrays.asList(piece, compact)) {
+      model.addNote(0, 2, 1, 60, 50);
+      model.addNote(6, 8, 1, 64, 50);
+      model.addNote(1, 4, 2, 67, 50);
+      model.spliceTracks(1, new Melody(50, new Note(Pitch.A, 4, 3)));
+      model.addNote(new Chord(2, new Note(Pitch.C, 4, 2), new Note(Pitch.E, 4, 2)), 0, 2);
+      model.mergeTracks(1, 2, new Melody(50, new Rest(1), new Note(Pitch.B, 3, 2)));
+    }
+    assertSameModel(piece, compact);
+    assertEquals(piece.getAllSounds().toString(), compact.getAllSounds().toString());
+    assertEquals(piece.getGameState(), compact.getGameState());
+    assertEquals(pieceChanges.toString(), compactChanges.toString());
+  }
+
+  // tests that a splice that fails for one melody moves the notes of none
+  @Test
+  public void testSpliceFails() {
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    for (IMusicModel model : Arrays.asList(piece, compact)) {
+      model.addNote(0, 2, 1, 60, 50);
+      model.addNote(5, 7, 1, 64, 50);
+      model.addNote(0, 1, 2, 67, 50);
+      String grid = model.getGameState();
+      List<ModelChange> changes = new ArrayList<>();
+      model.addListener(changes::add);
+      boolean thrown = false;
+      try {
+        // the second melody has fewer sounds than the first
+        model.spliceTracks(3, new Melody(50, new Note(Pitch.A, 4, 3)));
+      } catch (IllegalArgumentException e) {
+        thrown = true;
+      }
+      assertTrue(thrown);
+      assertEquals(model.getGameState(), grid);
+      assertEquals(model.getNotesBetween(5, 6).keySet().toString(), "[5]");
+      assertEquals(changes.size(), 0);
+    }
+    assertSameModel(piece, compact);
+  }
+
+  // tests that the grid and the notes of a range of beats are read as in a MusicModel
+  @Test
+  public void testGameStateAndRanges() {
+    try {
+      MusicModel piece = MusicReader.parseFile(
+              new BufferedReader(new FileReader("resources/mystery-1.txt")),
+              new MusicModel.Builder());
+      CompactMusicModel compact = MusicReader.parseFile(
+              new BufferedReader(new FileReader("resources/mystery-1.txt")),
+              new CompactMusicModel.Builder());
+      // the removed note leaves a stored rest, which the shorter note splits
+      Note removed = piece.getNoteList().get(3).getValue();
+      int beat = piece.getNoteList().get(3).getKey();
+      for (IMusicModel model : Arrays.asList(piece, compact)) {
+        model.removeNote(removed, beat);
+        model.addNote(beat, beat + 1, removed.getInstrument(), 50, 60);
+      }
+      assertSameModel(piece, compact);
+      assertEquals(piece.getGameState(), compact.getGameState());
+      assertEquals(piece.getGameState(20, 60), compact.getGameState(20, 60));
+      assertEquals(piece.getNotesBetween(25, 50), compact.getNotesBetween(25, 50));
+      assertEquals(compact.getNotesBetween(30, 30).size(), 0);
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found: " + e.getMessage());
+    }
+  }
+
+  // tests that listeners of both models are told of the same changes
+  @Test
+  public void testListener() {
+    IMusicModel piece = new MusicModel(4, 50);
+    IMusicModel compact = new CompactMusicModel(4, 50);
+    List<ModelChange> pieceChanges = new ArrayList<>();
+    List<ModelChange> compactChanges = new ArrayList<>();
+    piece.addListener(pieceChanges::add);
+    compact.addListener(compactChanges::add);
+    for (IMusicModel model : Arrays.asList(piece, compact)) {
+      model.addNote(0, 2, 1, 60, 50);
+      model.addNote(4, 6, 1, 64, 50);
+      model.addNote(2, 3, 2, 67, 50);
+      model.swapNote(new Note(Pitch.D, 4, 2), 0, 4);
+      model.changeOctave(1, 2, -1);
+      model.removeNote(new Note(Pitch.C, 5, 50, 2, 1), 0);
+      model.setInstrument(3, 1);
+      model.addTracks(new Melody(50, new Note(Pitch.A, 4, 2)), 3);
+      model.removeMelody(0);
+    }
+    assertEquals(pieceChanges.toString(), compactChanges.toString());
+    assertEquals(pieceChanges.size(), 11);
+  }
+
+  // tests that pitches outside of MIDI can't be stored
+  @Test(expected = IllegalArgumentException.class)
+  public void testPitchOutOfRange() {
+    new CompactMusicModel(4, 50).addNote(0, 2, 1, 128, 50);
+  }
+}
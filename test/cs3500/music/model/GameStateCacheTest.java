@@ -0,0 +1,84 @@
+package cs3500.music.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import cs3500.music.util.MusicReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the GameStateCache class, through MusicModel.getGameState().
+ */
+public class GameStateCacheTest {
+  /**
+   * Gives the grid of a piece as written from scratch.
+   * @param piece represents the piece.
+   * @return the grid.
+   */
+  private static String written(IMusicModel piece) throws IOException {
+    StringBuilder grid = new StringBuilder();
+    GameStateWriter.write(piece, grid);
+    return grid.toString();
+  }
+
+  // tests that a grid asked for twice with no change in between is given again as it was
+  @Test
+  public void testUnchanged() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    String grid = piece.getGameState();
+    assertTrue(piece.getGameState() == grid);
+    assertEquals(grid, written(piece));
+  }
+
+  // tests that the grid follows notes added, moved an octave and removed inside the pitch range
+  @Test
+  public void testEdits() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    piece.getGameState();
+    int low = piece.getLowestNote().noteValue();
+
+    piece.addNote(40, 46, 1, low + 3, 64);
+    assertEquals(piece.getGameState(), written(piece));
+    piece.addNote(41, 43, 1, low + 3, 64);
+    assertEquals(piece.getGameState(), written(piece));
+    piece.removeNote(new Note(Pitch.getPitchAtVal((low + 3) % 12), (low + 3) / 12, 64, 6, 1),
+            40);
+    assertEquals(piece.getGameState(), written(piece));
+    piece.changeOctave(0, 0, 1);
+    assertEquals(piece.getGameState(), written(piece));
+  }
+
+  // tests that the grid grows and shrinks with notes held past the end of the piece
+  @Test
+  public void testLength() throws IOException {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 2, 1, 60, 64)
+            .addNote(1, 3, 1, 62, 64)
+            .build();
+    assertEquals(piece.getGameState(), written(piece));
+    piece.addNote(2, 9, 2, 61, 64);
+    assertEquals(piece.getGameState(), written(piece));
+    piece.removeMelody(1);
+    assertEquals(piece.getGameState(), written(piece));
+  }
+
+  // tests that every column is written again when the range of pitches moves
+  @Test
+  public void testPitchRange() throws IOException {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 2, 1, 60, 64)
+            .addNote(3, 4, 1, 62, 64)
+            .build();
+    piece.getGameState();
+    piece.addNote(1, 2, 2, 55, 64);
+    assertEquals(piece.getGameState(), written(piece));
+    piece.addNote(5, 6, 2, 70, 64);
+    assertEquals(piece.getGameState(), written(piece));
+  }
+}
@@ -0,0 +1,135 @@
+package cs3500.music.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Paths;
+
+import cs3500.music.util.MusicReader;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the GameStateWriter class.
+ */
+public class GameStateWriterTest {
+  // tests that the grid has a column per pitch, crossing octaves, and a row per beat held
+  @Test
+  public void testWrite() throws IOException {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 2, 1, 58, 64)
+            .addNote(1, 4, 1, 60, 64)
+            .addNote(1, 2, 2, 59, 64)
+            .build();
+    StringBuilder grid = new StringBuilder();
+    GameStateWriter.write(piece, grid);
+    assertEquals(grid.toString(), "      A#4  B4   C5  "
+            + "\n    0  X             "
+            + "\n    1  |    X    X   "
+            + "\n    2            |   "
+            + "\n    3            |   "
+            + "\n");
+    assertEquals(piece.getGameState(), grid.toString());
+  }
+
+  // tests that a held note overlapping one at the same pitch is held until the longer ends
+  @Test
+  public void testOverlappingHolds() throws IOException {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 4, 1, 60, 64)
+            .addNote(1, 2, 2, 60, 64)
+            .build();
+    assertEquals(piece.getGameState(), "      C5  "
+            + "\n    0  X   "
+            + "\n    1  X   "
+            + "\n    2  |   "
+            + "\n    3  |   "
+            + "\n");
+  }
+
+  // tests that a grid written to a Writer is the grid given by getGameState()
+  @Test
+  public void testWriteToWriter() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    StringWriter grid = new StringWriter();
+    GameStateWriter.write(piece, grid);
+    assertEquals(grid.toString(), piece.getGameState());
+    assertEquals(grid.toString().split("\n").length, piece.lengthOfSongInBeats() + 1);
+  }
+
+  // tests that a range of beats is written as those rows of the whole grid, holds included
+  @Test
+  public void testWriteRange() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    String[] rows = piece.getGameState().split("\n");
+    int[][] ranges = {{0, 5}, {37, 53}, {100, 101}, {-3, 2},
+        {piece.lengthOfSongInBeats() - 4, piece.lengthOfSongInBeats() + 10}, {9, 9}};
+    for (int[] range : ranges) {
+      StringBuilder expected = new StringBuilder(rows[0]);
+      for (int beat = Math.max(range[0], 0); beat < Math.min(range[1], rows.length - 1);
+           beat++) {
+        expected.append("\n").append(rows[beat + 1]);
+      }
+      expected.append("\n");
+      assertEquals(piece.getGameState(range[0], range[1]), expected.toString());
+    }
+  }
+
+  // tests that a grid written in blocks of rows is exactly the grid written a row at a time
+  @Test
+  public void testWriteParallel() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    StringBuilder grid = new StringBuilder();
+    GameStateWriter.write(piece, grid);
+    for (int rows : new int[]{1, 3, 64, 1000, 100000}) {
+      StringBuilder blocks = new StringBuilder();
+      GameStateWriter.writeParallel(piece, blocks, rows);
+      assertEquals(blocks.toString(), grid.toString());
+    }
+    StringWriter whole = new StringWriter();
+    GameStateWriter.writeParallel(piece, whole);
+    assertEquals(whole.toString(), grid.toString());
+  }
+
+  // tests that notes held across several blocks of rows are held in each of them
+  @Test
+  public void testWriteParallelHeld() throws IOException {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 9, 1, 60, 64)
+            .addNote(2, 5, 1, 62, 64)
+            .addNote(2, 3, 2, 60, 64)
+            .addNote(7, 12, 1, 61, 64)
+            .build();
+    StringBuilder grid = new StringBuilder();
+    GameStateWriter.write(piece, grid);
+    CompactMusicModel compact = new CompactMusicModel.Builder()
+            .addNote(0, 9, 1, 60, 64)
+            .addNote(2, 5, 1, 62, 64)
+            .addNote(2, 3, 2, 60, 64)
+            .addNote(7, 12, 1, 61, 64)
+            .build();
+    for (int rows = 1; rows < 14; rows++) {
+      StringBuilder blocks = new StringBuilder();
+      GameStateWriter.writeParallel(piece, blocks, rows);
+      assertEquals(blocks.toString(), grid.toString());
+      StringBuilder compactBlocks = new StringBuilder();
+      GameStateWriter.writeParallel(compact, compactBlocks, rows);
+      assertEquals(compactBlocks.toString(), grid.toString());
+    }
+    StringBuilder empty = new StringBuilder();
+    GameStateWriter.writeParallel(new MusicModel(4, 100), empty, 2);
+    assertEquals(empty.toString(), "\n");
+  }
+
+  // tests that a piece with no melodies is written as a single line break
+  @Test
+  public void testWriteEmpty() throws IOException {
+    StringBuilder grid = new StringBuilder();
+    GameStateWriter.write(new MusicModel(4, 100), grid);
+    assertEquals(grid.toString(), "\n");
+  }
+}
@@ -213,4 +213,123 @@ public class MelodyTest {
     assertEquals(melody.toString(), "Instrument 1: []");
   }
 
-}
\ No newline at end of file
+  // tests the hasNotePlayingAt method, including beats before and after the melody
+  @Test
+  public void testHasNotePlayingAt() throws Exception {
+    Melody melody = new Melody(50, new Rest(2), new Note(Pitch.C, 4, 3), new Rest(4));
+    assertFalse(melody.hasNotePlayingAt(0));
+    assertTrue(melody.hasNotePlayingAt(2));
+    assertTrue(melody.hasNotePlayingAt(4));
+    assertFalse(melody.hasNotePlayingAt(5));
+    assertFalse(melody.hasNotePlayingAt(20));
+    assertFalse(new Melody().hasNotePlayingAt(0));
+  }
+
+  // tests that beat lookups stay correct after notes are placed into a long rest
+  @Test
+  public void testBeatLookupsAfterAddNoteToBeat() throws Exception {
+    Melody melody = new Melody(20, new Rest(1000));
+    for (int i = 990; i >= 0; i -= 10) {
+      melody.addNoteToBeat(new Note(Pitch.D, 4, 5), i);
+    }
+    assertEquals(melody.numOfBeats(), 1000);
+    assertTrue(melody.noteStartsAtExactBeat(500));
+    assertFalse(melody.noteStartsAtExactBeat(503));
+    assertEquals(melody.getNoteAtBeat(500), new Note(Pitch.D, 4, 5));
+    assertEquals(melody.getNoteAtBeat(505), new Rest(5));
+    assertEquals(melody.getIndexOfBeat(500), 100);
+    assertEquals(melody.getIndexOfBeat(503), 101);
+    assertEquals(melody.getIndexOfBeat(1001), -1);
+    assertEquals(melody.numOfBeatsElapsedAt(101), 505);
+  }
+
+  // tests that numOfBeats follows a swap to a sound of a different length
+  @Test
+  public void testSwapNoteChangesLength() throws Exception {
+    Melody melody = new Melody(50, new Note(Pitch.C, 5, 5), new Note(Pitch.A, 6, 5));
+    melody.swapNote(new Note(Pitch.G, 2, 2), 5);
+    assertEquals(melody.numOfBeats(), 7);
+    assertEquals(melody.getNoteAtBeat(5), new Note(Pitch.G, 2, 2));
+  }
+
+  // tests the firstRestBeat and endOfLastRest methods
+  @Test
+  public void testRestSpan() throws Exception {
+    Melody melody = new Melody(50, new Note(Pitch.C, 4, 2), new Rest(3), new Note(Pitch.D, 4, 1),
+            new Rest(4), new Note(Pitch.E, 4, 2));
+    assertEquals(melody.firstRestBeat(), 2);
+    assertEquals(melody.endOfLastRest(), 10);
+    melody.swapNote(new Rest(2), 0);
+    assertEquals(melody.firstRestBeat(), 0);
+    assertEquals(new Melody(50, new Note(Pitch.C, 4, 2)).firstRestBeat(), -1);
+    assertEquals(new Melody(50, new Note(Pitch.C, 4, 2)).endOfLastRest(), -1);
+  }
+
+  // tests that rests added without a Rest are read back as Rests of the melody's instrument
+  @Test
+  public void testAddRest() throws Exception {
+    Melody melody = new Melody(50, 3, new Note(Pitch.C, 4, 2));
+    melody.addRest(3, 0);
+    melody.addRest(2, 2);
+    assertEquals(melody.numOfBeats(), 7);
+    assertEquals(melody.getNote(0), new Rest(3));
+    assertEquals(melody.getNote(0).getInstrument(), 3);
+    assertEquals(melody.getNoteAtBeat(3), new Note(Pitch.C, 4, 2));
+    assertEquals(melody.firstRestBeat(), 0);
+    assertEquals(melody.endOfLastRest(), 7);
+    assertFalse(melody.hasNotePlayingAt(1));
+
+    melody.changeInstrument(5);
+    assertEquals(melody.getMelodySounds().get(2).getInstrument(), 5);
+    assertEquals(melody.copy().getNote(2).getInstrument(), 5);
+  }
+
+  // tests that a rest can't be added with no duration
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddRestNoDuration() throws Exception {
+    new Melody(50).addRest(0, 0);
+  }
+
+  // tests that a cursor walks every sound in order, giving rests only as durations
+  @Test
+  public void testSoundCursor() throws Exception {
+    Note note = new Note(Pitch.C, 4, 3);
+    Melody melody = new Melody(50, new Rest(2), note, new Rest(4), new Rest(1));
+    IndexedSoundList.Cursor sounds = melody.soundCursor();
+    StringBuilder walked = new StringBuilder();
+    while (sounds.next()) {
+      walked.append(sounds.isRest() ? "rest " : "note ").append(sounds.duration()).append(' ');
+      assertTrue(sounds.isRest() ? sounds.sound() == null : sounds.sound() == note);
+    }
+    assertEquals(walked.toString(), "rest 2 note 3 rest 4 rest 1 ");
+    assertFalse(sounds.hasNext());
+    assertFalse(sounds.next());
+  }
+
+  // tests that a cursor started at a beat begins at the sound playing then and knows its beats
+  @Test
+  public void testSoundCursorAtBeat() throws Exception {
+    Melody melody = new Melody(50, new Rest(2), new Note(Pitch.C, 4, 3), new Rest(4),
+            new Rest(1));
+    IndexedSoundList.Cursor sounds = melody.soundCursor(6);
+    StringBuilder walked = new StringBuilder();
+    while (sounds.next()) {
+      walked.append(sounds.beat()).append(' ');
+    }
+    assertEquals(walked.toString(), "5 9 ");
+    assertTrue(melody.soundCursor(-3).next());
+    assertEquals(melody.soundCursor(3).next(), true);
+    assertFalse(melody.soundCursor(10).next());
+  }
+
+  // tests that a copy keeps the rests of the melody one by one, without sharing its notes
+  @Test
+  public void testCopyRests() throws Exception {
+    Melody melody = new Melody(50, new Rest(2), new Note(Pitch.C, 4, 3), new Rest(4),
+            new Rest(1));
+    Melody copy = melody.copy();
+    assertEquals(copy.getMelodySounds(), melody.getMelodySounds());
+    assertEquals(copy.size(), 4);
+    assertTrue(copy.getNote(1) != melody.getNote(1));
+  }
+}
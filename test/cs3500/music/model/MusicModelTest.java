@@ -6,8 +6,12 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import cs3500.music.util.MusicReader;
+import javafx.util.Pair;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -588,6 +592,80 @@ public class MusicModelTest {
     }
   }
 
+  /**
+   * Tests that notes added at once go in by instrument and start, whatever order they are given.
+   */
+  @Test
+  public void testAddNotes() {
+    MusicModel piece = new MusicModel(4, 50);
+    piece.addNotes(new int[]{6, 4, 0, 2, 0}, new int[]{8, 6, 2, 5, 4}, new int[]{1, 1, 2, 1, 1},
+            new int[]{60, 62, 64, 65, 67}, new int[]{50, 50, 50, 50, 50});
+    MusicModel inOrder = new MusicModel(4, 50);
+    inOrder.addNote(0, 4, 1, 67, 50);
+    inOrder.addNote(2, 5, 1, 65, 50);
+    inOrder.addNote(4, 6, 1, 62, 50);
+    inOrder.addNote(6, 8, 1, 60, 50);
+    inOrder.addNote(0, 2, 2, 64, 50);
+    assertEquals(piece.getMelodies().toString(), inOrder.getMelodies().toString());
+    assertEquals(piece.getMelodies().size(), 3);
+  }
+
+  /**
+   * Tests that notes can't be added at once from arrays of different lengths.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddNotesMismatched() {
+    new MusicModel(4, 50).addNotes(new int[]{0, 2}, new int[]{2, 4}, new int[]{1},
+            new int[]{60, 62}, new int[]{50, 50});
+  }
+
+  /**
+   * Tests that the Builder adds its notes by instrument and start once it is built.
+   */
+  @Test
+  public void testBuilderSortsNotes() {
+    MusicModel.Builder builder = new MusicModel.Builder();
+    builder.addNote(4, 6, 1, 60, 50);
+    builder.addNote(0, 4, 1, 62, 50);
+    MusicModel piece = builder.build();
+    assertEquals(piece.getMelodies().size(), 1);
+    assertEquals(piece.getMelodies().get(0).getNote(0), new Note(Pitch.D, 5, 4));
+    assertEquals(piece.getMelodies().get(0).getNote(1), new Note(Pitch.C, 5, 2));
+  }
+
+  /**
+   * Tests that the Builder splits notes into melodies in the order of instrument and start, which
+   * can take fewer melodies than adding them one at a time in the order given.
+   */
+  @Test
+  public void testBuilderMelodies() {
+    int[][] notes = {{7, 11, 60}, {0, 3, 63}, {5, 7, 64}, {0, 1, 61}};
+    MusicModel.Builder builder = new MusicModel.Builder();
+    MusicModel oneAtATime = new MusicModel(4, 100);
+    for (int[] note : notes) {
+      builder.addNote(note[0], note[1], 1, note[2], 64);
+      oneAtATime.addNote(note[0], note[1], 1, note[2], 64);
+    }
+    MusicModel piece = builder.build();
+    assertEquals(oneAtATime.getMelodies().size(), 3);
+    assertEquals(piece.getMelodies().size(), 2);
+    assertEquals(piece.getMelodies().get(0).getMelodySounds().toString(),
+            "[Note D#5 of length 3, Rest of length 2, Note E5 of length 2, "
+                    + "Note C5 of length 4]");
+    assertEquals(piece.getMelodies().get(1).getMelodySounds().toString(),
+            "[Note C#5 of length 1]");
+  }
+
+  /**
+   * Tests the number of melodies a large file is split into by the Builder.
+   */
+  @Test
+  public void testBuilderMelodiesOfFile() throws FileNotFoundException {
+    MusicModel piece = MusicReader.parseFile(new BufferedReader(
+            new FileReader("resources/df-ttfaf.txt")), new MusicModel.Builder());
+    assertEquals(piece.getMelodies().size(), 35);
+  }
+
   @Test
   public void testIndexOfMelody() {
     Melody melody = new Melody(4, new Note(Pitch.A, 3, 2), new Note(Pitch.C, 2, 1),
@@ -595,4 +673,339 @@ public class MusicModelTest {
 
     assertEquals(melody.getIndexOfBeat(2), 1);
   }
+
+  /**
+   * Tests that the length of the song follows added and removed melodies.
+   */
+  @Test
+  public void testLengthOfSongAfterRemovingMelody() {
+    IMusicModel model = new MusicModel(4, 50,
+            new Melody(50, new Note(Pitch.C, 4, 4)),
+            new Melody(50, new Note(Pitch.D, 4, 10)),
+            new Melody(50, new Note(Pitch.E, 4, 10)));
+    assertEquals(model.lengthOfSongInBeats(), 10);
+    model.removeMelody(1);
+    assertEquals(model.lengthOfSongInBeats(), 10);
+    model.removeMelody(1);
+    assertEquals(model.lengthOfSongInBeats(), 4);
+    model.addNote(20, 22, 1, 60, 50);
+    assertEquals(model.lengthOfSongInBeats(), 22);
+  }
+
+  /**
+   * Tests that the length of the song shrinks when its longest track is shortened.
+   */
+  @Test
+  public void testLengthOfSongAfterShorteningTrack() {
+    IMusicModel model = new MusicModel(4, 50,
+            new Melody(50, new Note(Pitch.C, 4, 4)),
+            new Melody(50, new Note(Pitch.D, 4, 10)));
+    model.swapNote(new Note(Pitch.D, 4, 2), 1, 0);
+    assertEquals(model.lengthOfSongInBeats(), 4);
+    model.addToEnd(new Melody(50, new Note(Pitch.G, 4, 3)));
+    assertEquals(model.lengthOfSongInBeats(), 7);
+  }
+
+  /**
+   * Tests that the length of a song with no melodies cannot be found.
+   */
+  @Test (expected = IllegalStateException.class)
+  public void testLengthOfSongNoMelodies() {
+    new MusicModel(4, 50).lengthOfSongInBeats();
+  }
+
+  /**
+   * Tests that getNotesBetween gives notes starting in the range and notes held into it.
+   */
+  @Test
+  public void testGetNotesBetween() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 8, 1, 60, 50);
+    model.addNote(4, 6, 1, 64, 50);
+    model.addNote(10, 12, 2, 67, 50);
+
+    Map<Integer, List<Pair<Integer, Note>>> notes = model.getNotesBetween(5, 11);
+    assertEquals(notes.keySet().toString(), "[0, 4, 10]");
+    assertEquals(notes.get(10).get(0).getKey(), (Integer) 2);
+    assertEquals(notes.get(0).get(0).getValue(), new Note(Pitch.C, 5, 8));
+
+    assertTrue(model.getNotesBetween(8, 10).isEmpty());
+    assertEquals(model.getNotesBetween(6, 7).keySet().toString(), "[0]");
+  }
+
+  /**
+   * Tests that getNotesBetween follows removed notes and removed melodies.
+   */
+  @Test
+  public void testGetNotesBetweenAfterRemoving() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 4, 1, 60, 50);
+    model.addNote(0, 4, 2, 62, 50);
+    model.removeNote(new Note(Pitch.C, 5, 4), 0);
+    assertEquals(model.getNotesBetween(0, 1).get(0).size(), 1);
+    assertEquals(model.getNotesBetween(0, 1).get(0).get(0).getKey(), (Integer) 1);
+
+    model.removeMelody(0);
+    assertEquals(model.getNotesBetween(0, 1).get(0).get(0).getKey(), (Integer) 0);
+  }
+
+  // tests that the highest and lowest notes follow notes being removed and moved
+  @Test
+  public void testPitchRangeAfterChanges() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 4, 1, 60, 50);
+    model.addNote(0, 4, 1, 72, 50);
+    model.addNote(4, 8, 1, 55, 50);
+    assertEquals(model.getHighestNote().noteValue(), 72);
+    assertEquals(model.getLowestNote().noteValue(), 55);
+
+    int version = model.getPitchRangeVersion();
+    model.removeNote(new Note(Pitch.C, 6, 4), 0);
+    assertEquals(model.getHighestNote().noteValue(), 60);
+    assertTrue(model.getPitchRangeVersion() != version);
+
+    model.changeOctave(0, 4, -1);
+    assertEquals(model.getLowestNote().noteValue(), 43);
+  }
+
+  // tests that there are no highest or lowest notes without any notes
+  @Test
+  public void testPitchRangeEmpty() {
+    IMusicModel model = new MusicModel(4, 50);
+    assertEquals(model.getHighestNote(), null);
+    assertEquals(model.getLowestNote(), null);
+  }
+
+  // tests that addNote puts notes in the first melody of the instrument with room for them
+  @Test
+  public void testAddNotePlacement() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 4, 1, 60, 50);
+    model.addNote(0, 8, 1, 62, 50);
+    model.addNote(0, 2, 2, 64, 50);
+    model.addNote(4, 6, 1, 65, 50);
+    model.addNote(10, 12, 1, 67, 50);
+    model.addNote(2, 4, 2, 69, 50);
+    assertEquals(model.getMelodies().size(), 3);
+    assertTrue(model.getMelodies().get(0).noteStartsAtExactBeat(4));
+    assertTrue(model.getMelodies().get(0).noteStartsAtExactBeat(10));
+    assertTrue(model.getMelodies().get(2).noteStartsAtExactBeat(2));
+
+    model.removeNote(new Note(Pitch.F, 5, 2), 4);
+    model.addNote(4, 6, 1, 71, 50);
+    assertEquals(model.getMelodies().get(0).getNoteAtBeat(4).isRest(), false);
+    assertEquals(model.getMelodies().size(), 3);
+  }
+
+  // tests that addNote finds room in long rests of a melody, and skips rests too short or gone
+  @Test
+  public void testAddNoteLongRests() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 2, 1, 60, 50);
+    model.addNote(0, 50, 1, 62, 50);
+    model.addNote(40, 42, 1, 64, 50);
+    model.addNote(20, 30, 1, 65, 50);
+    assertEquals(model.getMelodies().size(), 2);
+    assertTrue(model.getMelodies().get(0).noteStartsAtExactBeat(20));
+
+    model.addNote(30, 45, 1, 67, 50);
+    assertEquals(model.getMelodies().size(), 3);
+    assertTrue(model.getMelodies().get(2).noteStartsAtExactBeat(30));
+    model.addNote(44, 46, 1, 69, 50);
+    assertTrue(model.getMelodies().get(0).noteStartsAtExactBeat(44));
+
+    model.removeNote(new Note(Pitch.E, 5, 2), 40);
+    model.addNote(40, 42, 1, 71, 50);
+    assertEquals(model.getMelodies().size(), 3);
+    assertTrue(model.getMelodies().get(0).noteStartsAtExactBeat(40));
+  }
+
+  // tests that noteIterator and getNoteList give every note in the order the notes start
+  @Test
+  public void testNoteIterator() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(4, 6, 1, 60, 50);
+    model.addNote(0, 2, 1, 62, 50);
+    model.addNote(0, 8, 1, 64, 50);
+    model.addNote(2, 3, 2, 65, 50);
+
+    Iterator<IMusicModel.PlacedNote> notes = model.noteIterator();
+    int[] beats = {0, 0, 2, 4};
+    int[] pitches = {62, 64, 65, 60};
+    for (int i = 0; i < beats.length; i++) {
+      assertTrue(notes.hasNext());
+      IMusicModel.PlacedNote n = notes.next();
+      assertEquals(n.getBeat(), beats[i]);
+      assertEquals(n.getNote().noteValue(), pitches[i]);
+    }
+    assertTrue(!notes.hasNext());
+
+    List<Pair<Integer, Note>> list = model.getNoteList();
+    assertEquals(list.size(), 4);
+    assertEquals(list.get(2).getKey(), (Integer) 2);
+    assertEquals(list.get(3).getValue().noteValue(), 60);
+  }
+
+  // tests that a snapshot keeps the piece as it was while the model keeps changing
+  @Test
+  public void testSnapshot() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 2, 1, 60, 50);
+    model.addNote(4, 6, 1, 62, 50);
+    model.addNote(0, 3, 2, 64, 50);
+    IMusicModel snapshot = model.snapshot();
+    String melodies = snapshot.getMelodies().toString();
+    assertTrue(snapshot == model.snapshot());
+
+    model.addNote(2, 4, 1, 65, 50);
+    model.changeOctave(0, 0, 1);
+    model.removeNote(new Note(Pitch.E, 5, 50, 3, 2), 0);
+    model.setInstrument(3, 1);
+    assertTrue(snapshot != model.snapshot());
+    assertEquals(snapshot.getMelodies().toString(), melodies);
+    assertEquals(snapshot.getNoteList().size(), 3);
+    assertEquals(snapshot.getHighestNote().noteValue(), 64);
+    assertEquals(snapshot.getNotesBetween(0, 1).get(0).size(), 2);
+
+    // the model's own index follows the copies it now holds
+    assertEquals(model.getNotesBetween(0, 1).get(0).get(0).getValue().noteValue(), 72);
+    model.changeOctave(0, 0, -1);
+    assertEquals(model.getHighestNote().noteValue(), 65);
+    assertEquals(model.getNoteList().size(), 3);
+  }
+
+  // tests that the index and pitches a snapshot shares with the model stay as they were
+  @Test
+  public void testSnapshotShared() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 40, 1, 60, 50);
+    model.addNote(0, 2, 2, 64, 50);
+    IMusicModel snapshot = model.snapshot();
+    String grid = snapshot.getGameState();
+    int version = snapshot.getPitchRangeVersion();
+
+    model.addNote(2, 4, 2, 72, 50);
+    model.removeNote(new Note(Pitch.C, 5, 50, 40, 1), 0);
+    model.changeOctave(1, 0, -1);
+    assertEquals(snapshot.getGameState(), grid);
+    assertEquals(snapshot.getGameState(0, 40), grid);
+    assertEquals(snapshot.getPitchRangeVersion(), version);
+    assertEquals(snapshot.getHighestNote().noteValue(), 64);
+    assertEquals(snapshot.getNotesBetween(35, 36).get(0).size(), 1);
+    assertEquals(snapshot.lengthOfSongInBeats(), 40);
+    assertEquals(model.getHighestNote().noteValue(), 72);
+    assertTrue(model.getNotesBetween(35, 36).isEmpty());
+  }
+
+  // tests that playing through the events of a snapshot doesn't move the events of the model
+  @Test
+  public void testSnapshotEvents() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 8, 1, 60, 50);
+    model.addEvent(new Repeat(0, 4));
+    IFlag event = model.getEvents().get(0);
+    IFlag copy = model.snapshot().getEvents().get(0);
+    assertTrue(copy != event);
+    assertEquals(copy, event);
+
+    assertEquals(copy.changeBeat(4), 0);
+    assertEquals(copy.changeBeat(4), 4);
+    assertEquals(event.changeBeat(4), 0);
+  }
+
+  // tests that a snapshot can't be changed
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSnapshotReadOnly() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 2, 1, 60, 50);
+    model.snapshot().addNote(2, 4, 1, 62, 50);
+  }
+
+  // tests that listeners are told of each change with the beats and pitches it touched
+  @Test
+  public void testListener() {
+    IMusicModel model = new MusicModel(4, 50);
+    List<String> changes = new ArrayList<>();
+    IModelListener listener = new IModelListener() {
+      @Override
+      public void modelChanged(ModelChange change) {
+        changes.add(change.toString());
+      }
+    };
+    model.addListener(listener);
+
+    model.addNote(0, 2, 1, 60, 50);
+    model.addNote(4, 6, 1, 62, 50);
+    model.changeOctave(0, 4, 1);
+    model.removeNote(new Note(Pitch.C, 5, 50, 2, 1), 0);
+    model.setInstrument(3, 0);
+    model.addEvent(new Repeat(0, 4));
+    model.setTempo(200000);
+    assertEquals(changes.toString(), "[MELODY_ADDED [melody 0, beats 0-0], "
+            + "NOTE_ADDED [melody 0, beats 0-2, pitches 60-60], "
+            + "NOTE_ADDED [melody 0, beats 4-6, pitches 62-62], "
+            + "NOTE_SWAPPED [melody 0, beats 4-6, pitches 62-74], "
+            + "NOTE_REMOVED [melody 0, beats 0-2, pitches 60-60], "
+            + "MELODY_CHANGED [melody 0, beats 0-6, pitches 74-74], "
+            + "EVENT_ADDED [melody -1, beats 0-5], "
+            + "TEMPO_CHANGED [melody -1, beats 0-0]]");
+
+    changes.clear();
+    model.swapNote(new Note(Pitch.D, 4, 4), 0, 4);
+    assertEquals(changes.toString(),
+            "[MELODY_CHANGED [melody 0, beats 4-8, pitches 50-74]]");
+
+    model.removeListener(listener);
+    model.removeMelody(0);
+    assertEquals(changes.size(), 1);
+  }
+
+  // tests that a change adding a note carries only that note, even where other notes start
+  @Test
+  public void testListenerSound() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(2, 4, 1, 60, 50);
+    List<ModelChange> changes = new ArrayList<>();
+    model.addListener(new IModelListener() {
+      @Override
+      public void modelChanged(ModelChange change) {
+        changes.add(change);
+      }
+    });
+
+    model.addNote(2, 5, 1, 64, 50);
+    model.removeNote(new Note(Pitch.C, 5, 50, 2, 1), 2);
+    assertEquals(changes.get(0).getKind(), ModelChange.Kind.MELODY_ADDED);
+    assertEquals(changes.get(1).getKind(), ModelChange.Kind.NOTE_ADDED);
+    assertEquals(changes.get(1).getFromBeat(), 2);
+    assertEquals(changes.get(1).getSound().toString(), "Note E5 of length 3");
+    assertTrue(changes.get(0).getSound() == null);
+    assertTrue(changes.get(2).getSound() == null);
+  }
+
+  // tests that a splice that can't be made leaves the melodies, the index and the grid as they were
+  @Test
+  public void testSpliceFails() {
+    IMusicModel model = new MusicModel(4, 50);
+    model.addNote(0, 2, 1, 60, 50);
+    model.addNote(5, 7, 1, 62, 50);
+    String grid = model.getGameState();
+    String melodies = model.getMelodies().toString();
+    List<ModelChange> changes = new ArrayList<>();
+    model.addListener(changes::add);
+    // a splice at beat 0 fails on the melody added; one at beat 9 fails on the melody there
+    for (int beat : new int[] {0, 9}) {
+      boolean thrown = false;
+      try {
+        model.spliceTracks(beat, new Melody(50, new Note(Pitch.A, 4, 3)));
+      } catch (IllegalArgumentException e) {
+        thrown = true;
+      }
+      assertTrue(thrown);
+      assertEquals(model.getMelodies().toString(), melodies);
+      assertEquals(model.getNotesBetween(5, 6).keySet().toString(), "[5]");
+      assertEquals(model.getGameState(), grid);
+    }
+    assertEquals(changes.size(), 0);
+  }
 }
@@ -98,4 +98,16 @@ public class RepeatTest {
     one.getEndBeat();
   }
 
+  @Test
+  public void testCopy() {
+    init();
+    three.setNumberOfRepetitions(1);
+    IFlag copy = three.copy();
+    assertEquals(copy, three);
+    assertEquals(copy.getEndBeat(), 10);
+
+    assertEquals(copy.changeBeat(10), 15);
+    assertEquals(copy.getEndBeat(), 20);
+    assertEquals(three.getEndBeat(), 10);
+  }
 }
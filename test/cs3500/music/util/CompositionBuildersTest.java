@@ -0,0 +1,105 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import cs3500.music.model.CompactMusicModel;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the CompositionBuilders class.
+ */
+public class CompositionBuildersTest {
+  /**
+   * Gives a piece built from notes given one at a time.
+   * @param builder represents the builder of the piece.
+   * @param <T>     represents the type of piece.
+   * @return the piece.
+   */
+  private static <T> T piece(CompositionBuilder<T> builder) {
+    return builder.setTempo(200000)
+            .addNote(0, 2, 1, 60, 64)
+            .addNote(1, 3, 2, 72, 70)
+            .addNote(4, 6, 1, 64, 64)
+            .addNote(5, 8, 3, 120, 80)
+            .build();
+  }
+
+  // tests that one read of a file builds every composition a read of its own would
+  @Test
+  public void testTee() throws IOException {
+    Path song = Paths.get("resources/mystery-1.txt");
+    List<IMusicModel> built = MusicReader.parseFile(song, CompositionBuilders.tee(
+            new MusicModel.Builder(), new CompactMusicModel.Builder()));
+    MusicModel alone = MusicReader.parseFile(song, new MusicModel.Builder());
+    assertEquals(built.size(), 2);
+    assertEquals(built.get(0).getMelodies().toString(), alone.getMelodies().toString());
+    assertEquals(built.get(1).getNoteList(), alone.getNoteList());
+    assertEquals(built.get(1).microsecondsPerBeat(), alone.microsecondsPerBeat());
+  }
+
+  // tests that only the notes of the instruments kept are passed on
+  @Test
+  public void testOnlyInstruments() {
+    MusicModel kept = piece(CompositionBuilders.onlyInstruments(new MusicModel.Builder(), 1, 3));
+    assertEquals(kept.getNoteList(), new MusicModel.Builder().setTempo(200000)
+            .addNote(0, 2, 1, 60, 64).addNote(4, 6, 1, 64, 64).addNote(5, 8, 3, 120, 80)
+            .build().getNoteList());
+    assertEquals(kept.microsecondsPerBeat(), 200000);
+  }
+
+  // tests that only the notes in the range of pitches are passed on
+  @Test
+  public void testPitchesBetween() {
+    MusicModel kept = piece(CompositionBuilders.pitchesBetween(new MusicModel.Builder(), 61, 72));
+    assertEquals(kept.getNoteList(), new MusicModel.Builder()
+            .addNote(1, 3, 2, 72, 70).addNote(4, 6, 1, 64, 64).build().getNoteList());
+  }
+
+  // tests that shifted and transposed notes are passed on moved, and ones out of range dropped
+  @Test
+  public void testShiftAndTranspose() {
+    MusicModel moved = piece(CompositionBuilders.shift(
+            CompositionBuilders.transpose(new MusicModel.Builder(), 12), 3));
+    assertEquals(moved.getNoteList(), new MusicModel.Builder()
+            .addNote(3, 5, 1, 72, 64).addNote(4, 6, 2, 84, 70).addNote(7, 9, 1, 76, 64)
+            .build().getNoteList());
+  }
+
+  // tests that notes given all at once are passed on all at once, changed as one at a time
+  @Test
+  public void testAddNotes() {
+    int[] starts = {0, 1, 4, 5};
+    int[] ends = {2, 3, 6, 8};
+    int[] instruments = {1, 2, 1, 3};
+    int[] pitches = {60, 72, 64, 120};
+    int[] volumes = {64, 70, 64, 80};
+    List<MusicModel> built = CompositionBuilders.tee(
+            CompositionBuilders.onlyInstruments(new MusicModel.Builder(), 1),
+            CompositionBuilders.shift(CompositionBuilders.transpose(
+                    new MusicModel.Builder(), 12), 3))
+            .addNotes(starts, ends, instruments, pitches, volumes).build();
+    assertEquals(built.get(0).getNoteList(),
+            CompositionBuilders.onlyInstruments(new MusicModel.Builder(), 1)
+                    .addNote(0, 2, 1, 60, 64).addNote(1, 3, 2, 72, 70)
+                    .addNote(4, 6, 1, 64, 64).addNote(5, 8, 3, 120, 80).build().getNoteList());
+    assertEquals(built.get(1).getNoteList(), piece(CompositionBuilders.shift(
+            CompositionBuilders.transpose(new MusicModel.Builder(), 12), 3)).getNoteList());
+    assertEquals(starts[0], 0);
+    assertEquals(pitches[3], 120);
+  }
+
+  // tests that notes given all at once must all have the same number of values
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddNotesMismatched() {
+    CompositionBuilders.shift(new MusicModel.Builder(), 1)
+            .addNotes(new int[]{0}, new int[]{1}, new int[]{1}, new int[]{60}, new int[0]);
+  }
+}
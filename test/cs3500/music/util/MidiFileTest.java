@@ -0,0 +1,91 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Sequence;
+
+import cs3500.music.model.IFlag;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.Repeat;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the MidiFile class.
+ */
+public class MidiFileTest {
+  /**
+   * Gives the ranges in a list of passes as text.
+   * @param passes represents the passes.
+   * @return the ranges, as "first-after" separated by spaces.
+   */
+  private static String rangesOf(List<int[]> passes) {
+    StringBuilder ranges = new StringBuilder();
+    for (int[] pass : passes) {
+      ranges.append(pass[0]).append('-').append(pass[1]).append(' ');
+    }
+    return ranges.toString().trim();
+  }
+
+  // tests that a piece made into a sequence is read back with the same notes and tempo
+  @Test
+  public void testSequenceRoundTrip() throws IOException {
+    for (String file : new String[]{"mary-little-lamb.txt", "mystery-1.txt", "zoot-lw.txt"}) {
+      MusicModel piece = MusicReader.parseFile(Paths.get("resources/" + file),
+              new MusicModel.Builder());
+      Sequence sequence = MidiFile.toSequence(piece);
+      assertEquals(sequence.getTracks().length, piece.getMelodies().size() + 1);
+      MusicModel read = MidiFile.read(sequence, new MusicModel.Builder());
+      assertEquals(read.getMelodies().toString(), piece.getMelodies().toString());
+      assertEquals(read.microsecondsPerBeat(), piece.microsecondsPerBeat());
+    }
+  }
+
+  // tests that a piece written to a MIDI file from the command line can be read back
+  @Test
+  public void testMainWritesFile() throws IOException, InvalidMidiDataException {
+    Path file = Files.createTempFile("music", ".mid");
+    file.toFile().deleteOnExit();
+    MidiFile.main(new String[]{"resources/mary-little-lamb.txt", file.toString()});
+    MusicModel read = MidiFile.read(file, new MusicModel.Builder());
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mary-little-lamb.txt"),
+            new MusicModel.Builder());
+    assertEquals(read.getMelodies().toString(), piece.getMelodies().toString());
+  }
+
+  // tests that repeats are unrolled into the passes the piece plays through
+  @Test
+  public void testPasses() {
+    assertEquals(rangesOf(MidiFile.passes(new ArrayList<IFlag>(), 8)), "0-8");
+    assertEquals(rangesOf(MidiFile.passes(Arrays.<IFlag>asList(new Repeat(0, 4)), 8)),
+            "0-4 0-8");
+    assertEquals(rangesOf(MidiFile.passes(Arrays.<IFlag>asList(new Repeat(2, 4),
+            new Repeat(4, 6)), 8)), "0-4 2-6 4-8");
+    Repeat first = new Repeat(0, 4);
+    first.setNumberOfRepetitions(1);
+    assertEquals(rangesOf(MidiFile.passes(Arrays.<IFlag>asList(first), 8)), "0-4 0-8");
+  }
+
+  // tests that a repeated piece is written with its repeated beats played again
+  @Test
+  public void testRepeatsUnrolled() {
+    MusicModel piece = new MusicModel(4, 100);
+    piece.addNote(0, 2, 1, 60, 64);
+    piece.addNote(2, 6, 1, 62, 64);
+    piece.addNote(6, 8, 1, 64, 64);
+    piece.addEvent(new Repeat(0, 4));
+    MusicModel read = MidiFile.read(MidiFile.toSequence(piece), new MusicModel.Builder());
+    assertEquals(read.lengthOfSongInBeats(), 12);
+    assertEquals(read.getNoteList().toString(), "[0=Note C5 of length 2, 2=Note D5 of length 2, "
+            + "4=Note C5 of length 2, 6=Note D5 of length 4, 10=Note E5 of length 2]");
+  }
+}
@@ -0,0 +1,127 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import cs3500.music.model.IModelListener;
+import cs3500.music.model.IMusicModel;
+import cs3500.music.model.ModelChange;
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the MusicFollower class.
+ */
+public class MusicFollowerTest {
+  /**
+   * Gives a new file holding the given text, that is deleted once the tests are done.
+   * @param text represents the text.
+   * @return the path of the file.
+   * @throws IOException if the file can't be made.
+   */
+  private static Path tempFile(String text) throws IOException {
+    Path file = Files.createTempFile("follow", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+
+  /**
+   * Adds text to the end of a file.
+   * @param file represents the file.
+   * @param text represents the text.
+   * @throws IOException if the file can't be written.
+   */
+  private static void append(Path file, String text) throws IOException {
+    Files.write(file, text.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+  }
+
+  // tests that only whole lines are read, and that later reads give only the lines added
+  @Test
+  public void testReadAdded() throws IOException {
+    Path file = tempFile("tempo 200000\nnote 0 2 1 60 64\nnote 2 4 1 6");
+    MusicFollower follower = new MusicFollower(file);
+    MusicModel model = follower.read(new MusicModel.Builder());
+    assertEquals(model.getNoteList().size(), 1);
+    assertEquals(follower.getOffset(), 30);
+
+    final List<ModelChange> changes = new ArrayList<>();
+    model.addListener(new IModelListener() {
+      @Override
+      public void modelChanged(ModelChange change) {
+        changes.add(change);
+      }
+    });
+    IMusicModel read = follower.read(model);
+    assertEquals(read, model);
+    assertEquals(changes.size(), 0);
+
+    append(file, "2 64\nnote 4 6 1 64 64\n");
+    follower.read(model);
+    assertEquals(follower.getOffset(), Files.size(file));
+    assertEquals(model.getNoteList(), MusicReader.parseFile(file, new MusicModel.Builder())
+            .getNoteList());
+    assertEquals(changes.size(), 2);
+    assertEquals(changes.get(0).getKind(), ModelChange.Kind.NOTE_ADDED);
+    assertEquals(changes.get(1).getFromBeat(), 4);
+  }
+
+  // tests that a malformed line added is skipped by the reads after it
+  @Test
+  public void testMalformedAdded() throws IOException {
+    Path file = tempFile("tempo 200000\nnote 0 2 1 60 64\n");
+    MusicFollower follower = new MusicFollower(file);
+    MusicModel model = follower.read(new MusicModel.Builder());
+    append(file, "note 2 4 1 62 64\nnote x\n");
+    boolean thrown = false;
+    try {
+      follower.read(model);
+    } catch (IllegalArgumentException e) {
+      thrown = true;
+    }
+    assertTrue(thrown);
+    assertEquals(model.getNoteList().size(), 2);
+    append(file, "note 4 6 1 64 64\n");
+    follower.read(model);
+    assertEquals(model.getNoteList().size(), 3);
+  }
+
+  // tests that the lines added after a malformed line are read by the next read
+  @Test
+  public void testMalformedMidBatch() throws IOException {
+    Path file = tempFile("tempo 200000\nnote 0 2 1 60 64\n");
+    MusicFollower follower = new MusicFollower(file);
+    MusicModel model = follower.read(new MusicModel.Builder());
+    append(file, "note 2 4 1 62 64\nnote 3 x 1 60 64\nnote 4 6 1 64 64\nnote 6 8 1 65 64\n");
+    boolean thrown = false;
+    try {
+      follower.read(model);
+    } catch (IllegalArgumentException e) {
+      thrown = true;
+    }
+    assertTrue(thrown);
+    assertEquals(model.getNoteList().size(), 2);
+    follower.read(model);
+    assertEquals(model.getNoteList().size(), 4);
+    assertEquals(follower.getOffset(), Files.size(file));
+  }
+
+  // tests that a file cut shorter than the part already read can't be followed
+  @Test(expected = IllegalStateException.class)
+  public void testFileCut() throws IOException {
+    Path file = tempFile("tempo 200000\nnote 0 2 1 60 64\n");
+    MusicFollower follower = new MusicFollower(file);
+    follower.read(new MusicModel.Builder());
+    Files.write(file, new byte[0]);
+    follower.read(new MusicModel.Builder());
+  }
+}
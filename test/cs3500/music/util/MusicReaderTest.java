@@ -0,0 +1,183 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the MusicReader class.
+ */
+public class MusicReaderTest {
+  /**
+   * A builder that writes down every call made to it.
+   */
+  private static final class Recorder implements CompositionBuilder<String> {
+    private final StringBuilder calls = new StringBuilder();
+
+    @Override
+    public String build() {
+      return this.calls.toString();
+    }
+
+    @Override
+    public CompositionBuilder<String> setTempo(int tempo) {
+      this.calls.append("tempo ").append(tempo).append('\n');
+      return this;
+    }
+
+    @Override
+    public CompositionBuilder<String> addNote(int start, int end, int instrument, int pitch,
+                                              int volume) {
+      this.calls.append(start).append(' ').append(end).append(' ').append(instrument).append(' ')
+              .append(pitch).append(' ').append(volume).append('\n');
+      return this;
+    }
+  }
+
+  /**
+   * Writes a long piece to a file, with some notes spread over several lines.
+   * @param last represents the text at the end of the file.
+   * @return the path of the file.
+   * @throws IOException if the file can't be written.
+   */
+  private static Path longPiece(String last) throws IOException {
+    StringBuilder text = new StringBuilder("tempo 200000\n");
+    for (int i = 0; i < 40000; i++) {
+      if (i % 7 == 0) {
+        text.append("note ").append(i).append('\n').append(i + 2).append("\n 1 ")
+                .append(40 + i % 50).append(" 64\n");
+      }
+      else {
+        text.append("note ").append(i).append(' ').append(i + 1).append(" 2 ")
+                .append(40 + i % 50).append(" 64\n");
+      }
+      if (i % 10000 == 0) {
+        text.append("tempo ").append(100000 + i).append('\n');
+      }
+    }
+    text.append(last);
+    Path file = Files.createTempFile("music", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+    return file;
+  }
+
+  /**
+   * Gives a channel of the given text.
+   * @param text represents the text.
+   * @return a channel reading the text.
+   */
+  private static ReadableByteChannel channelOf(String text) {
+    return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  // tests that reading the bytes of a file builds the same piece as reading it with a Scanner
+  @Test
+  public void testParseFileMatchesScanner() throws IOException {
+    for (String file : new String[]{"mary-little-lamb.txt", "mystery-1.txt", "df-ttfaf.txt"}) {
+      MusicModel scanned = MusicReader.parseFile(new FileReader("resources/" + file),
+              new MusicModel.Builder());
+      MusicModel read = MusicReader.parseFile(Paths.get("resources/" + file),
+              new MusicModel.Builder());
+      assertEquals(read.getMelodies().toString(), scanned.getMelodies().toString());
+      assertEquals(read.microsecondsPerBeat(), scanned.microsecondsPerBeat());
+    }
+  }
+
+  // tests that words may be split by any whitespace, and numbers may have signs
+  @Test
+  public void testParseChannelWhitespace() throws IOException {
+    MusicModel read = MusicReader.parseChannel(
+            channelOf("  tempo\t+200000\r\nnote 0 2\n1 60 64\n\nnote 2 4 1 62 -0\n"),
+            new MusicModel.Builder());
+    assertEquals(read.microsecondsPerBeat(), 200000);
+    assertEquals(read.getNoteList().size(), 2);
+    assertEquals(read.lengthOfSongInBeats(), 4);
+  }
+
+  // tests that a bad line type is reported with its line and column
+  @Test
+  public void testBadLineType() throws IOException {
+    try {
+      MusicReader.parseChannel(channelOf("tempo 200000\n  notes 0 2 1 60 64\n"),
+              new MusicModel.Builder());
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getMessage(), "Bad line type: notes at line 2, column 3");
+      return;
+    }
+    throw new AssertionError("No exception was thrown.");
+  }
+
+  // tests that a malformed number is reported with its line and column
+  @Test
+  public void testMalformedNumber() throws IOException {
+    try {
+      MusicReader.parseChannel(channelOf("note 0 2 1 6x0 64\n"), new MusicModel.Builder());
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getMessage(), "Malformed note line at line 1, column 12: expected a number "
+              + "but found a word that is not a number.");
+      return;
+    }
+    throw new AssertionError("No exception was thrown.");
+  }
+
+  // tests that reading pieces of a file in parallel gives the builder the same calls
+  @Test
+  public void testParseFileParallel() throws IOException {
+    Path file = longPiece("");
+    String read = MusicReader.parseFile(file, new Recorder());
+    assertEquals(MusicReader.parseFileParallel(file, new Recorder(), 16), read);
+    assertEquals(MusicReader.parseFileParallel(file, new Recorder()), read);
+
+    Path song = Paths.get("resources/df-ttfaf.txt");
+    MusicModel piece = MusicReader.parseFileParallel(song, new MusicModel.Builder(), 8);
+    assertEquals(piece.getMelodies().toString(),
+            MusicReader.parseFile(song, new MusicModel.Builder()).getMelodies().toString());
+  }
+
+  // tests that a malformed file read in parallel fails as it does when read in order
+  @Test
+  public void testParseFileParallelMalformed() throws IOException {
+    Path file = longPiece("note 1 2 3 x 5\n");
+    Recorder inOrder = new Recorder();
+    Recorder inParallel = new Recorder();
+    String expected = null;
+    try {
+      MusicReader.parseFile(file, inOrder);
+    } catch (IllegalArgumentException e) {
+      expected = e.getMessage();
+    }
+    try {
+      MusicReader.parseFileParallel(file, inParallel, 16);
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getMessage(), expected);
+      assertEquals(inParallel.build(), inOrder.build());
+      return;
+    }
+    throw new AssertionError("No exception was thrown.");
+  }
+
+  // tests that a number too large for an int is malformed
+  @Test(expected = IllegalArgumentException.class)
+  public void testNumberTooLarge() throws IOException {
+    MusicReader.parseChannel(channelOf("tempo 2147483648"), new MusicModel.Builder());
+  }
+
+  // tests that a line cut short by the end of the file is malformed
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingNumber() throws IOException {
+    MusicReader.parseChannel(channelOf("note 0 2 1 60"), new MusicModel.Builder());
+  }
+}
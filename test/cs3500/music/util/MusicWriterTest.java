@@ -0,0 +1,52 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the MusicWriter class.
+ */
+public class MusicWriterTest {
+  // tests that a piece is written as a tempo line and a line for each note in the order they start
+  @Test
+  public void testWriteChannel() throws IOException {
+    MusicModel piece = new MusicModel(4, 100);
+    piece.setTempo(200000);
+    piece.addNote(4, 6, 2, 62, 0);
+    piece.addNote(0, 12, 1, 60, 127);
+    piece.addNote(0, 12, 1, 64, 100);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MusicWriter.writeChannel(piece, Channels.newChannel(out));
+    assertEquals(new String(out.toByteArray(), StandardCharsets.US_ASCII), "tempo 200000\n"
+            + "note 0 12 1 60 127\n"
+            + "note 0 12 1 64 100\n"
+            + "note 4 6 2 62 0\n");
+  }
+
+  // tests that every bundled piece written and read back has the same notes in the same melodies
+  @Test
+  public void testRoundTrip() throws IOException {
+    Path file = Files.createTempFile("music", ".txt");
+    file.toFile().deleteOnExit();
+    for (String name : new String[]{"mary-little-lamb.txt", "zoot-zl.txt", "lnl.txt",
+        "df-ttfaf.txt"}) {
+      MusicModel piece = MusicReader.parseFile(Paths.get("resources/" + name),
+              new MusicModel.Builder());
+      MusicWriter.writeFile(piece, file);
+      MusicModel read = MusicReader.parseFile(file, new MusicModel.Builder());
+      assertEquals(read.getMelodies().toString(), piece.getMelodies().toString());
+      assertEquals(read.microsecondsPerBeat(), piece.microsecondsPerBeat());
+    }
+  }
+}
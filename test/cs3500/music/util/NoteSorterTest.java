@@ -0,0 +1,133 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests methods in the NoteSorter class.
+ */
+public class NoteSorterTest {
+  /**
+   * A builder that records the notes it is given, in the order it is given them.
+   */
+  private static final class Recorder implements CompositionBuilder<List<String>> {
+    /**
+     * Represents the notes given so far.
+     */
+    private final List<String> notes = new ArrayList<>();
+
+    @Override
+    public List<String> build() {
+      return this.notes;
+    }
+
+    @Override
+    public CompositionBuilder<List<String>> setTempo(int tempo) {
+      return this;
+    }
+
+    @Override
+    public CompositionBuilder<List<String>> addNote(int start, int end, int instrument,
+                                                    int pitch, int volume) {
+      this.notes.add(start + " " + end + " " + instrument + " " + pitch + " " + volume);
+      return this;
+    }
+  }
+
+  /**
+   * Gives notes to a builder in a scrambled order: starts run backwards, with several notes on
+   * some beats, some negative, and a long note and a wide pitch or two.
+   * @param builder represents the builder.
+   * @param <T>     represents the type of composition.
+   * @return the composition built.
+   */
+  private static <T> T scrambled(CompositionBuilder<T> builder) {
+    for (int i = 0; i < 500; i++) {
+      int start = (i * 37) % 101 - 3;
+      builder.addNote(start, start + 1 + i % 7, 1 + i % 3, 40 + i % 50, i % 128);
+    }
+    builder.addNote(-100000, 100000, 128, 0, 0);
+    builder.addNote(5, 6, 2, 127, 127);
+    return builder.build();
+  }
+
+  /**
+   * Gives the notes the scrambled notes should be passed on as: in order of start, and in the
+   * order they were given where they start together.
+   * @return the notes.
+   */
+  private static List<String> expected() {
+    List<String> notes = scrambled(new Recorder());
+    List<String> sorted = new ArrayList<>(notes);
+    sorted.sort((a, b) -> Integer.compare(Integer.parseInt(a.split(" ")[0]),
+            Integer.parseInt(b.split(" ")[0])));
+    return sorted;
+  }
+
+  // tests that notes fitting in memory are passed on sorted without any run being written
+  @Test
+  public void testInMemory() {
+    NoteSorter<List<String>> sorter = new NoteSorter<>(new Recorder());
+    List<String> sorted = scrambled(sorter);
+    assertEquals(sorter.runCount(), 0);
+    assertEquals(sorted, expected());
+  }
+
+  // tests that a sorter that built in memory holds and sorts later notes as well
+  @Test
+  public void testInMemoryTwice() {
+    NoteSorter<List<String>> sorter = new NoteSorter<>(new Recorder());
+    sorter.addNote(2, 3, 1, 60, 64).addNote(1, 2, 1, 62, 64).addNote(2, 4, 1, 64, 64);
+    assertEquals(sorter.build().toString(), "[1 2 1 62 64, 2 3 1 60 64, 2 4 1 64 64]");
+    assertEquals(sorter.addNote(0, 1, 1, 65, 64).build().toString(),
+            "[1 2 1 62 64, 2 3 1 60 64, 2 4 1 64 64, 0 1 1 65 64]");
+  }
+
+  // tests that notes over the budget are written as runs and merged back in order
+  @Test
+  public void testMergeRuns() {
+    NoteSorter<List<String>> watched = new NoteSorter<>(new Recorder(),
+            64 * NoteSorter.BYTES_PER_NOTE);
+    for (int i = 0; i < 65; i++) {
+      watched.addNote(65 - i, 66 - i, 1, 60, 64);
+    }
+    assertEquals(watched.runCount(), 1);
+    assertEquals(watched.build().get(0), "1 2 1 60 64");
+    assertEquals(watched.runCount(), 0);
+    assertEquals(new NoteSorter<>(new Recorder(), 2 * NoteSorter.BYTES_PER_NOTE)
+            .addNote(3, 4, 1, 60, 64).addNote(1, 2, 1, 60, 64).addNote(2, 3, 1, 60, 64)
+            .build().toString(), "[1 2 1 60 64, 2 3 1 60 64, 3 4 1 60 64]");
+  }
+
+  // tests that merged runs pass on every note, in the order the notes start
+  @Test
+  public void testMergedOrder() {
+    assertEquals(scrambled(new NoteSorter<>(new Recorder(), 30 * NoteSorter.BYTES_PER_NOTE)),
+            expected());
+  }
+
+  // tests that a sorted read of a file builds the same piece as an unsorted one
+  @Test
+  public void testReadSorted() throws IOException {
+    MusicModel sorted = MusicReader.parseFile(Paths.get("resources/df-ttfaf.txt"),
+            new NoteSorter<>(new MusicModel.Builder(), 1 << 16));
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/df-ttfaf.txt"),
+            new MusicModel.Builder());
+    assertEquals(sorted.getNoteList(), piece.getNoteList());
+    assertEquals(sorted.microsecondsPerBeat(), piece.microsecondsPerBeat());
+  }
+
+  // tests that a budget too small for two notes is refused
+  @Test(expected = IllegalArgumentException.class)
+  public void testSmallBudget() {
+    new NoteSorter<>(new Recorder(), NoteSorter.BYTES_PER_NOTE);
+  }
+}
@@ -0,0 +1,112 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import cs3500.music.model.AFlag;
+import cs3500.music.model.IFlag;
+import cs3500.music.model.MusicModel;
+import cs3500.music.model.Note;
+import cs3500.music.model.Pitch;
+import cs3500.music.model.Repeat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the ScoreFile class.
+ */
+public class ScoreFileTest {
+  /**
+   * Gives a new file that is deleted once the tests are done.
+   * @return the path of the file.
+   * @throws IOException if the file can't be made.
+   */
+  private static Path tempFile() throws IOException {
+    Path file = Files.createTempFile("score", ".bin");
+    file.toFile().deleteOnExit();
+    return file;
+  }
+
+  // tests that a saved piece is loaded back with the same melodies, settings and events
+  @Test
+  public void testWriteAndLoad() throws IOException {
+    MusicModel piece = new MusicModel(3, 80);
+    piece.setTempo(150000);
+    piece.addNote(0, 2, 1, 60, 64);
+    piece.addNote(0, 2, 1, 64, 70);
+    piece.addNote(2, 5, 1, 62, 64);
+    piece.addNote(8, 9, 1, 67, 64);
+    piece.addNote(1, 4, 3, 48, 100);
+    piece.removeNote(new Note(Pitch.D, 5, 3), 2);
+    piece.addEvent(new Repeat(0, 4));
+    piece.addEvent(new Repeat(4, 5, 7, 9));
+    Path file = tempFile();
+    ScoreFile.write(piece, file);
+
+    MusicModel loaded = ScoreFile.load(file);
+    assertEquals(loaded.getMelodies().toString(), piece.getMelodies().toString());
+    assertEquals(loaded.getMelodies(), piece.getMelodies());
+    assertEquals(loaded.microsecondsPerBeat(), 150000);
+    assertEquals(loaded.beatsPerMeasure(), 3);
+    assertEquals(loaded.getVolume(), 80);
+    assertEquals(loaded.getEvents(), piece.getEvents());
+    assertEquals(loaded.getNoteList(), piece.getNoteList());
+  }
+
+  // tests that the notes sounding during any range of beats are found as the model finds them
+  @Test
+  public void testGetNotesBetween() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/df-ttfaf.txt"),
+            new MusicModel.Builder());
+    Path file = tempFile();
+    ScoreFile.write(piece, file);
+    ScoreFile score = ScoreFile.open(file);
+    assertEquals(score.lengthOfSongInBeats(), piece.lengthOfSongInBeats());
+    assertEquals(score.getMelodyCount(), piece.getMelodies().size());
+    int[][] ranges = {{0, 1}, {63, 65}, {64, 128}, {1000, 1003}, {20000, 20500},
+        {piece.lengthOfSongInBeats() - 10, piece.lengthOfSongInBeats() + 10}, {-5, 3}, {7, 7}};
+    for (int[] range : ranges) {
+      assertEquals(score.getNotesBetween(range[0], range[1]).toString(),
+              piece.getNotesBetween(range[0], range[1]).toString());
+    }
+  }
+
+  // tests that a score file gives a builder the notes of the piece saved
+  @Test
+  public void testRead() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new MusicModel.Builder());
+    Path file = tempFile();
+    ScoreFile.write(piece, file);
+    assertTrue(ScoreFile.isScoreFile(file));
+    MusicModel read = ScoreFile.read(file, new MusicModel.Builder());
+    assertEquals(read.getMelodies().toString(), piece.getMelodies().toString());
+    assertEquals(read.microsecondsPerBeat(), piece.microsecondsPerBeat());
+  }
+
+  // tests that a text file is not taken for a score file
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotAScoreFile() throws IOException {
+    assertFalse(ScoreFile.isScoreFile(Paths.get("resources/mystery-1.txt")));
+    ScoreFile.open(Paths.get("resources/mystery-1.txt"));
+  }
+
+  // tests that only repeats can be saved
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteOtherEvent() throws IOException {
+    MusicModel piece = new MusicModel(4, 100);
+    piece.addEvent(new AFlag(0, 1) {
+      @Override
+      public IFlag copy() {
+        return this;
+      }
+    });
+    ScoreFile.write(piece, tempFile());
+  }
+}
@@ -0,0 +1,87 @@
+package cs3500.music.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import cs3500.music.model.MusicModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests methods in the ScoreWindow class.
+ */
+public class ScoreWindowTest {
+  /**
+   * Saves the given text file to a score file that is deleted once the tests are done.
+   * @param name represents the name of the text file in the resources.
+   * @return the path of the score file.
+   * @throws IOException if either file can't be read or written.
+   */
+  private static Path scoreOf(String name) throws IOException {
+    Path file = Files.createTempFile("score", ".bin");
+    file.toFile().deleteOnExit();
+    ScoreFile.write(MusicReader.parseFile(Paths.get("resources/" + name),
+            new MusicModel.Builder()), file);
+    return file;
+  }
+
+  // tests that the notes of any range are found as the model finds them
+  @Test
+  public void testGetNotesBetween() throws IOException {
+    MusicModel piece = MusicReader.parseFile(Paths.get("resources/df-ttfaf.txt"),
+            new MusicModel.Builder());
+    ScoreWindow window = new ScoreWindow(ScoreFile.open(scoreOf("df-ttfaf.txt")), 100, 1, 3);
+    int[][] ranges = {{0, 50}, {90, 110}, {250, 520}, {30000, 30001}, {-3, 2},
+        {piece.lengthOfSongInBeats() - 5, piece.lengthOfSongInBeats() + 5}};
+    for (int[] range : ranges) {
+      assertEquals(window.getNotesBetween(range[0], range[1]).toString(),
+              piece.getNotesBetween(range[0], range[1]).toString());
+    }
+    assertTrue(window.residentRegions() <= 3);
+  }
+
+  // tests that only the regions around the beats shown are read, and old ones are dropped
+  @Test
+  public void testShowBeats() throws IOException {
+    ScoreWindow window = new ScoreWindow(ScoreFile.open(scoreOf("df-ttfaf.txt")), 100, 1, 4);
+    assertEquals(window.residentRegions(), 0);
+    window.showBeats(250, 300);
+    assertEquals(window.residentRegions(), 3);
+    assertEquals(window.getShownBeats()[0], 100);
+    assertEquals(window.getShownBeats()[1], 400);
+    assertTrue(window.isResident(150));
+    assertTrue(window.isResident(399));
+    assertFalse(window.isResident(400));
+    window.showBeats(260, 290);
+    assertEquals(window.regionReads(), 3);
+    window.showBeats(1000, 1050);
+    assertEquals(window.residentRegions(), 4);
+    assertFalse(window.isResident(150));
+    assertTrue(window.isResident(1000));
+    assertEquals(window.regionReads(), 6);
+  }
+
+  // tests that a window near the start or end of the piece reads no regions beyond it
+  @Test
+  public void testShowBeatsAtEdges() throws IOException {
+    ScoreWindow window = new ScoreWindow(ScoreFile.open(scoreOf("mary-little-lamb.txt")), 16, 2,
+            8);
+    window.showBeats(0, 10);
+    assertEquals(window.residentRegions(), 3);
+    window.showBeats(60, 64);
+    assertEquals(window.residentRegions(), 4);
+    assertEquals(window.getScore().lengthOfSongInBeats(), 64);
+  }
+
+  // tests that a window must have room for a region
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoRegions() throws IOException {
+    new ScoreWindow(ScoreFile.open(scoreOf("mary-little-lamb.txt")), 16, 1, 0);
+  }
+}
@@ -2,6 +2,15 @@ package cs3500.music.view;
 
 import org.junit.Test;
 
+import java.nio.file.Paths;
+
+import cs3500.music.adaptor.ModelAdaptor;
+import cs3500.music.model.MusicModel;
+import cs3500.music.provider.model.ASound;
+import cs3500.music.provider.model.IViewModel;
+import cs3500.music.provider.view.ConsoleView;
+import cs3500.music.util.MusicReader;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -160,6 +169,78 @@ public class TextViewTest {
     view.display();
   }
 
+  /** Tests that a text view over a range of beats shows only those rows, holds included. */
+  @Test
+  public void testShowPieceRange() {
+    MusicModel piece = new MusicModel.Builder()
+            .addNote(0, 4, 1, 60, 64)
+            .addNote(3, 4, 1, 62, 64)
+            .addNote(5, 6, 1, 61, 64)
+            .build();
+    IMusicView view = ViewFactory.createView(ViewFactory.TEXT_VIEW + ":2-4");
+    view.showPiece(piece);
+    assertEquals(view.getCurrentState(), "      C5   C#5  D5  "
+            + "\n    2  |             "
+            + "\n    3  |         X   "
+            + "\n");
+    IMusicView whole = ViewFactory.createView(ViewFactory.TEXT_VIEW);
+    whole.showPiece(piece);
+    assertEquals(whole.getCurrentState(), piece.getGameState());
+  }
+
+  /** Tests that a console view over a range of beats prints those rows of the whole piece. */
+  @Test
+  public void testConsoleViewRange() throws Exception {
+    IViewModel<ASound> piece = MusicReader.parseFile(Paths.get("resources/mystery-1.txt"),
+            new ModelAdaptor.Builder());
+    StringBuilder all = new StringBuilder();
+    new ConsoleView(piece, all).activate();
+    String[] rows = all.toString().split("\n");
+    StringBuilder range = new StringBuilder();
+    new ConsoleView(piece, range, 41, 57).activate();
+    StringBuilder expected = new StringBuilder(rows[0]).append("\n");
+    for (int beat = 41; beat < 57; beat++) {
+      expected.append(rows[beat + 1]).append("\n");
+    }
+    assertEquals(range.toString(), expected.toString());
+  }
+
+  /** Tests that a console view holds each note for its own length, however notes overlap. */
+  @Test
+  public void testConsoleViewOverlapping() {
+    StringBuilder out = new StringBuilder();
+    new ConsoleView(new ModelAdaptor.Builder()
+            .addNote(0, 2, 1, 60, 64)
+            .addNote(1, 4, 2, 60, 64)
+            .addNote(2, 3, 1, 62, 64)
+            .build(), out).activate();
+    assertEquals(out.toString(), "     C5  C#5   D5 \n"
+            + "  0  X            \n"
+            + "  1  X            \n"
+            + "  2  |         X  \n"
+            + "  3  |            \n");
+  }
+
+  /** Tests that a console view widens the numbers of beats past 999, as String.format would. */
+  @Test
+  public void testConsoleViewLongPiece() {
+    StringBuilder out = new StringBuilder();
+    new ConsoleView(new ModelAdaptor.Builder()
+            .addNote(0, 1, 1, 60, 64)
+            .addNote(998, 1001, 1, 61, 64)
+            .build(), out, 998, 2000).activate();
+    assertEquals(out.toString(), "     C5  C#5 \n"
+            + String.format("% 3d", 998) + "       X  \n"
+            + String.format("% 3d", 999) + "       |  \n"
+            + String.format("% 3d", 1000) + "       |  \n");
+  }
+
+  /** Tests that a malformed range of beats is refused. */
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadRange() {
+    ViewFactory.createView(ViewFactory.TEXT_VIEW + ":2");
+  }
+
   /*@Test
   public void testHandNotes() {
     IMusicView view = ViewFactory.createView(ViewFactory.TEXT_VIEW);